@@ -0,0 +1,156 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.ParallelBackUpExecutor;
+import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.benchmark.SyntheticTreeGenerator.SizeDistribution;
+import org.fl.backupFiles.directoryGroup.GroupPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Execution of the back up items of a scan (copies, replacements and deletions),
+// one after another (1 thread) or with the parallel back up executor.
+// Before each iteration, the target is restored and scanned again
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackUpExecutionBenchmark {
+
+	private static final Logger bLog = Logger.getLogger(BackUpExecutionBenchmark.class.getName());
+	
+	@Param({ "1", "4" })
+	private int nbThreads;
+	
+	@Param({ "20" })
+	private int nbFilesPerDirectory;
+	
+	@Param({ "4" })
+	private int nbSubDirectoriesPerDirectory;
+	
+	@Param({ "3" })
+	private int depth;
+	
+	@Param({ "SMALL", "MIXED" })
+	private SizeDistribution sizeDistribution;
+	
+	@Param({ "0.3" })
+	private double changeRatio;
+	
+	private Path baseDirectory;
+	private Path referenceTarget;
+	private Path target;
+	private BackUpTask backUpTask;
+	private BackUpItemList backUpItems;
+	private ExecutorService executorService;
+	private TargetFileStores targetFileStores;
+	
+	@Setup(Level.Trial)
+	public void generateTrees() throws IOException, URISyntaxException {
+		
+		BenchmarkSupport.initConfig();
+		baseDirectory = Files.createTempDirectory("backUpExecutionBenchmark");
+		Path source = baseDirectory.resolve("source");
+		referenceTarget = baseDirectory.resolve("referenceTarget");
+		target = baseDirectory.resolve("target");
+		
+		SyntheticTreeGenerator syntheticTreeGenerator = 
+				new SyntheticTreeGenerator(bLog, nbFilesPerDirectory, nbSubDirectoriesPerDirectory, depth, sizeDistribution, changeRatio, 1);
+		syntheticTreeGenerator.generateTree(source);
+		SyntheticTreeGenerator.copyTree(source, referenceTarget);
+		syntheticTreeGenerator.applyChanges(source);
+		
+		Files.createDirectories(target);
+		backUpTask = BenchmarkSupport.backUpTask(source, target, GroupPolicy.DO_NOT_GROUP);
+		
+		targetFileStores = new TargetFileStores();
+		targetFileStores.addTargetFileStore(target, Config.getFileStoreRemainingSpaceWarningThreshold());
+		targetFileStores.setMaxConcurrentBackUpActions(nbThreads);
+		if (nbThreads > 1) {
+			executorService = Executors.newFixedThreadPool(nbThreads);
+		}
+	}
+	
+	@Setup(Level.Iteration)
+	public void restoreTarget() throws IOException {
+		
+		SyntheticTreeGenerator.deleteTree(target);
+		SyntheticTreeGenerator.copyTree(referenceTarget, target);
+		backUpItems = BenchmarkSupport.scanBackUpItems(backUpTask);
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteTrees() throws IOException {
+		
+		if (executorService != null) {
+			executorService.shutdown();
+		}
+		SyntheticTreeGenerator.deleteTree(baseDirectory);
+	}
+	
+	@Benchmark
+	public BackUpCounters backUp() throws InterruptedException {
+		
+		BackUpCounters backUpCounters = new BackUpCounters(targetFileStores, OperationType.BACKUP);
+		if (executorService == null) {
+			for (AbstractBackUpItem backUpItem : backUpItems) {
+				backUpItem.execute(backUpCounters);
+			}
+		} else {
+			new ParallelBackUpExecutor(executorService, nbThreads*2, targetFileStores)
+				.execute(backUpItems, backUpCounters, () -> false, nbActionsDone -> {});
+		}
+		return backUpCounters;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.benchmark.SyntheticTreeGenerator.SizeDistribution;
+import org.fl.backupFiles.directoryGroup.GroupPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Add the back up items of a scan to a back up item list, for each group policy of the directory group of the items
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackUpItemListBenchmark {
+
+	private static final Logger bLog = Logger.getLogger(BackUpItemListBenchmark.class.getName());
+	
+	@Param({ "DO_NOT_GROUP", "GROUP_SUB_ITEMS", "GROUP_ALL" })
+	private GroupPolicy groupPolicy;
+	
+	@Param({ "20" })
+	private int nbFilesPerDirectory;
+	
+	@Param({ "4" })
+	private int nbSubDirectoriesPerDirectory;
+	
+	@Param({ "4" })
+	private int depth;
+	
+	@Param({ "0.5" })
+	private double changeRatio;
+	
+	private Path baseDirectory;
+	private BackUpTask backUpTask;
+	private BackUpItemList scannedBackUpItems;
+	
+	@Setup(Level.Trial)
+	public void scanTree() throws IOException, URISyntaxException {
+		
+		BenchmarkSupport.initConfig();
+		baseDirectory = Files.createTempDirectory("backUpItemListBenchmark");
+		Path source = baseDirectory.resolve("source");
+		Path target = baseDirectory.resolve("target");
+		
+		SyntheticTreeGenerator syntheticTreeGenerator = 
+				new SyntheticTreeGenerator(bLog, nbFilesPerDirectory, nbSubDirectoriesPerDirectory, depth, SizeDistribution.SMALL, changeRatio, 1);
+		syntheticTreeGenerator.generateTree(source);
+		SyntheticTreeGenerator.copyTree(source, target);
+		syntheticTreeGenerator.applyChanges(source);
+		
+		backUpTask = BenchmarkSupport.backUpTask(source, target, groupPolicy);
+		scannedBackUpItems = BenchmarkSupport.scanBackUpItems(backUpTask);
+		bLog.info("Back up items: " + scannedBackUpItems.size());
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteTree() throws IOException {
+		SyntheticTreeGenerator.deleteTree(baseDirectory);
+	}
+	
+	@Benchmark
+	public BackUpItemList addBackUpItems() {
+		
+		// the back up item groups are kept by the directory groups
+		backUpTask.getDirectoryGroupMap().clearBackUpItemsInDirectoryGroup();
+		
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		for (AbstractBackUpItem backUpItem : scannedBackUpItems) {
+			backUpItemList.add(backUpItem);
+		}
+		return backUpItemList;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.benchmark.SyntheticTreeGenerator.SizeDistribution;
+import org.fl.backupFiles.directoryGroup.GroupPolicy;
+import org.fl.backupFiles.gui.BackUpJTable;
+import org.fl.backupFiles.gui.BackUpTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Access by row index and sort of a back up table with 1 million rows.
+// The rows are the back up items of a scan, repeated to reach the number of rows
+// (the table model and its sorter do not depend on the items being distinct)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true" })
+public class BackUpTableModelBenchmark {
+
+	private static final Logger bLog = Logger.getLogger(BackUpTableModelBenchmark.class.getName());
+	
+	@Param({ "1000000" })
+	private int nbRows;
+	
+	@Param({ "" + BackUpTableModel.SOURCE_PATH_COL_IDX, "" + BackUpTableModel.SIZE_DIFF_COL_IDX, "" + BackUpTableModel.ACTION_COL_IDX })
+	private int sortColumn;
+	
+	private Path baseDirectory;
+	private BackUpTableModel backUpTableModel;
+	private RowSorter<?> rowSorter;
+	
+	@Setup(Level.Trial)
+	public void buildTable() throws IOException, URISyntaxException {
+		
+		BenchmarkSupport.initConfig();
+		baseDirectory = Files.createTempDirectory("backUpTableModelBenchmark");
+		Path source = baseDirectory.resolve("source");
+		Path target = baseDirectory.resolve("target");
+		
+		SyntheticTreeGenerator syntheticTreeGenerator = 
+				new SyntheticTreeGenerator(bLog, 20, 4, 3, SizeDistribution.SMALL, 0.5, 1);
+		syntheticTreeGenerator.generateTree(source);
+		SyntheticTreeGenerator.copyTree(source, target);
+		syntheticTreeGenerator.applyChanges(source);
+		
+		BackUpItemList scannedBackUpItems = BenchmarkSupport.scanBackUpItems(BenchmarkSupport.backUpTask(source, target, GroupPolicy.DO_NOT_GROUP));
+		if (scannedBackUpItems.isEmpty()) {
+			throw new IllegalStateException("No back up items scanned");
+		}
+		
+		BackUpItemList backUpItems = BackUpItemList.build();
+		while (backUpItems.size() < nbRows) {
+			backUpItems.addAll(scannedBackUpItems.subList(0, Math.min(scannedBackUpItems.size(), nbRows - backUpItems.size())));
+		}
+		backUpTableModel = new BackUpTableModel(backUpItems);
+		
+		// Same row sorter and comparators as in the GUI (without the table, which needs a display)
+		rowSorter = BackUpJTable.newRowSorter(backUpTableModel);
+	}
+	
+	@Setup(Level.Invocation)
+	public void unsort() {
+		rowSorter.setSortKeys(null);
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteTree() throws IOException {
+		SyntheticTreeGenerator.deleteTree(baseDirectory);
+	}
+	
+	@Benchmark
+	public void getAllValues(Blackhole blackhole) {
+		
+		int nbColumns = backUpTableModel.getColumnCount();
+		for (int row = 0; row < backUpTableModel.getRowCount(); row++) {
+			for (int column = 0; column < nbColumns; column++) {
+				blackhole.consume(backUpTableModel.getValueAt(row, column));
+			}
+		}
+	}
+	
+	@Benchmark
+	public int sort() {
+		
+		rowSorter.setSortKeys(List.of(new RowSorter.SortKey(sortColumn, SortOrder.ASCENDING)));
+		return rowSorter.convertRowIndexToModel(0);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpItemGroup;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.directoryGroup.DirectoryPermanenceLevel;
+import org.fl.backupFiles.directoryGroup.GroupPolicy;
+import org.fl.backupFiles.scanner.BackUpScannerThread;
+import org.fl.util.RunningContext;
+
+// Common set up of the benchmarks
+public class BenchmarkSupport {
+
+	public static final String DEFAULT_PROP_FILE = "file:///ForTests/BackUpFiles/backupFiles.properties";
+	
+	private BenchmarkSupport() {
+	}
+	
+	public static void initConfig() {
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", DEFAULT_PROP_FILE));
+	}
+	
+	// Back up task with a single directory group on the source root
+	public static BackUpTask backUpTask(Path source, Path target, GroupPolicy groupPolicy) throws IOException {
+		
+		String directoryGroupJson = "[{\"path\":\"" + source.toUri().getPath() + "\",\"permanence\":\"" + DirectoryPermanenceLevel.LOW.name() + 
+				"\",\"groupPolicy\":\"" + groupPolicy.name() + "\"}]";
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(source, source, new DirectoryGroupConfiguration(directoryGroupJson));
+		return new BackUpTask(source, target, directoryGroupMap, Long.MAX_VALUE);
+	}
+	
+	// Scan a back up task and return the individual back up items (the back up item groups are replaced by their items)
+	public static BackUpItemList scanBackUpItems(BackUpTask backUpTask) {
+		
+		BackUpItemList scannedItems = new BackUpScannerThread(backUpTask).scan().getBackUpItemList();
+		BackUpItemList backUpItems = BackUpItemList.build();
+		for (AbstractBackUpItem backUpItem : scannedItems) {
+			if (backUpItem instanceof BackUpItemGroup backUpItemGroup) {
+				backUpItems.addAll(backUpItemGroup.getBackUpItems());
+			} else {
+				backUpItems.addAll(List.of(backUpItem));
+			}
+		}
+		return backUpItems;
+	}
+}
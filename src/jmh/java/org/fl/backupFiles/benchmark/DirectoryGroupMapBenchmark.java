@@ -0,0 +1,125 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.directoryGroup.DirectoryPermanenceLevel;
+import org.fl.backupFiles.directoryGroup.GroupPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Directory group lookup of paths, half of them being under a directory group, for several numbers of directory groups.
+// Compares the path component trie lookup with the former linear scan of the directory groups.
+// No file system access : the paths do not need to exist
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryGroupMapBenchmark {
+
+	private static final int NB_LOOKUPS = 10000;
+	private static final Path SOURCE_ROOT = Path.of("/BenchmarkSource").toAbsolutePath();
+	
+	@Param({ "10", "100", "1000" })
+	private int nbDirectoryGroups;
+	
+	private DirectoryGroupMap directoryGroupMap;
+	private Path[] lookedUpPaths;
+	
+	@Setup(Level.Trial)
+	public void buildDirectoryGroupMap() {
+		
+		Random random = new Random(1);
+		StringBuilder directoryGroupJson = new StringBuilder("[");
+		Path[] directoryGroupPaths = new Path[nbDirectoryGroups];
+		for (int i = 0; i < nbDirectoryGroups; i++) {
+			
+			// directory groups at depth 1 to 4 under the source root
+			Path directoryGroupPath = SOURCE_ROOT.resolve("dir" + i);
+			for (int level = random.nextInt(4); level > 0; level--) {
+				directoryGroupPath = directoryGroupPath.resolve("sub" + random.nextInt(10));
+			}
+			directoryGroupPaths[i] = directoryGroupPath;
+			
+			if (i > 0) {
+				directoryGroupJson.append(",");
+			}
+			directoryGroupJson.append("{\"path\":\"").append(directoryGroupPath.toUri().getPath())
+				.append("\",\"permanence\":\"").append(DirectoryPermanenceLevel.values()[i % DirectoryPermanenceLevel.values().length].name())
+				.append("\",\"groupPolicy\":\"").append(GroupPolicy.values()[i % GroupPolicy.values().length].name())
+				.append("\"}");
+		}
+		directoryGroupJson.append("]");
+		directoryGroupMap = new DirectoryGroupMap(SOURCE_ROOT, SOURCE_ROOT, new DirectoryGroupConfiguration(directoryGroupJson.toString()));
+		
+		lookedUpPaths = new Path[NB_LOOKUPS];
+		for (int i = 0; i < NB_LOOKUPS; i++) {
+			if (i % 2 == 0) {
+				// under a directory group
+				lookedUpPaths[i] = directoryGroupPaths[random.nextInt(nbDirectoryGroups)].resolve("a" + random.nextInt(100)).resolve("file" + i);
+			} else {
+				// under no directory group
+				lookedUpPaths[i] = SOURCE_ROOT.resolve("other" + random.nextInt(100)).resolve("b" + random.nextInt(100)).resolve("file" + i);
+			}
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(NB_LOOKUPS)
+	public void getDirectoryGroup(Blackhole blackhole) {
+		
+		for (Path lookedUpPath : lookedUpPaths) {
+			blackhole.consume(directoryGroupMap.getDirectoryGroup(lookedUpPath));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(NB_LOOKUPS)
+	public void getDirectoryGroupByLinearScan(Blackhole blackhole) {
+		
+		for (Path lookedUpPath : lookedUpPaths) {
+			blackhole.consume(directoryGroupMap.getDirectoryGroupByLinearScan(lookedUpPath));
+		}
+	}
+}
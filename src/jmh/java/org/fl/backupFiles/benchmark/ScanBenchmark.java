@@ -0,0 +1,140 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.BackUpJob;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpJobList;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.JobsChoice;
+import org.fl.backupFiles.benchmark.SyntheticTreeGenerator.SizeDistribution;
+import org.fl.backupFiles.scanner.BackUpScannerThread;
+import org.fl.backupFiles.scanner.FileStorePermits;
+import org.fl.backupFiles.scanner.FilesScanEngine;
+import org.fl.backupFiles.scanner.ScanExecutorType;
+import org.fl.backupFiles.scanner.ScannerThreadResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Scan of the source to buffer tasks of a back up job generated by the synthetic tree generator,
+// the back up tasks being scanned in parallel as in the GUI, by a fixed thread pool or by virtual threads limited by file store permits
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+	private static final Logger bLog = Logger.getLogger(ScanBenchmark.class.getName());
+	
+	@Param({ "4", "32" })
+	private int nbBackUpTasks;
+	
+	@Param({ "50" })
+	private int nbFilesPerDirectory;
+	
+	@Param({ "4" })
+	private int nbSubDirectoriesPerDirectory;
+	
+	@Param({ "3" })
+	private int depth;
+	
+	@Param({ "SMALL" })
+	private SizeDistribution sizeDistribution;
+	
+	@Param({ "0.05" })
+	private double changeRatio;
+	
+	@Param({ "false", "true" })
+	private boolean forkJoinScan;
+	
+	@Param({ "FIXED", "VIRTUAL" })
+	private ScanExecutorType scanExecutorType;
+	
+	// Thread pool size for the fixed thread pool, file store maximum concurrency for the virtual threads
+	@Param({ "10" })
+	private int concurrency;
+	
+	private SyntheticTreeGenerator syntheticTreeGenerator;
+	private List<BackUpTask> backUpTasks;
+	private ExecutorService scanExecutorService;
+	private FileStorePermits fileStorePermits;
+	
+	@Setup(Level.Trial)
+	public void generateTrees() throws URISyntaxException {
+		
+		BenchmarkSupport.initConfig();
+		syntheticTreeGenerator = new SyntheticTreeGenerator(bLog, nbFilesPerDirectory, nbSubDirectoriesPerDirectory, depth, sizeDistribution, changeRatio, 1);
+		if (! syntheticTreeGenerator.generateTestData(nbBackUpTasks)) {
+			throw new IllegalStateException("Fail to generate test data");
+		}
+		bLog.info("Files generated: " + syntheticTreeGenerator.getNbFilesGenerated() + ", changed: " + syntheticTreeGenerator.getNbFilesChanged());
+		
+		BackUpJob backUpJob = new BackUpJobList(SyntheticTreeGenerator.getConfigFileDir()).firstElement();
+		JobsChoice jobsChoice = new JobsChoice(Arrays.asList(backUpJob));
+		backUpTasks = jobsChoice.getTasks(JobTaskType.SOURCE_TO_BUFFER);
+		backUpTasks.forEach(backUpTask -> backUpTask.setForkJoinScan(forkJoinScan));
+		
+		scanExecutorService = scanExecutorType.newExecutorService(concurrency);
+		fileStorePermits = scanExecutorType.needFileStorePermits() ? new FileStorePermits(concurrency) : null;
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteTrees() {
+		scanExecutorService.shutdown();
+		syntheticTreeGenerator.deleteTestData();
+	}
+	
+	@Benchmark
+	public void scan(Blackhole blackhole) {
+		
+		List<CompletableFuture<ScannerThreadResponse>> responses = backUpTasks.stream()
+				.map(BackUpScannerThread::new)
+				.map(backUpScannerThread -> FilesScanEngine.launchScan(backUpScannerThread, scanExecutorService, fileStorePermits))
+				.toList();
+		responses.forEach(response -> blackhole.consume(response.join().getBackUpItemList().size()));
+	}
+}
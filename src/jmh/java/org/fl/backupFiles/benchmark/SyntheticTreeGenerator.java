@@ -0,0 +1,233 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.fl.backupFiles.gui.workers.TestDataManager;
+import org.fl.util.file.FilesUtils;
+
+// Generate synthetic source and buffer trees for the benchmarks, instead of copying the test data.
+// The shape of the trees (files per directory, sub directories per directory, depth),
+// the distribution of the file sizes and the ratio of source files changed after the buffer copy are configurable.
+// The generation is deterministic for a given seed.
+public class SyntheticTreeGenerator extends TestDataManager {
+
+	// Name of the directory group sub directory generated under each tree root
+	public static final String GROUP_SUB_DIRECTORY = SUB_DIRECTORY_FOR_GROUP.replace("/", "");
+	
+	private static final int WRITE_BUFFER_SIZE = 64*1024;
+	private static final FileTime GENERATION_TIME = FileTime.from(Instant.now().minus(10, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS));
+	
+	public enum SizeDistribution {
+		
+		// 0 to 8 KB
+		SMALL,
+		// 95% of 0 to 8 KB, 4% of 8 KB to 1 MB, 1% of 1 MB to 16 MB
+		MIXED,
+		// 1 MB to 16 MB
+		LARGE;
+		
+		long nextSize(Random random) {
+			
+			return switch (this) {
+				case SMALL -> random.nextLong(8*1024);
+				case LARGE -> random.nextLong(1024*1024, 16*1024*1024);
+				case MIXED -> {
+					int draw = random.nextInt(100);
+					if (draw < 95) {
+						yield random.nextLong(8*1024);
+					} else if (draw < 99) {
+						yield random.nextLong(8*1024, 1024*1024);
+					} else {
+						yield random.nextLong(1024*1024, 16*1024*1024);
+					}
+				}
+			};
+		}
+	}
+	
+	private final int nbFilesPerDirectory;
+	private final int nbSubDirectoriesPerDirectory;
+	private final int depth;
+	private final SizeDistribution sizeDistribution;
+	private final double changeRatio;
+	private final Random random;
+	private final byte[] writeBuffer;
+	
+	private long nbFilesGenerated;
+	private long nbFilesChanged;
+	
+	public SyntheticTreeGenerator(Logger l, int nbFilesPerDirectory, int nbSubDirectoriesPerDirectory, int depth, 
+			SizeDistribution sizeDistribution, double changeRatio, long seed) throws URISyntaxException {
+		
+		super(l);
+		this.nbFilesPerDirectory = nbFilesPerDirectory;
+		this.nbSubDirectoriesPerDirectory = nbSubDirectoriesPerDirectory;
+		this.depth = depth;
+		this.sizeDistribution = sizeDistribution;
+		this.changeRatio = changeRatio;
+		random = new Random(seed);
+		writeBuffer = new byte[WRITE_BUFFER_SIZE];
+		nbFilesGenerated = 0;
+		nbFilesChanged = 0;
+	}
+
+	// Directory of the back up configuration generated by generateTestData
+	public static Path getConfigFileDir() throws URISyntaxException {
+		return FilesUtils.uriStringToAbsolutePath(CONFIG_FILE_FOLDER_URI);
+	}
+	
+	public long getNbFilesGenerated() {
+		return nbFilesGenerated;
+	}
+
+	public long getNbFilesChanged() {
+		return nbFilesChanged;
+	}
+
+	// The buffer is a copy of the generated source, then a part of the source files are changed
+	@Override
+	protected boolean generateSourceAndBufferData(Path testDataDir, Path srcPath, Path bufPath) throws IOException {
+		
+		generateTree(srcPath);
+		copyTree(srcPath, bufPath);
+		applyChanges(srcPath);
+		return true;
+	}
+	
+	// Generate a tree. The first sub directory of the root is the directory group sub directory
+	public void generateTree(Path root) throws IOException {
+		generateDirectory(root, 0);
+	}
+	
+	private void generateDirectory(Path directory, int level) throws IOException {
+		
+		Files.createDirectories(directory);
+		for (int i = 0; i < nbFilesPerDirectory; i++) {
+			writeFile(directory.resolve("file" + i + ".dat"), sizeDistribution.nextSize(random));
+			nbFilesGenerated++;
+		}
+		if (level < depth) {
+			for (int i = 0; i < nbSubDirectoriesPerDirectory; i++) {
+				String subDirectoryName = ((level == 0) && (i == 0)) ? GROUP_SUB_DIRECTORY : "dir" + i;
+				generateDirectory(directory.resolve(subDirectoryName), level + 1);
+			}
+		}
+		Files.setLastModifiedTime(directory, GENERATION_TIME);
+	}
+	
+	private void writeFile(Path file, long size) throws IOException {
+		
+		try (OutputStream out = Files.newOutputStream(file)) {
+			long remaining = size;
+			while (remaining > 0) {
+				random.nextBytes(writeBuffer);
+				int nbBytes = (int)Math.min(remaining, writeBuffer.length);
+				out.write(writeBuffer, 0, nbBytes);
+				remaining = remaining - nbBytes;
+			}
+		}
+		Files.setLastModifiedTime(file, GENERATION_TIME);
+	}
+	
+	// Change a part (the change ratio) of the files of the tree : a third are modified, a third are deleted,
+	// and a third get a new sibling file
+	public void applyChanges(Path root) throws IOException {
+		
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(root)) {
+			files = paths.filter(Files::isRegularFile).sorted().toList();
+		}
+		for (Path file : files) {
+			if (random.nextDouble() < changeRatio) {
+				switch (random.nextInt(3)) {
+					case 0 -> writeFile(file, sizeDistribution.nextSize(random));
+					case 1 -> Files.delete(file);
+					default -> writeFile(file.resolveSibling("new_" + file.getFileName()), sizeDistribution.nextSize(random));
+				}
+				// changed files are newer than their copies
+				if (Files.exists(file)) {
+					Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+				}
+				nbFilesChanged++;
+			}
+		}
+	}
+	
+	// Copy a tree, with the last modified times
+	public static void copyTree(Path source, Path target) throws IOException {
+		
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(target.resolve(source.relativize(dir)));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.COPY_ATTRIBUTES);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.setLastModifiedTime(target.resolve(source.relativize(dir)), Files.getLastModifiedTime(dir));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	public static void deleteTree(Path root) throws IOException {
+		
+		if (Files.exists(root)) {
+			List<Path> paths;
+			try (Stream<Path> walk = Files.walk(root)) {
+				paths = walk.sorted(Comparator.reverseOrder()).toList();
+			}
+			for (Path path : paths) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Read a directory with each directory reader, names and basic attributes of all the entries
+// (the attributes not read by the reader are read afterwards, as the scanner does)
+// The directory may be put on the file system to benchmark (NFS, USB drive ...) with -p baseDirectory=<path>
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryReaderBenchmark {
+
+	@Param({ "100000" })
+	private int nbEntries;
+	
+	@Param({ "DIRECTORY_STREAM", "FILE_TREE_WALKER", "SECURE_DIRECTORY_STREAM" })
+	private DirectoryReaderType directoryReaderType;
+	
+	@Param({ "" })
+	private String baseDirectory;
+	
+	private Path directory;
+	private DirectoryReader directoryReader;
+	
+	@Setup(Level.Trial)
+	public void createDirectory() throws IOException {
+		
+		if (baseDirectory.isEmpty()) {
+			directory = Files.createTempDirectory("directoryReaderBenchmark");
+		} else {
+			directory = Files.createTempDirectory(Path.of(baseDirectory), "directoryReaderBenchmark");
+		}
+		for (int i = 0; i < nbEntries; i++) {
+			if (i % 100 == 0) {
+				Files.createDirectory(directory.resolve("dir" + i));
+			} else {
+				Files.writeString(directory.resolve("file" + i + ".txt"), "content " + i);
+			}
+		}
+		directoryReader = directoryReaderType.getDirectoryReader();
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteDirectory() throws IOException {
+		
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+	
+	@Benchmark
+	public void readDirectory(Blackhole blackhole) throws IOException {
+		
+		DirectoryListing directoryListing = new DirectoryListing(directory);
+		directoryReader.read(directory, directoryListing);
+		for (int i = 0; i < directoryListing.size(); i++) {
+			BasicFileAttributes attributes = directoryListing.getAttributes(i);
+			if (attributes == null) {
+				attributes = Files.readAttributes(directoryListing.getPath(i), BasicFileAttributes.class);
+			}
+			blackhole.consume(directoryListing.getName(i));
+			blackhole.consume(attributes.size());
+		}
+	}
+}
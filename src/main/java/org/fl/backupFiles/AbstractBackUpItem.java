@@ -26,6 +26,8 @@ package org.fl.backupFiles;
 
 import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 
 import org.fl.backupFiles.directoryGroup.DirectoryPermanenceLevel;
 import org.fl.backupFiles.directoryGroup.core.DirectoryGroup;
@@ -35,7 +37,7 @@ public abstract class AbstractBackUpItem {
 	protected final Path sourcePath;
 	protected final Path targetPath;
 	protected final BackupAction backupAction;
-	protected long sizeDifference;
+	protected volatile long sizeDifference;
 	protected BackupStatus backupStatus;
 	protected final long fileSizeWarningThreshold;
 	protected final FileStore targetFileStore;
@@ -78,6 +80,19 @@ public abstract class AbstractBackUpItem {
 	public abstract boolean isAboveFileSizeLimitThreshold();
 	
 	public abstract void sumIndividualCounters(BackUpCounters backUpCounters);
+	
+	// Number of bytes copied when the back up item is executed
+	public abstract long getNbBytesToCopy();
+	
+	// Wait for the size difference computed by the folder size stage, if any.
+	// It should be called before the I/O permits are acquired, because the folder size stage acquires them too
+	public void waitSizeDifference() {
+	}
+	
+	// True if the back up item acquires the I/O permits itself when executed, so they must not be acquired by the caller
+	public boolean acquiresIoPermits() {
+		return false;
+	}
 	 
 	public Path getSourcePath() {
 		return sourcePath;
@@ -87,6 +102,15 @@ public abstract class AbstractBackUpItem {
 		return targetPath; 
 	}
 	
+	// Target paths modified when the back up item is executed
+	public List<Path> getTargetPaths() {
+		return Collections.singletonList(targetPath);
+	}
+	
+	public FileStore getTargetFileStore() {
+		return targetFileStore;
+	}
+	
 	public BackupAction getBackupAction() {
 		return backupAction;
 	}
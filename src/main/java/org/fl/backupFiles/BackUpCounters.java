@@ -27,10 +27,18 @@ package org.fl.backupFiles;
 import java.io.IOException;
 import java.nio.file.FileStore;
 import java.text.NumberFormat;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.fl.backupFiles.copy.CopyResult;
+import org.fl.backupFiles.copy.CopyStrategyType;
+
 public class BackUpCounters {
 
 	private static final Logger logger = Logger.getLogger(BackUpCounters.class.getName());
@@ -41,23 +49,35 @@ public class BackUpCounters {
 	
 	private static final NumberFormat numberFormat = NumberFormat.getInstance(localeForFormat);
 	
-	public long copyNewNb;
-	public long copyReplaceNb;
-	public long copyTreeNb;
-	public long deleteNb;
-	public long deleteDirNb;
-	public long ambiguousNb;
-	public long copyTargetNb;
-	public long adjustTimeNb;
-	public long contentDifferentNb;
-	
-	public long nbSourceFilesProcessed;
-	public long nbTargetFilesProcessed;
-	public long nbSourceFilesFailed;
-	public long nbTargetFilesFailed;
-	public long backupWithSizeAboveThreshold;
-	public long nbHighPermanencePath;
-	public long nbMediumPermanencePath;
+	public final LongAdder copyNewNb = new LongAdder();
+	public final LongAdder copyReplaceNb = new LongAdder();
+	public final LongAdder copyTreeNb = new LongAdder();
+	public final LongAdder deleteNb = new LongAdder();
+	public final LongAdder deleteDirNb = new LongAdder();
+	public final LongAdder ambiguousNb = new LongAdder();
+	public final LongAdder copyTargetNb = new LongAdder();
+	public final LongAdder adjustTimeNb = new LongAdder();
+	public final LongAdder moveNb = new LongAdder();
+	public final LongAdder contentDifferentNb = new LongAdder();
+	
+	public final LongAdder nbSourceFilesProcessed = new LongAdder();
+	public final LongAdder nbTargetFilesProcessed = new LongAdder();
+	public final LongAdder nbSourceFilesFailed = new LongAdder();
+	public final LongAdder nbTargetFilesFailed = new LongAdder();
+	public final LongAdder backupWithSizeAboveThreshold = new LongAdder();
+	public final LongAdder nbHighPermanencePath = new LongAdder();
+	public final LongAdder nbMediumPermanencePath = new LongAdder();
+	
+	// Number of bytes copied and copy durations (in nanoseconds) for each copy strategy
+	private final LongAdder[] nbBytesCopied = newLongAdders(CopyStrategyType.values().length);
+	private final LongAdder[] copyDurations = newLongAdders(CopyStrategyType.values().length);
+	
+	// Number of bytes written and durations (in nanoseconds) of the delta copies
+	private final LongAdder nbBytesDeltaCopied = new LongAdder();
+	private final LongAdder deltaCopyDurations = new LongAdder();
+	
+	// Number of bytes copied, shared with the forked counters so that the progress is visible while a back up item is executed
+	private final LongAdder nbBytesProcessed;
 	
 	private final TargetFileStores targetFileStores;
 	private final OperationType operationType;
@@ -70,6 +90,7 @@ public class BackUpCounters {
 	private static final String AMBIGUOUS_LABEL = BackupAction.AMBIGUOUS.getActionName() + ": ";
 	private static final String COPY_TARGET_LABEL = BackupAction.COPY_TARGET.getActionName() + ": ";
 	private static final String ADJUST_TIME_LABEL = BackupAction.ADJUST_TIME.getActionName() + ": ";
+	private static final String MOVE_LABEL = BackupAction.MOVE.getActionName() + ": ";
 
 	private static final String SOURCE_OK_LABEL = "Eléments source traités: ";
 	private static final String SOURCE_KO_LABEL = "Eléments source en erreur: ";
@@ -81,33 +102,69 @@ public class BackUpCounters {
 	private static final String HIGH_PERMANENCE_LABEL = "Fichiers à haute permanence: ";
 	private static final String MEDIUM_PERMANENCE_LABEL = "Fichiers à moyenne permanence: ";
 	private static final String TOTAL_SIZE_DIFF_LABEL = "Différence totale de taille: ";
+	private static final String THROUGHPUT_LABEL = "Débit (Ko/s) ";
+	private static final String DELTA_COPY_THROUGHPUT_LABEL = THROUGHPUT_LABEL + "copie delta: ";
 	
 	public BackUpCounters(TargetFileStores targetFileStores, OperationType operationType) {
 		this.targetFileStores = targetFileStores;
 		this.operationType = operationType;
+		nbBytesProcessed = new LongAdder();
 		reset();
 	}
 
+	private BackUpCounters(BackUpCounters parentCounters) {
+		targetFileStores = parentCounters.getTargetFileStores();
+		operationType = parentCounters.operationType;
+		nbBytesProcessed = parentCounters.nbBytesProcessed;
+		resetCounters();
+	}
+	
+	// New counters sharing the target file stores of these counters (the target file stores are not reset)
+	// They are used by parallel sub tasks and merged back with add()
+	public BackUpCounters forkCounters() {
+		return new BackUpCounters(this);
+	}
+	
 	public void reset() {
-		copyNewNb = 0;
-		copyReplaceNb = 0;
-		copyTreeNb = 0;
-		deleteNb = 0;
-		deleteDirNb = 0;
-		ambiguousNb = 0;
-		copyTargetNb = 0;
-		adjustTimeNb = 0;
-		contentDifferentNb = 0;
-		nbSourceFilesProcessed = 0;
-		nbTargetFilesProcessed = 0;
-		nbSourceFilesFailed = 0;
-		nbTargetFilesFailed = 0;
-		backupWithSizeAboveThreshold = 0;
-		nbHighPermanencePath = 0;
-		nbMediumPermanencePath = 0;
+		resetCounters();
+		nbBytesProcessed.reset();
 		targetFileStores.reset();
 	}
 	
+	private void resetCounters() {
+		allCounters().forEach(LongAdder::reset);
+		Arrays.stream(nbBytesCopied).forEach(LongAdder::reset);
+		Arrays.stream(copyDurations).forEach(LongAdder::reset);
+		nbBytesDeltaCopied.reset();
+		deltaCopyDurations.reset();
+	}
+	
+	private static LongAdder[] newLongAdders(int nbLongAdders) {
+		LongAdder[] longAdders = new LongAdder[nbLongAdders];
+		Arrays.setAll(longAdders, i -> new LongAdder());
+		return longAdders;
+	}
+	
+	// The counters, in the order of the Snapshot record components
+	private List<LongAdder> allCounters() {
+		return List.of(
+				copyNewNb, copyReplaceNb, copyTreeNb, deleteNb, deleteDirNb, ambiguousNb, copyTargetNb, adjustTimeNb, moveNb, contentDifferentNb,
+				nbSourceFilesProcessed, nbTargetFilesProcessed, nbSourceFilesFailed, nbTargetFilesFailed, backupWithSizeAboveThreshold, nbHighPermanencePath, nbMediumPermanencePath);
+	}
+	
+	// Values of the counters at a given time, for the display
+	// The counters may be updated while the snapshot is taken, so a snapshot is not atomic
+	public record Snapshot(
+			long copyNewNb, long copyReplaceNb, long copyTreeNb, long deleteNb, long deleteDirNb, long ambiguousNb, long copyTargetNb, long adjustTimeNb, long moveNb, long contentDifferentNb,
+			long nbSourceFilesProcessed, long nbTargetFilesProcessed, long nbSourceFilesFailed, long nbTargetFilesFailed, long backupWithSizeAboveThreshold, long nbHighPermanencePath, long nbMediumPermanencePath) {
+	}
+	
+	public Snapshot snapshot() {
+		return new Snapshot(
+				copyNewNb.sum(), copyReplaceNb.sum(), copyTreeNb.sum(), deleteNb.sum(), deleteDirNb.sum(), ambiguousNb.sum(), copyTargetNb.sum(), adjustTimeNb.sum(), moveNb.sum(), contentDifferentNb.sum(),
+				nbSourceFilesProcessed.sum(), nbTargetFilesProcessed.sum(), nbSourceFilesFailed.sum(), nbTargetFilesFailed.sum(), backupWithSizeAboveThreshold.sum(), nbHighPermanencePath.sum(), nbMediumPermanencePath.sum());
+	}
+	
 	public TargetFileStores getTargetFileStores() {
 		return targetFileStores;
 	}
@@ -116,25 +173,81 @@ public class BackUpCounters {
 		return targetFileStores.recordPotentialSizeChange(fileStore, difference);
 	}
 	
+	// May be called by several threads copying the files of a tree
+	public void recordCopy(CopyResult copyResult, long copyDuration) {
+		if (copyResult.deltaCopy()) {
+			nbBytesDeltaCopied.add(copyResult.nbBytesCopied());
+			deltaCopyDurations.add(copyDuration);
+		} else {
+			nbBytesCopied[copyResult.copyStrategyType().ordinal()].add(copyResult.nbBytesCopied());
+			copyDurations[copyResult.copyStrategyType().ordinal()].add(copyDuration);
+		}
+	}
+	
+	// Listener of the bytes copied on a target file store, called while the files are copied
+	public LongConsumer getCopyProgress(FileStore fileStore) {
+		
+		TargetFileStore targetFileStore = targetFileStores.getTargetFileStore(fileStore);
+		if (targetFileStore == null) {
+			return nbBytesProcessed::add;
+		} else {
+			return nbBytes -> {
+				nbBytesProcessed.add(nbBytes);
+				targetFileStore.recordBytesCopied(nbBytes);
+			};
+		}
+	}
+	
+	public long getNbBytesProcessed() {
+		return nbBytesProcessed.sum();
+	}
+	
+	public long getNbBytesCopied(CopyStrategyType copyStrategyType) {
+		return nbBytesCopied[copyStrategyType.ordinal()].sum();
+	}
+	
+	// Throughput in bytes per second of a copy strategy (0 if it has not been used)
+	public long getCopyThroughput(CopyStrategyType copyStrategyType) {
+		return throughput(nbBytesCopied[copyStrategyType.ordinal()].sum(), copyDurations[copyStrategyType.ordinal()].sum());
+	}
+	
+	public long getNbBytesDeltaCopied() {
+		return nbBytesDeltaCopied.sum();
+	}
+	
+	// Throughput in bytes written per second of the delta copies (0 if there has been no delta copy)
+	public long getDeltaCopyThroughput() {
+		return throughput(nbBytesDeltaCopied.sum(), deltaCopyDurations.sum());
+	}
+	
+	private static long throughput(long nbBytes, long duration) {
+		if (duration > 0) {
+			return (long)(nbBytes*(1_000_000_000d/duration));
+		} else {
+			return 0;
+		}
+	}
+	
 	public void add(BackUpCounters counters) {
 
-		copyNewNb = copyNewNb + counters.copyNewNb;
-		copyReplaceNb = copyReplaceNb + counters.copyReplaceNb;
-		copyTreeNb = copyTreeNb + counters.copyTreeNb;
-		deleteNb = deleteNb + counters.deleteNb;
-		deleteDirNb = deleteDirNb + counters.deleteDirNb;
-		ambiguousNb = ambiguousNb + counters.ambiguousNb;
-		copyTargetNb = copyTargetNb + counters.copyTargetNb;
-		adjustTimeNb = adjustTimeNb + counters.adjustTimeNb;
-		contentDifferentNb = contentDifferentNb + counters.contentDifferentNb;
-		nbSourceFilesProcessed = nbSourceFilesProcessed + counters.nbSourceFilesProcessed;
-		nbTargetFilesProcessed = nbTargetFilesProcessed + counters.nbTargetFilesProcessed;
-		nbSourceFilesFailed = nbSourceFilesFailed + counters.nbSourceFilesFailed;
-		nbTargetFilesFailed = nbTargetFilesFailed + counters.nbTargetFilesFailed;
-		backupWithSizeAboveThreshold = backupWithSizeAboveThreshold + counters.backupWithSizeAboveThreshold;
-		nbHighPermanencePath = nbHighPermanencePath + counters.nbHighPermanencePath;
-		nbMediumPermanencePath = nbMediumPermanencePath + counters.nbMediumPermanencePath;
-		targetFileStores.mergeWith(counters.getTargetFileStores());
+		List<LongAdder> otherCounters = counters.allCounters();
+		List<LongAdder> thisCounters = allCounters();
+		for (int i = 0; i < thisCounters.size(); i++) {
+			thisCounters.get(i).add(otherCounters.get(i).sum());
+		}
+		for (int i = 0; i < nbBytesCopied.length; i++) {
+			nbBytesCopied[i].add(counters.nbBytesCopied[i].sum());
+			copyDurations[i].add(counters.copyDurations[i].sum());
+		}
+		nbBytesDeltaCopied.add(counters.nbBytesDeltaCopied.sum());
+		deltaCopyDurations.add(counters.deltaCopyDurations.sum());
+		if (counters.nbBytesProcessed != nbBytesProcessed) {
+			nbBytesProcessed.add(counters.nbBytesProcessed.sum());
+		}
+		if (counters.getTargetFileStores() != targetFileStores) {
+			// forked counters have already recorded their potential size changes in the same target file stores
+			targetFileStores.mergeWith(counters.getTargetFileStores());
+		}
 	}
 		
 	private long getTotalPotentialSizeChange() {
@@ -143,22 +256,36 @@ public class BackUpCounters {
 	
 	public void appendInfoText(StringBuilder res) {
 
-		res.append(COPY_NEW_LABEL).append(copyNewNb).append("\n").append(DELETE_LABEL).append(deleteNb).append("\n");
-		res.append(COPY_REPLACE_LABEL).append(copyReplaceNb).append("\n").append(DELETE_DIR_LABEL).append(deleteDirNb).append("\n");
-		res.append(COPY_TREE_LABEL).append(copyTreeNb).append("\n").append(AMBIGUOUS_LABEL).append(ambiguousNb).append("\n");
-		res.append(COPY_TARGET_LABEL).append(copyTargetNb).append("\n").append(ADJUST_TIME_LABEL).append(adjustTimeNb).append("\n");
+		Snapshot counters = snapshot();
+
+		res.append(COPY_NEW_LABEL).append(counters.copyNewNb()).append("\n").append(DELETE_LABEL).append(counters.deleteNb()).append("\n");
+		res.append(COPY_REPLACE_LABEL).append(counters.copyReplaceNb()).append("\n").append(DELETE_DIR_LABEL).append(counters.deleteDirNb()).append("\n");
+		res.append(COPY_TREE_LABEL).append(counters.copyTreeNb()).append("\n").append(AMBIGUOUS_LABEL).append(counters.ambiguousNb()).append("\n");
+		res.append(COPY_TARGET_LABEL).append(counters.copyTargetNb()).append("\n").append(ADJUST_TIME_LABEL).append(counters.adjustTimeNb()).append("\n");
+		if (counters.moveNb() != 0) {
+			res.append(MOVE_LABEL).append(counters.moveNb()).append("\n");
+		}
 
-		res.append(SOURCE_OK_LABEL).append(nbSourceFilesProcessed).append("\n").append(SOURCE_KO_LABEL).append(nbSourceFilesFailed)
+		res.append(SOURCE_OK_LABEL).append(counters.nbSourceFilesProcessed()).append("\n").append(SOURCE_KO_LABEL).append(counters.nbSourceFilesFailed())
 				.append("\n");
-		res.append(TARGET_OK_LABEL).append(nbTargetFilesProcessed).append("\n").append(TARGET_KO_LABEL).append(nbTargetFilesFailed)
+		res.append(TARGET_OK_LABEL).append(counters.nbTargetFilesProcessed()).append("\n").append(TARGET_KO_LABEL).append(counters.nbTargetFilesFailed())
 				.append("\n");
 
-		res.append(SIZE_ABOVE_LIMIT_LABEL).append(backupWithSizeAboveThreshold).append("\n");
-		res.append(HIGH_PERMANENCE_LABEL).append(nbHighPermanencePath).append("\n").append(MEDIUM_PERMANENCE_LABEL)
-				.append(nbMediumPermanencePath).append("\n");
+		res.append(SIZE_ABOVE_LIMIT_LABEL).append(counters.backupWithSizeAboveThreshold()).append("\n");
+		res.append(HIGH_PERMANENCE_LABEL).append(counters.nbHighPermanencePath()).append("\n").append(MEDIUM_PERMANENCE_LABEL)
+				.append(counters.nbMediumPermanencePath()).append("\n");
 
-		if (contentDifferentNb != 0) {
-			res.append(CONTENT_DIFFERENT_LABEL).append(contentDifferentNb).append("\n");
+		if (counters.contentDifferentNb() != 0) {
+			res.append(CONTENT_DIFFERENT_LABEL).append(counters.contentDifferentNb()).append("\n");
+		}
+		
+		for (CopyStrategyType copyStrategyType : CopyStrategyType.values()) {
+			if (getNbBytesCopied(copyStrategyType) != 0) {
+				res.append(THROUGHPUT_LABEL).append(copyStrategyType.name()).append(": ").append(getCopyThroughput(copyStrategyType)/1024).append("\n");
+			}
+		}
+		if (getNbBytesDeltaCopied() != 0) {
+			res.append(DELTA_COPY_THROUGHPUT_LABEL).append(getDeltaCopyThroughput()/1024).append("\n");
 		}
 		
 		res.append("Stockage de fichiers, espace restant utilisable:\n");
@@ -167,37 +294,61 @@ public class BackUpCounters {
 	
 	public void appendCounterInfoInHtml(StringBuilder res) {
 		
+		Snapshot counters = snapshot();
+		
 		res.append(TABLE_AND_ROW_BEGIN);
-		appendCellCouple(res, COPY_TREE_LABEL, copyTreeNb, null);
-		appendCellCouple(res, COPY_NEW_LABEL, copyNewNb, null);
-		appendCellCouple(res, COPY_REPLACE_LABEL, copyReplaceNb, null);
-		appendCellCouple(res, COPY_TARGET_LABEL, copyTargetNb, "red");
+		appendCellCouple(res, COPY_TREE_LABEL, counters.copyTreeNb(), null);
+		appendCellCouple(res, COPY_NEW_LABEL, counters.copyNewNb(), null);
+		appendCellCouple(res, COPY_REPLACE_LABEL, counters.copyReplaceNb(), null);
+		appendCellCouple(res, COPY_TARGET_LABEL, counters.copyTargetNb(), "red");
 
 		res.append(NEW_ROW);
-		appendCellCouple(res, DELETE_LABEL, deleteNb, null);
-		appendCellCouple(res, DELETE_DIR_LABEL, deleteDirNb, null);
-		appendCellCouple(res, AMBIGUOUS_LABEL, ambiguousNb, "red");
-		appendCellCouple(res, ADJUST_TIME_LABEL, adjustTimeNb, "red");
+		appendCellCouple(res, DELETE_LABEL, counters.deleteNb(), null);
+		appendCellCouple(res, DELETE_DIR_LABEL, counters.deleteDirNb(), null);
+		appendCellCouple(res, AMBIGUOUS_LABEL, counters.ambiguousNb(), "red");
+		appendCellCouple(res, ADJUST_TIME_LABEL, counters.adjustTimeNb(), "red");
 
 		res.append(NEW_ROW);
-		appendCellCouple(res, SOURCE_OK_LABEL, nbSourceFilesProcessed, null);
-		appendCellCouple(res, SOURCE_KO_LABEL, nbSourceFilesFailed, "red");
+		appendCellCouple(res, SOURCE_OK_LABEL, counters.nbSourceFilesProcessed(), null);
+		appendCellCouple(res, SOURCE_KO_LABEL, counters.nbSourceFilesFailed(), "red");
 
 		res.append(NEW_ROW);
-		appendCellCouple(res, TARGET_OK_LABEL, nbTargetFilesProcessed, null);
-		appendCellCouple(res, TARGET_KO_LABEL, nbTargetFilesFailed, "red");
+		appendCellCouple(res, TARGET_OK_LABEL, counters.nbTargetFilesProcessed(), null);
+		appendCellCouple(res, TARGET_KO_LABEL, counters.nbTargetFilesFailed(), "red");
 
 		res.append(NEW_ROW);
 		appendCellCouple(res, TOTAL_SIZE_DIFF_LABEL, getTotalPotentialSizeChange(), null);
-		appendCellCouple(res, SIZE_ABOVE_LIMIT_LABEL, backupWithSizeAboveThreshold, "red");
+		appendCellCouple(res, SIZE_ABOVE_LIMIT_LABEL, counters.backupWithSizeAboveThreshold(), "red");
 
 		res.append(NEW_ROW);
-		appendCellCouple(res, HIGH_PERMANENCE_LABEL, nbHighPermanencePath, "red");
-		appendCellCouple(res, MEDIUM_PERMANENCE_LABEL, nbMediumPermanencePath, "#ff8f00");
+		appendCellCouple(res, HIGH_PERMANENCE_LABEL, counters.nbHighPermanencePath(), "red");
+		appendCellCouple(res, MEDIUM_PERMANENCE_LABEL, counters.nbMediumPermanencePath(), "#ff8f00");
 
-		if (contentDifferentNb != 0) {
+		if (counters.contentDifferentNb() != 0) {
+			res.append(NEW_ROW);
+			appendCellCouple(res, CONTENT_DIFFERENT_LABEL, counters.contentDifferentNb(), null);
+		}
+		
+		if (counters.moveNb() != 0) {
 			res.append(NEW_ROW);
-			appendCellCouple(res, CONTENT_DIFFERENT_LABEL, contentDifferentNb, null);
+			appendCellCouple(res, MOVE_LABEL, counters.moveNb(), null);
+		}
+		
+		boolean throughputRowStarted = false;
+		for (CopyStrategyType copyStrategyType : CopyStrategyType.values()) {
+			if (getNbBytesCopied(copyStrategyType) != 0) {
+				if (! throughputRowStarted) {
+					res.append(NEW_ROW);
+					throughputRowStarted = true;
+				}
+				appendCellCouple(res, THROUGHPUT_LABEL + copyStrategyType.name() + ": ", getCopyThroughput(copyStrategyType)/1024, null);
+			}
+		}
+		if (getNbBytesDeltaCopied() != 0) {
+			if (! throughputRowStarted) {
+				res.append(NEW_ROW);
+			}
+			appendCellCouple(res, DELTA_COPY_THROUGHPUT_LABEL, getDeltaCopyThroughput()/1024, null);
 		}
 		res.append(ROW_AND_TABLE_END);
 	}
@@ -214,6 +365,39 @@ public class BackUpCounters {
 		res.append(TABLE_END);
 	}
 	
+	// Bytes copied, throughput and estimated remaining time of the target file stores with files to copy
+	public void appendCopyProgressInHtml(StringBuilder res) {
+		
+		res.append(TABLE_BEGIN)
+			.append(ROW_BEGIN)
+			.append(CELL_BEGIN).append("Unité de stockage").append(CELL_END)
+			.append(CELL_BEGIN).append("Données copiées (Mo)").append(CELL_END)
+			.append(CELL_BEGIN).append("Données à copier (Mo)").append(CELL_END)
+			.append(CELL_BEGIN).append("Débit (Mo/s)").append(CELL_END)
+			.append(CELL_BEGIN).append("Temps restant estimé").append(CELL_END)
+			.append(ROW_END);
+		targetFileStores.getAllTargetFileStore().stream()
+			.filter(targetFileStore -> targetFileStore.getNbBytesToCopy() > 0)
+			.forEach(targetFileStore -> {
+				long estimatedRemainingTime = targetFileStore.getEstimatedRemainingTime();
+				res.append(ROW_BEGIN)
+					.append(CELL_BEGIN).append(targetFileStore.getName()).append(CELL_END)
+					.append(RIGHT_ALIGNED_CELL_BEGIN).append(numberFormat.format(targetFileStore.getNbBytesCopied()/MEGA_BYTE)).append(CELL_END)
+					.append(RIGHT_ALIGNED_CELL_BEGIN).append(numberFormat.format(targetFileStore.getNbBytesToCopy()/MEGA_BYTE)).append(CELL_END)
+					.append(RIGHT_ALIGNED_CELL_BEGIN).append(numberFormat.format(targetFileStore.getThroughput()/MEGA_BYTE)).append(CELL_END)
+					.append(RIGHT_ALIGNED_CELL_BEGIN).append((estimatedRemainingTime < 0) ? UNKNOWN : formatDuration(estimatedRemainingTime)).append(CELL_END)
+					.append(ROW_END);
+			});
+		res.append(TABLE_END);
+	}
+	
+	private static String formatDuration(long durationMillis) {
+		Duration duration = Duration.ofMillis(durationMillis);
+		return String.format("%d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+	}
+	
+	private static final long MEGA_BYTE = 1024*1024;
+	private static final String UNKNOWN = "?";
 	private static final String TABLE_BEGIN = "<table border=1>";
 	private static final String TABLE_END = "</table>";
 	private static final String ROW_BEGIN = "<tr>";
@@ -348,15 +532,16 @@ public class BackUpCounters {
 	public boolean equalsIndividualCounters(BackUpCounters counters) {
 		
 		return
-				counters.copyReplaceNb == copyReplaceNb &&
-				counters.copyNewNb == copyNewNb &&
-				counters.copyTreeNb == copyTreeNb &&
-				counters.deleteNb == deleteNb &&
-				counters.deleteDirNb == deleteDirNb &&
-				counters.ambiguousNb == ambiguousNb &&
-				counters.copyTargetNb == copyTargetNb &&
-				counters.adjustTimeNb == adjustTimeNb &&
-				counters.contentDifferentNb == contentDifferentNb &&
-				counters.backupWithSizeAboveThreshold == backupWithSizeAboveThreshold;
+				counters.copyReplaceNb.sum() == copyReplaceNb.sum() &&
+				counters.copyNewNb.sum() == copyNewNb.sum() &&
+				counters.copyTreeNb.sum() == copyTreeNb.sum() &&
+				counters.deleteNb.sum() == deleteNb.sum() &&
+				counters.deleteDirNb.sum() == deleteDirNb.sum() &&
+				counters.ambiguousNb.sum() == ambiguousNb.sum() &&
+				counters.copyTargetNb.sum() == copyTargetNb.sum() &&
+				counters.adjustTimeNb.sum() == adjustTimeNb.sum() &&
+				counters.moveNb.sum() == moveNb.sum() &&
+				counters.contentDifferentNb.sum() == contentDifferentNb.sum() &&
+				counters.backupWithSizeAboveThreshold.sum() == backupWithSizeAboveThreshold.sum();
 	}
 }
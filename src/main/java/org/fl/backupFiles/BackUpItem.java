@@ -25,19 +25,31 @@ SOFTWARE.
 package org.fl.backupFiles;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.FileStore;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.fl.backupFiles.copy.BlockChecksumCache;
+import org.fl.backupFiles.copy.CopyResult;
+import org.fl.backupFiles.copy.DeltaCopier;
+import org.fl.backupFiles.copy.ParallelTreeCopier;
 import org.fl.backupFiles.directoryGroup.DirectoryPermanenceLevel;
+import org.fl.backupFiles.scanner.ContentHashCache;
+import org.fl.backupFiles.scanner.FolderSizeStage;
 import org.fl.backupFiles.scanner.PathPairBasicAttributes;
+import org.fl.backupFiles.scanner.ScanStateIndex;
 import org.fl.util.file.FileComparator;
 import org.fl.util.file.FilesSecurityUtils;
 import org.fl.util.file.FilesUtils;
@@ -50,9 +62,17 @@ public class BackUpItem extends AbstractBackUpItem {
 	private static final String TGT_NOT_EXISTS = "Target path parameter is null or the path does not exist";
 	private static final String TGT_SHOULD_NOT_EXISTS = "Target path parameter should not exist";
 	private static final String EXIST_SRC_NOT_EXISTS = "Closest existing source path parameter is null or the path does not exist";
+	private static final String MOVED_TGT_NOT_EXISTS = "Moved target path parameter is null or the path does not exist";
 
 	private final PathPairBasicAttributes pathPairBasicAttributes;
 	
+	// For a MOVE action, the target path (to delete) moved to the target path
+	private final Path movedTargetPath;
+	
+	// Size difference of a COPY_TREE or DELETE_DIR item computed by the folder size stage (null if it has been computed by the constructor)
+	// The size difference is recorded in the counters by the consumer of the back up item, once it is known
+	private CompletableFuture<Long> futureSizeDifference;
+	
 	// A back up item is :
 	// * a source path (file or directory) to back up 
 	// * a destination path (file or directory) to back up
@@ -64,6 +84,7 @@ public class BackUpItem extends AbstractBackUpItem {
 	//		DELETE       : if the source file does not exists (and the target exists)
 	//		DELETE_DIR   : if the source directory does not exists (and the target exists)
 	//		AMBIGUOUS    : Abnormal case - if the target is newer than the source
+	//		MOVE         : if the target does not exists and a target to delete is identical to the source (it is moved)
 	// * a back up status that may take the following values:
 	//		DIFFERENT	 	: the source and target are different by attributes (size, dates...)
 	//		DIFF_BY_CONTENT : the source and target are different by content (this information is only available when a content comparison is done)
@@ -76,37 +97,57 @@ public class BackUpItem extends AbstractBackUpItem {
 			BackupStatus backUpStatus, 
 			BackUpCounters backUpCounters,
 			BackUpTask backUpTask) {
+		this(pathPairBasicAttributes, backUpAction, backUpStatus, backUpCounters, backUpTask, false);
+	}
+	
+	// For the completion of an interrupted tree copy by the parallel tree copier: the target directory may exist, partially copied
+	public static BackUpItem ofInterruptedTreeCopy(PathPairBasicAttributes pathPairBasicAttributes, 
+			BackupStatus backUpStatus, 
+			BackUpCounters backUpCounters,
+			BackUpTask backUpTask) {
+		return new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_TREE, backUpStatus, backUpCounters, backUpTask, true);
+	}
+	
+	private BackUpItem(PathPairBasicAttributes pathPairBasicAttributes, 
+			BackupAction backUpAction, 
+			BackupStatus backUpStatus, 
+			BackUpCounters backUpCounters,
+			BackUpTask backUpTask,
+			boolean existingTargetTree) {
 		
 		super(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath(), pathPairBasicAttributes.getSourcePath(), backUpAction, backUpStatus, backUpTask);
 		backUpItemNumber = 1;
 		this.pathPairBasicAttributes = pathPairBasicAttributes;
+		movedTargetPath = null;
 		checkPathExistenceCondition(pathPairBasicAttributes.sourceExists(), sourcePath, SRC_NOT_EXISTS);
 		
 		// Update counters		
 		if (backupAction.equals(BackupAction.COPY_REPLACE)) {
 			checkPathExistenceCondition(pathPairBasicAttributes.targetExists(), targetPath, TGT_NOT_EXISTS);
 			sizeDifference = pathPairBasicAttributes.getSourceSize() - pathPairBasicAttributes.getTargetSize();
-			backUpCounters.copyReplaceNb++;
+			backUpCounters.copyReplaceNb.increment();
 		} else if (backupAction.equals(BackupAction.COPY_NEW)) {
 			checkPathExistenceCondition(!pathPairBasicAttributes.targetExists(), targetPath, TGT_SHOULD_NOT_EXISTS);
 			sizeDifference = pathPairBasicAttributes.getSourceSize();
-			backUpCounters.copyNewNb++;
+			backUpCounters.copyNewNb.increment();
 		} else if (backupAction.equals(BackupAction.COPY_TREE)) {
-			checkPathExistenceCondition(!pathPairBasicAttributes.targetExists(), targetPath, TGT_SHOULD_NOT_EXISTS);
-			sizeDifference = FilesUtils.folderSize(sourcePath, bLog);
-			backUpCounters.copyTreeNb++;
+			checkPathExistenceCondition(!pathPairBasicAttributes.targetExists() || 
+					(existingTargetTree && pathPairBasicAttributes.getTargetBasicAttributes().isDirectory()), targetPath, TGT_SHOULD_NOT_EXISTS);
+			sizeDifference = 0;
+			computeTreeSize(sourcePath, backUpTask.getSourceFileStore(), false);
+			backUpCounters.copyTreeNb.increment();
 		} else if (backupAction.equals(BackupAction.AMBIGUOUS)) {
 			checkPathExistenceCondition(pathPairBasicAttributes.targetExists(), targetPath, TGT_NOT_EXISTS);
 			sizeDifference = pathPairBasicAttributes.getSourceSize() - pathPairBasicAttributes.getTargetSize();
-			backUpCounters.ambiguousNb++;
+			backUpCounters.ambiguousNb.increment();
 		} else if (backupAction.equals(BackupAction.COPY_TARGET)) {
 			checkPathExistenceCondition(pathPairBasicAttributes.targetExists(), targetPath, TGT_NOT_EXISTS);
 			sizeDifference = pathPairBasicAttributes.getSourceSize() - pathPairBasicAttributes.getTargetSize();
-			backUpCounters.copyTargetNb++;
+			backUpCounters.copyTargetNb.increment();
 		} else if (backupAction.equals(BackupAction.ADJUST_TIME)) {
 			checkPathExistenceCondition(pathPairBasicAttributes.targetExists(), targetPath, TGT_NOT_EXISTS);
 			sizeDifference = 0;
-			backUpCounters.adjustTimeNb++;
+			backUpCounters.adjustTimeNb.increment();
 		} else {
 			throw new IllegalBackupActionException("Illegal backup action", backupAction);
 		}
@@ -123,36 +164,146 @@ public class BackUpItem extends AbstractBackUpItem {
 		super(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath(), parentPathPairBasicAttributes.getSourcePath(), backUpAction, BackupStatus.DIFFERENT, backUpTask);
 		backUpItemNumber = 1;
 		this.pathPairBasicAttributes = pathPairBasicAttributes;
+		movedTargetPath = null;
 		checkPathExistenceCondition(parentPathPairBasicAttributes.sourceExists(), sourceClosestExistingPath, EXIST_SRC_NOT_EXISTS);
 		checkPathExistenceCondition(pathPairBasicAttributes.targetExists(), targetPath, TGT_NOT_EXISTS);
 		
 		// Update counters
 		if (backupAction.equals(BackupAction.DELETE)) {
 			sizeDifference = 0 - pathPairBasicAttributes.getTargetSize();
-			backUpCounters.deleteNb++;
+			backUpCounters.deleteNb.increment();
 		} else if (backupAction.equals(BackupAction.DELETE_DIR)) {
-			sizeDifference = 0 - FilesUtils.folderSize(pathPairBasicAttributes.getTargetPath(), bLog);
-			backUpCounters.deleteDirNb++;
+			sizeDifference = 0;
+			computeTreeSize(pathPairBasicAttributes.getTargetPath(), targetFileStore, true);
+			backUpCounters.deleteDirNb.increment();
 		} else {
 			throw new IllegalBackupActionException("Illegal backup action (should be a delete action)", backupAction);
 		}
 		updateLimitsCounters(backUpCounters);
 	}
 	
+	// For move actions
+	public BackUpItem(PathPairBasicAttributes pathPairBasicAttributes, 
+			Path movedTargetPath, 
+			BackUpCounters backUpCounters,
+			BackUpTask backUpTask) {
+		
+		super(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath(), pathPairBasicAttributes.getSourcePath(), BackupAction.MOVE, BackupStatus.DIFFERENT, backUpTask);
+		backUpItemNumber = 1;
+		this.pathPairBasicAttributes = pathPairBasicAttributes;
+		this.movedTargetPath = movedTargetPath;
+		checkPathExistenceCondition(pathPairBasicAttributes.sourceExists(), sourcePath, SRC_NOT_EXISTS);
+		checkPathExistenceCondition(!pathPairBasicAttributes.targetExists(), targetPath, TGT_SHOULD_NOT_EXISTS);
+		checkPathExistenceCondition((movedTargetPath != null) && Files.exists(movedTargetPath, LinkOption.NOFOLLOW_LINKS), movedTargetPath, MOVED_TGT_NOT_EXISTS);
+		
+		// Update counters
+		sizeDifference = 0;
+		backUpCounters.moveNb.increment();
+		updateLimitsCounters(backUpCounters);
+	}
+	
 	private void checkPathExistenceCondition(boolean condition, Path path, String exceptionMessage) {
 		if (! condition) {
 			throw new IllegalBackUpItemException(exceptionMessage, path);
 		}
 	}
 
+	// The size of the tree is computed by the folder size stage if there is one, otherwise at once
+	private void computeTreeSize(Path tree, FileStore fileStore, boolean deleted) {
+		
+		FolderSizeStage folderSizeStage = Config.getFolderSizeStage();
+		if (folderSizeStage == null) {
+			long treeSize = FilesUtils.folderSize(tree, bLog);
+			sizeDifference = deleted ? -treeSize : treeSize;
+		} else {
+			futureSizeDifference = folderSizeStage.folderSize(tree, fileStore)
+					.thenApply(treeSize -> {
+						sizeDifference = deleted ? -treeSize : treeSize;
+						return sizeDifference;
+					});
+		}
+	}
+	
 	private void updateLimitsCounters(BackUpCounters backUpCounters) {
-		backUpCounters.recordPotentialSizeChange(targetFileStore, sizeDifference);
-		if (sizeDifference > fileSizeWarningThreshold)
-			backUpCounters.backupWithSizeAboveThreshold++;
+		if (futureSizeDifference == null) {
+			recordSizeDifference(backUpCounters);
+		}
+		updatePermanenceCounters(backUpCounters);
+	}
+	
+	private void updatePermanenceCounters(BackUpCounters backUpCounters) {
 		if (directoryGroup.getPermanenceLevel().equals(DirectoryPermanenceLevel.HIGH)) {
-			backUpCounters.nbHighPermanencePath++;
+			backUpCounters.nbHighPermanencePath.increment();
 		} else if (directoryGroup.getPermanenceLevel().equals(DirectoryPermanenceLevel.MEDIUM)) {
-			backUpCounters.nbMediumPermanencePath++;
+			backUpCounters.nbMediumPermanencePath.increment();
+		}
+	}
+	
+	// Cancel the counting done by the constructor, when the back up item is replaced by a MOVE back up item
+	// (the size difference of an item whose size is computed by the folder size stage is not counted by the constructor)
+	public void cancelCounters(BackUpCounters backUpCounters) {
+		
+		if (futureSizeDifference != null) {
+			// The size of the replaced tree is not needed anymore, if it is still being computed
+			futureSizeDifference.cancel(false);
+		}
+		getActionCounter(backUpCounters).decrement();
+		if (backupStatus == BackupStatus.DIFF_BY_CONTENT) {
+			backUpCounters.contentDifferentNb.decrement();
+		}
+		if (futureSizeDifference == null) {
+			backUpCounters.recordPotentialSizeChange(targetFileStore, -sizeDifference);
+			if (sizeDifference > fileSizeWarningThreshold)
+				backUpCounters.backupWithSizeAboveThreshold.decrement();
+		}
+		if (directoryGroup.getPermanenceLevel().equals(DirectoryPermanenceLevel.HIGH)) {
+			backUpCounters.nbHighPermanencePath.decrement();
+		} else if (directoryGroup.getPermanenceLevel().equals(DirectoryPermanenceLevel.MEDIUM)) {
+			backUpCounters.nbMediumPermanencePath.decrement();
+		}
+	}
+	
+	// Record the size difference in the counters (for an item with a deferred size difference, it should be called once it is known)
+	public void recordSizeDifference(BackUpCounters backUpCounters) {
+		backUpCounters.recordPotentialSizeChange(targetFileStore, sizeDifference);
+		if (sizeDifference > fileSizeWarningThreshold)
+			backUpCounters.backupWithSizeAboveThreshold.increment();
+	}
+	
+	// True if the size difference is computed by the folder size stage
+	public boolean hasDeferredSizeDifference() {
+		return futureSizeDifference != null;
+	}
+	
+	// The size difference listener is called once the size difference is known (at once if it is already known)
+	public CompletableFuture<Void> whenSizeDifferenceKnown(Runnable sizeDifferenceListener) {
+		
+		if (futureSizeDifference == null) {
+			sizeDifferenceListener.run();
+			return CompletableFuture.completedFuture(null);
+		} else {
+			return futureSizeDifference.thenRun(sizeDifferenceListener);
+		}
+	}
+	
+	@Override
+	public void waitSizeDifference() {
+		
+		if (futureSizeDifference != null) {
+			futureSizeDifference.join();
+		}
+	}
+	
+	public Path getMovedTargetPath() {
+		return movedTargetPath;
+	}
+	
+	@Override
+	public List<Path> getTargetPaths() {
+		if (movedTargetPath == null) {
+			return super.getTargetPaths();
+		} else {
+			return List.of(targetPath, movedTargetPath);
 		}
 	}
 	
@@ -187,10 +338,39 @@ public class BackUpItem extends AbstractBackUpItem {
 	@Override
 	public boolean execute(BackUpCounters backUpCounters) {
 		
+		// The size of a tree is needed before it is copied or deleted
+		// (already known when the executor has waited for it before acquiring the I/O permits)
+		waitSizeDifference();
+		
+		boolean isTreeAction = (backupAction == BackupAction.COPY_TREE) || (backupAction == BackupAction.DELETE_DIR) || (backupAction == BackupAction.MOVE);
+		ScanStateIndex scanStateIndex = backUpTask.getScanStateIndex();
+		if (scanStateIndex != null) {
+			scanStateIndex.invalidate(targetPath, isTreeAction);
+			if (movedTargetPath != null) {
+				scanStateIndex.invalidate(movedTargetPath, isTreeAction);
+			}
+		}
+		ContentHashCache contentHashCache = Config.getContentHashCache();
+		if (contentHashCache != null) {
+			contentHashCache.invalidate(targetPath, isTreeAction);
+			if (movedTargetPath != null) {
+				contentHashCache.invalidate(movedTargetPath, isTreeAction);
+			}
+		}
+		// The block checksums of a target replaced by a delta copy are updated by the delta copy
+		BlockChecksumCache blockChecksumCache = Config.getBlockChecksumCache();
+		if ((blockChecksumCache != null) && (backupAction != BackupAction.COPY_REPLACE)) {
+			blockChecksumCache.invalidate(targetPath, isTreeAction);
+			if (movedTargetPath != null) {
+				blockChecksumCache.invalidate(movedTargetPath, isTreeAction);
+			}
+		}
+		
 		try {
 			if (executeAction(backUpCounters)) {
 				backupStatus = BackupStatus.DONE;
-				updateLimitsCounters(backUpCounters);
+				recordSizeDifference(backUpCounters);
+				updatePermanenceCounters(backUpCounters);
 			} else {
 				backupStatus = BackupStatus.FAILED;
 			}
@@ -210,91 +390,145 @@ public class BackUpItem extends AbstractBackUpItem {
 						"Exception trying to set file writable and execute action : " + targetPath + " " + backupAction,
 						e1);
 				backupStatus = BackupStatus.FAILED;
-				if ((backupAction.equals(BackupAction.DELETE)) || (backupAction.equals(BackupAction.DELETE_DIR))) {
-					backUpCounters.nbTargetFilesFailed++;
+				if (isTargetAction()) {
+					backUpCounters.nbTargetFilesFailed.increment();
 				} else {
-					backUpCounters.nbSourceFilesFailed++;
+					backUpCounters.nbSourceFilesFailed.increment();
 				}
 			}
 
 		} catch (Exception e) {
 			bLog.log(Level.SEVERE, "Exception executing action : " + targetPath + " " + backupAction, e);
 			backupStatus = BackupStatus.FAILED;
-			if ((backupAction.equals(BackupAction.DELETE)) || (backupAction.equals(BackupAction.DELETE_DIR))) {
-				backUpCounters.nbTargetFilesFailed++;
+			if (isTargetAction()) {
+				backUpCounters.nbTargetFilesFailed.increment();
 			} else {
-				backUpCounters.nbSourceFilesFailed++;
+				backUpCounters.nbSourceFilesFailed.increment();
 			}
 		}
 		return backupStatus == BackupStatus.DONE;
 	}
 	
+	// The actions that only modify the target
+	// The parallel tree copier acquires the I/O permits for each file it copies
+	@Override
+	public boolean acquiresIoPermits() {
+		return (backupAction == BackupAction.COPY_TREE) && (Config.getParallelTreeCopier() != null);
+	}
+	
+	private boolean isTargetAction() {
+		return (backupAction == BackupAction.DELETE) || (backupAction == BackupAction.DELETE_DIR) || (backupAction == BackupAction.MOVE);
+	}
+	
 	private boolean executeAction(BackUpCounters backUpCounters) throws Exception {
 		
 		boolean success = true;
 		if (backupAction.equals(BackupAction.COPY_REPLACE)) {
-			Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-					LinkOption.NOFOLLOW_LINKS);
-			backUpCounters.copyReplaceNb++;
-			backUpCounters.nbSourceFilesProcessed++;
+			replaceFile(backUpCounters);
+			backUpCounters.copyReplaceNb.increment();
+			backUpCounters.nbSourceFilesProcessed.increment();
 		} else if (backupAction.equals(BackupAction.COPY_NEW)) {
-			Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-					LinkOption.NOFOLLOW_LINKS);
-			backUpCounters.copyNewNb++;
-			backUpCounters.nbSourceFilesProcessed++;
+			copyFile(sourcePath, targetPath, backUpCounters);
+			backUpCounters.copyNewNb.increment();
+			backUpCounters.nbSourceFilesProcessed.increment();
 		} else if (backupAction.equals(BackupAction.DELETE)) {
 			Files.delete(targetPath);
-			backUpCounters.deleteNb++;
-			backUpCounters.nbTargetFilesProcessed++;
+			backUpCounters.deleteNb.increment();
+			backUpCounters.nbTargetFilesProcessed.increment();
 		} else if (backupAction.equals(BackupAction.COPY_TREE)) {
-			success = FilesUtils.copyDirectoryTree(sourcePath, targetPath, bLog);
+			ParallelTreeCopier parallelTreeCopier = Config.getParallelTreeCopier();
+			if (parallelTreeCopier != null) {
+				success = parallelTreeCopier.copyTree(sourcePath, targetPath, Config.getCopyStrategyType().getCopyStrategy(), backUpTask.getSourceFileStore(), targetFileStore, 
+						backUpCounters, backUpCounters.getCopyProgress(targetFileStore));
+			} else {
+				success = FilesUtils.copyDirectoryTree(sourcePath, targetPath, bLog);
+				if (success) {
+					backUpCounters.getCopyProgress(targetFileStore).accept(sizeDifference);
+				}
+			}
 			if (success) {
-				backUpCounters.copyTreeNb++;
-				backUpCounters.nbSourceFilesProcessed++;
+				backUpCounters.copyTreeNb.increment();
+				backUpCounters.nbSourceFilesProcessed.increment();
 			} else {
-				backUpCounters.nbSourceFilesFailed++;
+				backUpCounters.nbSourceFilesFailed.increment();
 			}
 		} else if (backupAction.equals(BackupAction.DELETE_DIR)) {
 			success = FilesUtils.deleteDirectoryTree(targetPath, true, bLog);
 			if (success) {
-				backUpCounters.deleteDirNb++;
-				backUpCounters.nbTargetFilesProcessed++;
+				backUpCounters.deleteDirNb.increment();
+				backUpCounters.nbTargetFilesProcessed.increment();
 			} else {
-				backUpCounters.nbTargetFilesFailed++;
+				backUpCounters.nbTargetFilesFailed.increment();
 			}
 		} else if (backupAction.equals(BackupAction.AMBIGUOUS)) {
-			Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-					LinkOption.NOFOLLOW_LINKS);
-			backUpCounters.ambiguousNb++;
-			backUpCounters.nbSourceFilesProcessed++;
+			copyFile(sourcePath, targetPath, backUpCounters);
+			backUpCounters.ambiguousNb.increment();
+			backUpCounters.nbSourceFilesProcessed.increment();
 		} else if (backupAction.equals(BackupAction.COPY_TARGET)) {
-			Files.copy(targetPath, sourcePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-					LinkOption.NOFOLLOW_LINKS);
-			backUpCounters.copyTargetNb++;
-			backUpCounters.nbSourceFilesProcessed++;
+			copyFile(targetPath, sourcePath, backUpCounters);
+			backUpCounters.copyTargetNb.increment();
+			backUpCounters.nbSourceFilesProcessed.increment();
 		} else if (backupAction.equals(BackupAction.ADJUST_TIME)) {
 			FileTime sourceLastModifiedTime = pathPairBasicAttributes.getSourceBasicAttributes().lastModifiedTime();
+			if (backUpTask.getSnapshotHistory() != null) {
+				// The last modified time is shared by the hard links of the snapshots
+				backUpTask.getSnapshotHistory().unshare(targetPath);
+			}
 			Files.setLastModifiedTime(targetPath, sourceLastModifiedTime);
 			
 			if (Files.getLastModifiedTime(targetPath).compareTo(sourceLastModifiedTime) == 0) {
 				// Last modified time of target has been successfully set to the source one
-				backUpCounters.adjustTimeNb++;
+				backUpCounters.adjustTimeNb.increment();
 			} else {
 				// Fail to modify last modified time of target
 				// It is not possible on some external drive on windows
 				// Then copy target to source is the only solution
 				bLog.info(() -> "Fail to adjust time for " + targetPath.getFileName());
-				Files.copy(targetPath, sourcePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-						LinkOption.NOFOLLOW_LINKS);
-				backUpCounters.copyTargetNb++;
+				copyFile(targetPath, sourcePath, backUpCounters);
+				backUpCounters.copyTargetNb.increment();
 			}
-			backUpCounters.nbSourceFilesProcessed++;			
+			backUpCounters.nbSourceFilesProcessed.increment();			
+		} else if (backupAction.equals(BackupAction.MOVE)) {
+			// A rename on the target file store
+			Files.move(movedTargetPath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+			backUpCounters.moveNb.increment();
+			backUpCounters.nbTargetFilesProcessed.increment();
 		} else {
 			throw new IllegalBackupActionException("Invalid backup action: ", backupAction);
 		}
 		return success;
 	}
 	
+	private void copyFile(Path from, Path to, BackUpCounters backUpCounters) throws IOException {
+		
+		long copyBegin = System.nanoTime();
+		CopyResult copyResult = Config.getCopyStrategyType().getCopyStrategy().copy(from, to, isSameFileStore(), backUpCounters.getCopyProgress(targetFileStore));
+		backUpCounters.recordCopy(copyResult, System.nanoTime() - copyBegin);
+	}
+	
+	// The large regular files are replaced by a delta copy, if it is configured
+	// The delta copy writes the target in place, so it is not used when the target file may be shared with snapshots
+	private void replaceFile(BackUpCounters backUpCounters) throws IOException {
+		
+		DeltaCopier deltaCopier = Config.getDeltaCopier();
+		if ((deltaCopier != null) && 
+			(backUpTask.getSnapshotHistory() == null) &&
+			(pathPairBasicAttributes.getSourceSize() >= deltaCopier.getMinSize()) &&
+			pathPairBasicAttributes.getSourceBasicAttributes().isRegularFile() &&
+			pathPairBasicAttributes.getTargetBasicAttributes().isRegularFile()) {
+			
+			long copyBegin = System.nanoTime();
+			CopyResult copyResult = deltaCopier.copy(sourcePath, targetPath, backUpCounters.getCopyProgress(targetFileStore));
+			backUpCounters.recordCopy(copyResult, System.nanoTime() - copyBegin);
+		} else {
+			copyFile(sourcePath, targetPath, backUpCounters);
+		}
+	}
+	
+	private boolean isSameFileStore() {
+		return Objects.equals(backUpTask.getSourceFileStore(), targetFileStore);
+	}
+	
 	public void getInformation(StringBuilder infos) {
 
 		try {
@@ -304,6 +538,11 @@ public class BackUpItem extends AbstractBackUpItem {
 
 			infos.append("\nTarget file : ");
 			BasicFileAttributes targetBasicAttributes = FilesUtils.appendFileInformations(targetPath, infos, bLog);
+			
+			if (movedTargetPath != null) {
+				infos.append("\nMoved target file : ");
+				FilesUtils.appendFileInformations(movedTargetPath, infos, bLog);
+			}
 
 			if ((sourceBasicAttributes != null) && (targetBasicAttributes != null)
 					&& (sourceBasicAttributes.isRegularFile()) && (targetBasicAttributes.isRegularFile())) {
@@ -330,26 +569,46 @@ public class BackUpItem extends AbstractBackUpItem {
 		return sizeDifference > fileSizeWarningThreshold;
 	}
 
+	@Override
+	public long getNbBytesToCopy() {
+		
+		return switch (backupAction) {
+			case COPY_REPLACE, COPY_NEW, AMBIGUOUS -> pathPairBasicAttributes.getSourceSize();
+			case COPY_TREE -> {
+				waitSizeDifference();
+				yield sizeDifference;
+			}
+			case COPY_TARGET -> pathPairBasicAttributes.getTargetSize();
+			case DELETE, DELETE_DIR, ADJUST_TIME, MOVE -> 0;
+		};
+	}
+	
 	@Override
 	public void sumIndividualCounters(BackUpCounters backUpCounters) {
 		
-		switch (backupAction) {
-			case COPY_REPLACE -> backUpCounters.copyReplaceNb++;
-			case COPY_NEW -> backUpCounters.copyNewNb++;
-			case DELETE -> backUpCounters.deleteNb++;
-			case COPY_TREE -> backUpCounters.copyTreeNb++;
-			case DELETE_DIR -> backUpCounters.deleteDirNb++;
-			case ADJUST_TIME -> backUpCounters.adjustTimeNb++;
-			case COPY_TARGET -> backUpCounters.copyTargetNb++;
-			case AMBIGUOUS -> backUpCounters.ambiguousNb++;
-		}
+		getActionCounter(backUpCounters).increment();
 		
 		if (backupStatus == BackupStatus.DIFF_BY_CONTENT) {
-			backUpCounters.contentDifferentNb++;
+			backUpCounters.contentDifferentNb.increment();
 		}
 		
 		if (sizeDifference > fileSizeWarningThreshold) {
-			backUpCounters.backupWithSizeAboveThreshold++;
+			backUpCounters.backupWithSizeAboveThreshold.increment();
 		}
 	}
+	
+	private LongAdder getActionCounter(BackUpCounters backUpCounters) {
+		
+		return switch (backupAction) {
+			case COPY_REPLACE -> backUpCounters.copyReplaceNb;
+			case COPY_NEW -> backUpCounters.copyNewNb;
+			case DELETE -> backUpCounters.deleteNb;
+			case COPY_TREE -> backUpCounters.copyTreeNb;
+			case DELETE_DIR -> backUpCounters.deleteDirNb;
+			case ADJUST_TIME -> backUpCounters.adjustTimeNb;
+			case COPY_TARGET -> backUpCounters.copyTargetNb;
+			case AMBIGUOUS -> backUpCounters.ambiguousNb;
+			case MOVE -> backUpCounters.moveNb;
+		};
+	}
 }
@@ -32,7 +32,7 @@ import java.util.Objects;
 public class BackUpItemGroup extends AbstractBackUpItem {
 
 	private final List<BackUpItem> backUpItems;
-	private boolean isAboveFileSizeLimitThreshold;
+	private volatile boolean isAboveFileSizeLimitThreshold;
 	
 	public BackUpItemGroup(Path sourcePath, Path targetPath, Path sourceClosestExistingPath, BackupAction backupAction, BackupStatus backupStatus, BackUpTask backUpTask) {
 		
@@ -62,12 +62,18 @@ public class BackUpItemGroup extends AbstractBackUpItem {
 			throw new IllegalArgumentException("backUpItem with permanance level " + Objects.toString(backUpItem.getPermanenceLevel()) + " added to BackUpItemGroup with permanance level " + directoryGroup.getPermanenceLevel());
 		}
 		
-		sizeDifference = sizeDifference + backUpItem.getSizeDifference();
 		backUpItemNumber++;
+		// The size difference of the item may be computed later by the folder size stage
+		backUpItem.whenSizeDifferenceKnown(() -> addSizeDifference(backUpItem));
+		return backUpItems.add(backUpItem);
+	}
+	
+	private synchronized void addSizeDifference(BackUpItem backUpItem) {
+		
+		sizeDifference = sizeDifference + backUpItem.getSizeDifference();
 		if (backUpItem.isAboveFileSizeLimitThreshold()) {
 			isAboveFileSizeLimitThreshold = true;
 		}
-		return backUpItems.add(backUpItem);
 	}
 
 	@Override
@@ -85,11 +91,32 @@ public class BackUpItemGroup extends AbstractBackUpItem {
 		return success;
 	}
 
+	@Override
+	public void waitSizeDifference() {
+		backUpItems.forEach(BackUpItem::waitSizeDifference);
+	}
+	
+	// All the back up items of the group have the same action
+	@Override
+	public boolean acquiresIoPermits() {
+		return backUpItems.stream().anyMatch(BackUpItem::acquiresIoPermits);
+	}
+	
+	@Override
+	public List<Path> getTargetPaths() {
+		return backUpItems.stream().flatMap(backUpItem -> backUpItem.getTargetPaths().stream()).toList();
+	}
+
 	@Override
 	public boolean isAboveFileSizeLimitThreshold() {
 		return isAboveFileSizeLimitThreshold;
 	}
 
+	@Override
+	public long getNbBytesToCopy() {
+		return backUpItems.stream().mapToLong(BackUpItem::getNbBytesToCopy).sum();
+	}
+	
 	@Override
 	public void sumIndividualCounters(BackUpCounters backUpCounters) {	
 		backUpItems.forEach(backUpItem -> backUpItem.sumIndividualCounters(backUpCounters));
@@ -24,12 +24,13 @@ SOFTWARE.
 
 package org.fl.backupFiles;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 
 import org.fl.backupFiles.directoryGroup.GroupPolicy;
 import org.fl.backupFiles.directoryGroup.core.DirectoryGroup;
 
-public class BackUpItemList extends LinkedList<AbstractBackUpItem> {
+// Array backed list : the back up table model gets the back up items by row index
+public class BackUpItemList extends ArrayList<AbstractBackUpItem> {
 
 	private static final long serialVersionUID = 1L;
 	
@@ -76,6 +77,7 @@ public class BackUpItemList extends LinkedList<AbstractBackUpItem> {
 		}
 	}
 	
+	// Single pass compaction of the array
 	public void removeItemsDone() {
 		removeIf(i -> i.getBackupStatus().equals(BackupStatus.DONE));
 	}
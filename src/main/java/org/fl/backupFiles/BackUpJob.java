@@ -38,8 +38,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import org.fl.backupFiles.chunkstore.ChunkStore;
 import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
 import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.snapshot.SnapshotHistory;
 import org.fl.util.file.FilesUtils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -83,7 +85,14 @@ public class BackUpJob {
 	private static final String TARGET = "target";
 	private static final String BUFFER = "buffer";
 	private static final String PARALLEL_SCAN = "parallelScan";
+	private static final String FORK_JOIN_SCAN = "forkJoinScan";
+	private static final String INCREMENTAL_SCAN = "incrementalScan";
 	private static final String SIZE_WARNING_LIMIT = "sizeWarningLimit";
+	private static final String SNAPSHOT_DIR = "snapshotDir";
+	private static final String SNAPSHOT_KEEP = "snapshotKeep";
+	private static final String TARGET_TYPE = "targetType";
+	private static final String TARGET_TYPE_MIRROR = "mirror";
+	private static final String TARGET_TYPE_CHUNK_STORE = "chunkStore";
 	
 	// A back up jobs is defined by a JSON object (passed in parameter of this constructor)
 	// It is basically either 2 lists of back up tasks :
@@ -91,6 +100,8 @@ public class BackUpJob {
 	//  - a list of back up task from buffer directories to target directories
 	// or a single list of back up task from source directories to target directories
 	// A back up task is a source directory to back up and a destination directory to back up
+	// If a snapshot directory is defined, a dated snapshot of the target is created in it after each back up
+	// If the target type is chunkStore, the target is a deduplicating chunk store instead of a mirror of the source
 	public BackUpJob(String jsonConfig, DirectoryGroupConfiguration directoryGroupConfiguration) {
 
 		fullBackUpTaskList = new ArrayList<FullBackUpTask>();
@@ -133,15 +144,23 @@ public class BackUpJob {
 		private final Path bufferPath;
 		private final Path targetPath;
 		private final boolean scanInParallel;
+		private final boolean scanWithForkJoin;
+		private final boolean incrementalScan;
 		private final long sizeWarningLimit;
+		private final SnapshotHistory snapshotHistory;
+		private final ChunkStore chunkStore;
 
-		public FullBackUpTask(Path srcPath, Path bufPath, Path tgtPath, boolean scanInParallel, long sizeWarningLimit) {
+		public FullBackUpTask(Path srcPath, Path bufPath, Path tgtPath, boolean scanInParallel, boolean scanWithForkJoin, boolean incrementalScan, long sizeWarningLimit, SnapshotHistory snapshotHistory, ChunkStore chunkStore) {
 			super();
 			this.sourcePath = srcPath;
 			this.bufferPath = bufPath;
 			this.targetPath = tgtPath;
 			this.scanInParallel = scanInParallel;
+			this.scanWithForkJoin = scanWithForkJoin;
+			this.incrementalScan = incrementalScan;
 			this.sizeWarningLimit = sizeWarningLimit;
+			this.snapshotHistory = snapshotHistory;
+			this.chunkStore = chunkStore;
 		}
 		
 		public Set<JobTaskType> getJobTaskTypes() {
@@ -155,6 +174,26 @@ public class BackUpJob {
 		
 		public List<BackUpTask> getBackUpTasks(JobTaskType jobTaskType) throws IOException {
 			
+			if ((chunkStore != null) && (jobTaskType != JobTaskType.SOURCE_TO_BUFFER)) {
+				// The whole source is backed up in a single snapshot of the chunk store
+				List<BackUpTask> backUpTasks = getSimpleBackUpTasks(jobTaskType, sourcePath, bufferPath, targetPath, sizeWarningLimit);
+				backUpTasks.forEach(backUpTask -> backUpTask.setChunkStore(chunkStore));
+				return backUpTasks;
+			}
+			List<BackUpTask> backUpTasks = getBackUpTasksToScan(jobTaskType);
+			backUpTasks.forEach(backUpTask -> {
+				backUpTask.setForkJoinScan(scanWithForkJoin);
+				backUpTask.setIncrementalScan(incrementalScan);
+				// Only the final target has snapshots, not the buffer
+				if (jobTaskType != JobTaskType.SOURCE_TO_BUFFER) {
+					backUpTask.setSnapshotHistory(snapshotHistory);
+				}
+			});
+			return backUpTasks;
+		}
+		
+		private List<BackUpTask> getBackUpTasksToScan(JobTaskType jobTaskType) throws IOException {
+			
 			if (scanInParallel) {
 				
 				List<BackUpTask> backUpTasks = new ArrayList<BackUpTask>();
@@ -267,9 +306,13 @@ public class BackUpJob {
 			Path bufPath = getPathElement(jObjItem, BUFFER);
 
 			boolean scanInParallel = getParallelScanElement(jObjItem, PARALLEL_SCAN);
+			boolean scanWithForkJoin = getParallelScanElement(jObjItem, FORK_JOIN_SCAN);
+			boolean incrementalScan = getParallelScanElement(jObjItem, INCREMENTAL_SCAN);
 			long sizeWarningLimit = getSizeWarningLimit(jObjItem, SIZE_WARNING_LIMIT);
+			ChunkStore chunkStore = getChunkStore(jObjItem, tgtPath);
+			SnapshotHistory snapshotHistory = (chunkStore == null) ? getSnapshotHistory(jObjItem, tgtPath) : null;
 
-			fullBackUpTaskList.add(new FullBackUpTask(srcPath, bufPath, tgtPath, scanInParallel, sizeWarningLimit));
+			fullBackUpTaskList.add(new FullBackUpTask(srcPath, bufPath, tgtPath, scanInParallel, scanWithForkJoin, incrementalScan, sizeWarningLimit, snapshotHistory, chunkStore));
 		}
 	}
 	
@@ -323,6 +366,37 @@ public class BackUpJob {
 		return scanInParallel;
 	}
 	
+	private ChunkStore getChunkStore(JsonNode jObjItem, Path tgtPath) {
+		
+		JsonNode elem = jObjItem.get(TARGET_TYPE);
+		if ((elem == null) || TARGET_TYPE_MIRROR.equals(elem.asText())) {
+			return null;
+		} else if (! TARGET_TYPE_CHUNK_STORE.equals(elem.asText())) {
+			bLog.severe("Unknown target type " + elem.asText() + " for back up job " + title);
+			return null;
+		} else if (tgtPath == null) {
+			bLog.severe("Chunk store target type without target for back up job " + title);
+			return null;
+		}
+		return ChunkStore.getChunkStore(tgtPath);
+	}
+	
+	private SnapshotHistory getSnapshotHistory(JsonNode jObjItem, Path tgtPath) throws URISyntaxException {
+		
+		Path snapshotPath = getPathElement(jObjItem, SNAPSHOT_DIR);
+		if (snapshotPath == null) {
+			return null;
+		} else if (tgtPath == null) {
+			bLog.severe("Snapshot directory defined without target for back up job " + title);
+			return null;
+		} else if (snapshotPath.startsWith(tgtPath)) {
+			bLog.severe("Snapshot directory " + snapshotPath + " inside the target " + tgtPath + " for back up job " + title);
+			return null;
+		}
+		JsonNode elem = jObjItem.get(SNAPSHOT_KEEP);
+		return new SnapshotHistory(tgtPath, snapshotPath, (elem != null) ? elem.asInt() : 0);
+	}
+	
 	private long getSizeWarningLimit(JsonNode jObjItem, String prop) {
 		
 		JsonNode elem = jObjItem.get(prop);
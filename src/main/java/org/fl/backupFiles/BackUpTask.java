@@ -31,7 +31,10 @@ import java.nio.file.Path;
 import java.util.Objects;
 import java.util.logging.Logger;
 
+import org.fl.backupFiles.chunkstore.ChunkStore;
 import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.scanner.ScanStateIndex;
+import org.fl.backupFiles.snapshot.SnapshotHistory;
 import org.fl.util.file.FilesUtils;
 
 public class BackUpTask {
@@ -42,10 +45,16 @@ public class BackUpTask {
 	private final Path target;
 	private final long sizeWarningLimit;
 	private final FileStore targetFileStore;
+	private FileStore sourceFileStore;
 	private final DirectoryGroupMap directoryGroupMap;
 	
 	private boolean compareContent;
 	private boolean compareContentOnAmbiguous;
+	private boolean forkJoinScan;
+	private boolean incrementalScan;
+	private ScanStateIndex scanStateIndex;
+	private SnapshotHistory snapshotHistory;
+	private ChunkStore chunkStore;
 	
 	private static final String warning1 = "  Attention : les chemins origine et destination n'existent pas";
 	private static final String warning2 = "  Attention : le chemin origine n'existe pas";
@@ -68,6 +77,11 @@ public class BackUpTask {
 
 		compareContent = false;
 		compareContentOnAmbiguous = true;
+		forkJoinScan = false;
+		incrementalScan = false;
+		scanStateIndex = null;
+		snapshotHistory = null;
+		chunkStore = null;
 	}
 
 	public Path getSource() {
@@ -89,6 +103,14 @@ public class BackUpTask {
 	public FileStore getTargetFileStore() {
 		return targetFileStore;
 	}
+	
+	// The source file store is only needed for the content comparisons, so it is searched when first needed
+	public synchronized FileStore getSourceFileStore() {
+		if (sourceFileStore == null) {
+			sourceFileStore = FilesUtils.findFileStore(source, bLog);
+		}
+		return sourceFileStore;
+	}
 
 	public String toString() {
 		String toString;
@@ -135,6 +157,55 @@ public class BackUpTask {
 		this.compareContentOnAmbiguous = compareContentOnAmbiguous;
 	}
 	
+	// If true, the sub directories of the back up task are scanned in parallel by the scan fork/join pool
+	public boolean forkJoinScan() {
+		return forkJoinScan;
+	}
+
+	public void setForkJoinScan(boolean forkJoinScan) {
+		this.forkJoinScan = forkJoinScan;
+	}
+	
+	// If true, the unchanged target directories are read from the scan state index of the last scan
+	public boolean incrementalScan() {
+		return incrementalScan;
+	}
+
+	public void setIncrementalScan(boolean incrementalScan) {
+		this.incrementalScan = incrementalScan;
+	}
+	
+	// Null if incremental scan is not set or if there is no scan state index directory defined
+	public synchronized ScanStateIndex getScanStateIndex() {
+		
+		if (! incrementalScan) {
+			return null;
+		}
+		if ((scanStateIndex == null) && (Config.getScanIndexDir() != null)) {
+			scanStateIndex = new ScanStateIndex(Config.getScanIndexDir(), source, target, Config.getScanIndexFullScanPeriod());
+		}
+		return scanStateIndex;
+	}
+	
+	// Null if the target is a simple mirror. Otherwise, a snapshot of the target is created after each back up
+	public SnapshotHistory getSnapshotHistory() {
+		return snapshotHistory;
+	}
+
+	public void setSnapshotHistory(SnapshotHistory snapshotHistory) {
+		this.snapshotHistory = snapshotHistory;
+	}
+	
+	// Null if the target is a directory. Otherwise, the target is the root directory of a chunk store :
+	// the back up task is not scanned, and the source is backed up in a new snapshot of the chunk store
+	public ChunkStore getChunkStore() {
+		return chunkStore;
+	}
+
+	public void setChunkStore(ChunkStore chunkStore) {
+		this.chunkStore = chunkStore;
+	}
+	
 	// Hashcode with lazy init
 	private int hashcode = 0;
 
@@ -32,7 +32,8 @@ public enum BackupAction {
 	DELETE_DIR("Effacer arbre", "Effacer l'arbre destination"), 
 	AMBIGUOUS("Ambigu", "Le fichier destination est plus récent, remplacer le fichier destination par la source"), 
 	COPY_TARGET("Copier cible", "Remplacer le fichier source par la destination (ils ont un contenu identique)"), 
-	ADJUST_TIME("Ajuster temps", "Remplacer le temps de modification du fichier destination avec celui de la source (ils ont un contenu identique)");
+	ADJUST_TIME("Ajuster temps", "Remplacer le temps de modification du fichier destination avec celui de la source (ils ont un contenu identique)"),
+	MOVE("Déplacer", "Déplacer dans la destination un élément destination à effacer, identique à la source");
 	
 	private final String actionName;
 	private final String actionDetails;
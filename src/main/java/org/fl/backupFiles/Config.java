@@ -25,21 +25,33 @@ SOFTWARE.
 package org.fl.backupFiles;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.fl.backupFiles.gui.BackUpItemCustomActionListener;
-import org.fl.backupFiles.gui.BackUpItemCustomActionListener.CustomAction;
-import org.fl.backupFiles.gui.BackupFilesGui;
+import org.fl.backupFiles.copy.BlockChecksumCache;
+import org.fl.backupFiles.copy.CopyStrategyType;
+import org.fl.backupFiles.copy.DeltaCopier;
+import org.fl.backupFiles.copy.ParallelTreeCopier;
+import org.fl.backupFiles.plan.BackUpPlanFormat;
+import org.fl.backupFiles.scanner.ContentCompareStage;
+import org.fl.backupFiles.scanner.ContentHashCache;
+import org.fl.backupFiles.scanner.DirectoryReaderType;
+import org.fl.backupFiles.scanner.FileStorePermits;
+import org.fl.backupFiles.scanner.FolderSizeStage;
+import org.fl.backupFiles.scanner.ScanExecutorType;
 import org.fl.util.AdvancedProperties;
 import org.fl.util.RunningContext;
 import org.fl.util.file.FilesUtils;
@@ -53,19 +65,47 @@ public class Config {
 	private RunningContext runningContext;
 	private AdvancedProperties backupProperty;
 	private Path configFileDir;
+	private Path scanIndexDir;
+	private int scanIndexFullScanPeriod;
+	private Path planExportDir;
+	private BackUpPlanFormat planFormat;
+	private Path journalDir;
+	private int journalSyncBatchSize;
+	private long journalSyncInterval;
+	private ContentHashCache contentHashCache;
+	private DirectoryReaderType directoryReaderType;
 	private long scanRefreshRate;
 	private long backUpMaxRefreshInterval;
 	private long fileStoreRemainingSpaceWarningThreshold;
 	private int backUpRefreshRate;
 	private int maxDepth;
 	private ExecutorService scanExecutorService;
+	private ScanExecutorType scanExecutorType;
+	private FileStorePermits scanFileStorePermits;
+	private FileStorePermits ioScheduler;
+	private ExecutorService backUpExecutorService;
+	private int backUpThreadPoolSize;
+	private int backUpFileStoreMaxConcurrency;
+	private CopyStrategyType copyStrategyType;
+	private ParallelTreeCopier parallelTreeCopier;
+	private DeltaCopier deltaCopier;
+	private ForkJoinPool scanForkJoinPool;
+	private ContentCompareStage contentCompareStage;
+	private FolderSizeStage folderSizeStage;
+	private boolean moveDetection;
+	private boolean moveDetectionCompareContent;
 	private ScheduledExecutorService scheduler;
 	private List<OsAction> osActions;
+	private Map<CustomAction, String> customActionCommands;
 	private String backupGroupConfiguration;
 	private BackupAction acionOnSameTargetContentButNewer;
 
 
-	private static Supplier<RunningContext> runningContextSupplier = () -> BackupFilesGui.getRunningContext();
+	// Default back up property file. The system property backupFiles.props overrides it
+	public static final String DEFAULT_PROP_FILE = "file:///FredericPersonnel/Program/PortableApps/BackUpFiles/backupFiles.properties";
+	public static final String PROP_FILE_SYSTEM_PROPERTY = "backupFiles.props";
+	
+	private static Supplier<RunningContext> runningContextSupplier = () -> newRunningContext(System.getProperty(PROP_FILE_SYSTEM_PROPERTY, DEFAULT_PROP_FILE));
 	
 	// For test purpose
 	public static void setRunningContextSupplier(Supplier<RunningContext> rcs) {
@@ -73,6 +113,15 @@ public class Config {
 		configInstance = null;
 	}
 	
+	// Back up property file given in argument of the GUI or of the command line runner
+	public static void setPropertyFile(String propertyFileUriString) {
+		setRunningContextSupplier(() -> newRunningContext(propertyFileUriString));
+	}
+	
+	private static RunningContext newRunningContext(String propertyFileUriString) {
+		return new RunningContext("org.fl.backupFiles", propertyFileUriString);
+	}
+	
 	private static Config getInstance() {
 		if (configInstance == null) {
 			configInstance = new Config(runningContextSupplier.get());
@@ -96,9 +145,75 @@ public class Config {
 
 			int threadPoolSize = backupProperty.getInt("backupFiles.scan.threadPoolSize", 10);
 			int schedulerPoolSize = backupProperty.getInt("backupFiles.scan.schedulerPoolSize", 1);
-			scanExecutorService = Executors.newFixedThreadPool(threadPoolSize);
+			scanExecutorType = getScanExecutorType(backupProperty, "backupFiles.scan.executor", ScanExecutorType.FIXED);
+			scanExecutorService = scanExecutorType.newExecutorService(threadPoolSize);
+			if (scanExecutorType.needFileStorePermits()) {
+				scanFileStorePermits = new FileStorePermits(backupProperty.getInt("backupFiles.scan.fileStoreMaxConcurrency", threadPoolSize));
+			} else {
+				scanFileStorePermits = null;
+			}
+			scanForkJoinPool = new ForkJoinPool(threadPoolSize);
+			ioScheduler = newIoScheduler(backupProperty);
 			scheduler = Executors.newScheduledThreadPool(schedulerPoolSize);
 			
+			int contentCompareThreadPoolSize = backupProperty.getInt("backupFiles.scan.contentCompare.threadPoolSize", 0);
+			if (contentCompareThreadPoolSize > 0) {
+				contentCompareStage = new ContentCompareStage(
+						contentCompareThreadPoolSize, 
+						backupProperty.getInt("backupFiles.scan.contentCompare.queueSize", 200), 
+						backupProperty.getInt("backupFiles.scan.contentCompare.fileStoreMaxConcurrency", 2),
+						ioScheduler);
+			} else {
+				contentCompareStage = null;
+			}
+			
+			int folderSizeThreadPoolSize = backupProperty.getInt("backupFiles.scan.folderSize.threadPoolSize", 0);
+			if (folderSizeThreadPoolSize > 0) {
+				folderSizeStage = new FolderSizeStage(folderSizeThreadPoolSize, ioScheduler);
+			} else {
+				folderSizeStage = null;
+			}
+			
+			moveDetection = backupProperty.getBoolean("backupFiles.scan.moveDetection", false);
+			moveDetectionCompareContent = backupProperty.getBoolean("backupFiles.scan.moveDetection.compareContent", false);
+			
+			backUpThreadPoolSize = backupProperty.getInt("backupFiles.backUp.threadPoolSize", 1);
+			backUpFileStoreMaxConcurrency = backupProperty.getInt("backupFiles.backUp.fileStoreMaxConcurrency", backUpThreadPoolSize);
+			if (backUpThreadPoolSize > 1) {
+				backUpExecutorService = Executors.newFixedThreadPool(backUpThreadPoolSize);
+			} else {
+				backUpExecutorService = null;
+			}
+			copyStrategyType = getCopyStrategyType(backupProperty, "backupFiles.backUp.copyStrategy", CopyStrategyType.FILES_COPY);
+			
+			int copyTreeThreadPoolSize = backupProperty.getInt("backupFiles.backUp.copyTree.threadPoolSize", 0);
+			if (copyTreeThreadPoolSize > 0) {
+				parallelTreeCopier = new ParallelTreeCopier(
+						Executors.newFixedThreadPool(copyTreeThreadPoolSize), 
+						copyTreeThreadPoolSize, 
+						backupProperty.getInt("backupFiles.backUp.copyTree.largeFileWorkers", 2), 
+						backupProperty.getLong("backupFiles.backUp.copyTree.largeFileThreshold", 64*1024*1024),
+						ioScheduler);
+			} else {
+				parallelTreeCopier = null;
+			}
+			
+			long deltaCopyMinSize = backupProperty.getLong("backupFiles.backUp.deltaCopy.minSize", 0);
+			if (deltaCopyMinSize > 0) {
+				BlockChecksumCache blockChecksumCache;
+				String blockChecksumCacheFileString = backupProperty.getProperty("backupFiles.backUp.deltaCopy.checksumCache.file");
+				if ((blockChecksumCacheFileString != null) && !blockChecksumCacheFileString.isEmpty()) {
+					blockChecksumCache = new BlockChecksumCache(
+							FilesUtils.uriStringToAbsolutePath(blockChecksumCacheFileString), 
+							backupProperty.getInt("backupFiles.backUp.deltaCopy.checksumCache.maxEntries", 10000));
+				} else {
+					blockChecksumCache = null;
+				}
+				deltaCopier = new DeltaCopier(deltaCopyMinSize, backupProperty.getInt("backupFiles.backUp.deltaCopy.blockSize", 1024*1024), blockChecksumCache);
+			} else {
+				deltaCopier = null;
+			}
+			
 			String configFileDirString = backupProperty.getProperty("backupFiles.configFileDir");
 			if ((configFileDirString != null) && !configFileDirString.isEmpty()) {
 				configFileDir = FilesUtils.uriStringToAbsolutePath(configFileDirString);
@@ -106,6 +221,49 @@ public class Config {
 				configFileDir = null;
 			}
 			
+			String scanIndexDirString = backupProperty.getProperty("backupFiles.scan.indexDir");
+			if ((scanIndexDirString != null) && !scanIndexDirString.isEmpty()) {
+				scanIndexDir = FilesUtils.uriStringToAbsolutePath(scanIndexDirString);
+			} else {
+				scanIndexDir = null;
+			}
+			scanIndexFullScanPeriod = backupProperty.getInt("backupFiles.scan.indexFullScanPeriod", 10);
+			
+			String planExportDirString = backupProperty.getProperty("backupFiles.scan.planExportDir");
+			if ((planExportDirString != null) && !planExportDirString.isEmpty()) {
+				planExportDir = FilesUtils.uriStringToAbsolutePath(planExportDirString);
+			} else {
+				planExportDir = null;
+			}
+			planFormat = getBackUpPlanFormat(backupProperty, "backupFiles.scan.planFormat", BackUpPlanFormat.JSON_LINES);
+			
+			String journalDirString = backupProperty.getProperty("backupFiles.backUp.journalDir");
+			if ((journalDirString != null) && !journalDirString.isEmpty()) {
+				journalDir = FilesUtils.uriStringToAbsolutePath(journalDirString);
+			} else {
+				journalDir = null;
+			}
+			journalSyncBatchSize = backupProperty.getInt("backupFiles.backUp.journal.syncBatchSize", 256);
+			journalSyncInterval = backupProperty.getLong("backupFiles.backUp.journal.syncInterval", 1000);
+			
+			String contentHashCacheFileString = backupProperty.getProperty("backupFiles.scan.contentHashCache.file");
+			if ((contentHashCacheFileString != null) && !contentHashCacheFileString.isEmpty()) {
+				String contentHashAlgorithm = backupProperty.getProperty("backupFiles.scan.contentHashCache.algorithm", "SHA-256");
+				try {
+					contentHashCache = new ContentHashCache(
+							FilesUtils.uriStringToAbsolutePath(contentHashCacheFileString), 
+							contentHashAlgorithm, 
+							backupProperty.getInt("backupFiles.scan.contentHashCache.maxEntries", 500000));
+				} catch (NoSuchAlgorithmException e) {
+					logger.log(Level.SEVERE, "Unknown content hash algorithm " + contentHashAlgorithm + ". The content hash cache is not active", e);
+					contentHashCache = null;
+				}
+			} else {
+				contentHashCache = null;
+			}
+			
+			directoryReaderType = getDirectoryReaderType(backupProperty, "backupFiles.scan.directoryReader", DirectoryReaderType.AUTO);
+			
 			scanRefreshRate = backupProperty.getLong("backupFiles.scan.refreshRate", 2000);
 			backUpMaxRefreshInterval = backupProperty.getLong("backupFiles.backUp.maxRefreshInterval", 3000);
 			backUpRefreshRate = backupProperty.getInt("backupFiles.backUp.refreshRate", 1);
@@ -128,14 +286,14 @@ public class Config {
 				osActions.add(new OsAction(title, cmd, sep));
 			}
 
-			HashMap<CustomAction, String> customActionMap = new HashMap<CustomAction, String>();
+			// The custom action commands are kept here, so that the configuration does not initialize GUI classes (for the headless runner)
+			customActionCommands = new HashMap<CustomAction, String>();
 			for (CustomAction customAction : CustomAction.values()) {
 				String caString = backupProperty.getProperty("backupFiles.customActionCommand." + customAction.name());
 				if ((caString != null) && (!caString.isEmpty())) {
-					customActionMap.put(customAction, caString);
+					customActionCommands.put(customAction, caString);
 				}
 			}
-			BackUpItemCustomActionListener.setCustomActionCommands(customActionMap);
 
 			backupGroupConfiguration = backupProperty.getFileContentFromURI("backupFiles.backupGroupFile", StandardCharsets.UTF_8);
 
@@ -146,6 +304,94 @@ public class Config {
 		}
 	}
 	
+	// The I/O concurrency of a file store may be configured by its name (as given by the file store itself or in its description, like E: or /dev/sdb1)
+	private FileStorePermits newIoScheduler(AdvancedProperties backupProperty) {
+		
+		int defaultMaxConcurrency = backupProperty.getInt("backupFiles.io.fileStoreMaxConcurrency", 64);
+		Map<String, Integer> fileStoresMaxConcurrency = new HashMap<String, Integer>();
+		String ioFileStorePropBase = "backupFiles.io.fileStore.";
+		List<String> ioFileStoreProperties = backupProperty.getKeysElements(ioFileStorePropBase);
+		for (String prop : ioFileStoreProperties) {
+			String name = backupProperty.getProperty(ioFileStorePropBase + prop + ".name");
+			if ((name != null) && !name.isEmpty()) {
+				fileStoresMaxConcurrency.put(name, backupProperty.getInt(ioFileStorePropBase + prop + ".maxConcurrency", defaultMaxConcurrency));
+			} else {
+				logger.warning("No file store name for property " + ioFileStorePropBase + prop);
+			}
+		}
+		
+		return new FileStorePermits(fileStore -> fileStoresMaxConcurrency.entrySet().stream()
+				.filter(fileStoreMaxConcurrency -> isFileStoreNamed(fileStore, fileStoreMaxConcurrency.getKey()))
+				.map(Map.Entry::getValue)
+				.findFirst()
+				.orElse(defaultMaxConcurrency));
+	}
+	
+	private static boolean isFileStoreNamed(FileStore fileStore, String name) {
+		String fileStoreDescription = fileStore.toString();
+		return name.equals(fileStore.name()) || name.equals(fileStoreDescription) || fileStoreDescription.contains("(" + name + ")");
+	}
+	
+	private DirectoryReaderType getDirectoryReaderType(AdvancedProperties backupProperty, String property, DirectoryReaderType defaultType) {
+		
+		String directoryReader = backupProperty.getProperty(property);
+		if ((directoryReader != null) && !directoryReader.isEmpty()) {
+			try {
+				return DirectoryReaderType.valueOf(directoryReader);
+			} catch (IllegalArgumentException e) {
+				logger.warning("Unknown directory reader " + directoryReader + " for property " + property);
+				return defaultType;
+			}
+		} else {
+			return defaultType;
+		}
+	}
+	
+	private ScanExecutorType getScanExecutorType(AdvancedProperties backupProperty, String property, ScanExecutorType defaultType) {
+		
+		String scanExecutor = backupProperty.getProperty(property);
+		if ((scanExecutor != null) && !scanExecutor.isEmpty()) {
+			try {
+				return ScanExecutorType.valueOf(scanExecutor.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.warning("Unknown scan executor " + scanExecutor + " for property " + property);
+				return defaultType;
+			}
+		} else {
+			return defaultType;
+		}
+	}
+	
+	private CopyStrategyType getCopyStrategyType(AdvancedProperties backupProperty, String property, CopyStrategyType defaultType) {
+		
+		String copyStrategy = backupProperty.getProperty(property);
+		if ((copyStrategy != null) && !copyStrategy.isEmpty()) {
+			try {
+				return CopyStrategyType.valueOf(copyStrategy);
+			} catch (IllegalArgumentException e) {
+				logger.warning("Unknown copy strategy " + copyStrategy + " for property " + property);
+				return defaultType;
+			}
+		} else {
+			return defaultType;
+		}
+	}
+	
+	private BackUpPlanFormat getBackUpPlanFormat(AdvancedProperties backupProperty, String property, BackUpPlanFormat defaultFormat) {
+		
+		String planFormat = backupProperty.getProperty(property);
+		if ((planFormat != null) && !planFormat.isEmpty()) {
+			try {
+				return BackUpPlanFormat.valueOf(planFormat);
+			} catch (IllegalArgumentException e) {
+				logger.warning("Unknown back up plan format " + planFormat + " for property " + property);
+				return defaultFormat;
+			}
+		} else {
+			return defaultFormat;
+		}
+	}
+	
 	private BackupAction getBackUpAction(AdvancedProperties backupProperty, String property, BackupAction defaultAction) {
 		
 		String backupAction = backupProperty.getProperty("backupFiles.actionOnTargetWithSameContentButNewer");
@@ -169,6 +415,45 @@ public class Config {
 		return getInstance().configFileDir;
 	}
 
+	public static Path getScanIndexDir() {
+		return getInstance().scanIndexDir;
+	}
+	
+	// Every scanIndexFullScanPeriod scans, the target is fully listed instead of being read from the scan state index (0 for never)
+	public static int getScanIndexFullScanPeriod() {
+		return getInstance().scanIndexFullScanPeriod;
+	}
+	
+	// Null if the back up plans are not exported by the scans of the GUI
+	public static Path getPlanExportDir() {
+		return getInstance().planExportDir;
+	}
+	
+	public static BackUpPlanFormat getPlanFormat() {
+		return getInstance().planFormat;
+	}
+	
+	public static Path getJournalDir() {
+		return getInstance().journalDir;
+	}
+	
+	public static int getJournalSyncBatchSize() {
+		return getInstance().journalSyncBatchSize;
+	}
+	
+	public static long getJournalSyncInterval() {
+		return getInstance().journalSyncInterval;
+	}
+	
+	// Null if the content hash cache is not active
+	public static ContentHashCache getContentHashCache() {
+		return getInstance().contentHashCache;
+	}
+	
+	public static DirectoryReaderType getDirectoryReaderType() {
+		return getInstance().directoryReaderType;
+	}
+	
 	public static long getScanRefreshRate() {
 		return getInstance().scanRefreshRate;
 	}
@@ -193,6 +478,76 @@ public class Config {
 		return getInstance().scanExecutorService;
 	}
 
+	public static ScanExecutorType getScanExecutorType() {
+		return getInstance().scanExecutorType;
+	}
+	
+	// Null if the number of scanner tasks in progress is not limited by file store
+	public static FileStorePermits getScanFileStorePermits() {
+		return getInstance().scanFileStorePermits;
+	}
+	
+	// I/O scheduler shared by the scans and the back ups : directory reads, content comparisons and back up actions acquire the permits of their file stores
+	public static FileStorePermits getIoScheduler() {
+		return getInstance().ioScheduler;
+	}
+	
+	public static ForkJoinPool getScanForkJoinPool() {
+		return getInstance().scanForkJoinPool;
+	}
+
+	// Null if the content comparisons are done by the scan threads
+	public static ContentCompareStage getContentCompareStage() {
+		return getInstance().contentCompareStage;
+	}
+	
+	// Null if the sizes of the trees to copy or delete are computed by the scan threads
+	public static FolderSizeStage getFolderSizeStage() {
+		return getInstance().folderSizeStage;
+	}
+	
+	// True if the files and directories moved in the source are moved in the target instead of being copied
+	public static boolean isMoveDetection() {
+		return getInstance().moveDetection;
+	}
+	
+	// True if the content of the files is compared to confirm a move
+	public static boolean isMoveDetectionCompareContent() {
+		return getInstance().moveDetectionCompareContent;
+	}
+	
+	// Null if the back up is not done in parallel
+	public static ExecutorService getBackUpExecutorService() {
+		return getInstance().backUpExecutorService;
+	}
+	
+	public static int getBackUpThreadPoolSize() {
+		return getInstance().backUpThreadPoolSize;
+	}
+	
+	public static CopyStrategyType getCopyStrategyType() {
+		return getInstance().copyStrategyType;
+	}
+	
+	public static ParallelTreeCopier getParallelTreeCopier() {
+		return getInstance().parallelTreeCopier;
+	}
+	
+	// Null if the large files are not replaced by a delta copy
+	public static DeltaCopier getDeltaCopier() {
+		return getInstance().deltaCopier;
+	}
+	
+	// Null if the delta copy is not active or if the block checksums are not kept
+	public static BlockChecksumCache getBlockChecksumCache() {
+		DeltaCopier deltaCopier = getInstance().deltaCopier;
+		return (deltaCopier == null) ? null : deltaCopier.getBlockChecksumCache();
+	}
+	
+	public static int getBackUpFileStoreMaxConcurrency() {
+		return getInstance().backUpFileStoreMaxConcurrency;
+	}
+	
 	public static ScheduledExecutorService getScheduler() {
 		return getInstance().scheduler;
 	}
@@ -201,6 +556,10 @@ public class Config {
 		return getInstance().osActions;
 	}
 
+	public static Map<CustomAction, String> getCustomActionCommands() {
+		return getInstance().customActionCommands;
+	}
+	
 	public static String getBackupGroupConfiguration() {
 		return getInstance().backupGroupConfiguration;
 	}
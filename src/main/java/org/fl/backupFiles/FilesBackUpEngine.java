@@ -0,0 +1,217 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.chunkstore.ChunkStoreBackUpResult;
+import org.fl.backupFiles.plan.BackUpJournal;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+import org.fl.backupFiles.scanner.ScanStateIndex;
+import org.fl.backupFiles.snapshot.SnapshotHistory;
+
+// Execution of the back up items of a scan, shared by the back up worker of the GUI and by the headless runner
+public class FilesBackUpEngine {
+
+	private static final Logger eLog = Logger.getLogger(FilesBackUpEngine.class.getName());
+	
+	private final List<BackUpTask> backUpTasks;
+	private final BackUpItemList backUpItemList;
+	private final BackUpCounters backUpCounters;
+	
+	private final int refreshRate;
+	private final long maxRefreshInterval;
+	
+	// Optional journal of the back up, to resume it if it is interrupted
+	private BackUpJournal backUpJournal;
+	
+	private volatile int nbActionDone;
+	private volatile long nbBytesToCopy;
+	private volatile long lastPublishTime;
+	
+	public FilesBackUpEngine(List<BackUpTask> backUpTasks, BackUpItemList backUpItemList, BackUpCounters backUpCounters) {
+		
+		this.backUpTasks = backUpTasks;
+		this.backUpItemList = backUpItemList;
+		this.backUpCounters = backUpCounters;
+		
+		refreshRate = Config.getBackUpRefreshRate();
+		maxRefreshInterval = Config.getBackUpMaxRefreshInterval();
+	}
+
+	public void setBackUpJournal(BackUpJournal backUpJournal) {
+		this.backUpJournal = backUpJournal;
+	}
+	
+	// Returns true if all the back up items have been successfully executed
+	// progressListener is called with the number of actions done, every refreshRate actions and at least every maxRefreshInterval
+	public boolean backUp(BooleanSupplier stopAsked, IntConsumer progressListener) throws InterruptedException {
+		
+		boolean backupSuccess = true;
+		backUpCounters.reset();
+		nbActionDone = 0;
+		
+		// Bytes to copy, in total and for each target file store
+		long totalNbBytesToCopy = 0;
+		TargetFileStores targetFileStores = backUpCounters.getTargetFileStores();
+		for (AbstractBackUpItem backUpItem : backUpItemList) {
+			long nbBytesToCopyForItem = backUpItem.getNbBytesToCopy();
+			totalNbBytesToCopy += nbBytesToCopyForItem;
+			TargetFileStore targetFileStore = targetFileStores.getTargetFileStore(backUpItem.getTargetFileStore());
+			if (targetFileStore != null) {
+				targetFileStore.addNbBytesToCopy(nbBytesToCopyForItem);
+			}
+		}
+		nbBytesToCopy = totalNbBytesToCopy;
+		targetFileStores.sampleThroughput();
+		
+		// The scan state indexes are not valid while the target is modified
+		List<ScanStateIndex> scanStateIndexes = backUpTasks.stream()
+				.map(BackUpTask::getScanStateIndex)
+				.filter(Objects::nonNull)
+				.toList();
+		scanStateIndexes.forEach(ScanStateIndex::startBackUp);
+		
+		// The progress in bytes is refreshed even when a back up item takes a long time (a large tree copy for instance)
+		ScheduledFuture<?> progressTask = 
+				Config.getScheduler().scheduleAtFixedRate(() -> progressListener.accept(nbActionDone), maxRefreshInterval, maxRefreshInterval, TimeUnit.MILLISECONDS);
+		
+		boolean allBackUpItemsProcessed = false;
+		try {
+			lastPublishTime = System.currentTimeMillis();
+			if (Config.getBackUpExecutorService() != null) {
+			
+				ParallelBackUpExecutor parallelBackUpExecutor = 
+						new ParallelBackUpExecutor(Config.getBackUpExecutorService(), Config.getBackUpThreadPoolSize()*2, targetFileStores, Config.getIoScheduler());
+				backupSuccess = parallelBackUpExecutor.execute(backUpItemList, backUpCounters, stopAsked, 
+						nbActionsDone -> publishIfNeeded(nbActionsDone, progressListener), 
+						this::recordInJournal);
+				allBackUpItemsProcessed = (parallelBackUpExecutor.getNbActionsDone() == backUpItemList.size());
+			} else {
+				Iterator<AbstractBackUpItem> backupItemIterator = backUpItemList.iterator();
+	
+				while ((backupItemIterator.hasNext()) && (!stopAsked.getAsBoolean())) {
+					publishIfNeeded(nbActionDone, progressListener);
+					AbstractBackUpItem backUpItem = backupItemIterator.next();
+					boolean success;
+					backUpItem.waitSizeDifference();
+					if (backUpItem.acquiresIoPermits()) {
+						success = backUpItem.execute(backUpCounters);
+					} else {
+						try (Permits ioPermits = 
+								Config.getIoScheduler().acquireUninterruptibly(backUpItem.getBackUpTask().getSourceFileStore(), backUpItem.getTargetFileStore())) {
+							success = backUpItem.execute(backUpCounters);
+						}
+					}
+					recordInJournal(backUpItem, success);
+					backupSuccess &= success;
+					nbActionDone++;
+				}
+				allBackUpItemsProcessed = ! backupItemIterator.hasNext();
+			}
+		} finally {
+			progressTask.cancel(false);
+			if (backUpJournal != null) {
+				backUpJournal.end(allBackUpItemsProcessed);
+			}
+		}
+		scanStateIndexes.forEach(ScanStateIndex::endBackUp);
+		
+		// The back up tasks to a chunk store have no back up items : their source is backed up now
+		if (allBackUpItemsProcessed) {
+			for (BackUpTask backUpTask : backUpTasks) {
+				if ((backUpTask.getChunkStore() != null) && !stopAsked.getAsBoolean()) {
+					backupSuccess &= backUpInChunkStore(backUpTask, stopAsked);
+				}
+			}
+		}
+		
+		// The targets in snapshot mode are snapshotted once they are up to date
+		if (allBackUpItemsProcessed) {
+			backUpTasks.stream()
+				.map(BackUpTask::getSnapshotHistory)
+				.filter(Objects::nonNull)
+				.distinct()
+				.forEach(SnapshotHistory::createSnapshot);
+		}
+		if (Config.getContentHashCache() != null) {
+			Config.getContentHashCache().save();
+		}
+		if (Config.getBlockChecksumCache() != null) {
+			Config.getBlockChecksumCache().save();
+		}
+		return backupSuccess;
+	}
+	
+	private boolean backUpInChunkStore(BackUpTask backUpTask, BooleanSupplier stopAsked) {
+		
+		try {
+			// The I/O permits are acquired for each file stored
+			ChunkStoreBackUpResult chunkStoreBackUpResult = backUpTask.getChunkStore().backUp(backUpTask.getSource(), stopAsked, 
+					() -> Config.getIoScheduler().acquireUninterruptibly(backUpTask.getSourceFileStore(), backUpTask.getTargetFileStore()));
+			backUpCounters.nbSourceFilesProcessed.add(chunkStoreBackUpResult.nbFiles() - chunkStoreBackUpResult.nbFilesFailed());
+			backUpCounters.nbSourceFilesFailed.add(chunkStoreBackUpResult.nbFilesFailed());
+			return chunkStoreBackUpResult.isSuccessful();
+		} catch (IOException e) {
+			eLog.log(Level.SEVERE, "Exception when backing up " + backUpTask + " in a chunk store", e);
+			return false;
+		}
+	}
+	
+	// May be called by the parallel back up executor threads
+	private void recordInJournal(AbstractBackUpItem backUpItem, boolean success) {
+		if (backUpJournal != null) {
+			backUpJournal.record(backUpItem, success);
+		}
+	}
+	
+	// May be called by the parallel back up executor threads
+	private void publishIfNeeded(int nbActionsDone, IntConsumer progressListener) {
+		
+		nbActionDone = nbActionsDone;
+		long now = System.currentTimeMillis();
+		if (((nbActionsDone % refreshRate) == 0) || (now - lastPublishTime > maxRefreshInterval)) {
+			lastPublishTime = now;
+			progressListener.accept(nbActionsDone);
+		}
+	}
+	
+	public long getNbBytesToCopy() {
+		return nbBytesToCopy;
+	}
+	
+	public BackUpCounters getBackUpCounters() {
+		return backUpCounters;
+	}
+}
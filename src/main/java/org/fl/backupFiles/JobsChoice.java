@@ -84,6 +84,7 @@ public class JobsChoice {
 			}
 			initTargetFileStores(jtt, fileStoreRemainingSpaceWarningThreshold);
 		}
+		targetFileStores.setMaxConcurrentBackUpActions(Config.getBackUpFileStoreMaxConcurrency());
 		jobsDetail = details.toString();
 
 	}
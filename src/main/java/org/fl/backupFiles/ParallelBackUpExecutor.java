@@ -0,0 +1,230 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles;
+
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.scanner.FileStorePermits;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+
+// Execute back up items in parallel.
+// The back up items are dispatched in the order of the back up item list. A back up item is not dispatched
+// while a back up item modifying the same target path, a parent or a child of its target paths, is in progress
+// (for instance a DELETE_DIR must be done before the COPY_NEW on the same path, a COPY_TREE before the copy of its children).
+// The number of back up actions in progress on a target file store is limited by the permits of its TargetFileStore
+// Then, if there is an I/O scheduler, the back up actions acquire the I/O permits of their source and target file stores
+public class ParallelBackUpExecutor {
+
+	private static final Logger pLog = Logger.getLogger(ParallelBackUpExecutor.class.getName());
+	
+	private final ExecutorService executorService;
+	private final int maxActionsInProgress;
+	private final TargetFileStores targetFileStores;
+	private final FileStorePermits ioScheduler;
+	
+	// Target paths of the back up items in progress, and number of back up items in progress under a path
+	private final Map<Path, Integer> targetPathsInProgress;
+	private final Map<Path, Integer> targetSubPathsInProgress;
+	private int nbActionsInProgress;
+	
+	private final AtomicInteger nbActionsDone;
+	
+	public ParallelBackUpExecutor(ExecutorService executorService, int maxActionsInProgress, TargetFileStores targetFileStores) {
+		this(executorService, maxActionsInProgress, targetFileStores, null);
+	}
+	
+	public ParallelBackUpExecutor(ExecutorService executorService, int maxActionsInProgress, TargetFileStores targetFileStores, FileStorePermits ioScheduler) {
+		
+		this.executorService = executorService;
+		this.maxActionsInProgress = maxActionsInProgress;
+		this.targetFileStores = targetFileStores;
+		this.ioScheduler = ioScheduler;
+		
+		targetPathsInProgress = new HashMap<>();
+		targetSubPathsInProgress = new HashMap<>();
+		nbActionsInProgress = 0;
+		nbActionsDone = new AtomicInteger(0);
+	}
+
+	// Returns true if all the back up items have been successfully executed
+	// actionDoneListener is called (by the executor threads) with the number of actions done, each time an action is done
+	public boolean execute(Iterable<AbstractBackUpItem> backUpItems, BackUpCounters backUpCounters, BooleanSupplier stopAsked, IntConsumer actionDoneListener) throws InterruptedException {
+		return execute(backUpItems, backUpCounters, stopAsked, actionDoneListener, (backUpItem, success) -> {});
+	}
+	
+	// itemDoneListener is called (by the executor threads) with each back up item executed and its result
+	public boolean execute(Iterable<AbstractBackUpItem> backUpItems, BackUpCounters backUpCounters, BooleanSupplier stopAsked, IntConsumer actionDoneListener, 
+			BiConsumer<AbstractBackUpItem, Boolean> itemDoneListener) throws InterruptedException {
+		
+		AtomicBoolean backupSuccess = new AtomicBoolean(true);
+		nbActionsDone.set(0);
+		
+		for (AbstractBackUpItem backUpItem : backUpItems) {
+			
+			if (stopAsked.getAsBoolean()) {
+				break;
+			}
+			List<Path> targetPaths = backUpItem.getTargetPaths().stream().filter(Objects::nonNull).toList();
+			waitAndRegister(targetPaths);
+			
+			try {
+				executorService.execute(() -> {
+					try {
+						boolean success = executeBackUpItem(backUpItem, backUpCounters);
+						if (! success) {
+							backupSuccess.set(false);
+						}
+						itemDoneListener.accept(backUpItem, success);
+					} finally {
+						unregister(targetPaths);
+						actionDoneListener.accept(nbActionsDone.incrementAndGet());
+					}
+				});
+			} catch (Exception e) {
+				pLog.log(Level.SEVERE, "Exception when submitting back up action " + backUpItem.getTargetPath(), e);
+				unregister(targetPaths);
+				backupSuccess.set(false);
+			}
+		}
+		waitAllActionsDone();
+		return backupSuccess.get();
+	}
+	
+	public int getNbActionsDone() {
+		return nbActionsDone.get();
+	}
+	
+	private boolean executeBackUpItem(AbstractBackUpItem backUpItem, BackUpCounters backUpCounters) {
+		
+		Semaphore fileStorePermits = getFileStorePermits(backUpItem.getTargetFileStore());
+		try {
+			// The folder size stage acquires the I/O permits, so the size is waited for before acquiring them
+			backUpItem.waitSizeDifference();
+			if (fileStorePermits != null) {
+				fileStorePermits.acquire();
+			}
+			try {
+				// Each back up item updates its own counters, added to the global counters once done
+				BackUpCounters itemCounters = backUpCounters.forkCounters();
+				boolean success;
+				if ((ioScheduler == null) || backUpItem.acquiresIoPermits()) {
+					success = backUpItem.execute(itemCounters);
+				} else {
+					try (Permits ioPermits = ioScheduler.acquire(backUpItem.getBackUpTask().getSourceFileStore(), backUpItem.getTargetFileStore())) {
+						success = backUpItem.execute(itemCounters);
+					}
+				}
+				backUpCounters.add(itemCounters);
+				return success;
+			} finally {
+				if (fileStorePermits != null) {
+					fileStorePermits.release();
+				}
+			}
+		} catch (InterruptedException e) {
+			pLog.log(Level.SEVERE, "Interrupted when waiting to execute back up action " + backUpItem.getTargetPath(), e);
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (Exception e) {
+			pLog.log(Level.SEVERE, "Exception when executing back up action " + backUpItem.getTargetPath(), e);
+			return false;
+		}
+	}
+	
+	private Semaphore getFileStorePermits(FileStore fileStore) {
+		
+		TargetFileStore targetFileStore = targetFileStores.getTargetFileStore(fileStore);
+		if (targetFileStore == null) {
+			return null;
+		} else {
+			return targetFileStore.getBackUpPermits();
+		}
+	}
+	
+	// Wait until there is no back up item in progress on the target paths (or their parents and children)
+	// then register the target paths as in progress
+	private synchronized void waitAndRegister(List<Path> targetPaths) throws InterruptedException {
+		
+		while ((nbActionsInProgress >= maxActionsInProgress) || isInProgress(targetPaths)) {
+			wait();
+		}
+		nbActionsInProgress++;
+		for (Path targetPath : targetPaths) {
+			targetPathsInProgress.merge(targetPath, 1, Integer::sum);
+			for (Path parent = targetPath.getParent(); parent != null; parent = parent.getParent()) {
+				targetSubPathsInProgress.merge(parent, 1, Integer::sum);
+			}
+		}
+	}
+	
+	private synchronized void unregister(List<Path> targetPaths) {
+		
+		nbActionsInProgress--;
+		for (Path targetPath : targetPaths) {
+			targetPathsInProgress.computeIfPresent(targetPath, (path, nb) -> (nb > 1) ? nb - 1 : null);
+			for (Path parent = targetPath.getParent(); parent != null; parent = parent.getParent()) {
+				targetSubPathsInProgress.computeIfPresent(parent, (path, nb) -> (nb > 1) ? nb - 1 : null);
+			}
+		}
+		notifyAll();
+	}
+	
+	private boolean isInProgress(List<Path> targetPaths) {
+		
+		for (Path targetPath : targetPaths) {
+			if (targetSubPathsInProgress.containsKey(targetPath)) {
+				// a child is in progress
+				return true;
+			}
+			for (Path path = targetPath; path != null; path = path.getParent()) {
+				if (targetPathsInProgress.containsKey(path)) {
+					// the same path or a parent is in progress
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private synchronized void waitAllActionsDone() throws InterruptedException {
+		while (nbActionsInProgress > 0) {
+			wait();
+		}
+	}
+}
@@ -27,6 +27,9 @@ package org.fl.backupFiles;
 import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,10 +42,23 @@ public class TargetFileStore {
 	private final String identification;
 	private final long totalFileStoreSpace;
 	private final long warningThresholdForRemainingSpace;
-	private long remainingSpaceBeforeWarning;	
-	private boolean sizeWarningRaised;
-	private long initialRemainingSpace;
-	private long potentialSizeChange;
+	private volatile long remainingSpaceBeforeWarning;	
+	private final AtomicBoolean sizeWarningRaised;
+	private volatile long initialRemainingSpace;
+	private final AtomicLong potentialSizeChange;
+	private int maxConcurrentBackUpActions;
+	private Semaphore backUpPermits;
+	
+	// Progress of the copies on this file store
+	private final AtomicLong nbBytesToCopy;
+	private final AtomicLong nbBytesCopied;
+	
+	// Exponential moving average of the copy throughput (in bytes per second), sampled at each progress refresh
+	private static final double THROUGHPUT_SMOOTHING_FACTOR = 0.3;
+	private static final long MIN_SAMPLE_INTERVAL = 500;
+	private long lastSampleTime;
+	private long lastSampleNbBytesCopied;
+	private double averageThroughput;
 
 	public TargetFileStore(FileStore fileStore, Path mountPoint, long warningThrehold) throws IOException {
 		this.fileStore = fileStore;
@@ -50,35 +66,103 @@ public class TargetFileStore {
 		warningThresholdForRemainingSpace = (totalFileStoreSpace / 100)*warningThrehold;
 		name = fileStore.name() + " " + mountPoint;
 		identification ="fileStore=" + fileStore.name() + ", root folder=" + mountPoint;
+		setMaxConcurrentBackUpActions(1);
+		sizeWarningRaised = new AtomicBoolean(false);
+		potentialSizeChange = new AtomicLong(0);
+		nbBytesToCopy = new AtomicLong(0);
+		nbBytesCopied = new AtomicLong(0);
 		reset();
 	}
 
 	public long getPotentialSizeChange() {
-		return potentialSizeChange;
+		return potentialSizeChange.get();
 	}
 
 	public FileStore getFileStore() {
 		return fileStore;
 	}
 	
+	// Lock free because the target file store is shared by the sub tasks of a fork/join scan and by the back up threads
+	// The warning is logged only once, by the thread that raises it
 	public long recordPotentialSizeChange(long sizeDifference) {
-		potentialSizeChange = potentialSizeChange + sizeDifference;
-		if ((potentialSizeChange > remainingSpaceBeforeWarning) && (!sizeWarningRaised)) {
+		long newPotentialSizeChange = potentialSizeChange.addAndGet(sizeDifference);
+		if ((newPotentialSizeChange > remainingSpaceBeforeWarning) && sizeWarningRaised.compareAndSet(false, true)) {
 			tLog.warning("Remaing space for " + getFileStoreIdentification() + " is too low: " + getRemainingSpace());
-			sizeWarningRaised = true;
 		}
-		return potentialSizeChange;
+		return newPotentialSizeChange;
 	}
 	
 	public void reset() {
-		potentialSizeChange = 0;
+		potentialSizeChange.set(0);
 		initialRemainingSpace = getRemainingSpace();
-		sizeWarningRaised = false;
+		sizeWarningRaised.set(false);
 
 		remainingSpaceBeforeWarning = initialRemainingSpace - warningThresholdForRemainingSpace;
 		if (remainingSpaceBeforeWarning < 0) {
 			tLog.warning("Remaing space for " + getFileStoreIdentification() + " is too low: " + initialRemainingSpace);
-			sizeWarningRaised = true;
+			sizeWarningRaised.set(true);
+		}
+		resetCopyProgress();
+	}
+	
+	private synchronized void resetCopyProgress() {
+		nbBytesToCopy.set(0);
+		nbBytesCopied.set(0);
+		lastSampleTime = 0;
+		lastSampleNbBytesCopied = 0;
+		averageThroughput = 0;
+	}
+	
+	public void addNbBytesToCopy(long nbBytes) {
+		nbBytesToCopy.addAndGet(nbBytes);
+	}
+	
+	public long getNbBytesToCopy() {
+		return nbBytesToCopy.get();
+	}
+	
+	// Called by the threads copying files on this file store, while they copy
+	public void recordBytesCopied(long nbBytes) {
+		nbBytesCopied.addAndGet(nbBytes);
+	}
+	
+	public long getNbBytesCopied() {
+		return nbBytesCopied.get();
+	}
+	
+	public synchronized void sampleThroughput(long sampleTime) {
+		
+		long currentNbBytesCopied = nbBytesCopied.get();
+		if (lastSampleTime == 0) {
+			lastSampleTime = sampleTime;
+			lastSampleNbBytesCopied = currentNbBytesCopied;
+		} else if (sampleTime - lastSampleTime >= MIN_SAMPLE_INTERVAL) {
+			double throughput = (currentNbBytesCopied - lastSampleNbBytesCopied)*1000d/(sampleTime - lastSampleTime);
+			if (averageThroughput == 0) {
+				averageThroughput = throughput;
+			} else {
+				averageThroughput = THROUGHPUT_SMOOTHING_FACTOR*throughput + (1 - THROUGHPUT_SMOOTHING_FACTOR)*averageThroughput;
+			}
+			lastSampleTime = sampleTime;
+			lastSampleNbBytesCopied = currentNbBytesCopied;
+		}
+	}
+	
+	// In bytes per second
+	public synchronized long getThroughput() {
+		return (long)averageThroughput;
+	}
+	
+	// In milliseconds, -1 if it can not be estimated yet
+	public synchronized long getEstimatedRemainingTime() {
+		
+		long remainingBytes = Math.max(0, nbBytesToCopy.get() - nbBytesCopied.get());
+		if (remainingBytes == 0) {
+			return 0;
+		} else if (averageThroughput <= 0) {
+			return -1;
+		} else {
+			return (long)(remainingBytes*1000d/averageThroughput);
 		}
 	}
 	
@@ -114,4 +198,18 @@ public class TargetFileStore {
 	public long getTotalSpace() {
 		return totalFileStoreSpace;
 	}
+	
+	// Maximum number of back up actions executed in parallel on this file store
+	public synchronized void setMaxConcurrentBackUpActions(int maxConcurrentBackUpActions) {
+		this.maxConcurrentBackUpActions = maxConcurrentBackUpActions;
+		backUpPermits = new Semaphore(maxConcurrentBackUpActions, true);
+	}
+	
+	public synchronized int getMaxConcurrentBackUpActions() {
+		return maxConcurrentBackUpActions;
+	}
+	
+	public synchronized Semaphore getBackUpPermits() {
+		return backUpPermits;
+	}
 }
@@ -27,8 +27,8 @@ package org.fl.backupFiles;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,7 +42,7 @@ public class TargetFileStores {
 	private final Map<FileStore, TargetFileStore> targetFileStores;
 	
 	public TargetFileStores() {
-		targetFileStores = new HashMap<FileStore, TargetFileStore>();
+		targetFileStores = new ConcurrentHashMap<FileStore, TargetFileStore>();
 	}
 	
 	public TargetFileStore addTargetFileStore(Path path, long sizeWarningThreshold) {
@@ -53,14 +53,17 @@ public class TargetFileStores {
 
 				if (fileStore == null) {
 					return null;
-				} else if (! targetFileStores.containsKey(fileStore)) {
+				}
+				TargetFileStore targetFileStore = targetFileStores.get(fileStore);
+				if (targetFileStore == null) {
 					Path mountPoint = FilesUtils.findMountPoint(path, tLog);
-					TargetFileStore targetFileStore = new TargetFileStore(fileStore, mountPoint, sizeWarningThreshold);
-					targetFileStores.put(fileStore, targetFileStore);
-					return targetFileStore;
-				} else {
-					return targetFileStores.get(fileStore);
+					TargetFileStore newTargetFileStore = new TargetFileStore(fileStore, mountPoint, sizeWarningThreshold);
+					targetFileStore = targetFileStores.putIfAbsent(fileStore, newTargetFileStore);
+					if (targetFileStore == null) {
+						targetFileStore = newTargetFileStore;
+					}
 				}
+				return targetFileStore;
 			} catch (Exception e) {	
 				tLog.log(Level.SEVERE, "Exception when getting filestore and mount point for " + path, e);
 			}
@@ -73,13 +76,14 @@ public class TargetFileStores {
 	}
 	
 	public TargetFileStore getTargetFileStore(FileStore fileStore) {
-		return targetFileStores.get(fileStore);
+		return (fileStore == null) ? null : targetFileStores.get(fileStore);
 	}
 	
 	public long getPotentialSizeChange(FileStore fileStore) {
 		
-		if (targetFileStores.containsKey(fileStore)) {
-			return targetFileStores.get(fileStore).getPotentialSizeChange();
+		TargetFileStore targetFileStore = getTargetFileStore(fileStore);
+		if (targetFileStore != null) {
+			return targetFileStore.getPotentialSizeChange();
 		} else {
 			tLog.warning("Trying to record FileStore potential size change for an unrecorded FileStore: " + getFileStoreNameAndType(fileStore));
 			return 0;
@@ -88,8 +92,9 @@ public class TargetFileStores {
 	
 	public long recordPotentialSizeChange(FileStore fileStore, long sizeDifference) {
 		
-		if (targetFileStores.containsKey(fileStore)) {
-			return targetFileStores.get(fileStore).recordPotentialSizeChange(sizeDifference);
+		TargetFileStore targetFileStore = getTargetFileStore(fileStore);
+		if (targetFileStore != null) {
+			return targetFileStore.recordPotentialSizeChange(sizeDifference);
 		} else {
 			tLog.warning("Trying to record FileStore potential size change for an unrecorded FileStore: " + getFileStoreNameAndType(fileStore));
 			return 0;
@@ -113,15 +118,22 @@ public class TargetFileStores {
 	public void mergeWith(TargetFileStores otherTargetFileStores) {
 		
 		otherTargetFileStores.getTargetFileStoresMap().forEach((fileStore, otherTargetFileStore) -> {
-			TargetFileStore targetFileStore = targetFileStores.get(fileStore);
-			if (targetFileStore == null) {
-				targetFileStores.put(fileStore, otherTargetFileStore);
-			} else {
-				recordPotentialSizeChange(fileStore, otherTargetFileStore.getPotentialSizeChange());
+			TargetFileStore targetFileStore = targetFileStores.putIfAbsent(fileStore, otherTargetFileStore);
+			if (targetFileStore != null) {
+				targetFileStore.recordPotentialSizeChange(otherTargetFileStore.getPotentialSizeChange());
 			}
 		});
 	}
 	
+	public void setMaxConcurrentBackUpActions(int maxConcurrentBackUpActions) {
+		targetFileStores.values().forEach(targetFileStore -> targetFileStore.setMaxConcurrentBackUpActions(maxConcurrentBackUpActions));
+	}
+	
+	public void sampleThroughput() {
+		long sampleTime = System.currentTimeMillis();
+		targetFileStores.values().forEach(targetFileStore -> targetFileStore.sampleThroughput(sampleTime));
+	}
+	
 	public void reset() {
 		targetFileStores.values().forEach(targetFileStore -> targetFileStore.reset());
 	}
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+// In memory Bloom filter of the chunk hashes.
+// The chunk hashes are SHA-256 hashes, so their bits are already uniformly distributed :
+// the bit positions are derived from the first 16 bytes of the hash by double hashing.
+// mightContain never returns false for a hash that has been put, and returns true 
+// for a hash that has not been put with the false positive probability, when the expected number of hashes is not exceeded
+public class BloomFilter {
+
+	private final long[] bits;
+	private final long nbBits;
+	private final int nbHashFunctions;
+	private final long expectedNbElements;
+	
+	private long nbElements;
+	
+	public BloomFilter(long expectedNbElements, double falsePositiveProbability) {
+		
+		this.expectedNbElements = Math.max(expectedNbElements, 1);
+		long optimalNbBits = (long) Math.ceil(-this.expectedNbElements * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+		bits = new long[(int) Math.max(1, (optimalNbBits + 63) / 64)];
+		nbBits = 64L * bits.length;
+		nbHashFunctions = (int) Math.max(1, Math.round((double) nbBits / this.expectedNbElements * Math.log(2)));
+		nbElements = 0;
+	}
+	
+	public void put(byte[] hash) {
+		
+		long hash1 = readLong(hash, 0);
+		long hash2 = readLong(hash, 8);
+		for (int i = 0; i < nbHashFunctions; i++) {
+			long bitIndex = Math.floorMod(hash1 + i*hash2, nbBits);
+			bits[(int) (bitIndex >>> 6)] |= (1L << bitIndex);
+		}
+		nbElements++;
+	}
+	
+	public boolean mightContain(byte[] hash) {
+		
+		long hash1 = readLong(hash, 0);
+		long hash2 = readLong(hash, 8);
+		for (int i = 0; i < nbHashFunctions; i++) {
+			long bitIndex = Math.floorMod(hash1 + i*hash2, nbBits);
+			if ((bits[(int) (bitIndex >>> 6)] & (1L << bitIndex)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public long getNbElements() {
+		return nbElements;
+	}
+	
+	public long getExpectedNbElements() {
+		return expectedNbElements;
+	}
+	
+	public long getNbBits() {
+		return nbBits;
+	}
+	
+	public int getNbHashFunctions() {
+		return nbHashFunctions;
+	}
+	
+	private static long readLong(byte[] bytes, int offset) {
+		
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xff);
+		}
+		return value;
+	}
+}
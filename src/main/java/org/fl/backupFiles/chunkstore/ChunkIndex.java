@@ -0,0 +1,160 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+// Index of the chunks of a chunk store : an append only file of the chunk hashes, loaded in a Bloom filter.
+// The Bloom filter answers "not stored" for most of the new chunks without any disk access.
+// When it answers "may be stored", the chunk file is the reference, so the index is only an accelerator :
+// a chunk missing from the index is stored again, and a chunk of the index whose file is missing is written again.
+// The Bloom filter is rebuilt with a larger capacity when the number of chunks exceeds its capacity.
+public class ChunkIndex {
+
+	private static final Logger cLog = Logger.getLogger(ChunkIndex.class.getName());
+	
+	private static final int INDEX_MAGIC = 0x42464349;
+	private static final int INDEX_VERSION = 1;
+	private static final int HEADER_LENGTH = 8;
+	
+	private static final long MIN_CAPACITY = 1_000_000L;
+	private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+	
+	private final Path indexFile;
+	private final int hashLength;
+	
+	private BloomFilter bloomFilter;
+	private FileOutputStream indexFileStream;
+	private DataOutputStream indexOutput;
+	private long nbChunks;
+	
+	public ChunkIndex(Path indexFile, int hashLength) {
+		this.indexFile = indexFile;
+		this.hashLength = hashLength;
+		nbChunks = 0;
+	}
+
+	// Loads the index in the Bloom filter and opens it to add chunks
+	public void open() throws IOException {
+		
+		nbChunks = validLength();
+		loadBloomFilter(Math.max(MIN_CAPACITY, 2*nbChunks));
+		
+		boolean newIndex = (nbChunks == 0);
+		if (newIndex) {
+			Files.createDirectories(indexFile.getParent());
+		}
+		// An incomplete hash at the end of the index (interrupted back up) is removed
+		try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			indexChannel.truncate(newIndex ? 0 : HEADER_LENGTH + nbChunks*hashLength);
+		}
+		indexFileStream = new FileOutputStream(indexFile.toFile(), true);
+		indexOutput = new DataOutputStream(new BufferedOutputStream(indexFileStream));
+		if (newIndex) {
+			indexOutput.writeInt(INDEX_MAGIC);
+			indexOutput.writeInt(INDEX_VERSION);
+		}
+	}
+	
+	public boolean mightContain(byte[] hash) {
+		return bloomFilter.mightContain(hash);
+	}
+	
+	public void add(byte[] hash) throws IOException {
+		
+		indexOutput.write(hash);
+		nbChunks++;
+		if (nbChunks > bloomFilter.getExpectedNbElements()) {
+			indexOutput.flush();
+			loadBloomFilter(2*bloomFilter.getExpectedNbElements());
+		} else {
+			bloomFilter.put(hash);
+		}
+	}
+	
+	// The index is synchronized on the disk when it is closed
+	public void close() throws IOException {
+		
+		if (indexOutput != null) {
+			try {
+				indexOutput.flush();
+				indexFileStream.getChannel().force(false);
+			} finally {
+				indexOutput.close();
+				indexOutput = null;
+				indexFileStream = null;
+			}
+		}
+	}
+	
+	public long getNbChunks() {
+		return nbChunks;
+	}
+	
+	public Path getIndexFile() {
+		return indexFile;
+	}
+	
+	// Number of complete hashes in the index file
+	private long validLength() throws IOException {
+		
+		if (! Files.exists(indexFile)) {
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if ((Files.size(indexFile) < HEADER_LENGTH) || (in.readInt() != INDEX_MAGIC) || (in.readInt() != INDEX_VERSION)) {
+				cLog.warning("Invalid or obsolete chunk index ignored: " + indexFile);
+				return 0;
+			}
+		}
+		return (Files.size(indexFile) - HEADER_LENGTH) / hashLength;
+	}
+	
+	private void loadBloomFilter(long capacity) throws IOException {
+		
+		bloomFilter = new BloomFilter(capacity, FALSE_POSITIVE_PROBABILITY);
+		if (nbChunks > 0) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+				in.skipNBytes(HEADER_LENGTH);
+				byte[] hash = new byte[hashLength];
+				for (long i = 0; i < nbChunks; i++) {
+					in.readFully(hash);
+					bloomFilter.put(hash);
+				}
+			}
+		}
+		cLog.fine(() -> "Chunk index " + indexFile + " loaded: " + nbChunks + " chunks, Bloom filter capacity= " + capacity);
+	}
+}
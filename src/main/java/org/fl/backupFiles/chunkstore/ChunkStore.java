@@ -0,0 +1,418 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.chunkstore.SnapshotManifest.ManifestEntry;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+
+// Content addressed, deduplicating store of back ups :
+//  chunks/<2 first hex digits>/<hash> : the chunks of the files, named by their SHA-256 hash
+//  chunks.idx                         : the index of the chunks (see ChunkIndex)
+//  snapshots/<source key>/<date>.manifest : a manifest for each back up of a source (see SnapshotManifest)
+// The files are cut in content defined chunks, and a chunk is stored only if there is no chunk with the same hash,
+// so identical chunks in different files, sources and back ups are stored once.
+// A source file with the same size and last modified time as in the previous snapshot of the source is not read again :
+// its chunks are taken from the previous manifest.
+// The chunks are synchronized on the disk before they are moved to their final name, and the manifest after all the chunks,
+// so that a manifest never refers to a chunk lost by a crash.
+// The chunks are never deleted : removing old snapshots and the chunks they only use is not done.
+public class ChunkStore {
+
+	private static final Logger cLog = Logger.getLogger(ChunkStore.class.getName());
+	
+	public static final int HASH_LENGTH = 32;
+	
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String CHUNKS_DIR = "chunks";
+	private static final String INDEX_FILE = "chunks.idx";
+	private static final String SNAPSHOTS_DIR = "snapshots";
+	private static final String MANIFEST_EXTENSION = ".manifest";
+	private static final String TMP_EXTENSION = ".tmp";
+	private static final DateTimeFormatter SNAPSHOT_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+	
+	private static final HexFormat HEX_FORMAT = HexFormat.of();
+	
+	// The chunk stores used by several back up tasks are shared, so that they use the same index
+	private static final Map<Path, ChunkStore> chunkStores = new ConcurrentHashMap<>();
+	
+	public static ChunkStore getChunkStore(Path root) {
+		return chunkStores.computeIfAbsent(root, r -> new ChunkStore(r, new ContentDefinedChunker()));
+	}
+	
+	private final Path root;
+	private final Path chunksDirectory;
+	private final Path snapshotsDirectory;
+	private final ContentDefinedChunker chunker;
+	private final ChunkIndex chunkIndex;
+	
+	public ChunkStore(Path root, ContentDefinedChunker chunker) {
+		
+		this.root = root;
+		this.chunker = chunker;
+		chunksDirectory = root.resolve(CHUNKS_DIR);
+		snapshotsDirectory = root.resolve(SNAPSHOTS_DIR);
+		chunkIndex = new ChunkIndex(root.resolve(INDEX_FILE), HASH_LENGTH);
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+	
+	// Back up of the source directory or file in a new snapshot, without I/O permits
+	public ChunkStoreBackUpResult backUp(Path source, BooleanSupplier stopAsked) throws IOException {
+		return backUp(source, stopAsked, () -> null);
+	}
+	
+	// Back up of the source directory or file in a new snapshot. The I/O permits are acquired for each file stored
+	public synchronized ChunkStoreBackUpResult backUp(Path source, BooleanSupplier stopAsked, Supplier<Permits> ioPermitsSupplier) throws IOException {
+		
+		long backUpBegin = System.currentTimeMillis();
+		Path sourceSnapshotsDirectory = snapshotsDirectory.resolve(sourceKey(source));
+		Map<String, ManifestEntry> previousEntries = readPreviousEntries(sourceSnapshotsDirectory);
+		
+		chunkIndex.open();
+		SourceWalker sourceWalker = new SourceWalker(source, previousEntries, stopAsked, ioPermitsSupplier);
+		try {
+			Files.walkFileTree(source, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, sourceWalker);
+		} finally {
+			chunkIndex.close();
+		}
+		
+		String snapshot = null;
+		if (! sourceWalker.stopped) {
+			Path manifestFile = newManifestFile(sourceSnapshotsDirectory);
+			new SnapshotManifest(source.toString(), backUpBegin, sourceWalker.entries).write(manifestFile);
+			snapshot = snapshotName(manifestFile);
+		}
+		ChunkStoreBackUpResult result = new ChunkStoreBackUpResult(snapshot, sourceWalker.nbFiles, sourceWalker.nbFilesUnchanged, sourceWalker.nbFilesFailed, 
+				sourceWalker.nbChunks, sourceWalker.nbNewChunks, sourceWalker.nbBytesRead, sourceWalker.nbBytesStored);
+		cLog.info("Back up of " + source + " in chunk store " + root + ": " + result + " in " + (System.currentTimeMillis() - backUpBegin) + " ms");
+		return result;
+	}
+	
+	// Restore of a snapshot in a directory that does not exist or is empty
+	public synchronized void restore(String snapshot, Path restoreDirectory) throws IOException {
+		
+		if (Files.isDirectory(restoreDirectory)) {
+			try (DirectoryStream<Path> restoreStream = Files.newDirectoryStream(restoreDirectory)) {
+				if (restoreStream.iterator().hasNext()) {
+					throw new IOException("The restore directory is not empty: " + restoreDirectory);
+				}
+			}
+		}
+		Files.createDirectories(restoreDirectory);
+		
+		SnapshotManifest snapshotManifest = readManifest(snapshot);
+		MessageDigest messageDigest = getMessageDigest();
+		List<ManifestEntry> directories = new ArrayList<>();
+		for (ManifestEntry entry : snapshotManifest.getEntries()) {
+			
+			Path restoredPath = restoreDirectory.resolve(entry.path());
+			if (entry.directory()) {
+				Files.createDirectories(restoredPath);
+				directories.add(entry);
+			} else {
+				try (OutputStream out = Files.newOutputStream(restoredPath)) {
+					for (int i = 0; i < entry.getNbChunks(); i++) {
+						byte[] hash = Arrays.copyOfRange(entry.chunkHashes(), i*HASH_LENGTH, (i + 1)*HASH_LENGTH);
+						byte[] chunk = Files.readAllBytes(chunkPath(hash));
+						if (! Arrays.equals(messageDigest.digest(chunk), hash)) {
+							throw new IOException("Corrupted chunk " + chunkPath(hash) + " for " + entry.path());
+						}
+						out.write(chunk);
+					}
+				}
+				Files.setLastModifiedTime(restoredPath, FileTime.fromMillis(entry.lastModified()));
+			}
+		}
+		// Creating the content of the directories modifies them, so their last modified time is set last, the deepest first
+		for (ManifestEntry directory : directories.reversed()) {
+			Files.setLastModifiedTime(restoreDirectory.resolve(directory.path()), FileTime.fromMillis(directory.lastModified()));
+		}
+		cLog.info("Snapshot " + snapshot + " of " + snapshotManifest.getSource() + " restored in " + restoreDirectory);
+	}
+	
+	// The snapshot names are <source key>/<date>, sorted by source and date
+	public List<String> getSnapshots() throws IOException {
+		
+		List<String> snapshots = new ArrayList<>();
+		if (Files.isDirectory(snapshotsDirectory)) {
+			try (DirectoryStream<Path> sourceStream = Files.newDirectoryStream(snapshotsDirectory, Files::isDirectory)) {
+				for (Path sourceSnapshotsDirectory : sourceStream) {
+					getManifestFiles(sourceSnapshotsDirectory).forEach(manifestFile -> snapshots.add(snapshotName(manifestFile)));
+				}
+			}
+		}
+		snapshots.sort(null);
+		return snapshots;
+	}
+	
+	public SnapshotManifest readManifest(String snapshot) throws IOException {
+		return SnapshotManifest.read(snapshotsDirectory.resolve(snapshot + MANIFEST_EXTENSION));
+	}
+	
+	public long getNbChunks() {
+		return chunkIndex.getNbChunks();
+	}
+	
+	Path chunkPath(byte[] hash) {
+		String hexHash = HEX_FORMAT.formatHex(hash);
+		return chunksDirectory.resolve(hexHash.substring(0, 2)).resolve(hexHash);
+	}
+	
+	private static String sourceKey(Path source) {
+		return UUID.nameUUIDFromBytes(source.toString().getBytes(StandardCharsets.UTF_8)).toString();
+	}
+	
+	private String snapshotName(Path manifestFile) {
+		String manifestFileName = manifestFile.getFileName().toString();
+		return manifestFile.getParent().getFileName() + "/" + manifestFileName.substring(0, manifestFileName.length() - MANIFEST_EXTENSION.length());
+	}
+	
+	private static List<Path> getManifestFiles(Path sourceSnapshotsDirectory) throws IOException {
+		
+		List<Path> manifestFiles = new ArrayList<>();
+		if (Files.isDirectory(sourceSnapshotsDirectory)) {
+			try (DirectoryStream<Path> manifestStream = Files.newDirectoryStream(sourceSnapshotsDirectory, "*" + MANIFEST_EXTENSION)) {
+				manifestStream.forEach(manifestFiles::add);
+			}
+		}
+		manifestFiles.sort(null);
+		return manifestFiles;
+	}
+	
+	// The entries of the last snapshot of the source, empty if there is none or if it can not be read
+	private Map<String, ManifestEntry> readPreviousEntries(Path sourceSnapshotsDirectory) throws IOException {
+		
+		List<Path> manifestFiles = getManifestFiles(sourceSnapshotsDirectory);
+		if (manifestFiles.isEmpty()) {
+			return Map.of();
+		}
+		Path previousManifestFile = manifestFiles.getLast();
+		try {
+			return SnapshotManifest.read(previousManifestFile).getEntriesByPath();
+		} catch (Exception e) {
+			cLog.log(Level.SEVERE, "Exception reading the previous snapshot manifest " + previousManifestFile + ": all the files are read", e);
+			return Map.of();
+		}
+	}
+	
+	private static Path newManifestFile(Path sourceSnapshotsDirectory) {
+		
+		LocalDateTime snapshotTime = LocalDateTime.now();
+		Path manifestFile = sourceSnapshotsDirectory.resolve(SNAPSHOT_NAME_FORMAT.format(snapshotTime) + MANIFEST_EXTENSION);
+		while (Files.exists(manifestFile)) {
+			snapshotTime = snapshotTime.plusNanos(1_000_000);
+			manifestFile = sourceSnapshotsDirectory.resolve(SNAPSHOT_NAME_FORMAT.format(snapshotTime) + MANIFEST_EXTENSION);
+		}
+		return manifestFile;
+	}
+	
+	private static MessageDigest getMessageDigest() throws IOException {
+		
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Chunk hash algorithm not available", e);
+		}
+	}
+	
+	// Walk of the source tree, that stores the chunks of the new and modified files and builds the manifest entries
+	private class SourceWalker extends SimpleFileVisitor<Path> {
+		
+		private final Path source;
+		private final Map<String, ManifestEntry> previousEntries;
+		private final BooleanSupplier stopAsked;
+		private final Supplier<Permits> ioPermitsSupplier;
+		private final MessageDigest messageDigest;
+		private final List<ManifestEntry> entries;
+		
+		private boolean stopped;
+		private long nbFiles;
+		private long nbFilesUnchanged;
+		private long nbFilesFailed;
+		private long nbChunks;
+		private long nbNewChunks;
+		private long nbBytesRead;
+		private long nbBytesStored;
+		
+		private SourceWalker(Path source, Map<String, ManifestEntry> previousEntries, BooleanSupplier stopAsked, Supplier<Permits> ioPermitsSupplier) throws IOException {
+			this.source = source;
+			this.previousEntries = previousEntries;
+			this.stopAsked = stopAsked;
+			this.ioPermitsSupplier = ioPermitsSupplier;
+			messageDigest = getMessageDigest();
+			entries = new ArrayList<>();
+			stopped = false;
+		}
+		
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			entries.add(new ManifestEntry(relativePath(dir), true, 0, attrs.lastModifiedTime().toMillis(), new byte[0]));
+			return continueIfNotStopped();
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+			
+			if (! attrs.isRegularFile()) {
+				cLog.warning("File ignored for the chunk store (not a regular file): " + file);
+				return continueIfNotStopped();
+			}
+			String path = relativePath(file);
+			long lastModified = attrs.lastModifiedTime().toMillis();
+			ManifestEntry previousEntry = previousEntries.get(path);
+			nbFiles++;
+			if ((previousEntry != null) && !previousEntry.directory() && (previousEntry.size() == attrs.size()) && (previousEntry.lastModified() == lastModified)) {
+				entries.add(previousEntry);
+				nbFilesUnchanged++;
+				nbChunks += previousEntry.getNbChunks();
+			} else {
+				try (Permits ioPermits = ioPermitsSupplier.get()) {
+					entries.add(storeFile(file, path, lastModified));
+				} catch (IOException e) {
+					cLog.log(Level.SEVERE, "Exception storing the chunks of " + file, e);
+					nbFilesFailed++;
+				}
+			}
+			return continueIfNotStopped();
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+			cLog.log(Level.SEVERE, "Exception visiting " + file + " for the chunk store", exc);
+			nbFilesFailed++;
+			return continueIfNotStopped();
+		}
+		
+		private FileVisitResult continueIfNotStopped() {
+			if (stopAsked.getAsBoolean()) {
+				stopped = true;
+				return FileVisitResult.TERMINATE;
+			}
+			return FileVisitResult.CONTINUE;
+		}
+		
+		// The size recorded is the size actually read, in case the file is modified during the back up
+		private ManifestEntry storeFile(Path file, String path, long lastModified) throws IOException {
+			
+			List<byte[]> chunkHashes = new ArrayList<>();
+			long[] size = { 0 };
+			try (InputStream in = Files.newInputStream(file)) {
+				chunker.chunk(in, (buffer, offset, length) -> {
+					messageDigest.update(buffer, offset, length);
+					byte[] hash = messageDigest.digest();
+					storeChunk(hash, buffer, offset, length);
+					chunkHashes.add(hash);
+					size[0] += length;
+				});
+			}
+			nbBytesRead += size[0];
+			byte[] allChunkHashes = new byte[chunkHashes.size()*HASH_LENGTH];
+			for (int i = 0; i < chunkHashes.size(); i++) {
+				System.arraycopy(chunkHashes.get(i), 0, allChunkHashes, i*HASH_LENGTH, HASH_LENGTH);
+			}
+			return new ManifestEntry(path, false, size[0], lastModified, allChunkHashes);
+		}
+		
+		// Most of the new chunks are not in the Bloom filter, so they are written without checking the chunk file
+		// A chunk file which may be stored but does not have the length of the chunk (truncated by a crash) is written again
+		private void storeChunk(byte[] hash, byte[] buffer, int offset, int length) throws IOException {
+			
+			nbChunks++;
+			Path chunkPath = chunkPath(hash);
+			if (chunkIndex.mightContain(hash) && (chunkFileLength(chunkPath) == length)) {
+				return;
+			}
+			Files.createDirectories(chunkPath.getParent());
+			Path tmpChunkPath = chunkPath.resolveSibling(chunkPath.getFileName() + TMP_EXTENSION);
+			try (FileChannel chunkChannel = FileChannel.open(tmpChunkPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer chunkBuffer = ByteBuffer.wrap(buffer, offset, length);
+				while (chunkBuffer.hasRemaining()) {
+					chunkChannel.write(chunkBuffer);
+				}
+				chunkChannel.force(true);
+			}
+			Files.move(tmpChunkPath, chunkPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			chunkIndex.add(hash);
+			nbNewChunks++;
+			nbBytesStored += length;
+		}
+		
+		// -1 if the chunk file does not exist
+		private static long chunkFileLength(Path chunkPath) throws IOException {
+			
+			try {
+				return Files.size(chunkPath);
+			} catch (NoSuchFileException e) {
+				return -1;
+			}
+		}
+		
+		// The source itself is the empty path if it is a directory, and its file name if it is a file
+		private String relativePath(Path path) {
+			
+			if (path.equals(source) && ! Files.isDirectory(source)) {
+				return source.getFileName().toString();
+			}
+			return source.relativize(path).toString().replace(File.separatorChar, '/');
+		}
+	}
+}
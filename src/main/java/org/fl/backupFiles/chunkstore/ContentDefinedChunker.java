@@ -0,0 +1,150 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+// Streaming content defined chunker (gear rolling hash with normalized chunking, as FastCDC).
+// The chunk boundaries depend only on the content around them, so an insertion or a deletion in a file
+// only changes the chunks around the modification, and the other chunks are found identical in the chunk store.
+// The chunk sizes are between minSize and maxSize, and around avgSize.
+public class ContentDefinedChunker {
+
+	public static final int DEFAULT_MIN_SIZE = 16*1024;
+	public static final int DEFAULT_AVG_SIZE = 64*1024;
+	public static final int DEFAULT_MAX_SIZE = 256*1024;
+	
+	// Random values for each byte value, with a fixed seed so that the chunk boundaries are stable between runs
+	private static final long[] GEAR = new long[256];
+	static {
+		Random random = new Random(0x42464353L);
+		for (int i = 0; i < GEAR.length; i++) {
+			GEAR[i] = random.nextLong();
+		}
+	}
+	
+	@FunctionalInterface
+	public interface ChunkConsumer {
+		void accept(byte[] buffer, int offset, int length) throws IOException;
+	}
+	
+	private final int minSize;
+	private final int avgSize;
+	private final int maxSize;
+	
+	// More bits are tested before the average size, and less after, so that the chunk sizes are closer to the average
+	private final long smallMask;
+	private final long largeMask;
+	
+	public ContentDefinedChunker() {
+		this(DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+	}
+	
+	// avgSize must be a power of 2
+	public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+		
+		if ((Integer.bitCount(avgSize) != 1) || (minSize <= 0) || (minSize >= avgSize) || (avgSize >= maxSize)) {
+			throw new IllegalArgumentException("Invalid chunk sizes: min=" + minSize + " avg=" + avgSize + " max=" + maxSize);
+		}
+		this.minSize = minSize;
+		this.avgSize = avgSize;
+		this.maxSize = maxSize;
+		
+		int nbBits = Integer.numberOfTrailingZeros(avgSize);
+		smallMask = highBitsMask(nbBits + 1);
+		largeMask = highBitsMask(nbBits - 1);
+	}
+
+	// The high bits of the gear hash depend on the last 64 bytes
+	private static long highBitsMask(int nbBits) {
+		return -1L << (64 - nbBits);
+	}
+	
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public int getAvgSize() {
+		return avgSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	// The chunks are given to the consumer in order. The buffer is reused for the next chunks
+	public void chunk(InputStream in, ChunkConsumer chunkConsumer) throws IOException {
+		
+		byte[] buffer = new byte[2*maxSize];
+		int start = 0;
+		int end = 0;
+		boolean endOfStream = false;
+		
+		while (true) {
+			// At least maxSize bytes are available to find the chunk boundary, except at the end of the stream
+			if (!endOfStream && (end - start < maxSize)) {
+				System.arraycopy(buffer, start, buffer, 0, end - start);
+				end = end - start;
+				start = 0;
+				int nbBytesRead = in.readNBytes(buffer, end, buffer.length - end);
+				end += nbBytesRead;
+				endOfStream = (end < buffer.length);
+			}
+			if (start == end) {
+				return;
+			}
+			int chunkLength = cutPoint(buffer, start, end - start);
+			chunkConsumer.accept(buffer, start, chunkLength);
+			start += chunkLength;
+		}
+	}
+	
+	// Length of the chunk beginning at offset
+	int cutPoint(byte[] buffer, int offset, int length) {
+		
+		if (length <= minSize) {
+			return length;
+		}
+		int maxLength = Math.min(length, maxSize);
+		int normalLength = Math.min(maxLength, avgSize);
+		long hash = 0;
+		int i = minSize;
+		for (; i < normalLength; i++) {
+			hash = (hash << 1) + GEAR[buffer[offset + i] & 0xff];
+			if ((hash & smallMask) == 0) {
+				return i + 1;
+			}
+		}
+		for (; i < maxLength; i++) {
+			hash = (hash << 1) + GEAR[buffer[offset + i] & 0xff];
+			if ((hash & largeMask) == 0) {
+				return i + 1;
+			}
+		}
+		return maxLength;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Manifest of a snapshot of a source in a chunk store : the directories and files of the source,
+// with the hashes of the chunks of each file, in order. The paths are relative to the source, with '/' separators.
+// The parent directories are before their content.
+public class SnapshotManifest {
+
+	private static final int MANIFEST_MAGIC = 0x4246534D;
+	private static final int MANIFEST_VERSION = 1;
+	
+	public record ManifestEntry(String path, boolean directory, long size, long lastModified, byte[] chunkHashes) {
+		
+		public int getNbChunks() {
+			return chunkHashes.length / ChunkStore.HASH_LENGTH;
+		}
+	}
+	
+	private final String source;
+	private final long creationTime;
+	private final List<ManifestEntry> entries;
+	
+	public SnapshotManifest(String source, long creationTime, List<ManifestEntry> entries) {
+		this.source = source;
+		this.creationTime = creationTime;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public long getCreationTime() {
+		return creationTime;
+	}
+
+	public List<ManifestEntry> getEntries() {
+		return entries;
+	}
+	
+	public Map<String, ManifestEntry> getEntriesByPath() {
+		
+		Map<String, ManifestEntry> entriesByPath = new HashMap<>();
+		entries.forEach(entry -> entriesByPath.put(entry.path(), entry));
+		return entriesByPath;
+	}
+	
+	public static SnapshotManifest read(Path manifestFile) throws IOException {
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+			
+			if ((in.readInt() != MANIFEST_MAGIC) || (in.readInt() != MANIFEST_VERSION)) {
+				throw new IOException("Invalid or obsolete snapshot manifest " + manifestFile);
+			}
+			String source = in.readUTF();
+			long creationTime = in.readLong();
+			int nbEntries = in.readInt();
+			List<ManifestEntry> entries = new ArrayList<>(nbEntries);
+			for (int i = 0; i < nbEntries; i++) {
+				String path = in.readUTF();
+				boolean directory = in.readBoolean();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				byte[] chunkHashes = new byte[in.readInt()*ChunkStore.HASH_LENGTH];
+				in.readFully(chunkHashes);
+				entries.add(new ManifestEntry(path, directory, size, lastModified, chunkHashes));
+			}
+			return new SnapshotManifest(source, creationTime, entries);
+		}
+	}
+	
+	// The manifest is written in a temporary file, synchronized on the disk, then moved, so that an incomplete manifest is never read
+	public void write(Path manifestFile) throws IOException {
+		
+		Path tmpManifestFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+		Files.createDirectories(manifestFile.getParent());
+		try (FileOutputStream manifestFileStream = new FileOutputStream(tmpManifestFile.toFile());
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(manifestFileStream))) {
+			
+			out.writeInt(MANIFEST_MAGIC);
+			out.writeInt(MANIFEST_VERSION);
+			out.writeUTF(source);
+			out.writeLong(creationTime);
+			out.writeInt(entries.size());
+			for (ManifestEntry entry : entries) {
+				out.writeUTF(entry.path());
+				out.writeBoolean(entry.directory());
+				out.writeLong(entry.size());
+				out.writeLong(entry.lastModified());
+				out.writeInt(entry.getNbChunks());
+				out.write(entry.chunkHashes());
+			}
+			out.flush();
+			manifestFileStream.getChannel().force(false);
+		}
+		Files.move(tmpManifestFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
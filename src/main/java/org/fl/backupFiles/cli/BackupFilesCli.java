@@ -0,0 +1,341 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpJob;
+import org.fl.backupFiles.BackUpJobList;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.FilesBackUpEngine;
+import org.fl.backupFiles.JobsChoice;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.chunkstore.ChunkStore;
+import org.fl.backupFiles.plan.BackUpJournal;
+import org.fl.backupFiles.plan.BackUpJournal.ResumableBackUp;
+import org.fl.backupFiles.plan.BackUpPlanReader;
+import org.fl.backupFiles.plan.BackUpPlanWriter;
+import org.fl.backupFiles.scanner.FilesScanEngine;
+import org.fl.backupFiles.scanner.ScannerThreadResponse;
+import org.fl.util.RunningContext;
+
+// Headless runner of the back up files application (to schedule scans and back ups, with cron for instance)
+// It uses the same scan and back up engines as the GUI, without initializing AWT
+// Arguments:
+//  -task=<JobTaskType name>  mandatory (SOURCE_TO_BUFFER, BUFFER_TO_TARGET or SOURCE_TO_TARGET)
+//  -job=<back up job title>   optional, may be repeated. All the back up jobs having the task type are selected by default
+//  -props=<property file URI> mandatory, unless the property file URI is given by the system property backupFiles.props
+//  -scanOnly                  optional, scan without back up
+//  -exportPlan=<file>         optional, export the back up items found by the scan in a back up plan (.jsonl or .bkplan file)
+//  -importPlan=<file>         optional, back up the back up items of a back up plan, without scanning
+//  -noResume                  optional, scan even if a back up has been interrupted. By default, an interrupted back up is resumed without scanning
+// or, to restore a snapshot of a chunk store target (no job task type needed):
+//  -restore=<chunk store directory> mandatory. Without -snapshot, the snapshots of the chunk store are listed
+//  -snapshot=<snapshot name>         optional, the snapshot to restore
+//  -restoreTo=<directory>            mandatory with -snapshot, a directory that does not exist or is empty
+// Exit status: 0 if the scan and the back up are successful, 1 if there are errors, 2 for bad arguments, 3 for bad configuration
+public class BackupFilesCli {
+
+	private static final Logger cLog = Logger.getLogger(BackupFilesCli.class.getName());
+	
+	private static final String PROPERTY_FILE_ARG_PREFIX = "-props=";
+	private static final String JOB_ARG_PREFIX = "-job=";
+	private static final String TASK_ARG_PREFIX = "-task=";
+	private static final String SCAN_ONLY_ARG = "-scanOnly";
+	private static final String EXPORT_PLAN_ARG_PREFIX = "-exportPlan=";
+	private static final String IMPORT_PLAN_ARG_PREFIX = "-importPlan=";
+	private static final String NO_RESUME_ARG = "-noResume";
+	private static final String RESTORE_ARG_PREFIX = "-restore=";
+	private static final String SNAPSHOT_ARG_PREFIX = "-snapshot=";
+	private static final String RESTORE_TO_ARG_PREFIX = "-restoreTo=";
+	
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_ERROR = 1;
+	public static final int EXIT_BAD_ARGUMENTS = 2;
+	public static final int EXIT_BAD_CONFIGURATION = 3;
+	
+	public static void main(String[] args) {
+		
+		// Never initialize AWT, even if a GUI class is loaded by mistake
+		System.setProperty("java.awt.headless", "true");
+		System.exit(run(args));
+	}
+	
+	public static int run(String[] args) {
+		
+		String propertyFileUriString = System.getProperty(Config.PROP_FILE_SYSTEM_PROPERTY);
+		List<String> jobTitles = new ArrayList<String>();
+		JobTaskType jobTaskType = null;
+		boolean scanOnly = false;
+		Path exportPlan = null;
+		Path importPlan = null;
+		boolean resume = true;
+		Path restoreChunkStore = null;
+		String restoreSnapshot = null;
+		Path restoreTo = null;
+		
+		for (String arg : args) {
+			if (arg.startsWith(PROPERTY_FILE_ARG_PREFIX)) {
+				propertyFileUriString = arg.substring(PROPERTY_FILE_ARG_PREFIX.length());
+			} else if (arg.startsWith(JOB_ARG_PREFIX)) {
+				jobTitles.add(arg.substring(JOB_ARG_PREFIX.length()));
+			} else if (arg.startsWith(TASK_ARG_PREFIX)) {
+				String jobTaskTypeName = arg.substring(TASK_ARG_PREFIX.length());
+				try {
+					jobTaskType = JobTaskType.valueOf(jobTaskTypeName);
+				} catch (IllegalArgumentException e) {
+					cLog.severe("Unknown job task type " + jobTaskTypeName);
+					return EXIT_BAD_ARGUMENTS;
+				}
+			} else if (arg.equals(SCAN_ONLY_ARG)) {
+				scanOnly = true;
+			} else if (arg.equals(NO_RESUME_ARG)) {
+				resume = false;
+			} else if (arg.startsWith(EXPORT_PLAN_ARG_PREFIX)) {
+				exportPlan = Paths.get(arg.substring(EXPORT_PLAN_ARG_PREFIX.length())).toAbsolutePath();
+			} else if (arg.startsWith(IMPORT_PLAN_ARG_PREFIX)) {
+				importPlan = Paths.get(arg.substring(IMPORT_PLAN_ARG_PREFIX.length())).toAbsolutePath();
+			} else if (arg.startsWith(RESTORE_ARG_PREFIX)) {
+				restoreChunkStore = Paths.get(arg.substring(RESTORE_ARG_PREFIX.length())).toAbsolutePath();
+			} else if (arg.startsWith(SNAPSHOT_ARG_PREFIX)) {
+				restoreSnapshot = arg.substring(SNAPSHOT_ARG_PREFIX.length());
+			} else if (arg.startsWith(RESTORE_TO_ARG_PREFIX)) {
+				restoreTo = Paths.get(arg.substring(RESTORE_TO_ARG_PREFIX.length())).toAbsolutePath();
+			} else {
+				cLog.severe("Unknown argument " + arg);
+				return EXIT_BAD_ARGUMENTS;
+			}
+		}
+		if (restoreChunkStore != null) {
+			return restore(restoreChunkStore, restoreSnapshot, restoreTo);
+		}
+		if (jobTaskType == null) {
+			cLog.severe("Missing job task type argument " + TASK_ARG_PREFIX);
+			return EXIT_BAD_ARGUMENTS;
+		}
+		if ((importPlan != null) && (scanOnly || (exportPlan != null))) {
+			cLog.severe("The argument " + IMPORT_PLAN_ARG_PREFIX + " cannot be used with " + SCAN_ONLY_ARG + " or " + EXPORT_PLAN_ARG_PREFIX);
+			return EXIT_BAD_ARGUMENTS;
+		}
+		
+		if (propertyFileUriString == null) {
+			cLog.severe("Missing property file argument " + PROPERTY_FILE_ARG_PREFIX + " (or system property " + Config.PROP_FILE_SYSTEM_PROPERTY + ")");
+			return EXIT_BAD_ARGUMENTS;
+		}
+		Config.setPropertyFile(propertyFileUriString);
+		
+		Path configFileDir = Config.getConfigFileDir();
+		if (configFileDir == null) {
+			cLog.severe("Config files directory is null. Backup property file: " + Objects.toString(Config.getRunningContext().getPropertiesLocation()));
+			return EXIT_BAD_CONFIGURATION;
+		}
+		
+		List<BackUpJob> backUpJobs = selectBackUpJobs(new BackUpJobList(configFileDir), jobTitles, jobTaskType);
+		if (backUpJobs == null) {
+			return EXIT_BAD_ARGUMENTS;
+		} else if (backUpJobs.isEmpty()) {
+			cLog.severe("No back up job with job task type " + jobTaskType.name() + " in " + configFileDir);
+			return EXIT_BAD_CONFIGURATION;
+		}
+		
+		try {
+			return runBackUpJobs(new JobsChoice(backUpJobs), jobTaskType, scanOnly, exportPlan, importPlan, resume);
+		} catch (Exception e) {
+			cLog.log(Level.SEVERE, "Exception when running back up jobs", e);
+			return EXIT_ERROR;
+		}
+	}
+	
+	// Without snapshot, the snapshots of the chunk store are listed
+	private static int restore(Path chunkStoreRoot, String snapshot, Path restoreTo) {
+		
+		if ((snapshot != null) && (restoreTo == null)) {
+			cLog.severe("Missing restore directory argument " + RESTORE_TO_ARG_PREFIX);
+			return EXIT_BAD_ARGUMENTS;
+		}
+		ChunkStore chunkStore = ChunkStore.getChunkStore(chunkStoreRoot);
+		try {
+			if (snapshot == null) {
+				StringBuilder snapshotsInfo = new StringBuilder(1024);
+				snapshotsInfo.append("Snapshots of the chunk store ").append(chunkStoreRoot).append(":\n");
+				for (String chunkStoreSnapshot : chunkStore.getSnapshots()) {
+					snapshotsInfo.append(chunkStoreSnapshot).append(" ").append(chunkStore.readManifest(chunkStoreSnapshot).getSource()).append("\n");
+				}
+				cLog.info(snapshotsInfo.toString());
+			} else {
+				chunkStore.restore(snapshot, restoreTo);
+			}
+			return EXIT_OK;
+		} catch (Exception e) {
+			cLog.log(Level.SEVERE, "Exception when restoring from the chunk store " + chunkStoreRoot, e);
+			return EXIT_ERROR;
+		}
+	}
+	
+	// Returns null if a back up job title is unknown
+	private static List<BackUpJob> selectBackUpJobs(BackUpJobList backUpJobList, List<String> jobTitles, JobTaskType jobTaskType) {
+		
+		for (String jobTitle : jobTitles) {
+			if (backUpJobList.stream().noneMatch(backUpJob -> jobTitle.equals(backUpJob.toString()))) {
+				cLog.severe("Unknown back up job " + jobTitle);
+				return null;
+			}
+		}
+		return backUpJobList.stream()
+				.filter(backUpJob -> jobTitles.isEmpty() || jobTitles.contains(backUpJob.toString()))
+				.filter(backUpJob -> backUpJob.getAllJobTaskType().contains(jobTaskType))
+				.toList();
+	}
+	
+	private static int runBackUpJobs(JobsChoice jobsChoice, JobTaskType jobTaskType, boolean scanOnly, Path exportPlan, Path importPlan, boolean resume) throws InterruptedException {
+		
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		boolean success;
+		ResumableBackUp resumableBackUp = (resume && !scanOnly && (importPlan == null)) ? BackUpJournal.getResumableBackUp(jobTaskType, jobsChoice.getTasks(jobTaskType)) : null;
+		if (resumableBackUp != null) {
+			// Back up interrupted
+			BackUpPlanReader backUpPlanReader = new BackUpPlanReader(jobTaskType, jobsChoice.getTasks(jobTaskType), new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.SCAN));
+			try {
+				backUpPlanReader.read(resumableBackUp, backUpItemList);
+			} catch (IOException e) {
+				cLog.log(Level.SEVERE, "Exception reading the back up plan " + resumableBackUp.planFile(), e);
+				return EXIT_ERROR;
+			}
+			cLog.info("Interrupted back up resumed: " + backUpItemList.size() + " back up items remaining, " + backUpPlanReader.getNbAlreadyDoneBackUpItems() + " back up items already done, " + backUpPlanReader.getNbStaleBackUpItems() + " back up items not valid anymore");
+			success = true;
+		} else if (importPlan != null) {
+			// Back up plan exported by a previous scan
+			BackUpPlanReader backUpPlanReader = new BackUpPlanReader(jobTaskType, jobsChoice.getTasks(jobTaskType), new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.SCAN));
+			try {
+				backUpPlanReader.read(importPlan, backUpItemList);
+			} catch (IOException e) {
+				cLog.log(Level.SEVERE, "Exception reading the back up plan " + importPlan, e);
+				return EXIT_ERROR;
+			}
+			cLog.info("Back up plan " + importPlan + " imported: " + backUpItemList.size() + " back up items, " + backUpPlanReader.getNbStaleBackUpItems() + " back up items not valid anymore");
+			success = true;
+		} else {
+			// Scan
+			cLog.info("Scan triggered for " + jobsChoice.getTitleAsString());
+			long startTime = System.currentTimeMillis();
+			
+			FilesScanEngine filesScanEngine = 
+					new FilesScanEngine(jobsChoice.getTasks(jobTaskType), new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.SCAN));
+			if (exportPlan != null) {
+				try {
+					filesScanEngine.setBackUpPlanWriter(BackUpPlanWriter.open(exportPlan, jobTaskType, jobsChoice.getTasks(jobTaskType)));
+				} catch (IOException e) {
+					cLog.log(Level.SEVERE, "Exception opening the back up plan " + exportPlan, e);
+					return EXIT_ERROR;
+				}
+				if (scanOnly) {
+					// The back up items are only exported
+					backUpItemList = null;
+				}
+			}
+			// The responses of the scanner tasks are processed at the end of the scan, by this thread
+			// The back up items are drained while the scan is running, because the scanner threads wait when their stream queue is full
+			// (when the back up items are only exported, they are not added to any list)
+			BackUpItemList drainedBackUpItemList = backUpItemList;
+			filesScanEngine.drainOnDemand((drainedBackUpItemList == null) ? null : drainedBackUpItemList::addAll);
+			filesScanEngine.startScan();
+			
+			ScheduledFuture<?> progressTask = Config.getScheduler().scheduleAtFixedRate(
+					() -> {
+						filesScanEngine.getProgress(false, scannerThreadResponse -> {}).forEach(status -> cLog.fine(status));
+						filesScanEngine.addStreamedBackUpItems(drainedBackUpItemList);
+					}, 
+					0, Config.getScanRefreshRate(), TimeUnit.MILLISECONDS);
+			List<ScannerThreadResponse> scannerThreadResponses;
+			try {
+				scannerThreadResponses = filesScanEngine.waitScanEnd();
+			} finally {
+				progressTask.cancel(false);
+			}
+			
+			int nbBackUpItems = filesScanEngine.processScannerThreadResponses(scannerThreadResponses);
+			filesScanEngine.detectMoves();
+			filesScanEngine.addStreamedBackUpItems(backUpItemList);
+			
+			// Each move replaces 2 back up items
+			nbBackUpItems = nbBackUpItems - filesScanEngine.getNbMovesDetected();
+			if ((backUpItemList != null) && (nbBackUpItems != backUpItemList.size())) {
+				cLog.severe("Erreur, nombre de résultats de scan recalculé =" + nbBackUpItems + " différent du nombre stocké =" + backUpItemList.size());
+			}
+			
+			// The sizes of the trees to copy or delete may still be computed by the folder size stage
+			filesScanEngine.waitSizeDifferences();
+			
+			StringBuilder scanInfo = new StringBuilder(1024);
+			scanInfo.append(jobsChoice.getTitleAsString()).append("\n");
+			for (ScannerThreadResponse scannerThreadResponse : scannerThreadResponses) {
+				scanInfo.append(scannerThreadResponse.getStatus()).append("\n");
+			}
+			filesScanEngine.appendScanInfoText(scanInfo, System.currentTimeMillis() - startTime);
+			cLog.info(scanInfo.toString());
+			
+			success = filesScanEngine.getFilesVisitFailed().isEmpty();
+			if ((exportPlan != null) && (filesScanEngine.endBackUpPlanExport() == null)) {
+				success = false;
+			}
+			if (scanOnly) {
+				return success ? EXIT_OK : EXIT_ERROR;
+			}
+		}
+		
+		// Back up
+		cLog.info("Back up triggered for " + jobsChoice.getTitleAsString());
+		long startTime = System.currentTimeMillis();
+		
+		BackUpItemList backedUpItemList = backUpItemList;
+		BackUpCounters backUpCounters = new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.BACKUP);
+		FilesBackUpEngine filesBackUpEngine = new FilesBackUpEngine(jobsChoice.getTasks(jobTaskType), backedUpItemList, backUpCounters);
+		filesBackUpEngine.setBackUpJournal(BackUpJournal.start(jobTaskType, jobsChoice.getTasks(jobTaskType), backedUpItemList));
+		success &= filesBackUpEngine.backUp(() -> false, 
+				nbActionsDone -> cLog.fine(() -> "Back up actions done: " + nbActionsDone + " / " + backedUpItemList.size()));
+		
+		StringBuilder backUpInfo = new StringBuilder(1024);
+		backUpInfo.append(jobsChoice.getTitleAsString()).append(jobTaskType.toString()).append("\n");
+		backUpCounters.appendInfoText(backUpInfo);
+		backUpInfo.append("\nProcess duration (ms)= ").append(System.currentTimeMillis() - startTime);
+		Config.getIoScheduler().appendMetricsText(backUpInfo);
+		backUpInfo.append("\n");
+		cLog.info(backUpInfo.toString());
+		
+		return success ? EXIT_OK : EXIT_ERROR;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Persistent cache of the block checksums of the targets written by the delta copy.
+// Cached checksums are used only if the target has the same size, last modified time and file key
+// as when they have been computed, and the same block size. So the target is not read again by the next delta copy.
+// The least recently used targets are evicted when the maximum number of targets is reached.
+public class BlockChecksumCache {
+
+	private static final Logger bLog = Logger.getLogger(BlockChecksumCache.class.getName());
+	
+	private static final int CACHE_MAGIC = 0x42464243;
+	private static final int CACHE_VERSION = 1;
+	
+	private final Path cacheFile;
+	private final int maxEntries;
+	
+	private boolean loaded;
+	private boolean modified;
+	
+	// Access ordered, for the LRU eviction
+	private final LinkedHashMap<String, CachedChecksums> cachedChecksums;
+	
+	private record CachedChecksums(long size, long lastModified, String fileKey, int blockSize, byte[] checksums) {
+		
+		boolean isValidFor(BasicFileAttributes attributes, int blockSize) {
+			return (size == attributes.size()) && 
+					(lastModified == attributes.lastModifiedTime().toMillis()) &&
+					fileKey.equals(fileKeyString(attributes)) &&
+					(this.blockSize == blockSize);
+		}
+	}
+	
+	public BlockChecksumCache(Path cacheFile, int maxEntries) {
+		
+		this.cacheFile = cacheFile;
+		this.maxEntries = maxEntries;
+		loaded = false;
+		modified = false;
+		cachedChecksums = new LinkedHashMap<>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedChecksums> eldest) {
+				return size() > BlockChecksumCache.this.maxEntries;
+			}
+		};
+	}
+	
+	public Path getCacheFile() {
+		return cacheFile;
+	}
+	
+	public synchronized int getNbCachedFiles() {
+		ensureLoaded();
+		return cachedChecksums.size();
+	}
+	
+	// Returns the checksums of the blocks of the file (concatenated) if they are still valid, null otherwise
+	synchronized byte[] getChecksums(Path file, BasicFileAttributes attributes, int blockSize) {
+		
+		ensureLoaded();
+		CachedChecksums checksums = cachedChecksums.get(file.toAbsolutePath().toString());
+		if ((checksums != null) && checksums.isValidFor(attributes, blockSize)) {
+			return checksums.checksums();
+		} else {
+			return null;
+		}
+	}
+	
+	synchronized void putChecksums(Path file, BasicFileAttributes attributes, int blockSize, byte[] checksums) {
+		
+		ensureLoaded();
+		cachedChecksums.put(file.toAbsolutePath().toString(), 
+				new CachedChecksums(attributes.size(), attributes.lastModifiedTime().toMillis(), fileKeyString(attributes), blockSize, checksums));
+		modified = true;
+	}
+	
+	// The file or directory is about to be modified by a back up action
+	public synchronized void invalidate(Path path, boolean isDirectory) {
+		
+		if ((path == null) || ! loaded) {
+			return;
+		}
+		String key = path.toAbsolutePath().toString();
+		if (cachedChecksums.remove(key) != null) {
+			modified = true;
+		}
+		if (isDirectory) {
+			String subTreePrefix = key + path.getFileSystem().getSeparator();
+			if (cachedChecksums.keySet().removeIf(k -> k.startsWith(subTreePrefix))) {
+				modified = true;
+			}
+		}
+	}
+	
+	private static String fileKeyString(BasicFileAttributes attributes) {
+		return Objects.toString(attributes.fileKey(), "");
+	}
+	
+	private void ensureLoaded() {
+		
+		if (! loaded) {
+			load();
+			loaded = true;
+		}
+	}
+	
+	private void load() {
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			
+			if ((in.readInt() != CACHE_MAGIC) || (in.readInt() != CACHE_VERSION)) {
+				bLog.warning("Invalid or obsolete block checksum cache ignored: " + cacheFile);
+			} else {
+				int nbFiles = in.readInt();
+				for (int i = 0; i < nbFiles; i++) {
+					String key = in.readUTF();
+					long size = in.readLong();
+					long lastModified = in.readLong();
+					String fileKey = in.readUTF();
+					int blockSize = in.readInt();
+					byte[] checksums = new byte[in.readInt()];
+					in.readFully(checksums);
+					cachedChecksums.put(key, new CachedChecksums(size, lastModified, fileKey, blockSize, checksums));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			bLog.fine(() -> "No block checksum cache " + cacheFile);
+		} catch (Exception e) {
+			bLog.log(Level.SEVERE, "Exception when reading block checksum cache " + cacheFile, e);
+			cachedChecksums.clear();
+		}
+	}
+	
+	// The cache is written in a temporary file, then moved, so that an incomplete cache is never read
+	// The checksums are written from the least recently used to the most recently used, to keep the LRU order
+	public synchronized void save() {
+		
+		if (! modified) {
+			return;
+		}
+		Path tmpCacheFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpCacheFile)))) {
+				
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				List<Map.Entry<String, CachedChecksums>> allChecksums = List.copyOf(cachedChecksums.entrySet());
+				out.writeInt(allChecksums.size());
+				for (Map.Entry<String, CachedChecksums> entry : allChecksums) {
+					CachedChecksums checksums = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeLong(checksums.size());
+					out.writeLong(checksums.lastModified());
+					out.writeUTF(checksums.fileKey());
+					out.writeInt(checksums.blockSize());
+					out.writeInt(checksums.checksums().length);
+					out.write(checksums.checksums());
+				}
+			}
+			Files.move(tmpCacheFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			modified = false;
+			bLog.fine(() -> "Block checksum cache saved: " + cachedChecksums.size() + " files");
+		} catch (Exception e) {
+			bLog.log(Level.SEVERE, "Exception when writing block checksum cache " + cacheFile, e);
+		}
+	}
+}
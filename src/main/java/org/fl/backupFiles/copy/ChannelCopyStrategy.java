@@ -0,0 +1,79 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Copy of regular files between file channels, the attributes being copied once the content is written.
+// The other files (symbolic links...) are copied with Files.copy
+abstract class ChannelCopyStrategy implements CopyStrategy {
+
+	private static final Logger cLog = Logger.getLogger(ChannelCopyStrategy.class.getName());
+	
+	protected abstract CopyStrategyType getCopyStrategyType();
+	
+	// Returns the number of bytes copied, copyProgress being called after each chunk copied
+	protected abstract long transfer(FileChannel sourceChannel, FileChannel targetChannel, LongConsumer copyProgress) throws IOException;
+	
+	@Override
+	public CopyResult copy(Path source, Path target, boolean sameFileStore, LongConsumer copyProgress) throws IOException {
+		
+		BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		if (! sourceAttributes.isRegularFile()) {
+			return CopyStrategyType.FILES_COPY.getCopyStrategy().copy(source, target, sameFileStore, copyProgress);
+		}
+		
+		// Like Files.copy, an existing target is deleted first
+		Files.deleteIfExists(target);
+		try {
+			long nbBytesCopied;
+			try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+				 FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				
+				nbBytesCopied = transfer(sourceChannel, targetChannel, copyProgress);
+			}
+			FileAttributesCopier.copyAttributes(source, sourceAttributes, target);
+			return new CopyResult(getCopyStrategyType(), nbBytesCopied);
+			
+		} catch (IOException | RuntimeException e) {
+			// Do not leave a partial copy
+			try {
+				Files.deleteIfExists(target);
+			} catch (IOException e1) {
+				cLog.log(Level.WARNING, "Exception deleting the partial copy " + target, e1);
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+// The copy strategies available for the back up of files
+public enum CopyStrategyType {
+	
+	// Files.copy : the copy is done by the JDK and the operating system (it may use copy offload, CopyFileEx on Windows)
+	FILES_COPY(new FilesCopyStrategy()),
+	// FileChannel.transferTo : the copy is done inside the kernel when possible (copy_file_range or sendfile on Linux)
+	TRANSFER_TO(new TransferToCopyStrategy()),
+	// Read and write through a large direct buffer, for copies between different devices
+	LARGE_BUFFER(new LargeBufferCopyStrategy()),
+	// TRANSFER_TO if the source and target are on the same file store, LARGE_BUFFER otherwise
+	AUTO(new AutoCopyStrategy());
+	
+	private final CopyStrategy copyStrategy;
+	
+	private CopyStrategyType(CopyStrategy copyStrategy) {
+		this.copyStrategy = copyStrategy;
+	}
+	
+	public CopyStrategy getCopyStrategy() {
+		return copyStrategy;
+	}
+}
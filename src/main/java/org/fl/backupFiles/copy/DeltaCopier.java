@@ -0,0 +1,190 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Delta copy of a large file on an existing target: the source and target are compared block by block
+// and only the blocks that have changed are written in the target, in place.
+// The checksums of the blocks of the target are kept in the block checksum cache (if not null),
+// so that the target is not read again if it has not been modified since the last delta copy
+public class DeltaCopier {
+
+	private static final Logger dLog = Logger.getLogger(DeltaCopier.class.getName());
+	
+	private static final String CHECKSUM_ALGORITHM = "SHA-256";
+	private static final int CHECKSUM_LENGTH = 32;
+	
+	private final long minSize;
+	private final int blockSize;
+	private final BlockChecksumCache blockChecksumCache;
+	
+	// The buffers (for a source block and a target block) are reused by each thread copying files
+	private final ThreadLocal<ByteBuffer[]> blockBuffers;
+	
+	public DeltaCopier(long minSize, int blockSize, BlockChecksumCache blockChecksumCache) {
+		
+		this.minSize = minSize;
+		this.blockSize = blockSize;
+		this.blockChecksumCache = blockChecksumCache;
+		blockBuffers = ThreadLocal.withInitial(() -> new ByteBuffer[] { ByteBuffer.allocateDirect(blockSize), ByteBuffer.allocateDirect(blockSize) });
+	}
+	
+	// Minimum size of the files replaced by the delta copy
+	public long getMinSize() {
+		return minSize;
+	}
+	
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	// Null if the block checksums are not kept
+	public BlockChecksumCache getBlockChecksumCache() {
+		return blockChecksumCache;
+	}
+	
+	// The source and target must be regular files. Returns the number of bytes written in the target
+	// copyProgress is called with the number of bytes of each block compared (written or not)
+	public CopyResult copy(Path source, Path target, LongConsumer copyProgress) throws IOException {
+		
+		BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		long sourceSize = sourceAttributes.size();
+		long targetSize = targetAttributes.size();
+		
+		byte[] targetChecksums = (blockChecksumCache == null) ? null : blockChecksumCache.getChecksums(target, targetAttributes, blockSize);
+		byte[] sourceChecksums = new byte[Math.toIntExact(((sourceSize + blockSize - 1) / blockSize) * CHECKSUM_LENGTH)];
+		MessageDigest messageDigest = getMessageDigest();
+		ByteBuffer[] buffers = blockBuffers.get();
+		ByteBuffer sourceBuffer = buffers[0];
+		ByteBuffer targetBuffer = buffers[1];
+		
+		long nbBytesWritten = 0;
+		try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			
+			long position = 0;
+			int blockIndex = 0;
+			while (position < sourceSize) {
+				
+				int blockLength = (int) Math.min(blockSize, sourceSize - position);
+				readBlock(sourceChannel, sourceBuffer, position, blockLength);
+				messageDigest.update(sourceBuffer);
+				System.arraycopy(messageDigest.digest(), 0, sourceChecksums, blockIndex * CHECKSUM_LENGTH, CHECKSUM_LENGTH);
+				sourceBuffer.flip();
+				
+				boolean sameBlock;
+				if (position + blockLength > targetSize) {
+					sameBlock = false;
+				} else if ((targetChecksums != null) && ((blockIndex + 1) * CHECKSUM_LENGTH <= targetChecksums.length)) {
+					int checksumOffset = blockIndex * CHECKSUM_LENGTH;
+					sameBlock = Arrays.equals(sourceChecksums, checksumOffset, checksumOffset + CHECKSUM_LENGTH, targetChecksums, checksumOffset, checksumOffset + CHECKSUM_LENGTH);
+				} else {
+					readBlock(targetChannel, targetBuffer, position, blockLength);
+					sameBlock = (sourceBuffer.mismatch(targetBuffer) == -1);
+				}
+				
+				if (! sameBlock) {
+					long writePosition = position;
+					while (sourceBuffer.hasRemaining()) {
+						writePosition += targetChannel.write(sourceBuffer, writePosition);
+					}
+					nbBytesWritten += blockLength;
+				}
+				copyProgress.accept(blockLength);
+				position += blockLength;
+				blockIndex++;
+			}
+			if (targetSize > sourceSize) {
+				targetChannel.truncate(sourceSize);
+			}
+		} catch (IOException | RuntimeException e) {
+			abandonTarget(target);
+			throw e;
+		}
+		FileAttributesCopier.copyAttributes(source, sourceAttributes, target);
+		
+		if (blockChecksumCache != null) {
+			blockChecksumCache.putChecksums(target, Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS), blockSize, sourceChecksums);
+		}
+		long nbBytesSkipped = sourceSize - nbBytesWritten;
+		dLog.finest(() -> "Delta copy of " + source + ": " + nbBytesSkipped + " bytes unchanged");
+		return CopyResult.ofDeltaCopy(nbBytesWritten);
+	}
+	
+	// Read a whole block at a given position. The buffer is ready to be read
+	private static void readBlock(FileChannel channel, ByteBuffer buffer, long position, int blockLength) throws IOException {
+		
+		buffer.clear();
+		buffer.limit(blockLength);
+		long readPosition = position;
+		while (buffer.hasRemaining()) {
+			int nbRead = channel.read(buffer, readPosition);
+			if (nbRead < 0) {
+				throw new EOFException("The file has been modified during the delta copy at position " + readPosition);
+			}
+			readPosition += nbRead;
+		}
+		buffer.flip();
+	}
+	
+	// A target partially updated is older than its source, so that it is replaced again by the next back up
+	private void abandonTarget(Path target) {
+		
+		if (blockChecksumCache != null) {
+			blockChecksumCache.invalidate(target, false);
+		}
+		try {
+			Files.setLastModifiedTime(target, FileTime.fromMillis(0));
+		} catch (IOException e) {
+			dLog.log(Level.WARNING, "Exception resetting the last modified time of the partially updated " + target, e);
+		}
+	}
+	
+	private static MessageDigest getMessageDigest() throws IOException {
+		
+		try {
+			return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Block checksum algorithm not available", e);
+		}
+	}
+}
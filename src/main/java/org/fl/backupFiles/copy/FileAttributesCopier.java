@@ -0,0 +1,134 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Copy of the attributes of a file, as done by Files.copy with the COPY_ATTRIBUTES option :
+// * the permissions (and the owner if possible) on Posix file systems
+// * the access control list (if possible) and the DOS attributes on Windows file systems
+// * the user defined attributes (extended attributes on Linux, alternate data streams on Windows), if the file stores support them
+// * the last modified, last access and creation times
+class FileAttributesCopier {
+
+	private static final Logger aLog = Logger.getLogger(FileAttributesCopier.class.getName());
+	
+	private FileAttributesCopier() {
+	}
+	
+	static void copyAttributes(Path source, BasicFileAttributes sourceAttributes, Path target) throws IOException {
+		
+		PosixFileAttributeView sourcePosixView = Files.getFileAttributeView(source, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+		PosixFileAttributeView targetPosixView = Files.getFileAttributeView(target, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+		DosFileAttributes sourceDosAttributes = null;
+		if ((sourcePosixView != null) && (targetPosixView != null)) {
+			
+			PosixFileAttributes sourcePosixAttributes = sourcePosixView.readAttributes();
+			targetPosixView.setPermissions(sourcePosixAttributes.permissions());
+			try {
+				targetPosixView.setOwner(sourcePosixAttributes.owner());
+				targetPosixView.setGroup(sourcePosixAttributes.group());
+			} catch (IOException e) {
+				// only possible with sufficient privileges
+				aLog.log(Level.FINEST, e, () -> "Unable to copy the owner of " + source);
+			}
+		} else {
+			
+			AclFileAttributeView sourceAclView = Files.getFileAttributeView(source, AclFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+			AclFileAttributeView targetAclView = Files.getFileAttributeView(target, AclFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+			if ((sourceAclView != null) && (targetAclView != null)) {
+				try {
+					targetAclView.setAcl(sourceAclView.getAcl());
+				} catch (IOException | UnsupportedOperationException e) {
+					// the target file store may not support access control lists
+					aLog.log(Level.FINEST, e, () -> "Unable to copy the access control list of " + source);
+				}
+			}
+			
+			DosFileAttributeView sourceDosView = Files.getFileAttributeView(source, DosFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+			if (sourceDosView != null) {
+				sourceDosAttributes = sourceDosView.readAttributes();
+			}
+		}
+		
+		// Before the times, writing an alternate data stream modifies the last modified time on Windows
+		copyUserDefinedAttributes(source, target);
+		
+		Files.getFileAttributeView(target, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS)
+			.setTimes(sourceAttributes.lastModifiedTime(), sourceAttributes.lastAccessTime(), sourceAttributes.creationTime());
+		
+		// The DOS attributes are set last, a read only target could not have its times set
+		if (sourceDosAttributes != null) {
+			DosFileAttributeView targetDosView = Files.getFileAttributeView(target, DosFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+			if (targetDosView != null) {
+				targetDosView.setArchive(sourceDosAttributes.isArchive());
+				targetDosView.setHidden(sourceDosAttributes.isHidden());
+				targetDosView.setSystem(sourceDosAttributes.isSystem());
+				targetDosView.setReadOnly(sourceDosAttributes.isReadOnly());
+			}
+		}
+	}
+	
+	// The target may be an existing file (delta copy): its user defined attributes that are not in the source are deleted
+	private static void copyUserDefinedAttributes(Path source, Path target) {
+		
+		UserDefinedFileAttributeView sourceUserView = Files.getFileAttributeView(source, UserDefinedFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+		UserDefinedFileAttributeView targetUserView = Files.getFileAttributeView(target, UserDefinedFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+		if ((sourceUserView != null) && (targetUserView != null)) {
+			try {
+				List<String> sourceAttributeNames = sourceUserView.list();
+				for (String targetAttributeName : targetUserView.list()) {
+					if (! sourceAttributeNames.contains(targetAttributeName)) {
+						targetUserView.delete(targetAttributeName);
+					}
+				}
+				for (String attributeName : sourceAttributeNames) {
+					ByteBuffer attributeValue = ByteBuffer.allocate(sourceUserView.size(attributeName));
+					sourceUserView.read(attributeName, attributeValue);
+					attributeValue.flip();
+					targetUserView.write(attributeName, attributeValue);
+				}
+			} catch (IOException | UnsupportedOperationException e) {
+				// the source or target file store may not support user defined attributes
+				aLog.log(Level.FINEST, e, () -> "Unable to copy the user defined attributes of " + source);
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+// Copy through a large direct buffer : few system calls and no copy between the java heap and native memory
+class LargeBufferCopyStrategy extends ChannelCopyStrategy {
+
+	private static final int BUFFER_SIZE = 8*1024*1024;
+	
+	// The buffers are reused by each thread copying files
+	private static final ThreadLocal<ByteBuffer> copyBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+	
+	@Override
+	protected CopyStrategyType getCopyStrategyType() {
+		return CopyStrategyType.LARGE_BUFFER;
+	}
+
+	@Override
+	protected long transfer(FileChannel sourceChannel, FileChannel targetChannel, LongConsumer copyProgress) throws IOException {
+		
+		ByteBuffer buffer = copyBuffers.get();
+		long nbBytesCopied = 0;
+		buffer.clear();
+		int nbRead;
+		while ((nbRead = sourceChannel.read(buffer)) >= 0) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				targetChannel.write(buffer);
+			}
+			buffer.clear();
+			nbBytesCopied += nbRead;
+			copyProgress.accept(nbRead);
+		}
+		return nbBytesCopied;
+	}
+}
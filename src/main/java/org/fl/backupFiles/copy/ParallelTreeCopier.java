@@ -0,0 +1,261 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.scanner.FileStorePermits;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+
+// Parallel copy of a directory tree :
+// * the directories are created first, while walking the source tree. An existing target directory is completed (copy of a tree interrupted and resumed):
+//   its files that have the size and last modified time of their source are already copied, as the attributes are copied after the content
+// * the files are then copied by workers in 2 lanes. A few workers copy the large files, so that the large files
+//   do not hold all the workers, the others copy the small files. A worker whose lane is empty helps the other lane
+// * the attributes of the directories are copied last (copying the files modifies the directories)
+// The calling thread is one of the small file workers, so the copy progresses even when the executor is busy.
+// A tree copy does not launch more workers than the I/O permits of its source and target file stores.
+// Each file copied is recorded in the back up counters and the bytes copied are reported to copyProgress
+// The I/O permits of the source and target file stores are acquired for each file copied (and for the walk of the source tree),
+// so the caller must not hold them while copying a tree
+public class ParallelTreeCopier {
+
+	private static final Logger tLog = Logger.getLogger(ParallelTreeCopier.class.getName());
+	
+	private final ExecutorService executorService;
+	private final int nbWorkers;
+	private final int nbLargeFileWorkers;
+	private final long largeFileThreshold;
+	private final FileStorePermits ioScheduler;
+	
+	public ParallelTreeCopier(ExecutorService executorService, int nbWorkers, int nbLargeFileWorkers, long largeFileThreshold, FileStorePermits ioScheduler) {
+		
+		this.executorService = executorService;
+		this.nbWorkers = Math.max(1, nbWorkers);
+		this.nbLargeFileWorkers = Math.max(0, Math.min(nbLargeFileWorkers, this.nbWorkers - 1));
+		this.largeFileThreshold = largeFileThreshold;
+		this.ioScheduler = ioScheduler;
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+	
+	// Returns true if the whole tree has been copied
+	public boolean copyTree(Path source, Path target, CopyStrategy copyStrategy, FileStore sourceFileStore, FileStore targetFileStore, 
+			BackUpCounters backUpCounters, LongConsumer copyProgress) throws IOException {
+		
+		TreeCopy treeCopy = new TreeCopy(source, target, copyStrategy, sourceFileStore, targetFileStore, backUpCounters, copyProgress);
+		try (Permits ioPermits = treeCopy.acquireIoPermits()) {
+			Files.walkFileTree(source, treeCopy);
+		}
+		
+		int nbTreeWorkers = Math.min(nbWorkers, Math.min(ioScheduler.getMaxConcurrency(sourceFileStore), ioScheduler.getMaxConcurrency(targetFileStore)));
+		int nbTreeLargeFileWorkers = Math.min(nbLargeFileWorkers, nbTreeWorkers - 1);
+		List<CompletableFuture<Void>> workers = new ArrayList<>();
+		try {
+			for (int i = 1; i < nbTreeWorkers; i++) {
+				FileLane ownLane = (i <= nbTreeLargeFileWorkers) ? treeCopy.largeFiles : treeCopy.smallFiles;
+				FileLane otherLane = (i <= nbTreeLargeFileWorkers) ? treeCopy.smallFiles : treeCopy.largeFiles;
+				workers.add(CompletableFuture.runAsync(() -> treeCopy.copyFiles(ownLane, otherLane), executorService));
+			}
+		} catch (RejectedExecutionException e) {
+			// the executor is shut down : the calling thread copies the remaining files
+			tLog.log(Level.FINE, "Tree copy workers rejected", e);
+		}
+		treeCopy.copyFiles(treeCopy.smallFiles, treeCopy.largeFiles);
+		CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+		
+		try (Permits ioPermits = treeCopy.acquireIoPermits()) {
+			treeCopy.copyDirectoriesAttributes();
+		}
+		return treeCopy.success.get();
+	}
+	
+	// Files to copy, taken by the workers
+	private static class FileLane {
+		
+		private final List<Path> files = new ArrayList<>();
+		private final AtomicInteger nextFile = new AtomicInteger(0);
+		
+		private Path nextFile() {
+			int fileIndex = nextFile.getAndIncrement();
+			return (fileIndex < files.size()) ? files.get(fileIndex) : null;
+		}
+	}
+	
+	private record CreatedDirectory(Path sourceDirectory, BasicFileAttributes sourceAttributes, Path targetDirectory) {
+	}
+	
+	private class TreeCopy extends SimpleFileVisitor<Path> {
+		
+		private final Path source;
+		private final Path target;
+		private final CopyStrategy copyStrategy;
+		private final FileStore sourceFileStore;
+		private final FileStore targetFileStore;
+		private final boolean sameFileStore;
+		private final BackUpCounters backUpCounters;
+		private final LongConsumer copyProgress;
+		private final FileLane largeFiles;
+		private final FileLane smallFiles;
+		private final List<CreatedDirectory> createdDirectories;
+		private final Set<Path> existingSourceDirectories;
+		private final AtomicBoolean success;
+		
+		private TreeCopy(Path source, Path target, CopyStrategy copyStrategy, FileStore sourceFileStore, FileStore targetFileStore, 
+				BackUpCounters backUpCounters, LongConsumer copyProgress) {
+			this.source = source;
+			this.target = target;
+			this.copyStrategy = copyStrategy;
+			this.sourceFileStore = sourceFileStore;
+			this.targetFileStore = targetFileStore;
+			sameFileStore = (sourceFileStore != null) && sourceFileStore.equals(targetFileStore);
+			this.backUpCounters = backUpCounters;
+			this.copyProgress = copyProgress;
+			largeFiles = new FileLane();
+			smallFiles = new FileLane();
+			createdDirectories = new ArrayList<>();
+			existingSourceDirectories = new HashSet<>();
+			success = new AtomicBoolean(true);
+		}
+		
+		private Permits acquireIoPermits() {
+			return ioScheduler.acquireUninterruptibly(sourceFileStore, targetFileStore);
+		}
+		
+		private Path getTargetPath(Path sourcePath) {
+			return target.resolve(source.relativize(sourcePath));
+		}
+		
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+			
+			Path targetDirectory = getTargetPath(dir);
+			try {
+				try {
+					Files.createDirectory(targetDirectory);
+				} catch (FileAlreadyExistsException e) {
+					// An existing directory is completed (copy of a tree interrupted and resumed)
+					if (! Files.isDirectory(targetDirectory, LinkOption.NOFOLLOW_LINKS)) {
+						throw e;
+					}
+					existingSourceDirectories.add(dir);
+				}
+				createdDirectories.add(new CreatedDirectory(dir, attrs, targetDirectory));
+				return FileVisitResult.CONTINUE;
+			} catch (IOException e) {
+				tLog.log(Level.SEVERE, "Exception creating directory " + targetDirectory, e);
+				success.set(false);
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+		}
+		
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+			
+			if (existingSourceDirectories.contains(file.getParent()) && isAlreadyCopied(attrs, getTargetPath(file))) {
+				copyProgress.accept(attrs.size());
+			} else if (attrs.isRegularFile() && (attrs.size() >= largeFileThreshold)) {
+				largeFiles.files.add(file);
+			} else {
+				smallFiles.files.add(file);
+			}
+			return FileVisitResult.CONTINUE;
+		}
+		
+		private boolean isAlreadyCopied(BasicFileAttributes sourceAttributes, Path targetFile) {
+			
+			try {
+				BasicFileAttributes targetAttributes = Files.readAttributes(targetFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				return sourceAttributes.isRegularFile() && targetAttributes.isRegularFile() &&
+						(targetAttributes.size() == sourceAttributes.size()) && 
+						targetAttributes.lastModifiedTime().equals(sourceAttributes.lastModifiedTime());
+			} catch (IOException e) {
+				// the target file does not exist
+				return false;
+			}
+		}
+		
+		@Override
+		public FileVisitResult visitFileFailed(Path file, IOException exc) {
+			
+			tLog.log(Level.SEVERE, "Exception reading " + file, exc);
+			success.set(false);
+			return FileVisitResult.CONTINUE;
+		}
+		
+		private void copyFiles(FileLane ownLane, FileLane otherLane) {
+			
+			Path file;
+			while (((file = ownLane.nextFile()) != null) || ((file = otherLane.nextFile()) != null)) {
+				
+				Path targetFile = getTargetPath(file);
+				try (Permits ioPermits = acquireIoPermits()) {
+					long copyBegin = System.nanoTime();
+					CopyResult copyResult = copyStrategy.copy(file, targetFile, sameFileStore, copyProgress);
+					backUpCounters.recordCopy(copyResult, System.nanoTime() - copyBegin);
+				} catch (Exception e) {
+					tLog.log(Level.SEVERE, "Exception copying " + file + " to " + targetFile, e);
+					success.set(false);
+				}
+			}
+		}
+		
+		// The deepest directories first
+		private void copyDirectoriesAttributes() {
+			
+			for (int i = createdDirectories.size() - 1; i >= 0; i--) {
+				CreatedDirectory createdDirectory = createdDirectories.get(i);
+				try {
+					FileAttributesCopier.copyAttributes(createdDirectory.sourceDirectory(), createdDirectory.sourceAttributes(), createdDirectory.targetDirectory());
+				} catch (IOException e) {
+					tLog.log(Level.WARNING, "Exception copying the attributes of directory " + createdDirectory.targetDirectory(), e);
+				}
+			}
+		}
+	}
+}
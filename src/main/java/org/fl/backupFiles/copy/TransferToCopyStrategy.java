@@ -0,0 +1,57 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+class TransferToCopyStrategy extends ChannelCopyStrategy {
+
+	// Maximum number of bytes transferred by one call, to report the progress of large files
+	private static final long CHUNK_SIZE = 64*1024*1024;
+
+	@Override
+	protected CopyStrategyType getCopyStrategyType() {
+		return CopyStrategyType.TRANSFER_TO;
+	}
+
+	@Override
+	protected long transfer(FileChannel sourceChannel, FileChannel targetChannel, LongConsumer copyProgress) throws IOException {
+		
+		long size = sourceChannel.size();
+		long position = 0;
+		while (position < size) {
+			long nbTransferred = sourceChannel.transferTo(position, Math.min(CHUNK_SIZE, size - position), targetChannel);
+			if (nbTransferred <= 0) {
+				// the source file has been truncated during the copy
+				break;
+			}
+			position += nbTransferred;
+			copyProgress.accept(nbTransferred);
+		}
+		return position;
+	}
+}
@@ -25,6 +25,7 @@ SOFTWARE.
 package org.fl.backupFiles.directoryGroup;
 
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -40,6 +41,26 @@ public class DirectoryGroupMap {
 	private final Map<Path, DirectoryGroup> directoryGroupMap;
 	private final Set<Path> pathKeys;
 	private final DirectoryGroup defaultDirectoryGroup;
+	
+	// Path component trie of the directory groups, for a lookup in O(depth of the looked up path)
+	private final PathTrieNode pathTrieRoot;
+	
+	private static class PathTrieNode {
+		
+		private Map<Path, PathTrieNode> children;
+		private DirectoryGroup directoryGroup;
+		
+		private PathTrieNode getChild(Path pathComponent) {
+			return (children == null) ? null : children.get(pathComponent);
+		}
+		
+		private PathTrieNode getOrCreateChild(Path pathComponent) {
+			if (children == null) {
+				children = new HashMap<>();
+			}
+			return children.computeIfAbsent(pathComponent, c -> new PathTrieNode());
+		}
+	}
 
 	public DirectoryGroupMap(Path originSourcePath, Path actualSourcePath, DirectoryGroupConfiguration directoryGroupConfiguration) {
 		super();
@@ -59,10 +80,40 @@ public class DirectoryGroupMap {
 			
 		});
 		pathKeys = directoryGroupMap.keySet();
+		
+		pathTrieRoot = new PathTrieNode();
+		directoryGroupMap.forEach((path, directoryGroup) -> {
+			PathTrieNode node = pathTrieRoot.getOrCreateChild(path.getRoot());
+			for (Path pathComponent : path) {
+				node = node.getOrCreateChild(pathComponent);
+			}
+			node.directoryGroup = directoryGroup;
+		});
 	}
 
+	// Deepest directory group containing dir (same result as the DeeperPathComparator ordered scan)
 	public DirectoryGroup getDirectoryGroup(Path dir) {
 
+		DirectoryGroup deepestDirectoryGroup = defaultDirectoryGroup;
+		PathTrieNode node = pathTrieRoot.getChild(dir.getRoot());
+		if (node != null) {
+			if (node.directoryGroup != null) {
+				deepestDirectoryGroup = node.directoryGroup;
+			}
+			int nameCount = dir.getNameCount();
+			for (int i = 0; (i < nameCount) && (node = node.getChild(dir.getName(i))) != null; i++) {
+				if (node.directoryGroup != null) {
+					deepestDirectoryGroup = node.directoryGroup;
+				}
+			}
+		}
+		return deepestDirectoryGroup;
+	}
+	
+	// Linear scan of the directory groups ordered by the DeeperPathComparator
+	// Former lookup, kept as a reference for tests and benchmarks
+	public DirectoryGroup getDirectoryGroupByLinearScan(Path dir) {
+
 		for (Path pathKey : pathKeys) {
 			if (dir.startsWith(pathKey)) {
 				return directoryGroupMap.get(pathKey);
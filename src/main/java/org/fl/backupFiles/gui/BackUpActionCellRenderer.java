@@ -53,6 +53,7 @@ public class BackUpActionCellRenderer extends CustomTableCellRenderer {
 				case DELETE, DELETE_DIR -> setBackground(Color.ORANGE);
 				case COPY_TARGET, ADJUST_TIME -> setBackground(Color.PINK);
 				case AMBIGUOUS -> setBackground(Color.RED);
+				case MOVE -> setBackground(Color.CYAN);
 			}
 			setValue(backupAction.getActionName());
 		} else {
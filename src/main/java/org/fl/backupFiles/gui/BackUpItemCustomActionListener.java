@@ -28,9 +28,7 @@ import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
@@ -39,6 +37,8 @@ import javax.swing.JTextArea;
 
 import org.fl.backupFiles.AbstractBackUpItem;
 import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.CustomAction;
 import org.fl.util.os.OScommand;
 
 public class BackUpItemCustomActionListener implements java.awt.event.ActionListener {
@@ -47,10 +47,6 @@ public class BackUpItemCustomActionListener implements java.awt.event.ActionList
 	
 	private static final Font font = new Font("monospaced", Font.BOLD, 14);
 	
-	public enum CustomAction { Compare, ShowParentDir };
-	
-	private static Map<CustomAction, String> customActionCommands;
-	
 	private final BackUpJTable backUpJTable;
 	private final CustomAction customAction;
 	private final FileElement fileElement;
@@ -89,7 +85,7 @@ public class BackUpItemCustomActionListener implements java.awt.event.ActionList
 			}  else if (customAction.equals(CustomAction.ShowParentDir)) {
 				// Launch a file explorer on the parent directory
 
-				String showParentDirCmd = customActionCommands.get(CustomAction.ShowParentDir);
+				String showParentDirCmd = Config.getCustomActionCommands().get(CustomAction.ShowParentDir);
 
 				if ((showParentDirCmd != null) && (! showParentDirCmd.isEmpty())) {
 
@@ -116,8 +112,4 @@ public class BackUpItemCustomActionListener implements java.awt.event.ActionList
 			}
 		}
 	}
-
-	public static void setCustomActionCommands(HashMap<CustomAction, String> cac) {
-		customActionCommands = cac;
-	}
 }
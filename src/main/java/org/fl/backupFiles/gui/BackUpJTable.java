@@ -72,11 +72,16 @@ public class BackUpJTable extends JTable {
 		setAutoCreateRowSorter(true);
 		
 		// Row sorter
-		TableRowSorter<TableModel> sorter = new TableRowSorter<>(getModel());
-		setRowSorter(sorter);
+		setRowSorter(newRowSorter(getModel()));
+	}
+	
+	// Row sorter of the back up table (it does not need a display, unlike the table)
+	public static TableRowSorter<TableModel> newRowSorter(TableModel backUpTableModel) {
 		
+		TableRowSorter<TableModel> sorter = new TableRowSorter<>(backUpTableModel);
 		sorter.setComparator(BackUpTableModel.SIZE_DIFF_COL_IDX, new BackupItemSizeComparator());
 		sorter.setComparator(BackUpTableModel.GROUP_COL_IDX, new BackupItemGroupComparator());
+		return sorter;
 	}
 	
 	// Get the selected BackUpItem
@@ -91,7 +96,7 @@ public class BackUpJTable extends JTable {
 		return ((BackUpTableModel)getModel()).getBackUpItemAt(convertRowIndexToModel(rowIdxs[0]));
 	}
 	
-	private class BackupItemSizeComparator implements Comparator<AbstractBackUpItem> {
+	private static class BackupItemSizeComparator implements Comparator<AbstractBackUpItem> {
 
 		@Override
 		public int compare(AbstractBackUpItem o1, AbstractBackUpItem o2) {
@@ -107,7 +112,7 @@ public class BackUpJTable extends JTable {
 		
 	}
 	
-	private class BackupItemGroupComparator implements Comparator<AbstractBackUpItem> {
+	private static class BackupItemGroupComparator implements Comparator<AbstractBackUpItem> {
 
 		// Put Group first if the group has a single element
 		@Override
@@ -49,24 +49,19 @@ public class BackupFilesGui extends JFrame {
 	
 	private static final long serialVersionUID = -2691160306708075667L;
 
-	private static final String DEFAULT_PROP_FILE = "file:///FredericPersonnel/Program/PortableApps/BackUpFiles/backupFiles.properties";
-	
 	private static final Logger bLog = Logger.getLogger(BackupFilesGui.class.getName());
 
 	public static final int WINDOW_WIDTH = 1880;
 	public static final int WINDOW_HEIGHT = 1000;
 	
-	private static RunningContext runningContext;
-	
 	private static String PROPERTY_FILE_ARG_PREFIX = "-props=";
 	
-	private static String propertyFileUriString = DEFAULT_PROP_FILE;
-	
 	public static void main(String[] args) {
 		
+		// Without argument, the property file is the default one of the configuration
 		String propertyFileArgument = RunningContext.getProgramArgWithPrefix(PROPERTY_FILE_ARG_PREFIX, args);
 		if (propertyFileArgument != null) {
-			propertyFileUriString = propertyFileArgument;
+			Config.setPropertyFile(propertyFileArgument);
 		}
 		
 		EventQueue.invokeLater(new Runnable() {
@@ -81,17 +76,6 @@ public class BackupFilesGui extends JFrame {
 		});
 	}
 	
-	public static RunningContext getRunningContext() {
-		if (runningContext == null) {
-			runningContext = new RunningContext("org.fl.backupFiles", getPropertyFile());
-		}
-		return runningContext;
-	}
-	
-	private static String getPropertyFile() {
-		return propertyFileUriString;
-	}
-	
 	private BackupFilesGui() {
 		
 		// Tabbed Panel for configuration, tables and controls, and history
@@ -155,6 +139,16 @@ public class BackupFilesGui extends JFrame {
         public void windowClosing(WindowEvent e)
         {
         	terminateExecutor(Config.getScanExecutorService(), "executor for scan");
+        	terminateExecutor(Config.getScanForkJoinPool(), "fork/join pool for scan");
+        	if (Config.getContentCompareStage() != null) {
+        		terminateExecutor(Config.getContentCompareStage().getExecutorService(), "executor for content compare");
+        	}
+        	if (Config.getBackUpExecutorService() != null) {
+        		terminateExecutor(Config.getBackUpExecutorService(), "executor for back up");
+        	}
+        	if (Config.getParallelTreeCopier() != null) {
+        		terminateExecutor(Config.getParallelTreeCopier().getExecutorService(), "executor for tree copy");
+        	}
         	terminateExecutor(Config.getScheduler(), "scheduled executor for information refresh");
         }
         
@@ -41,8 +41,8 @@ import javax.swing.JPopupMenu;
 import org.fl.backupFiles.AbstractBackUpItem;
 import org.fl.backupFiles.BackUpItem;
 import org.fl.backupFiles.BackUpItemGroup;
+import org.fl.backupFiles.CustomAction;
 import org.fl.backupFiles.OsAction;
-import org.fl.backupFiles.gui.BackUpItemCustomActionListener.CustomAction;
 
 public class BackupItemMouseAdapter extends MouseAdapter {
 
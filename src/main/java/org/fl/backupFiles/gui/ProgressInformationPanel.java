@@ -45,6 +45,7 @@ public class ProgressInformationPanel extends JPanel {
 	private final JLabel 			lblStatus ;
 	private final JLabel 			lblStatusDate ;
 	private final JLabel 			lblNum ;
+	private final JLabel 			lblCopyProgress ;
 	private final DateTimeFormatter dateFranceFormat;
 	
 	private final static String dateFrancePattern = " EEEE dd MMMM uuuu à HH:mm:ss" ;
@@ -113,6 +114,12 @@ public class ProgressInformationPanel extends JPanel {
 		numPane.add(lblNumTitle) ;
 		numPane.add(lblNum) ;
 		infoStep.add(numPane) ;
+		
+		// Débit et temps restant par unité de stockage
+		lblCopyProgress = new JLabel() ;
+		lblCopyProgress.setFont(progressInfoFont) ;
+		lblCopyProgress.setAlignmentX(Component.LEFT_ALIGNMENT) ;
+		infoStep.add(lblCopyProgress) ;
 		add(infoStep) ;
 	}
 
@@ -121,6 +128,10 @@ public class ProgressInformationPanel extends JPanel {
 		 lblNum.setText(Long.toString(num));
 	}
 	
+	public void setCopyProgressInfos(String info) {
+		lblCopyProgress.setText(info);
+	}
+	
 	public void setProcessStatus(String st) {
 		lblStatus.setText(st) ;
 		lblStatusDate.setText(dateFranceFormat.format(LocalDateTime.now()));
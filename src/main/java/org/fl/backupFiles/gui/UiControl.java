@@ -32,16 +32,19 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.logging.Logger;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
 import javax.swing.JPanel;
 
 import org.fl.backupFiles.BackUpJob.JobTaskType;
 import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.Config;
 import org.fl.backupFiles.JobsChoice;
 import org.fl.backupFiles.gui.workers.FilesBackUpProcessor;
 import org.fl.backupFiles.gui.workers.FilesBackUpScanner;
@@ -54,6 +57,7 @@ public class UiControl extends JPanel {
 	
 	private final JButton scanButton;
 	private final JButton bckpUpButton;
+	private final JButton planBckpUpButton;
 	private final JButton stopButton;
 
 	private final JCheckBox compareContentSelect;
@@ -78,12 +82,15 @@ public class UiControl extends JPanel {
 		isRunning = b ;
 		if (isRunning) {
 			bckpUpButton.setBackground(Color.ORANGE);
+			planBckpUpButton.setBackground(Color.ORANGE);
 			scanButton.setBackground(Color.ORANGE);
 		} else {
 			bckpUpButton.setBackground(Color.GREEN);
+			planBckpUpButton.setBackground(Color.GREEN);
 			scanButton.setBackground(Color.GREEN);
 		}
 		bckpUpButton.setEnabled(!isRunning);
+		planBckpUpButton.setEnabled(!isRunning);
 		scanButton.setEnabled(!isRunning);
 		stopButton.setEnabled(isRunning);
 	}
@@ -134,16 +141,19 @@ public class UiControl extends JPanel {
 		bckpUpButton = new JButton("Sauvegarde");
 		scanButton = new JButton("Comparaison");
 		stopButton = new JButton("Stop");
+		planBckpUpButton = new JButton("Sauvegarde depuis un plan");
 		Font buttonFont = new Font("Verdana", Font.BOLD, 24);
 		bckpUpButton.setFont(buttonFont);
 		scanButton.setFont(buttonFont);
 		stopButton.setFont(buttonFont);
+		planBckpUpButton.setFont(new Font("Verdana", Font.BOLD, 14));
 		setButtonForEmpyTasks();
 
 		ControlAction controlAction = new ControlAction(this);
 		bckpUpButton.addActionListener(controlAction);
 		scanButton.addActionListener(controlAction);
 		stopButton.addActionListener(controlAction);
+		planBckpUpButton.addActionListener(controlAction);
 		
 		c.gridx = 0;
 		c.gridy = 2;
@@ -155,6 +165,10 @@ public class UiControl extends JPanel {
 		c.gridx = 3;
 		c.ipadx = 200;
 		add(bckpUpButton, c);
+		c.gridx = 3;
+		c.gridy = 3;
+		c.ipadx = 0;
+		add(planBckpUpButton, c);
 	}
 
 	public void setJobChoice(JobsChoice jc) {
@@ -172,6 +186,8 @@ public class UiControl extends JPanel {
 	private void setButtonForEmpyTasks() {
 		bckpUpButton.setBackground(Color.GREEN);
 		bckpUpButton.setEnabled(false);
+		planBckpUpButton.setBackground(Color.GREEN);
+		planBckpUpButton.setEnabled(false);
 		scanButton.setBackground(Color.GREEN);
 		scanButton.setEnabled(false);
 		stopButton.setBackground(Color.RED);
@@ -200,6 +216,16 @@ public class UiControl extends JPanel {
 				progressPanel.setProcessStatus(SAUVEGARDE_EN_COURS) ;
 				fProcess.execute() ;
 				
+			} else if (ae.getSource() == planBckpUpButton) {
+				Path planFile = chooseBackUpPlan();
+				if (planFile != null) {
+					bLog.fine("Back up of the back up plan " + planFile + " launched");
+					uiControl.setIsRunning(true);
+					
+					FilesBackUpProcessor fProcess = new FilesBackUpProcessor(uiControl, jobTaskType, jobsChoice, backUpTableModel, progressPanel, backUpJobInfoTableModel, planFile);
+					progressPanel.setProcessStatus(SAUVEGARDE_EN_COURS) ;
+					fProcess.execute() ;
+				}
 			} else if (ae.getSource() == scanButton) {				
 				bLog.fine("Scan action launched");
 				uiControl.setIsRunning(true);
@@ -213,7 +239,21 @@ public class UiControl extends JPanel {
 			}  else if (ae.getSource() == stopButton) {	
 			 	stopAsked = true;
 			}		
-		}		
+		}
+		
+		private Path chooseBackUpPlan() {
+			
+			JFileChooser planChooser = new JFileChooser();
+			planChooser.setDialogTitle("Choix du plan de sauvegarde");
+			if (Config.getPlanExportDir() != null) {
+				planChooser.setCurrentDirectory(Config.getPlanExportDir().toFile());
+			}
+			if (planChooser.showOpenDialog(uiControl) == JFileChooser.APPROVE_OPTION) {
+				return planChooser.getSelectedFile().toPath();
+			} else {
+				return null;
+			}
+		}
 	}	
 
 }
@@ -24,6 +24,7 @@ SOFTWARE.
 
 package org.fl.backupFiles.gui.workers;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import org.fl.backupFiles.scanner.ScannerThreadResponse;
@@ -32,11 +33,15 @@ public class BackUpScannerResult {
 
 	private final List<ScannerThreadResponse> taskResults;
 	private final long duration;
+	
+	// Exported back up plan, null if there is no export or if it has failed
+	private final Path planFile;
 
-	public BackUpScannerResult(List<ScannerThreadResponse> tr, long d) {	
+	public BackUpScannerResult(List<ScannerThreadResponse> tr, long d, Path pf) {	
 		super();
 		taskResults = tr;
 		duration = d;
+		planFile = pf;
 	}
 
 	public List<ScannerThreadResponse> getTaskResults() {
@@ -46,5 +51,9 @@ public class BackUpScannerResult {
 	public long getDuration() {
 		return duration;
 	}
+
+	public Path getPlanFile() {
+		return planFile;
+	}
 	
 }
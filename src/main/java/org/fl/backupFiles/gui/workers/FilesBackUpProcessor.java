@@ -24,18 +24,19 @@ SOFTWARE.
 
 package org.fl.backupFiles.gui.workers;
 
-import java.util.Iterator;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
-import org.fl.backupFiles.AbstractBackUpItem;
 import org.fl.backupFiles.BackUpCounters;
 import org.fl.backupFiles.BackUpItemList;
 import org.fl.backupFiles.BackUpJobInformation;
 import org.fl.backupFiles.Config;
+import org.fl.backupFiles.FilesBackUpEngine;
 import org.fl.backupFiles.JobsChoice;
 import org.fl.backupFiles.OperationType;
 import org.fl.backupFiles.BackUpJob.JobTaskType;
@@ -43,6 +44,9 @@ import org.fl.backupFiles.gui.BackUpJobInfoTableModel;
 import org.fl.backupFiles.gui.BackUpTableModel;
 import org.fl.backupFiles.gui.ProgressInformationPanel;
 import org.fl.backupFiles.gui.UiControl;
+import org.fl.backupFiles.plan.BackUpJournal;
+import org.fl.backupFiles.plan.BackUpJournal.ResumableBackUp;
+import org.fl.backupFiles.plan.BackUpPlanReader;
 
 public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Integer>  {
 
@@ -59,25 +63,39 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 	private final JobsChoice jobsChoice;
 	private final JobTaskType jobTaskType;
 
-	private final int refreshRate;
-	private final long maxRefreshInterval;
-
 	private final BackUpCounters backUpCounters;
+	
+	// Back up engine, shared with the headless runner
+	private final FilesBackUpEngine filesBackUpEngine;
+	
+	// Back up plan to execute instead of the back up items of the table (null if the back up items of the table are executed)
+	private final Path planFile;
+	
+	// When there is no back up item in the table, an interrupted back up is resumed if there is one
+	private final boolean resumeIfInterrupted;
 
 	private final static String NB_ELEM = "Nombre d'éléments restant à traiter: ";
+	private final static String BYTES_PROCESSED = "<br/>Données copiées (Mo) : ";
+	private final static String BYTES_TO_PROCESS = " sur ";
 	private final static String PROCESSED_ELEM = "<br/>Eléments déjà traités : ";
+	private final static long MEGA_BYTE = 1024*1024;
 		
 	public FilesBackUpProcessor(UiControl u,  JobTaskType jtt, JobsChoice jc, BackUpTableModel b, ProgressInformationPanel pip, BackUpJobInfoTableModel bj) {
+		this(u, jtt, jc, b, pip, bj, null);
+	}
+	
+	// Back up of the back up items of a back up plan exported by a previous scan
+	public FilesBackUpProcessor(UiControl u,  JobTaskType jtt, JobsChoice jc, BackUpTableModel b, ProgressInformationPanel pip, BackUpJobInfoTableModel bj, Path pf) {
 
 		super();
+		planFile = pf;
 		uiControl = u;
 		backUpTableModel = b;
-		refreshRate = Config.getBackUpRefreshRate();
-		maxRefreshInterval = Config.getBackUpMaxRefreshInterval();
 		progressPanel = pip;
 
 		// back up items
 		backUpItemList = backUpTableModel.getBackUpItems();
+		resumeIfInterrupted = (planFile == null) && backUpItemList.isEmpty();
 
 		jobsChoice = jc;
 		jobTaskType = jtt;
@@ -85,6 +103,7 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 		backUpJobInfoTableModel = bj;
 
 		backUpCounters = new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.BACKUP);
+		filesBackUpEngine = new FilesBackUpEngine(jobsChoice.getTasks(jobTaskType), backUpItemList, backUpCounters);
 	}
 
 	@Override
@@ -93,26 +112,57 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 		long startTime = System.currentTimeMillis();
 		pLog.info("Back up triggered for " + jobsChoice.getTitleAsString());
 
-		boolean backupSuccess = true;
-		backUpCounters.reset();
-		int nbActionDone = 0;
-		Iterator<AbstractBackUpItem> backupItemIterator = backUpItemList.iterator();
-		long lastRefreshTime = System.currentTimeMillis();
-
-		while ((backupItemIterator.hasNext()) && (!uiControl.isStopAsked())) {
-			if (((nbActionDone % refreshRate) == 0)
-					|| (System.currentTimeMillis() - lastRefreshTime > maxRefreshInterval)) {
-				publish(nbActionDone);
-				lastRefreshTime = System.currentTimeMillis();
-			}
-			backupSuccess &= backupItemIterator.next().execute(backUpCounters);
-			nbActionDone++;
+		if (planFile != null) {
+			importBackUpPlan();
+		} else if (resumeIfInterrupted) {
+			resumeBackUp();
 		}
+		filesBackUpEngine.setBackUpJournal(BackUpJournal.start(jobTaskType, jobsChoice.getTasks(jobTaskType), backUpItemList));
+		
+		boolean backupSuccess = filesBackUpEngine.backUp(uiControl::isStopAsked, this::publish);
 
 		long duration = System.currentTimeMillis() - startTime;
 		return new BackUpProcessorResult(backupSuccess, duration);
 	}
 	
+	// The back up items of the plan are read in this thread, and replace the back up items of the table in the event dispatch thread
+	private void importBackUpPlan() throws Exception {
+		
+		BackUpItemList planBackUpItemList = BackUpItemList.build();
+		BackUpPlanReader backUpPlanReader = newBackUpPlanReader();
+		backUpPlanReader.read(planFile, planBackUpItemList);
+		pLog.info("Back up plan " + planFile + " imported: " + planBackUpItemList.size() + " back up items, " + backUpPlanReader.getNbStaleBackUpItems() + " back up items not valid anymore");
+		
+		setBackUpItems(planBackUpItemList);
+	}
+	
+	// The back up items of an interrupted back up that have not been done yet are read in this thread
+	private void resumeBackUp() throws Exception {
+		
+		ResumableBackUp resumableBackUp = BackUpJournal.getResumableBackUp(jobTaskType, jobsChoice.getTasks(jobTaskType));
+		if (resumableBackUp != null) {
+			BackUpItemList remainingBackUpItemList = BackUpItemList.build();
+			BackUpPlanReader backUpPlanReader = newBackUpPlanReader();
+			backUpPlanReader.read(resumableBackUp, remainingBackUpItemList);
+			pLog.info("Interrupted back up resumed: " + remainingBackUpItemList.size() + " back up items remaining, " + backUpPlanReader.getNbAlreadyDoneBackUpItems() + " back up items already done, " + backUpPlanReader.getNbStaleBackUpItems() + " back up items not valid anymore");
+			
+			setBackUpItems(remainingBackUpItemList);
+		}
+	}
+	
+	private BackUpPlanReader newBackUpPlanReader() {
+		return new BackUpPlanReader(jobTaskType, jobsChoice.getTasks(jobTaskType), new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.SCAN));
+	}
+	
+	private void setBackUpItems(BackUpItemList newBackUpItemList) throws Exception {
+		
+		SwingUtilities.invokeAndWait(() -> {
+			backUpItemList.clear();
+			backUpItemList.addAll(newBackUpItemList);
+			backUpTableModel.fireTableDataChanged();
+		});
+	}
+	
 	@Override
 	protected void process(java.util.List<Integer> chunks) {
 
@@ -124,10 +174,13 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 		StringBuilder infos = new StringBuilder(1024);
 		infos.append(HTML_BEGIN);
 		infos.append(NB_ELEM).append(backUpItemList.size() - latestResult);
+		infos.append(BYTES_PROCESSED).append(backUpCounters.getNbBytesProcessed()/MEGA_BYTE).append(BYTES_TO_PROCESS).append(filesBackUpEngine.getNbBytesToCopy()/MEGA_BYTE);
 		infos.append(PROCESSED_ELEM);
+		// the counters may be updated by the parallel back up executor: they are displayed from a snapshot
 		backUpCounters.appendCounterInfoInHtml(infos);
 		infos.append(HTML_END);
 		progressPanel.setStepInfos(infos.toString(), latestResult);     
+		progressPanel.setCopyProgressInfos(getCopyProgressHtml());
 	}
 	 
 	@Override
@@ -147,10 +200,11 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 			finalStatus.append(" - ");
 			finalStatus.append(jobsChoice.getTitleAsString());
 			finalStatus.append(")");
-			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed + backUpCounters.nbTargetFilesProcessed;
+			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum();
 			String scanResult = getProcessorInfoHtml(result.getDuration());
 			progressPanel.setStepInfos(scanResult, nbFilesProcessed);
 			progressPanel.setProcessStatus(finalStatus.toString());
+			progressPanel.setCopyProgressInfos(getCopyProgressHtml());
 
 			// Log info
 			pLog.info(getProcessorInfoText(result.getDuration()));
@@ -185,12 +239,25 @@ public class FilesBackUpProcessor extends SwingWorker<BackUpProcessorResult,Inte
 		return procInfo.toString();
 	}
 
+	private String getCopyProgressHtml() {
+		
+		backUpCounters.getTargetFileStores().sampleThroughput();
+		StringBuilder copyProgress = new StringBuilder(1024);
+		copyProgress.append(HTML_BEGIN);
+		backUpCounters.appendCopyProgressInHtml(copyProgress);
+		Config.getIoScheduler().appendMetricsHtml(copyProgress);
+		copyProgress.append(HTML_END);
+		return copyProgress.toString();
+	}
+	
 	private String getProcessorInfoText(long duration) {
 
 		StringBuilder procInfo = new StringBuilder(1024);
 		procInfo.append(jobsChoice.getTitleAsString()).append(jobTaskType.toString()).append("\n");
 		backUpCounters.appendInfoText(procInfo);
-		procInfo.append("\nProcess duration (ms)= ").append(duration).append("\n");
+		procInfo.append("\nProcess duration (ms)= ").append(duration);
+		Config.getIoScheduler().appendMetricsText(procInfo);
+		procInfo.append("\n");
 		return procInfo.toString();
 	}
 }
@@ -24,31 +24,35 @@ SOFTWARE.
 
 package org.fl.backupFiles.gui.workers;
 
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
+import org.fl.backupFiles.AbstractBackUpItem;
 import org.fl.backupFiles.BackUpCounters;
 import org.fl.backupFiles.BackUpJob.JobTaskType;
 import org.fl.backupFiles.gui.BackUpJobInfoTableModel;
 import org.fl.backupFiles.gui.BackUpTableModel;
 import org.fl.backupFiles.gui.ProgressInformationPanel;
 import org.fl.backupFiles.gui.UiControl;
-import org.fl.backupFiles.scanner.BackUpScannerTask;
-import org.fl.backupFiles.scanner.BackUpScannerThread;
+import org.fl.backupFiles.plan.BackUpPlanWriter;
+import org.fl.backupFiles.scanner.FilesScanEngine;
 import org.fl.backupFiles.scanner.ScannerThreadResponse;
 import org.fl.backupFiles.BackUpItemList;
 import org.fl.backupFiles.BackUpJobInformation;
-import org.fl.backupFiles.BackUpTask;
 import org.fl.backupFiles.Config;
 import org.fl.backupFiles.JobsChoice;
 import org.fl.backupFiles.OperationType;
@@ -57,6 +61,8 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 
 	private static final Logger pLog = Logger.getLogger(FilesBackUpScanner.class.getName());
 	
+	private static final DateTimeFormatter planFileDateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+	
 	private final UiControl uiControl;
 
 	private final BackUpTableModel backUpTableModel;
@@ -67,11 +73,21 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 	private final JobsChoice jobsChoice;
 	private final JobTaskType jobTaskType;
 
-	private List<Path> filesVisitFailed;
-
 	private final long refreshRate;
 	private final BackUpCounters backUpCounters;
 	
+	// Scan engine, shared with the headless runner
+	private final FilesScanEngine filesScanEngine;
+	
+	// Back up items drained (and exported) by the background threads, added to the table by the event dispatch thread
+	private final Queue<List<AbstractBackUpItem>> drainedBackUpItems;
+	
+	// The sizes of the trees to copy or delete may arrive after the end of the scan
+	private final AtomicBoolean sizeDifferenceRefreshPending;
+	private boolean scanEnded;
+	private boolean individualCountersChecked;
+	private long scanDuration;
+	
 	public FilesBackUpScanner(UiControl u, JobTaskType jtt, JobsChoice jc, BackUpTableModel b, ProgressInformationPanel pip, BackUpJobInfoTableModel bj)  {
 		
 		super();
@@ -88,6 +104,13 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 		backUpJobInfoTableModel = bj;
 
 		backUpCounters = new BackUpCounters(jobsChoice.getTargetFileStores(), OperationType.SCAN);
+		filesScanEngine = new FilesScanEngine(jobsChoice.getTasks(jobTaskType), backUpCounters);
+		
+		drainedBackUpItems = new ConcurrentLinkedQueue<>();
+		sizeDifferenceRefreshPending = new AtomicBoolean(false);
+		scanEnded = false;
+		individualCountersChecked = false;
+		filesScanEngine.setSizeDifferenceListener(this::sizeDifferenceKnown);
 	}
 
 	@Override
@@ -97,91 +120,85 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 		pLog.info("Scan triggered for " + jobsChoice.getTitleAsString());
 		backUpItemList.clear();
 
-		backUpCounters.reset();
-
-		filesVisitFailed = new ArrayList<Path>();
-
 		long startTime = System.currentTimeMillis();
 		Path sourcePath = null;
-		List<BackUpTask> backUpTasks = jobsChoice.getTasks(jobTaskType);
 	
 		List<ScannerThreadResponse> scannerThreadResponse = null; 
+		Path planFile = null;
 		try {
-			if (backUpTasks != null) {
-				
-				// Launch scanner tasks
-				List<BackUpScannerTask> results = backUpTasks.stream()
-					.map(backupTask ->  new BackUpScannerThread(backupTask))
-					.map(backUpScannerThread -> new BackUpScannerTask(backUpScannerThread, CompletableFuture.supplyAsync(backUpScannerThread::scan, Config.getScanExecutorService())))
-					.collect(Collectors.toList());
+			startBackUpPlanExport();
+			
+			// Launch scanner tasks. The back up items are drained as soon as they are streamed, and by the progress reporting
+			filesScanEngine.drainOnDemand(drainedBackUpItems::offer);
+			filesScanEngine.startScan();
+			if (filesScanEngine.hasScannerTasks()) {
 
 				// Report scanner task progress
-				ScannerProgress scannerProgress = new ScannerProgress(results);
+				ScannerProgress scannerProgress = new ScannerProgress();
 				ScheduledFuture<?> progressRecordTask = Config.getScheduler().scheduleAtFixedRate(scannerProgress::getProgress, 0, refreshRate, TimeUnit.MILLISECONDS);
 
 				// Wait scanner tasks completion
-				scannerThreadResponse = results.stream().map(r -> r.getFutureResponse()).map(CompletableFuture::join).collect(Collectors.toList());
+				scannerThreadResponse = filesScanEngine.waitScanEnd();
 
-				// Stop progress reporting
-				progressRecordTask.cancel(true);
+				// Stop progress reporting (without interrupting it: the back up plan may be exported by the progress task)
+				progressRecordTask.cancel(false);
+				
+				// Replace the new sources identical to targets to delete by moves (if the moves are detected)
+				filesScanEngine.detectMoves();
+				
+				// Drain the back up items that may have not been drained yet
+				filesScanEngine.drainStreamedBackUpItems(drainedBackUpItems::offer);
 			} 
 		} catch (Exception e) {
 			pLog.log(Level.SEVERE, "IOException when walking file tree " + sourcePath, e) ;
+		} finally {
+			// All the back up items have been drained
+			planFile = filesScanEngine.endBackUpPlanExport();
 		}
 		long duration = System.currentTimeMillis() - startTime ;
 				
-		return new BackUpScannerResult(scannerThreadResponse, duration);
+		return new BackUpScannerResult(scannerThreadResponse, duration, planFile);
+	}
+	
+	// Export of the back up plan, if a back up plan export directory is configured
+	private void startBackUpPlanExport() {
+		
+		Path planExportDir = Config.getPlanExportDir();
+		if (planExportDir != null) {
+			Path planFile = planExportDir.resolve("backUpPlan_" + jobTaskType.name() + "_" + LocalDateTime.now().format(planFileDateFormatter) + Config.getPlanFormat().getExtension());
+			try {
+				filesScanEngine.setBackUpPlanWriter(BackUpPlanWriter.open(planFile, jobTaskType, jobsChoice.getTasks(jobTaskType)));
+			} catch (IOException e) {
+				pLog.log(Level.SEVERE, "Exception opening the back up plan " + planFile + ". The back up plan is not exported", e);
+			}
+		}
 	}
 	
 	private class ScannerProgress {
 	
 		private final StringBuilder jobProgress;
-		private final List<BackUpScannerTask> results;	
 		
-		public ScannerProgress(List<BackUpScannerTask> results) {
+		public ScannerProgress() {
 			super();
-			this.results = results;
 			jobProgress = new StringBuilder(1024);
 		}
 
 		public void getProgress() {
 
-			if (results != null) {
-				
-				jobProgress.setLength(0);
-				jobProgress.append(HTML_BEGIN);
-				for (BackUpScannerTask oneResult : results) {
-					
-					if (oneResult != null) {
-						
-						if (! oneResult.isResultRecorded()) {
-							CompletableFuture<ScannerThreadResponse> futureResponse = oneResult.getFutureResponse();
-							if ((futureResponse != null) && (futureResponse.isDone())) {
-							// one backUpTask has finished																			
-							// publish task result
-								try {
-									publish(new BackupScannerInformation(null, futureResponse.get()));
-									oneResult.setResultRecorded(true) ;
-								} catch (InterruptedException | ExecutionException e) {
-									pLog.log(Level.SEVERE, "Exception getting task results", e);
-								}	
-							}
-						}
-						
-						BackUpScannerThread backupScannerThread = oneResult.getBackUpScannerThread();
-						if (backupScannerThread != null) {
-							backupScannerThread.stopAsked(uiControl.isStopAsked());
-							
-							// publish intermediate result of the scanner thread
-							jobProgress.append(backupScannerThread.getCurrentStatus()).append("<br/>");
-						}
-					}
-				}
-				jobProgress.append(HTML_END);
+			// publish the results of the tasks which have finished and the intermediate results of the scanner threads
+			List<String> currentStatus = filesScanEngine.getProgress(uiControl.isStopAsked(), 
+					scannerThreadResponse -> publish(new BackupScannerInformation(null, scannerThreadResponse)));
+			
+			// Drain and export the back up items streamed by the scanner threads. They are added to the table by process()
+			filesScanEngine.drainStreamedBackUpItems(drainedBackUpItems::offer);
+			
+			jobProgress.setLength(0);
+			jobProgress.append(HTML_BEGIN);
+			currentStatus.forEach(status -> jobProgress.append(status).append("<br/>"));
+			jobProgress.append(HTML_END);
 				
-				// Refresh progress information
-				publish(new BackupScannerInformation(jobProgress.toString(), null));
-			}
+			// Refresh progress information
+			publish(new BackupScannerInformation(jobProgress.toString(), null));
 		}
 	}
 	
@@ -191,21 +208,22 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 		for (BackupScannerInformation scannerInfo : chunks) {
 			
 			ScannerThreadResponse scannerResp = scannerInfo.getScannerThreadResponse();
-			if ((scannerResp != null) && (scannerResp.hasNotBeenProcessed())) {
+			if (scannerResp != null) {
 				// One scanner thread has ended
-				// It is necessary to test if the result has not been processed
-				// because done() may have been called before
-				processScannerThreadResponse(scannerResp);
+				// The result may have been processed already because done() may have been called before
+				filesScanEngine.processScannerThreadResponse(scannerResp);
 			}
 		}
 		
+		// Add the back up items drained from the scanner threads
+		addDrainedBackUpItems();
+		
 		// Get the latest result from the list
 		BackupScannerInformation latestResult = chunks.get(chunks.size() - 1);
 
-		backUpTableModel.fireTableDataChanged();
 		String lastInfo = latestResult.getInformation();
 		if ((lastInfo != null) && (!lastInfo.isEmpty())) {
-			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed + backUpCounters.nbTargetFilesProcessed;
+			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum();
 			progressPanel.setStepInfos(lastInfo, nbFilesProcessed);
 		}
 	}
@@ -225,36 +243,35 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 				progressPanel.setProcessStatus("Aucune taches à effectuer");
 			} else {
 								
-				int sumOfRes = taskResults.stream()
-					.mapToInt(backRes -> {
-						// count number of backup items
-						if (backRes.hasNotBeenProcessed()) {
-							// Process the response that may have not been processed
-							processScannerThreadResponse(backRes);
-						}
-						return backRes.getBackUpItemList().size(); })
-					.sum() ;
+				// Process the responses that may have not been processed and count the number of backup items
+				int sumOfRes = filesScanEngine.processScannerThreadResponses(taskResults);
+				
+				// Add the back up items that may have not been added yet
+				addDrainedBackUpItems();
+				Path planFile = results.getPlanFile();
 																	
-				// Check number of backup items
+				// Check number of backup items (each move replaces 2 back up items)
+				sumOfRes = sumOfRes - filesScanEngine.getNbMovesDetected();
 				if (sumOfRes != backUpItemList.size()) {
 					pLog.severe("Erreur, nombre de résultats de scan recalculé =" + sumOfRes + " différent du nombre stocké =" + backUpItemList.size());
 				}
 				
-				// Check backUpCounters against backUpItemList (if they are not equals there is a suspicion that a BackUpItem is not part of the BackUpItemList)
-				BackUpCounters sumIndividualCounters = backUpItemList.sumIndividualCounters();
-				if (! sumIndividualCounters.equalsIndividualCounters(backUpCounters)) {
-					pLog.severe("Erreur, la somme des compteurs individuels depuis la liste des BackUpItems est différente des compteurs individuels du Scanner");
-				}
+				checkIndividualCounters();
 				
 				// Update progress info panel
+				scanEnded = true;
+				scanDuration = duration;
 				String scannerInfoHtml = getScanInfoHtml(duration);
-				long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed + backUpCounters.nbTargetFilesProcessed;
+				long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum();
 				StringBuilder finalStatus = new StringBuilder();
 				finalStatus.append("Comparaison de fichiers terminée (");
 				finalStatus.append(jobTaskType.toString());
 				finalStatus.append(" - ");
 				finalStatus.append(jobsChoice.getTitleAsString());
 				finalStatus.append(")");
+				if (planFile != null) {
+					finalStatus.append(" - plan exporté: ").append(planFile.getFileName());
+				}
 				progressPanel.setStepInfos(scannerInfoHtml, nbFilesProcessed);
 				progressPanel.setProcessStatus(finalStatus.toString());
 				
@@ -282,12 +299,51 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 		uiControl.setIsRunning(false);
 	}
 	  
-	private void processScannerThreadResponse(ScannerThreadResponse scannerResp) {
-		backUpCounters.add(scannerResp.getBackUpCounters());
-		filesVisitFailed.addAll(scannerResp.getFilesVisitFailed());
-		backUpItemList.addAll(scannerResp.getBackUpItemList());
+	// Called by the folder size stage threads when the size of a tree is known
+	// The table, and the scan informations if the scan has ended, are refreshed by the event dispatch thread
+	private void sizeDifferenceKnown() {
 		
-		scannerResp.setHasNotBeenProcessed(false) ;
+		if (sizeDifferenceRefreshPending.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(() -> {
+				sizeDifferenceRefreshPending.set(false);
+				int nbRows = backUpTableModel.getRowCount();
+				if (nbRows > 0) {
+					backUpTableModel.fireTableRowsUpdated(0, nbRows - 1);
+				}
+				if (scanEnded && ! filesScanEngine.hasPendingSizeDifferences()) {
+					checkIndividualCounters();
+					long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum();
+					progressPanel.setStepInfos(getScanInfoHtml(scanDuration), nbFilesProcessed);
+				}
+			});
+		}
+	}
+	
+	// Check backUpCounters against backUpItemList (if they are not equals there is a suspicion that a BackUpItem is not part of the BackUpItemList)
+	// The check is done once, when the scan has ended and all the sizes of trees are known (called by the event dispatch thread)
+	private void checkIndividualCounters() {
+		
+		if (! individualCountersChecked && ! filesScanEngine.hasPendingSizeDifferences()) {
+			individualCountersChecked = true;
+			BackUpCounters sumIndividualCounters = backUpItemList.sumIndividualCounters();
+			if (! sumIndividualCounters.equalsIndividualCounters(backUpCounters)) {
+				pLog.severe("Erreur, la somme des compteurs individuels depuis la liste des BackUpItems est différente des compteurs individuels du Scanner");
+			}
+		}
+	}
+	
+	// Insert the back up items drained by the background threads in the table (called by the event dispatch thread)
+	private void addDrainedBackUpItems() {
+		
+		int firstRow = backUpItemList.size();
+		List<AbstractBackUpItem> backUpItems;
+		while ((backUpItems = drainedBackUpItems.poll()) != null) {
+			backUpItemList.addAll(backUpItems);
+		}
+		int nbItemsAdded = backUpItemList.size() - firstRow;
+		if (nbItemsAdded > 0) {
+			backUpTableModel.fireTableRowsInserted(firstRow, firstRow + nbItemsAdded - 1);
+		}
 	}
 	
 	private static final String HTML_BEGIN = "<html><body>\n";
@@ -299,26 +355,21 @@ public class FilesBackUpScanner extends SwingWorker<BackUpScannerResult,BackupSc
 		scanInfo.append(HTML_BEGIN);
 		backUpCounters.appendCounterAndFileStoreInfoInHtml(scanInfo);
 		scanInfo.append("<p>Durée de la comparaison (ms)= ").append(duration);
-		if ((filesVisitFailed != null) && (!filesVisitFailed.isEmpty())) {
+		List<Path> filesVisitFailed = filesScanEngine.getFilesVisitFailed();
+		if (!filesVisitFailed.isEmpty()) {
 			scanInfo.append("<br>Fichiers visités en erreur:");
 			for (Path fileOnError : filesVisitFailed) {
 				scanInfo.append("<br>").append(fileOnError);
 			}
 		}
+		Config.getIoScheduler().appendMetricsHtml(scanInfo);
 		scanInfo.append(HTML_END);
 		return scanInfo.toString();
 	}
 
 	private String getScanInfoText(StringBuilder scanInfo, long duration) {
 
-		backUpCounters.appendInfoText(scanInfo);
-		scanInfo.append("\nScan duration (ms)= ").append(duration);
-		if ((filesVisitFailed != null) && (!filesVisitFailed.isEmpty())) {
-			scanInfo.append("\nFichiers visités en erreur:");
-			for (Path fileOnError : filesVisitFailed) {
-				scanInfo.append("\n").append(fileOnError);
-			}
-		}
+		filesScanEngine.appendScanInfoText(scanInfo, duration);
 		return scanInfo.toString();
 	}
 
@@ -0,0 +1,287 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpItemGroup;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+import org.fl.backupFiles.Config;
+
+// Write-ahead journal of a back up, to resume it if it is interrupted (application closed or crashed)
+// When a back up starts, its back up items are saved in a back up plan, and the journal is created with the checksum of this plan.
+// Then each back up item executed is appended to the journal (action, paths and result).
+// The journal is synchronized on the disk by batches (every syncBatchSize records or syncInterval milliseconds), 
+// so that it does not slow down the back up of small files. The last records may be lost in case of crash: their back up items are executed again if still valid.
+// The plan and the journal are deleted when all the back up items have been processed
+// There is a plan and a journal for each job task type and selection of back up tasks: a back up is resumed only for the same back up tasks
+public class BackUpJournal {
+
+	private static final Logger jLog = Logger.getLogger(BackUpJournal.class.getName());
+	
+	private static final int JOURNAL_MAGIC = 0x424B4A4E;
+	private static final int JOURNAL_VERSION = 1;
+	
+	private static final String JOURNAL_FILE_PREFIX = "backUpJournal_";
+	private static final String JOURNAL_EXTENSION = ".journal";
+	
+	private static final BackupAction[] backupActions = BackupAction.values();
+	
+	private final Path planFile;
+	private final Path journalFile;
+	private final FileOutputStream journalFileStream;
+	private final DataOutputStream journalStream;
+	private final int syncBatchSize;
+	private final long syncInterval;
+	
+	private int nbUnsyncedRecords;
+	private long lastSyncTime;
+	private boolean failed;
+	
+	private BackUpJournal(Path planFile, Path journalFile, long planChecksum) throws IOException {
+		
+		this.planFile = planFile;
+		this.journalFile = journalFile;
+		syncBatchSize = Config.getJournalSyncBatchSize();
+		syncInterval = Config.getJournalSyncInterval();
+		
+		journalFileStream = new FileOutputStream(journalFile.toFile());
+		journalStream = new DataOutputStream(new BufferedOutputStream(journalFileStream));
+		journalStream.writeInt(JOURNAL_MAGIC);
+		journalStream.writeInt(JOURNAL_VERSION);
+		journalStream.writeLong(planChecksum);
+		sync();
+		failed = false;
+	}
+	
+	// Save the back up items in a back up plan and create the journal of their execution
+	// Returns null if the journal directory is not configured, if there is no back up item or if the journal cannot be created
+	// When there is no back up item, the journal and the plan of a previous back up are deleted
+	public static BackUpJournal start(JobTaskType jobTaskType, List<BackUpTask> backUpTasks, BackUpItemList backUpItemList) {
+		
+		Path journalDir = Config.getJournalDir();
+		if (journalDir == null) {
+			return null;
+		}
+		Path planFile = getPlanFile(journalDir, jobTaskType, backUpTasks);
+		Path journalFile = getJournalFile(journalDir, jobTaskType, backUpTasks);
+		if (backUpItemList.isEmpty()) {
+			// Nothing to resume anymore (for instance a resumed back up whose items are all done or stale)
+			deleteJournalAndPlan(journalFile, planFile);
+			return null;
+		}
+		try {
+			Files.createDirectories(journalDir);
+			
+			// The journal of a previous back up is not valid anymore
+			Files.deleteIfExists(journalFile);
+			try (BackUpPlanWriter backUpPlanWriter = BackUpPlanWriter.open(planFile, jobTaskType, backUpTasks)) {
+				backUpPlanWriter.write(backUpItemList);
+			}
+			return new BackUpJournal(planFile, journalFile, getChecksum(planFile));
+		} catch (IOException e) {
+			jLog.log(Level.SEVERE, "Exception creating the back up journal " + journalFile + ". The back up will not be resumable", e);
+			return null;
+		}
+	}
+	
+	// Record the result of a back up item. May be called by the parallel back up executor threads
+	public synchronized void record(AbstractBackUpItem backUpItem, boolean success) {
+		
+		if (failed) {
+			return;
+		}
+		try {
+			if (backUpItem instanceof BackUpItemGroup backUpItemGroup) {
+				for (AbstractBackUpItem groupItem : backUpItemGroup.getBackUpItems()) {
+					writeRecord(groupItem, groupItem.getBackupStatus() == BackupStatus.DONE);
+				}
+			} else {
+				writeRecord(backUpItem, success);
+			}
+			long now = System.currentTimeMillis();
+			if ((nbUnsyncedRecords >= syncBatchSize) || (now - lastSyncTime >= syncInterval)) {
+				sync();
+			}
+		} catch (IOException e) {
+			jLog.log(Level.SEVERE, "Exception writing the back up journal " + journalFile + ". The back up will not be resumable", e);
+			failed = true;
+		}
+	}
+	
+	private void writeRecord(AbstractBackUpItem backUpItem, boolean success) throws IOException {
+		
+		journalStream.writeBoolean(success);
+		journalStream.writeByte(backUpItem.getBackupAction().ordinal());
+		journalStream.writeUTF(pathToString(backUpItem.getSourcePath()));
+		journalStream.writeUTF(pathToString(backUpItem.getTargetPath()));
+		nbUnsyncedRecords++;
+	}
+	
+	private void sync() throws IOException {
+		
+		journalStream.flush();
+		journalFileStream.getChannel().force(false);
+		nbUnsyncedRecords = 0;
+		lastSyncTime = System.currentTimeMillis();
+	}
+	
+	// End of the back up. If all the back up items have been processed, the journal and the plan are deleted. 
+	// Otherwise (back up stopped) they are kept to resume the back up
+	public synchronized void end(boolean allBackUpItemsProcessed) {
+		
+		try {
+			if (! failed) {
+				sync();
+			}
+		} catch (IOException e) {
+			jLog.log(Level.SEVERE, "Exception writing the back up journal " + journalFile, e);
+		} finally {
+			try {
+				journalStream.close();
+			} catch (IOException e) {
+				jLog.log(Level.WARNING, "Exception closing the back up journal " + journalFile, e);
+			}
+		}
+		if (allBackUpItemsProcessed || failed) {
+			deleteJournalAndPlan(journalFile, planFile);
+		}
+	}
+	
+	private static void deleteJournalAndPlan(Path journalFile, Path planFile) {
+		
+		try {
+			Files.deleteIfExists(journalFile);
+			Files.deleteIfExists(planFile);
+		} catch (IOException e) {
+			jLog.log(Level.WARNING, "Exception deleting the back up journal " + journalFile, e);
+		}
+	}
+	
+	// Back up interrupted, that may be resumed: the back up plan and the back up items already done
+	public record ResumableBackUp(Path planFile, Set<String> doneBackUpItems) {
+	}
+	
+	// Returns null if there is no interrupted back up for the job task type and the back up tasks
+	public static ResumableBackUp getResumableBackUp(JobTaskType jobTaskType, List<BackUpTask> backUpTasks) {
+		
+		Path journalDir = Config.getJournalDir();
+		if (journalDir == null) {
+			return null;
+		}
+		Path planFile = getPlanFile(journalDir, jobTaskType, backUpTasks);
+		Path journalFile = getJournalFile(journalDir, jobTaskType, backUpTasks);
+		if (! Files.exists(journalFile) || ! Files.exists(planFile)) {
+			return null;
+		}
+		
+		Set<String> doneBackUpItems = new HashSet<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+			
+			if ((in.readInt() != JOURNAL_MAGIC) || (in.readInt() != JOURNAL_VERSION)) {
+				jLog.warning("Invalid or obsolete back up journal " + journalFile + ". It is ignored");
+				return null;
+			}
+			if (in.readLong() != getChecksum(planFile)) {
+				jLog.warning("The back up journal " + journalFile + " does not correspond to the back up plan " + planFile + ". It is ignored");
+				return null;
+			}
+			try {
+				while (true) {
+					boolean success = in.readBoolean();
+					int actionOrdinal = in.readUnsignedByte();
+					in.readUTF();
+					String targetPath = in.readUTF();
+					if (success && (actionOrdinal < backupActions.length)) {
+						doneBackUpItems.add(getBackUpItemKey(backupActions[actionOrdinal], targetPath));
+					}
+				}
+			} catch (EOFException e) {
+				// End of the journal. The last record may be incomplete if the back up has been interrupted while it was written
+			}
+		} catch (IOException e) {
+			jLog.log(Level.WARNING, "Exception reading the back up journal " + journalFile + ". It is ignored", e);
+			return null;
+		}
+		return new ResumableBackUp(planFile, doneBackUpItems);
+	}
+	
+	static String getBackUpItemKey(BackupAction backupAction, String targetPath) {
+		return backupAction.name() + "|" + targetPath;
+	}
+	
+	private static String pathToString(Path path) {
+		return (path == null) ? "" : path.toAbsolutePath().toString();
+	}
+	
+	private static long getChecksum(Path file) throws IOException {
+		
+		try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(file), new CRC32())) {
+			in.transferTo(OutputStream.nullOutputStream());
+			return in.getChecksum().getValue();
+		}
+	}
+	
+	private static Path getPlanFile(Path journalDir, JobTaskType jobTaskType, List<BackUpTask> backUpTasks) {
+		return journalDir.resolve(getJournalName(jobTaskType, backUpTasks) + BackUpPlanFormat.BINARY.getExtension());
+	}
+	
+	private static Path getJournalFile(Path journalDir, JobTaskType jobTaskType, List<BackUpTask> backUpTasks) {
+		return journalDir.resolve(getJournalName(jobTaskType, backUpTasks) + JOURNAL_EXTENSION);
+	}
+	
+	// The name contains a checksum of the sources and targets of the back up tasks (whatever their order)
+	private static String getJournalName(JobTaskType jobTaskType, List<BackUpTask> backUpTasks) {
+		
+		CRC32 tasksChecksum = new CRC32();
+		backUpTasks.stream()
+			.map(backUpTask -> backUpTask.getSource().toAbsolutePath() + " => " + backUpTask.getTarget().toAbsolutePath() + "\n")
+			.sorted()
+			.forEach(task -> tasksChecksum.update(task.getBytes(StandardCharsets.UTF_8)));
+		return JOURNAL_FILE_PREFIX + jobTaskType.name() + "_" + String.format("%08x", tasksChecksum.getValue());
+	}
+}
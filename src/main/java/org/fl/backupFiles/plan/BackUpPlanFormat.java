@@ -0,0 +1,87 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+// The formats of the back up plans. The format of a back up plan file is given by its extension
+public enum BackUpPlanFormat {
+	
+	// One JSON object per line: a header line, then one line per back up item. Readable and processable by other tools
+	JSON_LINES(".jsonl") {
+		
+		@Override
+		BackUpPlanOutput newOutput(OutputStream out) {
+			return new JsonLinesBackUpPlan.Output(out);
+		}
+
+		@Override
+		BackUpPlanInput newInput(InputStream in) {
+			return new JsonLinesBackUpPlan.Input(in);
+		}
+	},
+	// Compact binary format, written with a DataOutputStream
+	BINARY(".bkplan") {
+		
+		@Override
+		BackUpPlanOutput newOutput(OutputStream out) {
+			return new BinaryBackUpPlan.Output(out);
+		}
+
+		@Override
+		BackUpPlanInput newInput(InputStream in) {
+			return new BinaryBackUpPlan.Input(in);
+		}
+	};
+	
+	private final String extension;
+	
+	private BackUpPlanFormat(String extension) {
+		this.extension = extension;
+	}
+	
+	public String getExtension() {
+		return extension;
+	}
+	
+	abstract BackUpPlanOutput newOutput(OutputStream out) throws IOException;
+	
+	abstract BackUpPlanInput newInput(InputStream in) throws IOException;
+	
+	// JSON_LINES if the extension of the file is unknown
+	public static BackUpPlanFormat getBackUpPlanFormat(Path planFile) {
+		
+		String fileName = planFile.getFileName().toString();
+		for (BackUpPlanFormat backUpPlanFormat : values()) {
+			if (fileName.endsWith(backUpPlanFormat.extension)) {
+				return backUpPlanFormat;
+			}
+		}
+		return JSON_LINES;
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.IllegalBackUpItemException;
+import org.fl.backupFiles.IllegalBackupActionException;
+import org.fl.backupFiles.plan.BackUpJournal.ResumableBackUp;
+import org.fl.backupFiles.scanner.PathPairBasicAttributes;
+import org.fl.util.file.FilesUtils;
+
+// Import of a back up plan, to execute it without scanning again
+// The back up items are rebuilt from the current state of the file systems: 
+// the entries that are not valid anymore (stale entries, the file system has changed since the plan export) are ignored
+public class BackUpPlanReader {
+
+	private static final Logger pLog = Logger.getLogger(BackUpPlanReader.class.getName());
+	
+	private final JobTaskType jobTaskType;
+	private final List<BackUpTask> backUpTasks;
+	private final BackUpCounters backUpCounters;
+	
+	private long nbStaleBackUpItems;
+	private long nbBackUpItemsRead;
+	private long nbAlreadyDoneBackUpItems;
+	
+	public BackUpPlanReader(JobTaskType jobTaskType, List<BackUpTask> backUpTasks, BackUpCounters backUpCounters) {
+		
+		this.jobTaskType = jobTaskType;
+		this.backUpTasks = backUpTasks;
+		this.backUpCounters = backUpCounters;
+	}
+
+	// Add the back up items of the plan to the back up item list
+	// Throws IOException if the plan file is invalid
+	public void read(Path planFile, BackUpItemList backUpItemList) throws IOException {
+		read(planFile, backUpItemList, Set.of(), false);
+	}
+	
+	// Add the back up items of an interrupted back up that have not been done yet
+	public void read(ResumableBackUp resumableBackUp, BackUpItemList backUpItemList) throws IOException {
+		read(resumableBackUp.planFile(), backUpItemList, resumableBackUp.doneBackUpItems(), true);
+	}
+	
+	private void read(Path planFile, BackUpItemList backUpItemList, Set<String> doneBackUpItems, boolean resumed) throws IOException {
+		
+		nbStaleBackUpItems = 0;
+		nbBackUpItemsRead = 0;
+		nbAlreadyDoneBackUpItems = 0;
+		backUpTasks.forEach(backUpTask -> backUpTask.getDirectoryGroupMap().clearBackUpItemsInDirectoryGroup());
+		
+		try (InputStream in = Files.newInputStream(planFile);
+			 BackUpPlanInput backUpPlanInput = BackUpPlanFormat.getBackUpPlanFormat(planFile).newInput(in)) {
+			
+			BackUpPlanHeader backUpPlanHeader = backUpPlanInput.readHeader();
+			if (! jobTaskType.name().equals(backUpPlanHeader.jobTaskType())) {
+				pLog.warning("The back up plan " + planFile + " has been exported for " + backUpPlanHeader.jobTaskType() + " and is imported for " + jobTaskType);
+			}
+			BackUpTask[] planTasks = matchBackUpTasks(backUpPlanHeader);
+			
+			BackUpPlanEntry backUpPlanEntry;
+			while ((backUpPlanEntry = backUpPlanInput.readEntry()) != null) {
+				nbBackUpItemsRead++;
+				int taskIndex = backUpPlanEntry.taskIndex();
+				if ((taskIndex < 0) || (taskIndex >= planTasks.length) || (planTasks[taskIndex] == null)) {
+					nbStaleBackUpItems++;
+				} else if (isAlreadyDone(planTasks[taskIndex], backUpPlanEntry, doneBackUpItems)) {
+					nbAlreadyDoneBackUpItems++;
+				} else {
+					BackUpItem backUpItem = buildBackUpItem(planTasks[taskIndex], backUpPlanEntry);
+					if ((backUpItem == null) && resumed) {
+						backUpItem = buildInterruptedBackUpItem(planTasks[taskIndex], backUpPlanEntry);
+					}
+					if (backUpItem == null) {
+						nbStaleBackUpItems++;
+					} else {
+						recordDeferredSizeDifference(backUpItem);
+						backUpItemList.add(backUpItem);
+					}
+				}
+			}
+		}
+		if (nbStaleBackUpItems > 0) {
+			pLog.warning(nbStaleBackUpItems + " back up items of the back up plan " + planFile + " are not valid anymore and have been ignored");
+		}
+	}
+	
+	// The size of the trees to copy or delete may be computed later by the folder size stage
+	private void recordDeferredSizeDifference(BackUpItem backUpItem) {
+		if (backUpItem.hasDeferredSizeDifference()) {
+			backUpItem.whenSizeDifferenceKnown(() -> backUpItem.recordSizeDifference(backUpCounters));
+		}
+	}
+	
+	// The tasks of the plan are matched with the back up tasks by their source and target paths
+	private BackUpTask[] matchBackUpTasks(BackUpPlanHeader backUpPlanHeader) {
+		
+		BackUpTask[] planTasks = new BackUpTask[backUpPlanHeader.getNbTasks()];
+		for (int i = 0; i < planTasks.length; i++) {
+			String taskSource = backUpPlanHeader.taskSources().get(i);
+			String taskTarget = backUpPlanHeader.taskTargets().get(i);
+			planTasks[i] = backUpTasks.stream()
+					.filter(backUpTask -> 
+						backUpTask.getSource().toAbsolutePath().toString().equals(taskSource) &&
+						backUpTask.getTarget().toAbsolutePath().toString().equals(taskTarget))
+					.findFirst()
+					.orElse(null);
+			if (planTasks[i] == null) {
+				pLog.warning("The back up task " + taskSource + " => " + taskTarget + " of the back up plan is not in the selected jobs. Its back up items are ignored");
+			}
+		}
+		return planTasks;
+	}
+	
+	private boolean isAlreadyDone(BackUpTask backUpTask, BackUpPlanEntry backUpPlanEntry, Set<String> doneBackUpItems) {
+		
+		if (doneBackUpItems.isEmpty() || (backUpPlanEntry.targetPath() == null)) {
+			return false;
+		}
+		Path targetPath = resolve(backUpTask.getTarget(), backUpPlanEntry.targetPath());
+		return doneBackUpItems.contains(BackUpJournal.getBackUpItemKey(backUpPlanEntry.backupAction(), targetPath.toAbsolutePath().toString()));
+	}
+	
+	// The copy may have been interrupted before it was recorded in the journal: the target may be incomplete
+	// A new file is copied again over its partial copy. A partial tree is completed by the parallel tree copier if there is one,
+	// otherwise it is deleted, then the tree is copied again
+	private BackUpItem buildInterruptedBackUpItem(BackUpTask backUpTask, BackUpPlanEntry backUpPlanEntry) {
+		
+		if (backUpPlanEntry.backupAction() == BackupAction.COPY_NEW) {
+			return buildBackUpItem(backUpTask, withBackUpAction(backUpPlanEntry, BackupAction.COPY_REPLACE));
+		} else if (backUpPlanEntry.backupAction() == BackupAction.COPY_TREE) {
+			Path sourcePath = resolve(backUpTask.getSource(), backUpPlanEntry.sourcePath());
+			Path targetPath = resolve(backUpTask.getTarget(), backUpPlanEntry.targetPath());
+			if ((sourcePath != null) && (targetPath != null) && 
+				Files.isDirectory(sourcePath) && Files.isDirectory(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+				if (Config.getParallelTreeCopier() != null) {
+					try {
+						return BackUpItem.ofInterruptedTreeCopy(new PathPairBasicAttributes(sourcePath, targetPath), backUpPlanEntry.backupStatus(), backUpCounters, backUpTask);
+					} catch (IllegalBackUpItemException e) {
+						pLog.fine("Stale back up plan item " + BackupAction.COPY_TREE + " " + sourcePath + " => " + targetPath + ": " + e.getMessage());
+						return null;
+					}
+				}
+				try {
+					if (FilesUtils.deleteDirectoryTree(targetPath, true, pLog)) {
+						pLog.info("Partial copy of an interrupted tree copy deleted: " + targetPath);
+						return buildBackUpItem(backUpTask, backUpPlanEntry);
+					}
+					pLog.severe("Fail to delete the partial copy of an interrupted tree copy: " + targetPath);
+				} catch (Exception e) {
+					pLog.log(Level.SEVERE, "Exception deleting the partial copy of an interrupted tree copy: " + targetPath, e);
+				}
+			}
+		}
+		return null;
+	}
+	
+	private static BackUpPlanEntry withBackUpAction(BackUpPlanEntry backUpPlanEntry, BackupAction backupAction) {
+		return new BackUpPlanEntry(backUpPlanEntry.taskIndex(), backupAction, backUpPlanEntry.backupStatus(), 
+				backUpPlanEntry.sourcePath(), backUpPlanEntry.targetPath(), backUpPlanEntry.sourceClosestExistingPath(), backUpPlanEntry.sizeDifference(), backUpPlanEntry.movedTargetPath());
+	}
+	
+	private BackUpItem buildBackUpItem(BackUpTask backUpTask, BackUpPlanEntry backUpPlanEntry) {
+		
+		Path sourcePath = resolve(backUpTask.getSource(), backUpPlanEntry.sourcePath());
+		Path targetPath = resolve(backUpTask.getTarget(), backUpPlanEntry.targetPath());
+		BackupAction backupAction = backUpPlanEntry.backupAction();
+		try {
+			PathPairBasicAttributes pathPairBasicAttributes = new PathPairBasicAttributes(sourcePath, targetPath);
+			if ((backupAction == BackupAction.DELETE) || (backupAction == BackupAction.DELETE_DIR)) {
+				Path sourceClosestExistingPath = resolve(backUpTask.getSource(), backUpPlanEntry.sourceClosestExistingPath());
+				if (sourceClosestExistingPath == null) {
+					return null;
+				}
+				return new BackUpItem(pathPairBasicAttributes, backupAction, new PathPairBasicAttributes(sourceClosestExistingPath, null), backUpCounters, backUpTask);
+			} else if (backupAction == BackupAction.MOVE) {
+				return new BackUpItem(pathPairBasicAttributes, resolve(backUpTask.getTarget(), backUpPlanEntry.movedTargetPath()), backUpCounters, backUpTask);
+			} else {
+				return new BackUpItem(pathPairBasicAttributes, backupAction, backUpPlanEntry.backupStatus(), backUpCounters, backUpTask);
+			}
+		} catch (IllegalBackUpItemException | IllegalBackupActionException e) {
+			pLog.fine("Stale back up plan item " + backupAction + " " + sourcePath + " => " + targetPath + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private static Path resolve(Path basePath, String path) {
+		
+		if (path == null) {
+			return null;
+		} else {
+			return basePath.resolve(path);
+		}
+	}
+	
+	public long getNbStaleBackUpItems() {
+		return nbStaleBackUpItems;
+	}
+	
+	public long getNbBackUpItemsRead() {
+		return nbBackUpItemsRead;
+	}
+	
+	public long getNbAlreadyDoneBackUpItems() {
+		return nbAlreadyDoneBackUpItems;
+	}
+}
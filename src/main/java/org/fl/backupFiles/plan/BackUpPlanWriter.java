@@ -0,0 +1,189 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemGroup;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpTask;
+
+// Export of the back up items found by a scan in a back up plan, that can be executed later without scanning again
+// The back up items are written while they are streamed by the scan. 
+// The back up item groups may still receive back up items after they have been streamed: they are written when the plan is closed
+public class BackUpPlanWriter implements Closeable {
+
+	private static final Logger pLog = Logger.getLogger(BackUpPlanWriter.class.getName());
+	
+	private final Path planFile;
+	private final Path tmpPlanFile;
+	private final BackUpPlanOutput backUpPlanOutput;
+	private final Map<BackUpTask, Integer> taskIndexes;
+	private final List<BackUpTask> backUpTasks;
+	private final List<BackUpItemGroup> deferredBackUpItemGroups;
+	private long nbBackUpItemsWritten;
+	private boolean closed;
+	
+	private BackUpPlanWriter(Path planFile, BackUpPlanOutput backUpPlanOutput, Path tmpPlanFile, List<BackUpTask> backUpTasks) {
+		
+		this.planFile = planFile;
+		this.tmpPlanFile = tmpPlanFile;
+		this.backUpPlanOutput = backUpPlanOutput;
+		this.backUpTasks = backUpTasks;
+		taskIndexes = new HashMap<>();
+		for (int i = 0; i < backUpTasks.size(); i++) {
+			taskIndexes.putIfAbsent(backUpTasks.get(i), i);
+		}
+		deferredBackUpItemGroups = new ArrayList<>();
+		nbBackUpItemsWritten = 0;
+		closed = false;
+	}
+	
+	// The format of the back up plan is given by the extension of the plan file
+	public static BackUpPlanWriter open(Path planFile, JobTaskType jobTaskType, List<BackUpTask> backUpTasks) throws IOException {
+		
+		Path tmpPlanFile = planFile.resolveSibling(planFile.getFileName() + ".tmp");
+		OutputStream out = Files.newOutputStream(tmpPlanFile);
+		BackUpPlanOutput backUpPlanOutput = BackUpPlanFormat.getBackUpPlanFormat(planFile).newOutput(out);
+		BackUpPlanWriter backUpPlanWriter = new BackUpPlanWriter(planFile, backUpPlanOutput, tmpPlanFile, backUpTasks);
+		try {
+			backUpPlanOutput.writeHeader(new BackUpPlanHeader(
+					jobTaskType.name(), 
+					backUpTasks.stream().map(backUpTask -> backUpTask.getSource().toAbsolutePath().toString()).toList(), 
+					backUpTasks.stream().map(backUpTask -> backUpTask.getTarget().toAbsolutePath().toString()).toList()));
+		} catch (IOException e) {
+			backUpPlanOutput.close();
+			Files.deleteIfExists(tmpPlanFile);
+			throw e;
+		}
+		return backUpPlanWriter;
+	}
+	
+	public void write(List<? extends AbstractBackUpItem> backUpItems) throws IOException {
+		
+		for (AbstractBackUpItem backUpItem : backUpItems) {
+			write(backUpItem);
+		}
+	}
+	
+	public void write(AbstractBackUpItem backUpItem) throws IOException {
+		
+		if (backUpItem instanceof BackUpItemGroup backUpItemGroup) {
+			deferredBackUpItemGroups.add(backUpItemGroup);
+		} else {
+			writeBackUpItem(backUpItem);
+		}
+	}
+	
+	// The size difference of a tree still being computed by the folder size stage is not waited for (it is computed again when the plan is read)
+	private void writeBackUpItem(AbstractBackUpItem backUpItem) throws IOException {
+		
+		Integer taskIndex = taskIndexes.get(backUpItem.getBackUpTask());
+		if (taskIndex == null) {
+			pLog.warning("Back up item of an unknown back up task not written in the back up plan: " + backUpItem.getTargetPath());
+			return;
+		}
+		BackUpTask backUpTask = backUpTasks.get(taskIndex);
+		backUpPlanOutput.writeEntry(new BackUpPlanEntry(
+				taskIndex, 
+				backUpItem.getBackupAction(), 
+				backUpItem.getBackupStatus(), 
+				relativize(backUpTask.getSource(), backUpItem.getSourcePath()), 
+				relativize(backUpTask.getTarget(), backUpItem.getTargetPath()), 
+				relativize(backUpTask.getSource(), backUpItem.getSourceClosestExistingPath()), 
+				backUpItem.getSizeDifference(),
+				(backUpItem instanceof BackUpItem item) ? relativize(backUpTask.getTarget(), item.getMovedTargetPath()) : null));
+		nbBackUpItemsWritten++;
+	}
+	
+	// Paths outside of the base path are kept absolute
+	private static String relativize(Path basePath, Path path) {
+		
+		if (path == null) {
+			return null;
+		} else if (path.startsWith(basePath)) {
+			return basePath.relativize(path).toString();
+		} else {
+			return path.toAbsolutePath().toString();
+		}
+	}
+	
+	public long getNbBackUpItemsWritten() {
+		return nbBackUpItemsWritten;
+	}
+	
+	public Path getPlanFile() {
+		return planFile;
+	}
+	
+	// Write the deferred back up item groups and replace the back up plan file
+	@Override
+	public void close() throws IOException {
+		
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			for (BackUpItemGroup backUpItemGroup : deferredBackUpItemGroups) {
+				for (AbstractBackUpItem backUpItem : backUpItemGroup.getBackUpItems()) {
+					if (backUpItem instanceof BackUpItem) {
+						writeBackUpItem(backUpItem);
+					}
+				}
+			}
+			deferredBackUpItemGroups.clear();
+		} finally {
+			backUpPlanOutput.close();
+		}
+		Files.move(tmpPlanFile, planFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	// Abandon the back up plan: the back up plan file is not written (an existing one is kept)
+	public void abort() throws IOException {
+		
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			backUpPlanOutput.close();
+		} finally {
+			Files.deleteIfExists(tmpPlanFile);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+
+// Compact binary back up plan: a header, then the back up items, each one preceded by a marker byte. 
+// The actions and status are written with their ordinal
+final class BinaryBackUpPlan {
+
+	private static final int PLAN_MAGIC = 0x424B504C;
+	// The version 2 adds the moved target path of the entries
+	private static final int PLAN_VERSION = 2;
+	
+	private static final byte ENTRY_MARKER = 1;
+	private static final byte END_MARKER = 0;
+	
+	private static final BackupAction[] backupActions = BackupAction.values();
+	private static final BackupStatus[] backupStatus = BackupStatus.values();
+	
+	private BinaryBackUpPlan() {
+	}
+	
+	static class Output implements BackUpPlanOutput {
+		
+		private final DataOutputStream out;
+		
+		Output(OutputStream outputStream) {
+			out = new DataOutputStream(new BufferedOutputStream(outputStream));
+		}
+
+		@Override
+		public void writeHeader(BackUpPlanHeader backUpPlanHeader) throws IOException {
+			
+			out.writeInt(PLAN_MAGIC);
+			out.writeInt(PLAN_VERSION);
+			out.writeUTF(backUpPlanHeader.jobTaskType());
+			out.writeInt(backUpPlanHeader.getNbTasks());
+			for (int i = 0; i < backUpPlanHeader.getNbTasks(); i++) {
+				out.writeUTF(backUpPlanHeader.taskSources().get(i));
+				out.writeUTF(backUpPlanHeader.taskTargets().get(i));
+			}
+		}
+
+		@Override
+		public void writeEntry(BackUpPlanEntry backUpPlanEntry) throws IOException {
+			
+			out.writeByte(ENTRY_MARKER);
+			out.writeInt(backUpPlanEntry.taskIndex());
+			out.writeByte(backUpPlanEntry.backupAction().ordinal());
+			out.writeByte(backUpPlanEntry.backupStatus().ordinal());
+			writeNullableString(backUpPlanEntry.sourcePath());
+			writeNullableString(backUpPlanEntry.targetPath());
+			writeNullableString(backUpPlanEntry.sourceClosestExistingPath());
+			out.writeLong(backUpPlanEntry.sizeDifference());
+			writeNullableString(backUpPlanEntry.movedTargetPath());
+		}
+		
+		private void writeNullableString(String value) throws IOException {
+			
+			out.writeBoolean(value != null);
+			if (value != null) {
+				out.writeUTF(value);
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			
+			try {
+				out.writeByte(END_MARKER);
+			} finally {
+				out.close();
+			}
+		}
+	}
+	
+	static class Input implements BackUpPlanInput {
+		
+		private final DataInputStream in;
+		private int planVersion;
+		
+		Input(InputStream inputStream) {
+			in = new DataInputStream(new BufferedInputStream(inputStream));
+		}
+
+		@Override
+		public BackUpPlanHeader readHeader() throws IOException {
+			
+			if (in.readInt() != PLAN_MAGIC) {
+				throw new IOException("Invalid or obsolete back up plan header");
+			}
+			planVersion = in.readInt();
+			if ((planVersion < 1) || (planVersion > PLAN_VERSION)) {
+				throw new IOException("Invalid or obsolete back up plan header");
+			}
+			String jobTaskType = in.readUTF();
+			int nbTasks = in.readInt();
+			List<String> taskSources = new ArrayList<>(nbTasks);
+			List<String> taskTargets = new ArrayList<>(nbTasks);
+			for (int i = 0; i < nbTasks; i++) {
+				taskSources.add(in.readUTF());
+				taskTargets.add(in.readUTF());
+			}
+			return new BackUpPlanHeader(jobTaskType, taskSources, taskTargets);
+		}
+
+		@Override
+		public BackUpPlanEntry readEntry() throws IOException {
+			
+			byte marker = in.readByte();
+			if (marker == END_MARKER) {
+				return null;
+			} else if (marker != ENTRY_MARKER) {
+				throw new IOException("Invalid back up plan entry marker " + marker);
+			}
+			int taskIndex = in.readInt();
+			int actionOrdinal = in.readUnsignedByte();
+			int statusOrdinal = in.readUnsignedByte();
+			if ((actionOrdinal >= backupActions.length) || (statusOrdinal >= backupStatus.length)) {
+				throw new IOException("Invalid back up plan entry action or status");
+			}
+			return new BackUpPlanEntry(
+					taskIndex, 
+					backupActions[actionOrdinal], 
+					backupStatus[statusOrdinal], 
+					readNullableString(), 
+					readNullableString(), 
+					readNullableString(), 
+					in.readLong(),
+					(planVersion > 1) ? readNullableString() : null);
+		}
+		
+		private String readNullableString() throws IOException {
+			
+			if (in.readBoolean()) {
+				return in.readUTF();
+			} else {
+				return null;
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Back up plan in JSON lines: a header line, then one line per back up item
+final class JsonLinesBackUpPlan {
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+	
+	private static final int PLAN_VERSION = 1;
+	
+	private static final String VERSION = "version";
+	private static final String JOB_TASK_TYPE = "jobTaskType";
+	private static final String TASKS = "tasks";
+	private static final String TASK = "task";
+	private static final String SOURCE = "source";
+	private static final String TARGET = "target";
+	private static final String SOURCE_CLOSEST_EXISTING = "sourceClosestExisting";
+	private static final String ACTION = "action";
+	private static final String STATUS = "status";
+	private static final String SIZE_DIFFERENCE = "sizeDifference";
+	private static final String MOVED_TARGET = "movedTarget";
+	
+	private JsonLinesBackUpPlan() {
+	}
+	
+	static class Output implements BackUpPlanOutput {
+		
+		private final BufferedWriter writer;
+		
+		Output(OutputStream out) {
+			writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void writeHeader(BackUpPlanHeader backUpPlanHeader) throws IOException {
+			
+			ObjectNode jHeader = mapper.createObjectNode();
+			jHeader.put(VERSION, PLAN_VERSION);
+			jHeader.put(JOB_TASK_TYPE, backUpPlanHeader.jobTaskType());
+			ArrayNode jTasks = jHeader.putArray(TASKS);
+			for (int i = 0; i < backUpPlanHeader.getNbTasks(); i++) {
+				ObjectNode jTask = mapper.createObjectNode();
+				jTask.put(SOURCE, backUpPlanHeader.taskSources().get(i));
+				jTask.put(TARGET, backUpPlanHeader.taskTargets().get(i));
+				jTasks.add(jTask);
+			}
+			writeLine(jHeader);
+		}
+
+		@Override
+		public void writeEntry(BackUpPlanEntry backUpPlanEntry) throws IOException {
+			
+			ObjectNode jEntry = mapper.createObjectNode();
+			jEntry.put(TASK, backUpPlanEntry.taskIndex());
+			jEntry.put(ACTION, backUpPlanEntry.backupAction().name());
+			jEntry.put(STATUS, backUpPlanEntry.backupStatus().name());
+			putIfNotNull(jEntry, SOURCE, backUpPlanEntry.sourcePath());
+			putIfNotNull(jEntry, TARGET, backUpPlanEntry.targetPath());
+			putIfNotNull(jEntry, SOURCE_CLOSEST_EXISTING, backUpPlanEntry.sourceClosestExistingPath());
+			jEntry.put(SIZE_DIFFERENCE, backUpPlanEntry.sizeDifference());
+			putIfNotNull(jEntry, MOVED_TARGET, backUpPlanEntry.movedTargetPath());
+			writeLine(jEntry);
+		}
+		
+		private void putIfNotNull(ObjectNode jNode, String property, String value) {
+			if (value != null) {
+				jNode.put(property, value);
+			}
+		}
+		
+		private void writeLine(JsonNode jNode) throws IOException {
+			writer.write(mapper.writeValueAsString(jNode));
+			writer.write('\n');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+	}
+	
+	static class Input implements BackUpPlanInput {
+		
+		private final BufferedReader reader;
+		
+		Input(InputStream in) {
+			reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public BackUpPlanHeader readHeader() throws IOException {
+			
+			JsonNode jHeader = readLine();
+			if (jHeader == null) {
+				throw new IOException("Empty back up plan");
+			} else if (! jHeader.has(VERSION) || (jHeader.get(VERSION).asInt() != PLAN_VERSION)) {
+				throw new IOException("Invalid or obsolete back up plan header");
+			}
+			List<String> taskSources = new ArrayList<>();
+			List<String> taskTargets = new ArrayList<>();
+			JsonNode jTasks = jHeader.get(TASKS);
+			if ((jTasks != null) && jTasks.isArray()) {
+				for (JsonNode jTask : jTasks) {
+					taskSources.add(getText(jTask, SOURCE));
+					taskTargets.add(getText(jTask, TARGET));
+				}
+			}
+			return new BackUpPlanHeader(getText(jHeader, JOB_TASK_TYPE), taskSources, taskTargets);
+		}
+
+		@Override
+		public BackUpPlanEntry readEntry() throws IOException {
+			
+			JsonNode jEntry = readLine();
+			if (jEntry == null) {
+				return null;
+			}
+			try {
+				return new BackUpPlanEntry(
+						jEntry.get(TASK).asInt(), 
+						BackupAction.valueOf(getText(jEntry, ACTION)), 
+						BackupStatus.valueOf(getText(jEntry, STATUS)), 
+						getText(jEntry, SOURCE), 
+						getText(jEntry, TARGET), 
+						getText(jEntry, SOURCE_CLOSEST_EXISTING), 
+						jEntry.has(SIZE_DIFFERENCE) ? jEntry.get(SIZE_DIFFERENCE).asLong() : 0,
+						getText(jEntry, MOVED_TARGET));
+			} catch (NullPointerException | IllegalArgumentException e) {
+				throw new IOException("Invalid back up plan entry " + jEntry, e);
+			}
+		}
+		
+		// Returns null at the end of the plan. Empty lines are ignored
+		private JsonNode readLine() throws IOException {
+			
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (! line.isBlank()) {
+					return mapper.readTree(line);
+				}
+			}
+			return null;
+		}
+		
+		private static String getText(JsonNode jNode, String property) {
+			
+			JsonNode jProperty = jNode.get(property);
+			if ((jProperty == null) || jProperty.isNull()) {
+				return null;
+			} else {
+				return jProperty.asText();
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -25,21 +25,24 @@ SOFTWARE.
 package org.fl.backupFiles.scanner;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.fl.backupFiles.AbstractBackUpItem;
 import org.fl.backupFiles.BackUpCounters;
 import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemGroup;
 import org.fl.backupFiles.BackUpItemList;
 import org.fl.backupFiles.BackUpTask;
 import org.fl.backupFiles.BackupAction;
@@ -47,13 +50,23 @@ import org.fl.backupFiles.BackupStatus;
 import org.fl.backupFiles.Config;
 import org.fl.backupFiles.OperationType;
 import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.fl.backupFiles.scanner.DirectoryScanResult.PendingContentCompare;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
 import org.fl.util.file.FileComparator;
 
 public class BackUpScannerThread {
 
 	private static final Logger pLog = Logger.getLogger(BackUpScannerThread.class.getName());
 	
-	private boolean stopAsked;
+	// Maximum number of back up items in a batch of streamed back up items
+	static final int STREAM_BATCH_SIZE = 1000;
+	
+	// Maximum number of batches waiting in the stream queue. When it is full, the scan waits for the queue to be drained
+	// A lock is taken only once for each batch, so the queue is not a contention point
+	private static final int STREAM_QUEUE_CAPACITY = 16;
+	
+	private volatile boolean stopAsked;
 
 	private List<Path> filesVisitFailed;
 
@@ -63,20 +76,42 @@ public class BackUpScannerThread {
 
 	private final BackUpTask backUpTask;
 
-	private final FileComparator fileComparator;
 	private final BackupAction acionOnSameTargetContentButNewer;
 	
-	private Path currentFile;	
+	private ScanStateIndex scanStateIndex;
+	
+	private volatile Path currentFile;	
 	private String status;	
 	private boolean done;
 	private final int maxDepth;
-	private int	currDepth;
+	
+	// Comparator of the file names, to pair source and target files
+	private final Comparator<String> nameComparator;
+	
+	private final DirectoryReader directoryReader;
+	
+	// Directory reads and content comparisons acquire the I/O permits of their file store
+	private final FileStorePermits ioScheduler;
+	
+	// Back up items streamed while the scan is running (if asked)
+	// The streamed back up items are removed from the back up item list, so that the scan does not hold them.
+	// The back up item groups are held until the end of the scan, because back up items may be added to them until then
+	private boolean streamBackUpItems;
+	private final BlockingQueue<List<AbstractBackUpItem>> streamedBackUpItems;
+	private final List<AbstractBackUpItem> heldBackUpItemGroups;
+	private volatile Runnable streamListener;
+	private int nbBackUpItemsStreamed;
+	private long lastStreamTime;
+	private final long streamInterval;
 
 	public BackUpScannerThread(BackUpTask but) {
 		
 		stopAsked = false;
 		backUpTask = but;
 		maxDepth = Config.getMaxDepth();
+		nameComparator = DirectoryListing.nameComparator(backUpTask.getSource().getFileSystem());
+		directoryReader = Config.getDirectoryReaderType().getDirectoryReader();
+		ioScheduler = Config.getIoScheduler();
 
 		TargetFileStores targetFileStores = new TargetFileStores();
 		targetFileStores.addTargetFileStore(backUpTask.getTarget(), Config.getFileStoreRemainingSpaceWarningThreshold());
@@ -84,10 +119,36 @@ public class BackUpScannerThread {
 		done = false;
 
 		status = backUpTask.toString() + " ";
-		fileComparator = new FileComparator(pLog);
 		acionOnSameTargetContentButNewer = Config.getAcionOnSameTargetContentButNewer();
+		
+		streamBackUpItems = false;
+		streamedBackUpItems = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+		heldBackUpItemGroups = new ArrayList<>();
+		streamListener = null;
+		streamInterval = Config.getScanRefreshRate();
+	}
+	
+	// If true, the back up items are put in batches in a queue while the scan is running
+	// The queue must be drained with pollStreamedBackUpItems while the scan is running, otherwise the scan waits when the queue is full
+	public void streamBackUpItems(boolean stream) {
+		streamBackUpItems = stream;
+	}
+	
+	// The listener is called by the scan thread each time a batch is put in the stream queue, so that the queue may be drained on demand.
+	// It should not wait for the drain, because the scan may wait for the drain when the queue is full
+	public void setStreamListener(Runnable streamListener) {
+		this.streamListener = streamListener;
+	}
+	
+	// Returns null if there is no batch of back up items waiting
+	public List<AbstractBackUpItem> pollStreamedBackUpItems() {
+		return streamedBackUpItems.poll();
 	}
 
+	public BackUpTask getBackUpTask() {
+		return backUpTask;
+	}
+	
 	public void stopAsked(boolean b) {
 		stopAsked = b;
 	}
@@ -97,7 +158,7 @@ public class BackUpScannerThread {
 		if (done) {
 			return status ;
 		} else {
-			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed + backUpCounters.nbTargetFilesProcessed ;
+			long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum() ;
 			return status + nbFilesProcessed + " " + currentFile ;
 		}
 	}
@@ -115,89 +176,223 @@ public class BackUpScannerThread {
 		filesVisitFailed = new ArrayList<Path>();
 
 		backUpItemList = BackUpItemList.build();
+		heldBackUpItemGroups.clear();
+		nbBackUpItemsStreamed = 0;
+		lastStreamTime = System.currentTimeMillis();
+		
+		scanStateIndex = backUpTask.getScanStateIndex();
+		if (scanStateIndex != null) {
+			scanStateIndex.startScan();
+		}
 		
 		try {
 			PathPairBasicAttributes pathPairBasicAttributes = new PathPairBasicAttributes(sourcePath, targetPath);
 			if (pathPairBasicAttributes.sourceIsDirectory()) {
-				currDepth = 0;
-				directoryCompare(pathPairBasicAttributes);
+				if (backUpTask.forkJoinScan()) {
+					forkJoinDirectoryCompare(pathPairBasicAttributes);
+				} else {
+					DirectoryScanResult result = new DirectoryScanResult(backUpItemList, backUpCounters, filesVisitFailed);
+					directoryCompare(pathPairBasicAttributes, 0, result, null);
+					applyContentCompareResults(result, true);
+				}
 			} else {
-				topLevelFileCompare(pathPairBasicAttributes);
+				DirectoryScanResult result = new DirectoryScanResult(backUpItemList, backUpCounters, filesVisitFailed);
+				topLevelFileCompare(pathPairBasicAttributes, result);
+				applyContentCompareResults(result, true);
 			}
 		} catch (Exception e) {
 			pLog.log(Level.SEVERE, "Exception when comparing directory " + sourcePath + " with " + targetPath, e);
 		}
-		backUpCounters.nbSourceFilesProcessed++;
+		backUpCounters.nbSourceFilesProcessed.increment();
+		streamNewBackUpItems(true);
+		
+		if (scanStateIndex != null) {
+			scanStateIndex.endScan();
+		}
 
-		long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed + backUpCounters.nbTargetFilesProcessed;
+		long nbFilesProcessed = backUpCounters.nbSourceFilesProcessed.sum() + backUpCounters.nbTargetFilesProcessed.sum();
 		status = status + "| Scan done ";
 		done = true;
+		if (backUpTask.forkJoinScan()) {
+			status = status + "in fork/join mode ";
+		}
 		if (backUpTask.compareContent()) {
 			status = status + "with content compare ";
 		} else if (backUpTask.compareContentOnAmbiguous()) {
 			status = status + "with content compare on ambiguous files ";
 		}
 		status = status + "| Number of files processed: " + nbFilesProcessed;
-		ScannerThreadResponse resp = new ScannerThreadResponse(backUpTask, backUpItemList, backUpCounters, filesVisitFailed, status);
+		if (scanStateIndex != null) {
+			status = status + " | Target directories read from scan state index: " + scanStateIndex.getNbDirectoriesFromIndex();
+		}
+		ScannerThreadResponse resp = new ScannerThreadResponse(backUpTask, backUpItemList, nbBackUpItemsStreamed + heldBackUpItemGroups.size() + backUpItemList.size(), backUpCounters, filesVisitFailed, status);
 		return resp ;
 	}
+	
+	// Walk directory tree with the scan fork/join pool : each sub directory pair is compared in a forked sub task,
+	// so that the idle threads of the pool may steal the sub directories of a huge back up task.
+	// The back up items are added to the back up item list once all the sub tasks are joined,
+	// because the directory groups used by BackUpItemList.add are not thread safe
+	private void forkJoinDirectoryCompare(PathPairBasicAttributes pathPairBasicAttributes) {
+		
+		DirectoryScanResult result = Config.getScanForkJoinPool().invoke(new DirectoryCompareTask(pathPairBasicAttributes, 0));
+		applyContentCompareResults(result, true);
+		
+		backUpCounters.add(result.getBackUpCounters());
+		filesVisitFailed.addAll(result.getFilesVisitFailed());
+		result.getBackUpItems().forEach(backUpItem -> {
+			backUpItemList.add(backUpItem);
+			streamNewBackUpItems(false);
+		});
+	}
+	
+	// Put the back up items added to the back up item list since the last call in the stream queue,
+	// in batches of STREAM_BATCH_SIZE items at most, and remove them from the back up item list.
+	// The back up item groups are put in the stream queue only at the end of the scan (streamAll true), once they are complete.
+	// A batch is streamed when it is full, or when the stream interval has elapsed, or at the end of the scan.
+	// Only called by the scan thread, which is the only one adding back up items to the back up item list
+	private void streamNewBackUpItems(boolean streamAll) {
 		
+		if (streamBackUpItems) {
+			int nbItemsToStream = backUpItemList.size() + (streamAll ? heldBackUpItemGroups.size() : 0);
+			if ((nbItemsToStream >= STREAM_BATCH_SIZE) || 
+				((nbItemsToStream > 0) && (streamAll || (System.currentTimeMillis() - lastStreamTime > streamInterval)))) {
+				
+				List<AbstractBackUpItem> backUpItemsToStream;
+				if (streamAll) {
+					backUpItemsToStream = new ArrayList<>(heldBackUpItemGroups);
+					backUpItemsToStream.addAll(backUpItemList);
+					heldBackUpItemGroups.clear();
+				} else {
+					backUpItemsToStream = new ArrayList<>(backUpItemList.size());
+					for (AbstractBackUpItem backUpItem : backUpItemList) {
+						if (backUpItem instanceof BackUpItemGroup) {
+							heldBackUpItemGroups.add(backUpItem);
+						} else {
+							backUpItemsToStream.add(backUpItem);
+						}
+					}
+				}
+				backUpItemList.clear();
+				
+				for (int batchStart = 0; batchStart < backUpItemsToStream.size(); batchStart += STREAM_BATCH_SIZE) {
+					int batchEnd = Math.min(batchStart + STREAM_BATCH_SIZE, backUpItemsToStream.size());
+					putInStream(new ArrayList<>(backUpItemsToStream.subList(batchStart, batchEnd)));
+				}
+				nbBackUpItemsStreamed += backUpItemsToStream.size();
+				lastStreamTime = System.currentTimeMillis();
+			}
+		}
+	}
+	
+	// Wait for some room in the stream queue, if it is full
+	private void putInStream(List<AbstractBackUpItem> backUpItems) {
+		
+		try {
+			streamedBackUpItems.put(backUpItems);
+			Runnable listener = streamListener;
+			if (listener != null) {
+				listener.run();
+			}
+		} catch (InterruptedException e) {
+			pLog.log(Level.SEVERE, "Interrupted when streaming the back up items of " + backUpTask, e);
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private class DirectoryCompareTask extends RecursiveTask<DirectoryScanResult> {
+
+		private static final long serialVersionUID = 1L;
+		
+		private final PathPairBasicAttributes pathPairBasicAttributes;
+		private final int depth;
+		
+		private DirectoryCompareTask(PathPairBasicAttributes pathPairBasicAttributes, int depth) {
+			this.pathPairBasicAttributes = pathPairBasicAttributes;
+			this.depth = depth;
+		}
+
+		@Override
+		protected DirectoryScanResult compute() {
+			
+			DirectoryScanResult result = new DirectoryScanResult(new ArrayList<>(), backUpCounters.forkCounters(), new ArrayList<Path>());
+			List<DirectoryCompareTask> subTasks = new ArrayList<>();
+			
+			directoryCompare(pathPairBasicAttributes, depth, result, subTasks);
+			
+			// Merge sub directories results
+			invokeAll(subTasks);
+			subTasks.forEach(subTask -> result.merge(subTask.join()));
+			return result;
+		}
+	}
+	
 	 // Walk directory tree without using SimpleFileVisitor class (much faster)
-	private void directoryCompare(PathPairBasicAttributes pathPairBasicAttributes) {
+	 // If subTasks is null, the sub directories are compared recursively in the current thread
+	 // otherwise a sub task is created for each sub directory to compare
+	private void directoryCompare(PathPairBasicAttributes pathPairBasicAttributes, int depth, DirectoryScanResult result, List<DirectoryCompareTask> subTasks) {
 		
 		boolean targetIsDirectory = true;
 		Path sourceDirectory = pathPairBasicAttributes.getSourcePath();
 		Path targetDirectory = pathPairBasicAttributes.getTargetPath();
+		BackUpCounters counters = result.getBackUpCounters();
 		
-		HashMap<Path,PathPairBasicAttributes> filesBasicAttributes = new HashMap<Path, PathPairBasicAttributes>();
+		DirectoryListing sourceListing = new DirectoryListing(sourceDirectory);
+		DirectoryListing targetListing = new DirectoryListing(targetDirectory);
 		
-		// Get source directory files attributes
+		// Get source directory files
 		if (! stopAsked) {
 			
-			 try (DirectoryStream<Path> sourceFileStream = Files.newDirectoryStream(sourceDirectory)) {
-				 
-				 for (Path sourceFile : sourceFileStream) {				 
-					 filesBasicAttributes.put(sourceFile.getFileName(), new PathPairBasicAttributes(sourceFile, null));
-				 }
+			 try (Permits ioPermits = ioScheduler.acquireUninterruptibly(backUpTask.getSourceFileStore(), null)) {
+				 directoryReader.read(sourceDirectory, sourceListing);
 			 } catch (Exception e) {
-				 backUpCounters.nbSourceFilesFailed++ ;
-				 filesVisitFailed.add(sourceDirectory) ;
+				 counters.nbSourceFilesFailed.increment() ;
+				 result.addFileVisitFailed(sourceDirectory) ;
 				pLog.log(Level.SEVERE, "Exception when scanning directory " + Objects.toString(sourceDirectory), e);
 			}
 		}
 		
-		// Get target directory files attributes
+		// Get target directory files
 		if (! stopAsked) {
 
 			if (pathPairBasicAttributes.targetIsDirectory()) {
-				try (DirectoryStream<Path> targetFileStream = Files.newDirectoryStream(targetDirectory)) {
-
-					for (Path targetFile : targetFileStream) {
-
-						Path targetFileName = targetFile.getFileName();
-
-						PathPairBasicAttributes pairFiles = filesBasicAttributes.get(targetFileName);
-						if (pairFiles == null) {
-							// no corresponding source file : target is to be deleted
-
-							PathPairBasicAttributes onlyTargetNotNull = new PathPairBasicAttributes(null, targetFile);
-							BackupAction action;
-							if (onlyTargetNotNull.targetIsDirectory()) {
-								action = BackupAction.DELETE_DIR;
-							} else {
-								action = BackupAction.DELETE;
+				
+				IndexedDirectory indexedDirectory = (scanStateIndex == null) ? null :
+					scanStateIndex.getUnchangedDirectory(targetDirectory, pathPairBasicAttributes.getTargetBasicAttributes());
+				
+				if (indexedDirectory != null) {
+					// target directory unchanged since the last scan : get its files attributes from the scan state index
+					for (int i = 0; i < indexedDirectory.size(); i++) {
+						targetListing.add(indexedDirectory.getName(i), indexedDirectory.getFileAttributes(i));
+					}
+				} else {
+					IndexedDirectory.Builder indexedDirectoryBuilder = (scanStateIndex == null) ? null :
+						new IndexedDirectory.Builder(pathPairBasicAttributes.getTargetBasicAttributes().lastModifiedTime());
+					
+					try {
+						try (Permits ioPermits = ioScheduler.acquireUninterruptibly(backUpTask.getTargetFileStore(), null)) {
+							directoryReader.read(targetDirectory, targetListing);
+						}
+						
+						if (indexedDirectoryBuilder != null) {
+							for (int i = 0; i < targetListing.size(); i++) {
+								BasicFileAttributes targetFileAttributes = targetListing.getAttributes(i);
+								if (targetFileAttributes == null) {
+									// the attributes are read now to be recorded in the scan state index
+									targetFileAttributes = readAttributesIfExists(targetListing.getPath(i));
+								}
+								indexedDirectoryBuilder.add(targetListing.getName(i), targetFileAttributes);
 							}
-							backUpItemList.add(new BackUpItem(onlyTargetNotNull, action, pathPairBasicAttributes, backUpCounters, backUpTask));
-
-						} else {
-							pairFiles.setTargetPath(targetFile);
 						}
-						backUpCounters.nbTargetFilesProcessed++; 
+						
+						if ((indexedDirectoryBuilder != null) && indexedDirectoryBuilder.isComplete()) {
+							scanStateIndex.recordDirectory(targetDirectory, indexedDirectoryBuilder.build());
+						}
+					} catch (IOException e) {
+						counters.nbTargetFilesFailed.increment(); 
+						result.addFileVisitFailed(targetDirectory);
+						pLog.log(Level.SEVERE, "Exception when scanning directory " + Objects.toString(targetDirectory), e);
 					}
-				} catch (IOException e) {
-					backUpCounters.nbTargetFilesFailed++; 
-					filesVisitFailed.add(targetDirectory);
-					pLog.log(Level.SEVERE, "Exception when scanning directory " + Objects.toString(targetDirectory), e);
 				}
 			} else {
 				
@@ -206,109 +401,242 @@ public class BackUpScannerThread {
 				// source is a directory but target is not : delete target and copy source tree
 					
 					pLog.warning("Source " + sourceDirectory + " is a directory\n" + "but target is not " + targetDirectory);
-					backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE, pathPairBasicAttributes, backUpCounters, backUpTask));
+					result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE, pathPairBasicAttributes, counters, backUpTask));
 				} else {
 					// source is a directory but target does not exists : copy source tree				
 					pLog.warning("Source " + sourceDirectory + " is a directory\n" + "but target does not exists " + targetDirectory);
 				}
-				backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_TREE, BackupStatus.DIFFERENT, backUpCounters, backUpTask)) ;
+				result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_TREE, BackupStatus.DIFFERENT, counters, backUpTask)) ;
 			}
 		}
 		
-		// Compare source and target
+		// Compare source and target : merge join of the source and target files sorted by name
 		if ((! stopAsked) && (targetIsDirectory)) {
-			for (Map.Entry<Path, PathPairBasicAttributes> entry : filesBasicAttributes.entrySet()) {
+			
+			sourceListing.sort(nameComparator);
+			targetListing.sort(nameComparator);
+			
+			int sourceIndex = 0;
+			int targetIndex = 0;
+			while ((sourceIndex < sourceListing.size()) || (targetIndex < targetListing.size())) {
 				
-				PathPairBasicAttributes pairBasicAttributes = entry.getValue();
-				Path srcPath = pairBasicAttributes.getSourcePath();
-				BasicFileAttributes sourceAttributes = pairBasicAttributes.getSourceBasicAttributes();			
-				currentFile = srcPath;
-				if (sourceAttributes != null) {
-					if (pairBasicAttributes.noTargetPath()) {
-						// no target file, copy source
-										
-						pairBasicAttributes.setTargetPath(targetDirectory.resolve(sourceDirectory.relativize(srcPath)));
-						
-						if (sourceAttributes.isDirectory()) {
-							// source is a directory
-							backUpItemList.add(new BackUpItem(pairBasicAttributes, BackupAction.COPY_TREE, BackupStatus.DIFFERENT, backUpCounters, backUpTask));							
+				int nameComparison;
+				if (sourceIndex >= sourceListing.size()) {
+					nameComparison = 1;
+				} else if (targetIndex >= targetListing.size()) {
+					nameComparison = -1;
+				} else {
+					nameComparison = nameComparator.compare(sourceListing.getName(sourceIndex), targetListing.getName(targetIndex));
+				}
+				
+				if (nameComparison > 0) {
+					// no corresponding source file : target is to be deleted
+					deleteTargetFile(targetListing.getPath(targetIndex), targetListing.getAttributes(targetIndex), pathPairBasicAttributes, result);
+					targetIndex++;
+				} else {
+					PathPairBasicAttributes pairBasicAttributes = new PathPairBasicAttributes(sourceListing.getPath(sourceIndex), sourceListing.getAttributes(sourceIndex), null);
+					if (nameComparison == 0) {
+						pairBasicAttributes.setTargetPath(targetListing.getPath(targetIndex), targetListing.getAttributes(targetIndex));
+						counters.nbTargetFilesProcessed.increment();
+						targetIndex++;
+					}
+					compareSourceFile(pairBasicAttributes, sourceListing.getName(sourceIndex), pathPairBasicAttributes, depth, result, subTasks);
+					sourceIndex++;
+				}
+			}
+		}
+		
+		applyContentCompareResults(result, false);
+		if (subTasks == null) {
+			// the back up items are directly added in the back up item list in sequential mode
+			streamNewBackUpItems(false);
+		}
+	}
+	
+	// Compare a source file with its target file, if any
+	private void compareSourceFile(PathPairBasicAttributes pairBasicAttributes, String sourceName, PathPairBasicAttributes pathPairBasicAttributes, 
+			int depth, DirectoryScanResult result, List<DirectoryCompareTask> subTasks) {
+		
+		BackUpCounters counters = result.getBackUpCounters();
+		Path srcPath = pairBasicAttributes.getSourcePath();
+		BasicFileAttributes sourceAttributes = pairBasicAttributes.getSourceBasicAttributes();			
+		currentFile = srcPath;
+		if (sourceAttributes != null) {
+			if (pairBasicAttributes.noTargetPath()) {
+				// no target file, copy source
+								
+				pairBasicAttributes.setTargetPath(pathPairBasicAttributes.getTargetPath().resolve(sourceName));
+				
+				if (sourceAttributes.isDirectory()) {
+					// source is a directory
+					result.addBackUpItem(new BackUpItem(pairBasicAttributes, BackupAction.COPY_TREE, BackupStatus.DIFFERENT, counters, backUpTask));							
+				} else {
+					// source is a file						
+					result.addBackUpItem(new BackUpItem(pairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, counters, backUpTask));						
+				}
+			} else {
+				
+				Path tgtPath = pairBasicAttributes.getTargetPath();
+				
+				if (sourceAttributes.isDirectory()) {
+					// source is a directory
+					
+					if (depth < maxDepth) {
+						if (subTasks == null) {
+							// recursively call directoryCompare
+							directoryCompare(pairBasicAttributes, depth + 1, result, null);
 						} else {
-							// source is a file						
-							backUpItemList.add(new BackUpItem(pairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask));						
+							// the sub directory will be compared in a sub task
+							subTasks.add(new DirectoryCompareTask(pairBasicAttributes, depth + 1));
 						}
 					} else {
-						
-						Path tgtPath = pairBasicAttributes.getTargetPath();
-						
-						if (sourceAttributes.isDirectory()) {
-							// source is a directory
-							
-							// recursively call directoryCompare
-							if (currDepth < maxDepth) {
-								currDepth++;
-								directoryCompare(pairBasicAttributes);
-								currDepth--;
-							} else {
-								pLog.severe("Directory max depth reached. Depth=" + currDepth + "\non source path " + srcPath);
-							}
-							
+						pLog.severe("Directory max depth reached. Depth=" + depth + "\non source path " + srcPath);
+					}
+					
+				} else {
+					// source is a file
+					
+					BasicFileAttributes targetAttributes = pairBasicAttributes.getTargetBasicAttributes();
+					
+					if (targetAttributes != null) {
+						if (targetAttributes.isDirectory()) {
+							// source is a file but target is a directory : delete target dir, copy source file 
+							pLog.warning("Source " + srcPath + " is a file\n" + "but target is a directory " + tgtPath);
+							result.addBackUpItem(new BackUpItem(pairBasicAttributes, BackupAction.DELETE_DIR, pathPairBasicAttributes, counters, backUpTask));
+							result.addBackUpItem(new BackUpItem(pairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, counters, backUpTask));
 						} else {
-							// source is a file
-							
-							BasicFileAttributes targetAttributes = pairBasicAttributes.getTargetBasicAttributes();
-							
-							if (targetAttributes != null) {
-								if (targetAttributes.isDirectory()) {
-									// source is a file but target is a directory : delete target dir, copy source file 
-									pLog.warning("Source " + srcPath + " is a file\n" + "but target is a directory " + tgtPath);
-									backUpItemList.add(new BackUpItem(pairBasicAttributes, BackupAction.DELETE_DIR, pathPairBasicAttributes, backUpCounters, backUpTask));
-									backUpItemList.add(new BackUpItem(pairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
-								} else {
-									compareFile(pairBasicAttributes);	
-								}
-							} else {
-								pLog.severe("Failed to get target file attributes for " + Objects.toString(tgtPath));
-								filesVisitFailed.add(tgtPath);
-							}
+							compareFile(pairBasicAttributes, result);	
 						}
+					} else {
+						pLog.severe("Failed to get target file attributes for " + Objects.toString(tgtPath));
+						result.addFileVisitFailed(tgtPath);
 					}
-					backUpCounters.nbSourceFilesProcessed++;
-				} else {
-					pLog.severe("Failed to get source file attributes for " + Objects.toString(srcPath));
-					filesVisitFailed.add(srcPath);
 				}
 			}
+			counters.nbSourceFilesProcessed.increment();
+		} else {
+			pLog.severe("Failed to get source file attributes for " + Objects.toString(srcPath));
+			result.addFileVisitFailed(srcPath);
+		}
+	}
+	
+	// A target file without corresponding source file is to be deleted
+	// If targetFileAttributes is null, the target file attributes will be read when needed
+	private void deleteTargetFile(Path targetFile, BasicFileAttributes targetFileAttributes, 
+			PathPairBasicAttributes parentPathPairBasicAttributes, DirectoryScanResult result) {
+		
+		BackUpCounters counters = result.getBackUpCounters();
+		PathPairBasicAttributes onlyTargetNotNull = new PathPairBasicAttributes(null, targetFile);
+		onlyTargetNotNull.setTargetPath(targetFile, targetFileAttributes);
+		BackupAction action;
+		if (onlyTargetNotNull.targetIsDirectory()) {
+			action = BackupAction.DELETE_DIR;
+		} else {
+			action = BackupAction.DELETE;
+		}
+		result.addBackUpItem(new BackUpItem(onlyTargetNotNull, action, parentPathPairBasicAttributes, counters, backUpTask));
+		counters.nbTargetFilesProcessed.increment(); 
+	}
+	
+	private BasicFileAttributes readAttributesIfExists(Path file) {
+		
+		try {
+			return file.getFileSystem().provider().readAttributesIfExists(file, BasicFileAttributes.class);
+		} catch (Exception e) {
+			pLog.log(Level.SEVERE, "Exception when getting basic file attributes of " + Objects.toString(file), e);
+			return null;
 		}
 	}
 	
 	private void compareFileContent(
 			PathPairBasicAttributes pathPairBasicAttributes, 
 			BackupAction backupActionOnDifferent,
-			BackupAction backupActionOnEqual) {
+			BackupAction backupActionOnEqual,
+			DirectoryScanResult result) {
+		
+		ContentCompareStage contentCompareStage = Config.getContentCompareStage();
+		ContentHashCache contentHashCache = Config.getContentHashCache();
+		if (contentCompareStage != null) {
+			// The content comparison is done by the content compare stage
+			// Its result will be taken into account by applyContentCompareResults
+			result.addPendingContentCompare(new PendingContentCompare(pathPairBasicAttributes, backupActionOnDifferent, backupActionOnEqual, 
+					contentCompareStage.compare(pathPairBasicAttributes.getSourcePath(), backUpTask.getSourceFileStore(), 
+							pathPairBasicAttributes.getTargetPath(), backUpTask.getTargetFileStore(), contentHashCache)));
+		} else {
+			ContentCompareResult contentCompareResult;
+			try (Permits ioPermits = ioScheduler.acquireUninterruptibly(backUpTask.getSourceFileStore(), backUpTask.getTargetFileStore())) {
+				if (contentHashCache != null) {
+					contentCompareResult = contentHashCache.compare(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath());
+				} else {
+					FileComparator fileComparator = result.getFileComparator();
+					if (fileComparator.haveSameContent(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath())) {
+						contentCompareResult = ContentCompareResult.SAME_CONTENT;
+					} else if (fileComparator.isOnError()) {
+						contentCompareResult = ContentCompareResult.ERROR;
+					} else {
+						contentCompareResult = ContentCompareResult.DIFFERENT_CONTENT;
+					}
+				}
+			}
+			applyContentCompareResult(pathPairBasicAttributes, backupActionOnDifferent, backupActionOnEqual, contentCompareResult, result);
+		}
+	}
+	
+	// Take into account the results of the content comparisons submitted to the content compare stage
+	// If waitAll is false, only the content comparisons already done are taken into account
+	private void applyContentCompareResults(DirectoryScanResult result, boolean waitAll) {
+		
+		Iterator<PendingContentCompare> pendingContentCompares = result.getPendingContentCompares().iterator();
+		while (pendingContentCompares.hasNext()) {
+			PendingContentCompare pendingContentCompare = pendingContentCompares.next();
+			if (waitAll || pendingContentCompare.futureResult().isDone()) {
+				applyContentCompareResult(pendingContentCompare.pathPairBasicAttributes(), 
+						pendingContentCompare.backupActionOnDifferent(), 
+						pendingContentCompare.backupActionOnEqual(), 
+						pendingContentCompare.futureResult().join(), 
+						result);
+				pendingContentCompares.remove();
+			}
+		}
+	}
+	
+	private void applyContentCompareResult(
+			PathPairBasicAttributes pathPairBasicAttributes, 
+			BackupAction backupActionOnDifferent,
+			BackupAction backupActionOnEqual,
+			ContentCompareResult contentCompareResult,
+			DirectoryScanResult result) {
 		
-		if (! fileComparator.haveSameContent(pathPairBasicAttributes.getSourcePath(), pathPairBasicAttributes.getTargetPath())) {
-			// file content are not the same (or there has been an error)
-			if (fileComparator.isOnError()) {
-				filesVisitFailed.add(pathPairBasicAttributes.getTargetPath());
-				backUpCounters.nbTargetFilesFailed++; 
-			} else if (backupActionOnDifferent != null) {
-				// content are not the same
-				backUpItemList.add( new BackUpItem(pathPairBasicAttributes, backupActionOnDifferent, BackupStatus.DIFF_BY_CONTENT, backUpCounters, backUpTask));
-				backUpCounters.contentDifferentNb++;
+		BackUpCounters counters = result.getBackUpCounters();
+		switch (contentCompareResult) {
+			case ERROR -> {
+				result.addFileVisitFailed(pathPairBasicAttributes.getTargetPath());
+				counters.nbTargetFilesFailed.increment(); 
 			}
-		} else if (backupActionOnEqual != null) {
-			backUpItemList.add(new BackUpItem(pathPairBasicAttributes, backupActionOnEqual, BackupStatus.SAME_CONTENT, backUpCounters, backUpTask));
-		}		
+			case DIFFERENT_CONTENT -> {
+				if (backupActionOnDifferent != null) {
+					// content are not the same
+					result.addBackUpItem( new BackUpItem(pathPairBasicAttributes, backupActionOnDifferent, BackupStatus.DIFF_BY_CONTENT, counters, backUpTask));
+					counters.contentDifferentNb.increment();
+				}
+			}
+			case SAME_CONTENT -> {
+				if (backupActionOnEqual != null) {
+					result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, backupActionOnEqual, BackupStatus.SAME_CONTENT, counters, backUpTask));
+				}
+			}
+		}
 	}
 	
-	private void compareFile(PathPairBasicAttributes pathPairBasicAttributes) {
+	private void compareFile(PathPairBasicAttributes pathPairBasicAttributes, DirectoryScanResult result) {
 
+		BackUpCounters counters = result.getBackUpCounters();
 		try {
 
 			if (backUpTask.compareContent()) {
 				// Content comparison is asked to be sure
 
-				compareFileContent(pathPairBasicAttributes, BackupAction.COPY_REPLACE, null);
+				compareFileContent(pathPairBasicAttributes, BackupAction.COPY_REPLACE, null, result);
 
 			} else {
 
@@ -326,35 +654,36 @@ public class BackUpScannerThread {
 
 					if (sizeDifference != 0) {
 						// different size
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_REPLACE, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_REPLACE, BackupStatus.DIFFERENT, counters, backUpTask));
 					}					
 				} else if (compareFileTime > 0) {
 					// Source file is newer
 					
-					backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_REPLACE, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
+					result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_REPLACE, BackupStatus.DIFFERENT, counters, backUpTask));
 					
 				} else if (compareFileTime < 0) {
 					// target file is newer
 					
 					if (backUpTask.compareContentOnAmbiguous()) {
-						compareFileContent(pathPairBasicAttributes, BackupAction.COPY_REPLACE, acionOnSameTargetContentButNewer);
+						compareFileContent(pathPairBasicAttributes, BackupAction.COPY_REPLACE, acionOnSameTargetContentButNewer, result);
 					} else {
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.AMBIGUOUS, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.AMBIGUOUS, BackupStatus.DIFFERENT, counters, backUpTask));
 					}
 				} 
 			}
 		} catch (Exception e) {
-			filesVisitFailed.add(pathPairBasicAttributes.getTargetPath());
-			backUpCounters.nbTargetFilesFailed++;
+			result.addFileVisitFailed(pathPairBasicAttributes.getTargetPath());
+			counters.nbTargetFilesFailed.increment();
 			pLog.log(Level.SEVERE, "Exception when comparing file " + pathPairBasicAttributes.getSourcePath() + " and " + pathPairBasicAttributes.getTargetPath(), e);
 		}		
 	}
 	
 	// This method is only called if the top level source path is not a directory (so is a file or does not exists)
-	private void topLevelFileCompare(PathPairBasicAttributes pathPairBasicAttributes) {
+	private void topLevelFileCompare(PathPairBasicAttributes pathPairBasicAttributes, DirectoryScanResult result) {
 
 		Path srcPath = pathPairBasicAttributes.getSourcePath();
 		Path tgtPath = pathPairBasicAttributes.getTargetPath();
+		BackUpCounters counters = result.getBackUpCounters();
 		try {
 			
 			if (pathPairBasicAttributes.sourceExists()) {
@@ -363,13 +692,13 @@ public class BackUpScannerThread {
 					if (pathPairBasicAttributes.targetIsDirectory()) {
 						// source is a file but target is a directory : delete target dir, copy source file 
 						pLog.warning("Source " + srcPath + " is a file\n" + "but target is a directory " + tgtPath);
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE_DIR, pathPairBasicAttributes, backUpCounters, backUpTask));
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE_DIR, pathPairBasicAttributes, counters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, counters, backUpTask));
 					}  else {
-						compareFile(pathPairBasicAttributes);
+						compareFile(pathPairBasicAttributes, result);
 					}
 				} else {
-					backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask));
+					result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, counters, backUpTask));
 				}
 			} else {
 				// Source path does not exist : delete target
@@ -377,17 +706,17 @@ public class BackUpScannerThread {
 				if (pathPairBasicAttributes.targetExists()) {
 					pLog.warning("Target path will be deleted: " + tgtPath);
 					if (pathPairBasicAttributes.targetIsDirectory()) {
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE_DIR, PathPairBasicAttributes.getClosestExistingParentBasicAttributes(srcPath), backUpCounters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE_DIR, PathPairBasicAttributes.getClosestExistingParentBasicAttributes(srcPath), counters, backUpTask));
 					}  else {
-						backUpItemList.add(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE, PathPairBasicAttributes.getClosestExistingParentBasicAttributes(srcPath), backUpCounters, backUpTask));
+						result.addBackUpItem(new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE, PathPairBasicAttributes.getClosestExistingParentBasicAttributes(srcPath), counters, backUpTask));
 					}
 				} else {
 					pLog.warning("Target path does not exist: " + tgtPath + "\nNo action done");
 				}
 			}
 		} catch (Exception e) {
-			filesVisitFailed.add(pathPairBasicAttributes.getTargetPath());
-			backUpCounters.nbTargetFilesFailed++;
+			result.addFileVisitFailed(pathPairBasicAttributes.getTargetPath());
+			counters.nbTargetFilesFailed.increment();
 			pLog.log(Level.SEVERE, "Exception when comparing top level file " + srcPath + " and " + tgtPath, e);
 		}	
 	}
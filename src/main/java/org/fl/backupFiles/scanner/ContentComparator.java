@@ -0,0 +1,144 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Compare the content of 2 files by chunks read in direct buffers, stopping at the first different chunk.
+// Direct buffers are preferred to memory mapped files : mapping multi GB files consumes address space
+// and the mappings are only released when garbage collected
+public class ContentComparator {
+
+	private static final Logger cLog = Logger.getLogger(ContentComparator.class.getName());
+	
+	public enum ContentCompareResult { SAME_CONTENT, DIFFERENT_CONTENT, ERROR };
+	
+	private static final int CHUNK_SIZE = 1024*1024;
+	
+	// The buffers are reused by each thread comparing files
+	private static final ThreadLocal<ByteBuffer[]> chunkBuffers = 
+			ThreadLocal.withInitial(() -> new ByteBuffer[] { ByteBuffer.allocateDirect(CHUNK_SIZE), ByteBuffer.allocateDirect(CHUNK_SIZE) });
+	
+	private ContentComparator() {
+	}
+	
+	public static ContentCompareResult compare(Path path1, Path path2) {
+		return compare(path1, path2, (MessageDigest)null);
+	}
+	
+	// If the message digest is not null, it is updated with the content read. When the result is SAME_CONTENT,
+	// both files have been read to the end, so the message digest gives the digest of both files
+	static ContentCompareResult compare(Path path1, Path path2, MessageDigest messageDigest) {
+		
+		ByteBuffer[] buffers = chunkBuffers.get();
+		ByteBuffer buffer1 = buffers[0];
+		ByteBuffer buffer2 = buffers[1];
+		
+		try (FileChannel channel1 = FileChannel.open(path1, StandardOpenOption.READ);
+			 FileChannel channel2 = FileChannel.open(path2, StandardOpenOption.READ)) {
+			
+			long size = channel1.size();
+			if (size != channel2.size()) {
+				return ContentCompareResult.DIFFERENT_CONTENT;
+			}
+			
+			long position = 0;
+			while (position < size) {
+				
+				buffer1.clear();
+				buffer2.clear();
+				int nbRead1 = readChunk(channel1, buffer1);
+				int nbRead2 = readChunk(channel2, buffer2);
+				if ((nbRead1 != nbRead2) || (nbRead1 == 0)) {
+					// the files have been modified during the compare
+					return ContentCompareResult.DIFFERENT_CONTENT;
+				}
+				buffer1.flip();
+				buffer2.flip();
+				if (buffer1.mismatch(buffer2) != -1) {
+					return ContentCompareResult.DIFFERENT_CONTENT;
+				}
+				if (messageDigest != null) {
+					messageDigest.update(buffer1);
+				}
+				position = position + nbRead1;
+			}
+			return ContentCompareResult.SAME_CONTENT;
+			
+		} catch (Exception e) {
+			cLog.log(Level.SEVERE, "Exception when comparing content of " + path1 + " and " + path2, e);
+			return ContentCompareResult.ERROR;
+		}
+	}
+	
+	// Compare using the digests of the content hash cache, if it is active
+	public static ContentCompareResult compare(Path path1, Path path2, ContentHashCache contentHashCache) {
+		
+		if (contentHashCache != null) {
+			return contentHashCache.compare(path1, path2);
+		} else {
+			return compare(path1, path2);
+		}
+	}
+	
+	// Digest of the file content, read by chunks
+	static byte[] digest(Path path, MessageDigest messageDigest) throws IOException {
+		
+		ByteBuffer buffer = chunkBuffers.get()[0];
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			
+			while (true) {
+				buffer.clear();
+				if (readChunk(channel, buffer) == 0) {
+					break;
+				}
+				buffer.flip();
+				messageDigest.update(buffer);
+			}
+		}
+		return messageDigest.digest();
+	}
+	
+	// Read until the buffer is full or the end of file is reached
+	private static int readChunk(FileChannel channel, ByteBuffer buffer) throws IOException {
+		
+		int nbRead = 0;
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer);
+			if (n < 0) {
+				break;
+			}
+			nbRead = nbRead + n;
+		}
+		return nbRead;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+
+// Content comparisons done by a separate thread pool, so that the scanner threads go on walking the file trees.
+// The queue of content comparisons is bounded : when it is full, the scanner thread does the comparison itself.
+// The number of content comparisons in progress on a file store is limited, and they also acquire the I/O permits of their file stores
+public class ContentCompareStage {
+
+	private static final Logger cLog = Logger.getLogger(ContentCompareStage.class.getName());
+	
+	private final ThreadPoolExecutor contentCompareExecutor;
+	private final FileStorePermits fileStorePermits;
+	private final FileStorePermits ioScheduler;
+	
+	public ContentCompareStage(int threadPoolSize, int queueSize, int fileStoreMaxConcurrency, FileStorePermits ioScheduler) {
+		
+		contentCompareExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(queueSize), 
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		fileStorePermits = new FileStorePermits(fileStoreMaxConcurrency);
+		this.ioScheduler = ioScheduler;
+	}
+
+	public ExecutorService getExecutorService() {
+		return contentCompareExecutor;
+	}
+	
+	public CompletableFuture<ContentCompareResult> compare(Path sourcePath, FileStore sourceFileStore, Path targetPath, FileStore targetFileStore, ContentHashCache contentHashCache) {
+		
+		CompletableFuture<ContentCompareResult> futureResult = new CompletableFuture<>();
+		Runnable contentCompare = () -> futureResult.complete(compareWithPermits(sourcePath, sourceFileStore, targetPath, targetFileStore, contentHashCache));
+		if (contentCompareExecutor.isShutdown()) {
+			// the rejected tasks of a shut down executor are discarded
+			contentCompare.run();
+		} else {
+			contentCompareExecutor.execute(contentCompare);
+		}
+		return futureResult;
+	}
+	
+	private ContentCompareResult compareWithPermits(Path sourcePath, FileStore sourceFileStore, Path targetPath, FileStore targetFileStore, ContentHashCache contentHashCache) {
+		
+		// The content comparison permits are always acquired before the I/O permits
+		try (Permits permits = fileStorePermits.acquire(sourceFileStore, targetFileStore);
+			 Permits ioPermits = ioScheduler.acquire(sourceFileStore, targetFileStore)) {
+			return ContentComparator.compare(sourcePath, targetPath, contentHashCache);
+		} catch (InterruptedException e) {
+			cLog.log(Level.SEVERE, "Interrupted when waiting to compare " + sourcePath + " and " + targetPath, e);
+			Thread.currentThread().interrupt();
+			return ContentCompareResult.ERROR;
+		}
+	}
+}
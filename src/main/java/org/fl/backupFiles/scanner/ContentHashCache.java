@@ -0,0 +1,301 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+
+// Persistent cache of the content digests of the files compared by content.
+// A cached digest is used only if the file has the same size, last modified time and file key
+// as when the digest has been computed. So when both files of a comparison have a valid cached digest,
+// the comparison is done without reading the files.
+// When none of the files has a valid cached digest, they are compared by chunks, stopping at the first different chunk,
+// and their digest is cached only if they have been read to the end.
+// The least recently used digests are evicted when the maximum number of digests is reached.
+public class ContentHashCache {
+
+	private static final Logger hLog = Logger.getLogger(ContentHashCache.class.getName());
+	
+	private static final int CACHE_MAGIC = 0x42464843;
+	private static final int CACHE_VERSION = 1;
+	
+	private final Path cacheFile;
+	private final String algorithm;
+	private final int maxEntries;
+	
+	private final AtomicLong nbCacheHits;
+	private final AtomicLong nbDigestsComputed;
+	
+	private boolean loaded;
+	private boolean modified;
+	
+	// Access ordered, for the LRU eviction
+	private final LinkedHashMap<String, CachedDigest> cachedDigests;
+	
+	private record CachedDigest(long size, long lastModified, String fileKey, byte[] digest) {
+		
+		boolean isValidFor(BasicFileAttributes attributes) {
+			return (size == attributes.size()) && 
+					(lastModified == attributes.lastModifiedTime().toMillis()) &&
+					fileKey.equals(fileKeyString(attributes));
+		}
+	}
+	
+	public ContentHashCache(Path cacheFile, String algorithm, int maxEntries) throws NoSuchAlgorithmException {
+		
+		// Check that the algorithm is available
+		MessageDigest.getInstance(algorithm);
+		
+		this.cacheFile = cacheFile;
+		this.algorithm = algorithm;
+		this.maxEntries = maxEntries;
+		
+		nbCacheHits = new AtomicLong(0);
+		nbDigestsComputed = new AtomicLong(0);
+		loaded = false;
+		modified = false;
+		cachedDigests = new LinkedHashMap<>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedDigest> eldest) {
+				return size() > ContentHashCache.this.maxEntries;
+			}
+		};
+	}
+
+	public Path getCacheFile() {
+		return cacheFile;
+	}
+	
+	public String getAlgorithm() {
+		return algorithm;
+	}
+	
+	public long getNbCacheHits() {
+		return nbCacheHits.get();
+	}
+	
+	public long getNbDigestsComputed() {
+		return nbDigestsComputed.get();
+	}
+	
+	public synchronized int getNbCachedDigests() {
+		ensureLoaded();
+		return cachedDigests.size();
+	}
+	
+	public ContentCompareResult compare(Path sourcePath, Path targetPath) {
+		
+		try {
+			BasicFileAttributes sourceAttributes = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+			BasicFileAttributes targetAttributes = Files.readAttributes(targetPath, BasicFileAttributes.class);
+			if (sourceAttributes.size() != targetAttributes.size()) {
+				return ContentCompareResult.DIFFERENT_CONTENT;
+			}
+			
+			byte[] sourceDigest = getCachedDigest(sourcePath, sourceAttributes);
+			byte[] targetDigest = getCachedDigest(targetPath, targetAttributes);
+			if ((sourceDigest == null) && (targetDigest == null)) {
+				return compareAndCacheDigests(sourcePath, sourceAttributes, targetPath, targetAttributes);
+			}
+			if (sourceDigest == null) {
+				sourceDigest = computeDigest(sourcePath, sourceAttributes);
+			}
+			if (targetDigest == null) {
+				targetDigest = computeDigest(targetPath, targetAttributes);
+			}
+			if (MessageDigest.isEqual(sourceDigest, targetDigest)) {
+				return ContentCompareResult.SAME_CONTENT;
+			} else {
+				return ContentCompareResult.DIFFERENT_CONTENT;
+			}
+		} catch (Exception e) {
+			hLog.log(Level.SEVERE, "Exception when comparing content of " + sourcePath + " and " + targetPath, e);
+			return ContentCompareResult.ERROR;
+		}
+	}
+	
+	// Returns the cached digest of the file if it is still valid, null otherwise
+	private synchronized byte[] getCachedDigest(Path file, BasicFileAttributes attributes) {
+		
+		ensureLoaded();
+		CachedDigest cachedDigest = cachedDigests.get(file.toAbsolutePath().toString());
+		if ((cachedDigest != null) && cachedDigest.isValidFor(attributes)) {
+			nbCacheHits.incrementAndGet();
+			return cachedDigest.digest();
+		}
+		return null;
+	}
+	
+	// The digest is computed outside of the lock
+	private byte[] computeDigest(Path file, BasicFileAttributes attributes) throws IOException, NoSuchAlgorithmException {
+		
+		byte[] digest = ContentComparator.digest(file, MessageDigest.getInstance(algorithm));
+		nbDigestsComputed.incrementAndGet();
+		cacheDigest(file, attributes, digest);
+		return digest;
+	}
+	
+	// Same content files have the same digest, so a single digest is computed while comparing the chunks
+	private ContentCompareResult compareAndCacheDigests(Path sourcePath, BasicFileAttributes sourceAttributes, Path targetPath, BasicFileAttributes targetAttributes) throws IOException, NoSuchAlgorithmException {
+		
+		MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
+		ContentCompareResult result = ContentComparator.compare(sourcePath, targetPath, messageDigest);
+		if (result == ContentCompareResult.SAME_CONTENT) {
+			byte[] digest = messageDigest.digest();
+			nbDigestsComputed.addAndGet(2);
+			cacheDigest(sourcePath, sourceAttributes, digest);
+			cacheDigest(targetPath, targetAttributes, digest);
+		}
+		return result;
+	}
+	
+	// The digest is cached only if the file has not been modified while it was read
+	private void cacheDigest(Path file, BasicFileAttributes attributes, byte[] digest) throws IOException {
+		
+		BasicFileAttributes attributesAfterDigest = Files.readAttributes(file, BasicFileAttributes.class);
+		CachedDigest newCachedDigest = new CachedDigest(attributes.size(), attributes.lastModifiedTime().toMillis(), fileKeyString(attributes), digest);
+		if (newCachedDigest.isValidFor(attributesAfterDigest)) {
+			synchronized (this) {
+				cachedDigests.put(file.toAbsolutePath().toString(), newCachedDigest);
+				modified = true;
+			}
+		}
+	}
+	
+	// The file or directory is about to be modified by a back up action
+	public synchronized void invalidate(Path path, boolean isDirectory) {
+		
+		if ((path == null) || ! loaded) {
+			return;
+		}
+		String key = path.toAbsolutePath().toString();
+		if (cachedDigests.remove(key) != null) {
+			modified = true;
+		}
+		if (isDirectory) {
+			String subTreePrefix = key + path.getFileSystem().getSeparator();
+			if (cachedDigests.keySet().removeIf(k -> k.startsWith(subTreePrefix))) {
+				modified = true;
+			}
+		}
+	}
+	
+	private static String fileKeyString(BasicFileAttributes attributes) {
+		return Objects.toString(attributes.fileKey(), "");
+	}
+	
+	private void ensureLoaded() {
+		
+		if (! loaded) {
+			load();
+			loaded = true;
+		}
+	}
+	
+	private void load() {
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			
+			if ((in.readInt() != CACHE_MAGIC) || (in.readInt() != CACHE_VERSION)) {
+				hLog.warning("Invalid or obsolete content hash cache ignored: " + cacheFile);
+			} else if (! algorithm.equals(in.readUTF())) {
+				hLog.warning("Content hash cache with another algorithm ignored: " + cacheFile);
+			} else {
+				int nbDigests = in.readInt();
+				for (int i = 0; i < nbDigests; i++) {
+					String key = in.readUTF();
+					long size = in.readLong();
+					long lastModified = in.readLong();
+					String fileKey = in.readUTF();
+					byte[] digest = new byte[in.readUnsignedShort()];
+					in.readFully(digest);
+					cachedDigests.put(key, new CachedDigest(size, lastModified, fileKey, digest));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			hLog.fine(() -> "No content hash cache " + cacheFile);
+		} catch (Exception e) {
+			hLog.log(Level.SEVERE, "Exception when reading content hash cache " + cacheFile, e);
+			cachedDigests.clear();
+		}
+	}
+	
+	// The cache is written in a temporary file, then moved, so that an incomplete cache is never read
+	// The digests are written from the least recently used to the most recently used, to keep the LRU order
+	public synchronized void save() {
+		
+		if (! modified) {
+			return;
+		}
+		Path tmpCacheFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpCacheFile)))) {
+				
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeUTF(algorithm);
+				List<Map.Entry<String, CachedDigest>> digests = List.copyOf(cachedDigests.entrySet());
+				out.writeInt(digests.size());
+				for (Map.Entry<String, CachedDigest> entry : digests) {
+					CachedDigest cachedDigest = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeLong(cachedDigest.size());
+					out.writeLong(cachedDigest.lastModified());
+					out.writeUTF(cachedDigest.fileKey());
+					out.writeShort(cachedDigest.digest().length);
+					out.write(cachedDigest.digest());
+				}
+			}
+			Files.move(tmpCacheFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			modified = false;
+			hLog.fine(() -> "Content hash cache saved: " + cachedDigests.size() + " digests, " + nbCacheHits.get() + " cache hits");
+		} catch (Exception e) {
+			hLog.log(Level.SEVERE, "Exception when writing content hash cache " + cacheFile, e);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// The entries of a directory, kept in parallel arrays sorted by name.
+// The source and target listings of a directory are sorted with the same name comparator
+// and then paired by a merge join, instead of being paired through a map keyed by file name paths
+class DirectoryListing {
+
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private final Path directory;
+	
+	// Length of the directory part of the path of an entry
+	private final int directoryPathLength;
+	
+	private String[] names;
+	private Path[] paths;
+	private BasicFileAttributes[] attributes;
+	private int size;
+	
+	DirectoryListing(Path directory) {
+		
+		this.directory = directory;
+		directoryPathLength = directory.resolve("x").toString().length() - 1;
+		names = new String[INITIAL_CAPACITY];
+		paths = new Path[INITIAL_CAPACITY];
+		attributes = new BasicFileAttributes[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	Path getDirectory() {
+		return directory;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	String getName(int index) {
+		return names[index];
+	}
+	
+	// The path of an entry added by its name is resolved when first needed
+	Path getPath(int index) {
+		
+		Path path = paths[index];
+		if (path == null) {
+			path = directory.resolve(names[index]);
+			paths[index] = path;
+		}
+		return path;
+	}
+	
+	// Null if the attributes have not been read
+	BasicFileAttributes getAttributes(int index) {
+		return attributes[index];
+	}
+	
+	// Add an entry of the directory, as returned by a directory stream
+	void add(Path path, BasicFileAttributes pathAttributes) {
+		
+		String pathString = path.toString();
+		String name;
+		if (pathString.length() > directoryPathLength) {
+			// the name is taken from the path string to avoid creating a file name path
+			name = pathString.substring(directoryPathLength);
+		} else {
+			name = path.getFileName().toString();
+		}
+		add(name, path, pathAttributes);
+	}
+	
+	void add(String name, BasicFileAttributes pathAttributes) {
+		add(name, null, pathAttributes);
+	}
+	
+	private void add(String name, Path path, BasicFileAttributes pathAttributes) {
+		
+		if (size == names.length) {
+			int newCapacity = size*2;
+			names = Arrays.copyOf(names, newCapacity);
+			paths = Arrays.copyOf(paths, newCapacity);
+			attributes = Arrays.copyOf(attributes, newCapacity);
+		}
+		names[size] = name;
+		paths[size] = path;
+		attributes[size] = pathAttributes;
+		size++;
+	}
+	
+	// Sort the entries by name
+	void sort(Comparator<String> nameComparator) {
+		
+		if (isSorted(nameComparator)) {
+			return;
+		}
+		
+		// Sort of the entry indexes, so that the names, paths and attributes are moved together
+		Integer[] order = new Integer[size];
+		Arrays.setAll(order, i -> i);
+		Arrays.sort(order, (index1, index2) -> nameComparator.compare(names[index1], names[index2]));
+		
+		String[] sortedNames = new String[names.length];
+		Path[] sortedPaths = new Path[names.length];
+		BasicFileAttributes[] sortedAttributes = new BasicFileAttributes[names.length];
+		for (int i = 0; i < size; i++) {
+			sortedNames[i] = names[order[i]];
+			sortedPaths[i] = paths[order[i]];
+			sortedAttributes[i] = attributes[order[i]];
+		}
+		names = sortedNames;
+		paths = sortedPaths;
+		attributes = sortedAttributes;
+	}
+	
+	private boolean isSorted(Comparator<String> nameComparator) {
+		
+		for (int i = 1; i < size; i++) {
+			if (nameComparator.compare(names[i - 1], names[i]) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// The comparator of the file names must be consistent with the equality of the file name paths
+	// (file names are not case sensitive on Windows file systems)
+	static Comparator<String> nameComparator(FileSystem fileSystem) {
+		
+		if (fileSystem.getPath("a").equals(fileSystem.getPath("A"))) {
+			return String.CASE_INSENSITIVE_ORDER;
+		} else {
+			return Comparator.naturalOrder();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+// The directory readers available for the scan
+public enum DirectoryReaderType {
+	
+	// Directory stream, the attributes of each entry are read separately (one more file system access per entry)
+	DIRECTORY_STREAM(new DirectoryStreamReader()),
+	// File tree walk, with the attributes coming with the directory entries when the file system provides them (Windows)
+	FILE_TREE_WALKER(new FileTreeWalkerReader()),
+	// Secure directory stream, with the attributes of each entry read relatively to the opened directory (Linux)
+	SECURE_DIRECTORY_STREAM(new SecureDirectoryStreamReader(new DirectoryStreamReader())),
+	// Secure directory stream if the file system provides it, otherwise file tree walk
+	AUTO(new SecureDirectoryStreamReader(new FileTreeWalkerReader()));
+	
+	private final DirectoryReader directoryReader;
+	
+	private DirectoryReaderType(DirectoryReader directoryReader) {
+		this.directoryReader = directoryReader;
+	}
+	
+	DirectoryReader getDirectoryReader() {
+		return directoryReader;
+	}
+}
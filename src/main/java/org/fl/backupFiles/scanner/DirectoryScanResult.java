@@ -0,0 +1,112 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.fl.util.file.FileComparator;
+
+// Back up items, counters and paths in error found when comparing a directory (and its sub directories)
+// In a sequential scan, there is a single DirectoryScanResult for the whole back up task.
+// In a fork/join scan, there is one DirectoryScanResult per directory, merged into the parent one when the sub task is joined
+class DirectoryScanResult {
+
+	private static final Logger sLog = Logger.getLogger(DirectoryScanResult.class.getName());
+	
+	private final List<AbstractBackUpItem> backUpItems;
+	private final BackUpCounters backUpCounters;
+	private final List<Path> filesVisitFailed;
+	
+	private FileComparator fileComparator;
+	
+	// Content comparisons submitted to the content compare stage, whose results are not yet taken into account
+	private final List<PendingContentCompare> pendingContentCompares;
+	
+	DirectoryScanResult(List<AbstractBackUpItem> backUpItems, BackUpCounters backUpCounters, List<Path> filesVisitFailed) {
+		this.backUpItems = backUpItems;
+		this.backUpCounters = backUpCounters;
+		this.filesVisitFailed = filesVisitFailed;
+		pendingContentCompares = new ArrayList<>();
+	}
+	
+	record PendingContentCompare(
+			PathPairBasicAttributes pathPairBasicAttributes, 
+			BackupAction backupActionOnDifferent, 
+			BackupAction backupActionOnEqual, 
+			CompletableFuture<ContentCompareResult> futureResult) {}
+	
+	void addPendingContentCompare(PendingContentCompare pendingContentCompare) {
+		pendingContentCompares.add(pendingContentCompare);
+	}
+	
+	List<PendingContentCompare> getPendingContentCompares() {
+		return pendingContentCompares;
+	}
+
+	void addBackUpItem(BackUpItem backUpItem) {
+		backUpItems.add(backUpItem);
+	}
+	
+	void addFileVisitFailed(Path path) {
+		filesVisitFailed.add(path);
+	}
+	
+	List<AbstractBackUpItem> getBackUpItems() {
+		return backUpItems;
+	}
+
+	BackUpCounters getBackUpCounters() {
+		return backUpCounters;
+	}
+
+	List<Path> getFilesVisitFailed() {
+		return filesVisitFailed;
+	}
+
+	// Lazy creation: most directories do not need a content comparison.
+	// A FileComparator is not thread safe, so each result (and so each thread) has its own
+	FileComparator getFileComparator() {
+		if (fileComparator == null) {
+			fileComparator = new FileComparator(sLog);
+		}
+		return fileComparator;
+	}
+	
+	void merge(DirectoryScanResult otherResult) {
+		backUpItems.addAll(otherResult.getBackUpItems());
+		backUpCounters.add(otherResult.getBackUpCounters());
+		filesVisitFailed.addAll(otherResult.getFilesVisitFailed());
+		pendingContentCompares.addAll(otherResult.getPendingContentCompares());
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.FileStore;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+// Limit the number of operations in progress on each file store. 
+// An operation on two file stores (a source and a target) acquires the permits of both, always in the same order to avoid dead locks
+// The number of acquisitions and the time waited for the permits are recorded for each file store
+public class FileStorePermits {
+
+	private final ToIntFunction<FileStore> fileStoreMaxConcurrency;
+	private final Map<FileStore, StorePermits> fileStorePermits;
+	
+	public FileStorePermits(int fileStoreMaxConcurrency) {
+		this(fileStore -> fileStoreMaxConcurrency);
+	}
+	
+	// The maximum concurrency may be different for each file store (low for hard disks, high for SSD)
+	public FileStorePermits(ToIntFunction<FileStore> fileStoreMaxConcurrency) {
+		
+		this.fileStoreMaxConcurrency = fileStoreMaxConcurrency;
+		fileStorePermits = new ConcurrentHashMap<>();
+	}
+	
+	private static class StorePermits {
+		
+		private final String fileStoreName;
+		private final int maxConcurrency;
+		private final Semaphore semaphore;
+		private final LongAdder nbAcquisitions;
+		private final LongAdder waitTime;
+		private final LongAccumulator maxWaitTime;
+		
+		private StorePermits(FileStore fileStore, int maxConcurrency) {
+			
+			fileStoreName = fileStore.toString();
+			this.maxConcurrency = maxConcurrency;
+			semaphore = new Semaphore(maxConcurrency, true);
+			nbAcquisitions = new LongAdder();
+			waitTime = new LongAdder();
+			maxWaitTime = new LongAccumulator(Math::max, 0);
+		}
+		
+		private void acquire(boolean interruptible) throws InterruptedException {
+			
+			if (semaphore.tryAcquire()) {
+				nbAcquisitions.increment();
+			} else {
+				long startWait = System.nanoTime();
+				if (interruptible) {
+					semaphore.acquire();
+				} else {
+					semaphore.acquireUninterruptibly();
+				}
+				long wait = System.nanoTime() - startWait;
+				nbAcquisitions.increment();
+				waitTime.add(wait);
+				maxWaitTime.accumulate(wait);
+			}
+		}
+		
+		private void release() {
+			semaphore.release();
+		}
+		
+		private FileStoreMetrics getMetrics() {
+			return new FileStoreMetrics(fileStoreName, maxConcurrency, 
+					maxConcurrency - semaphore.availablePermits(), semaphore.getQueueLength(), nbAcquisitions.sum(), 
+					TimeUnit.NANOSECONDS.toMillis(waitTime.sum()), TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get()));
+		}
+	}
+	
+	// Metrics of a file store: operations in progress and waiting (queue depth), number of acquisitions and time waited (in milliseconds)
+	public record FileStoreMetrics(String fileStoreName, int maxConcurrency, int nbInProgress, int queueDepth, long nbAcquisitions, long totalWaitTime, long maxWaitTime) {
+	}
+	
+	// Permits acquired, released when closed
+	public static class Permits implements AutoCloseable {
+		
+		private final StorePermits firstPermits;
+		private final StorePermits secondPermits;
+		
+		private Permits(StorePermits firstPermits, StorePermits secondPermits) {
+			this.firstPermits = firstPermits;
+			this.secondPermits = secondPermits;
+		}
+		
+		@Override
+		public void close() {
+			release(secondPermits);
+			release(firstPermits);
+		}
+	}
+	
+	public Permits acquire(FileStore fileStore1, FileStore fileStore2) throws InterruptedException {
+		return acquire(fileStore1, fileStore2, true);
+	}
+	
+	public Permits acquireUninterruptibly(FileStore fileStore1, FileStore fileStore2) {
+		
+		try {
+			return acquire(fileStore1, fileStore2, false);
+		} catch (InterruptedException e) {
+			// not thrown by uninterruptible acquisitions
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private Permits acquire(FileStore fileStore1, FileStore fileStore2, boolean interruptible) throws InterruptedException {
+		
+		StorePermits firstPermits = getPermits(fileStore1);
+		StorePermits secondPermits = getPermits(fileStore2);
+		if ((firstPermits != null) && (secondPermits != null) && 
+			(Objects.toString(fileStore1).compareTo(Objects.toString(fileStore2)) > 0)) {
+			StorePermits permits = firstPermits;
+			firstPermits = secondPermits;
+			secondPermits = permits;
+		}
+		if (firstPermits == secondPermits) {
+			secondPermits = null;
+		}
+		
+		if (firstPermits != null) {
+			firstPermits.acquire(interruptible);
+		}
+		try {
+			if (secondPermits != null) {
+				secondPermits.acquire(interruptible);
+			}
+		} catch (InterruptedException e) {
+			release(firstPermits);
+			throw e;
+		}
+		return new Permits(firstPermits, secondPermits);
+	}
+	
+	// Maximum number of operations in progress on a file store (no limit for an unknown file store)
+	public int getMaxConcurrency(FileStore fileStore) {
+		
+		if (fileStore == null) {
+			return Integer.MAX_VALUE;
+		} else {
+			return getPermits(fileStore).maxConcurrency;
+		}
+	}
+	
+	private StorePermits getPermits(FileStore fileStore) {
+		
+		if (fileStore == null) {
+			return null;
+		} else {
+			return fileStorePermits.computeIfAbsent(fileStore, fs -> new StorePermits(fs, fileStoreMaxConcurrency.applyAsInt(fs)));
+		}
+	}
+	
+	private static void release(StorePermits permits) {
+		if (permits != null) {
+			permits.release();
+		}
+	}
+	
+	public List<FileStoreMetrics> getMetrics() {
+		return fileStorePermits.values().stream()
+				.map(StorePermits::getMetrics)
+				.sorted(Comparator.comparing(FileStoreMetrics::fileStoreName))
+				.toList();
+	}
+	
+	public void appendMetricsText(StringBuilder metricsInfo) {
+		
+		for (FileStoreMetrics metrics : getMetrics()) {
+			metricsInfo.append("\nI/O ").append(metrics.fileStoreName())
+				.append(": concurrence max= ").append(metrics.maxConcurrency())
+				.append(", en cours= ").append(metrics.nbInProgress())
+				.append(", en attente= ").append(metrics.queueDepth())
+				.append(", accès= ").append(metrics.nbAcquisitions())
+				.append(", attente totale (ms)= ").append(metrics.totalWaitTime())
+				.append(", attente max (ms)= ").append(metrics.maxWaitTime());
+		}
+	}
+	
+	public void appendMetricsHtml(StringBuilder metricsInfo) {
+		
+		List<FileStoreMetrics> allMetrics = getMetrics();
+		if (allMetrics.isEmpty()) {
+			return;
+		}
+		metricsInfo.append("<table border=1><tr><td>Unité de stockage (I/O)</td><td>Concurrence max</td><td>En cours</td><td>En attente</td><td>Accès</td><td>Attente totale (ms)</td><td>Attente max (ms)</td></tr>");
+		for (FileStoreMetrics metrics : allMetrics) {
+			metricsInfo.append("<tr><td>").append(metrics.fileStoreName())
+				.append("</td><td style=\"text-align:right\">").append(metrics.maxConcurrency())
+				.append("</td><td style=\"text-align:right\">").append(metrics.nbInProgress())
+				.append("</td><td style=\"text-align:right\">").append(metrics.queueDepth())
+				.append("</td><td style=\"text-align:right\">").append(metrics.nbAcquisitions())
+				.append("</td><td style=\"text-align:right\">").append(metrics.totalWaitTime())
+				.append("</td><td style=\"text-align:right\">").append(metrics.maxWaitTime())
+				.append("</td></tr>");
+		}
+		metricsInfo.append("</table>");
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.plan.BackUpPlanWriter;
+
+// Scan of back up tasks, shared by the scanner worker of the GUI and by the headless runner
+// The scanner threads stream their back up items while they are running.
+// The caller drains them in the back up item list (from its own thread, the GUI table must be updated by the event dispatch thread)
+// and may ask them to be drained on demand too, as soon as the scanner threads stream a batch
+public class FilesScanEngine {
+
+	private static final Logger sLog = Logger.getLogger(FilesScanEngine.class.getName());
+	
+	private final List<BackUpTask> backUpTasks;
+	private final BackUpCounters backUpCounters;
+	private final List<Path> filesVisitFailed;
+	
+	// Scanner tasks, which stream their back up items while they are running
+	private volatile List<BackUpScannerTask> scannerTasks;
+	
+	// Optional export of the back up items in a back up plan
+	private volatile BackUpPlanWriter backUpPlanWriter;
+	
+	// Sizes of trees computed by the folder size stage, recorded in the counters when they arrive (possibly after the end of the scan)
+	private final List<CompletableFuture<Void>> deferredSizeDifferences;
+	private final AtomicInteger nbPendingSizeDifferences;
+	private volatile Runnable sizeDifferenceListener;
+	
+	// Optional detection of the moves: the candidates for a move are held until the end of the scan
+	private final MoveDetector moveDetector;
+	private final List<AbstractBackUpItem> detectedBackUpItems;
+	
+	// Optional drain on demand of the streamed back up items, by the scheduler threads. Concurrent demands are coalesced in one drain
+	private boolean drainOnDemand;
+	private Consumer<List<AbstractBackUpItem>> onDemandConsumer;
+	private final AtomicBoolean drainRequested;
+	
+	public FilesScanEngine(List<BackUpTask> backUpTasks, BackUpCounters backUpCounters) {
+		
+		this.backUpTasks = backUpTasks;
+		this.backUpCounters = backUpCounters;
+		filesVisitFailed = new ArrayList<Path>();
+		scannerTasks = List.of();
+		deferredSizeDifferences = new ArrayList<>();
+		nbPendingSizeDifferences = new AtomicInteger(0);
+		sizeDifferenceListener = null;
+		moveDetector = Config.isMoveDetection() ? new MoveDetector(Config.isMoveDetectionCompareContent(), Config.getIoScheduler(), Config.getContentHashCache()) : null;
+		detectedBackUpItems = new ArrayList<>();
+		drainOnDemand = false;
+		onDemandConsumer = null;
+		drainRequested = new AtomicBoolean(false);
+	}
+	
+	// To be called before the scan is started. The back up items streamed are drained as soon as the scanner threads stream them,
+	// in addition to the drains done by the caller, and passed to the backUpItemsConsumer if it is not null (only the export is done in that case).
+	// Without it, the scanner threads wait when their stream queue is full until the caller drains them
+	public void drainOnDemand(Consumer<List<AbstractBackUpItem>> backUpItemsConsumer) {
+		drainOnDemand = true;
+		onDemandConsumer = backUpItemsConsumer;
+	}
+	
+	// Called by the scanner threads: the drain is done by a scheduler thread, so that the scanner thread does not wait for it
+	private void requestDrain() {
+		
+		if (drainRequested.compareAndSet(false, true)) {
+			try {
+				Config.getScheduler().execute(() -> {
+					drainRequested.set(false);
+					drainStreamedBackUpItems(onDemandConsumer);
+				});
+			} catch (RejectedExecutionException e) {
+				drainRequested.set(false);
+				sLog.log(Level.FINE, "Drain on demand rejected", e);
+			}
+		}
+	}
+
+	// Launch the scanner tasks
+	public void startScan() {
+		
+		backUpCounters.reset();
+		filesVisitFailed.clear();
+		detectedBackUpItems.clear();
+		
+		if (backUpTasks != null) {
+			// The back up tasks to a chunk store are not scanned
+			scannerTasks = backUpTasks.stream()
+					.filter(backupTask -> backupTask.getChunkStore() == null)
+					.map(backupTask ->  new BackUpScannerThread(backupTask))
+					.peek(backUpScannerThread -> backUpScannerThread.streamBackUpItems(true))
+					.peek(backUpScannerThread -> backUpScannerThread.setStreamListener(drainOnDemand ? this::requestDrain : null))
+					.map(backUpScannerThread -> new BackUpScannerTask(backUpScannerThread, 
+							launchScan(backUpScannerThread, Config.getScanExecutorService(), Config.getScanFileStorePermits())))
+					.toList();
+		} else {
+			scannerTasks = List.of();
+		}
+	}
+	
+	// When fileStorePermits is not null, the scan waits for the permits of the source and target file stores of its back up task
+	public static CompletableFuture<ScannerThreadResponse> launchScan(BackUpScannerThread backUpScannerThread, ExecutorService executorService, FileStorePermits fileStorePermits) {
+		
+		if (fileStorePermits == null) {
+			return CompletableFuture.supplyAsync(backUpScannerThread::scan, executorService);
+		} else {
+			BackUpTask backUpTask = backUpScannerThread.getBackUpTask();
+			return CompletableFuture.supplyAsync(() -> {
+				try (FileStorePermits.Permits permits = fileStorePermits.acquireUninterruptibly(backUpTask.getSourceFileStore(), backUpTask.getTargetFileStore())) {
+					return backUpScannerThread.scan();
+				}
+			}, executorService);
+		}
+	}
+	
+	public boolean hasScannerTasks() {
+		return ! scannerTasks.isEmpty();
+	}
+	
+	// Pass the stop request to the scanner threads, pass the responses of the scanner tasks which have ended to endedTaskConsumer (once for each task)
+	// and return the current status of each scanner thread
+	public List<String> getProgress(boolean stopAsked, Consumer<ScannerThreadResponse> endedTaskConsumer) {
+		
+		List<String> currentStatus = new ArrayList<String>();
+		for (BackUpScannerTask scannerTask : scannerTasks) {
+			
+			if (! scannerTask.isResultRecorded()) {
+				CompletableFuture<ScannerThreadResponse> futureResponse = scannerTask.getFutureResponse();
+				if ((futureResponse != null) && (futureResponse.isDone())) {
+					// one backUpTask has finished
+					try {
+						endedTaskConsumer.accept(futureResponse.get());
+						scannerTask.setResultRecorded(true) ;
+					} catch (InterruptedException | ExecutionException e) {
+						sLog.log(Level.SEVERE, "Exception getting task results", e);
+					}	
+				}
+			}
+			
+			BackUpScannerThread backupScannerThread = scannerTask.getBackUpScannerThread();
+			if (backupScannerThread != null) {
+				backupScannerThread.stopAsked(stopAsked);
+				currentStatus.add(backupScannerThread.getCurrentStatus());
+			}
+		}
+		return currentStatus;
+	}
+	
+	// Wait for the end of the scanner tasks
+	public List<ScannerThreadResponse> waitScanEnd() {
+		
+		List<ScannerThreadResponse> scannerThreadResponses = scannerTasks.stream()
+				.map(BackUpScannerTask::getFutureResponse)
+				.map(CompletableFuture::join)
+				.toList();
+		
+		if (Config.getContentHashCache() != null) {
+			Config.getContentHashCache().save();
+		}
+		return scannerThreadResponses;
+	}
+	
+	// Add the counters and the failures of an ended scanner thread, if it has not been done before
+	public void processScannerThreadResponse(ScannerThreadResponse scannerResp) {
+		
+		if (scannerResp.hasNotBeenProcessed()) {
+			backUpCounters.add(scannerResp.getBackUpCounters());
+			filesVisitFailed.addAll(scannerResp.getFilesVisitFailed());
+			
+			// The back up items of the response are streamed by the scanner thread
+			scannerResp.setHasNotBeenProcessed(false) ;
+		}
+	}
+	
+	// Process the responses that may have not been processed and return the number of back up items of the responses
+	public int processScannerThreadResponses(List<ScannerThreadResponse> scannerThreadResponses) {
+		
+		return scannerThreadResponses.stream()
+				.peek(this::processScannerThreadResponse)
+				.mapToInt(ScannerThreadResponse::getNbBackUpItems)
+				.sum();
+	}
+	
+	// Export the back up items in a back up plan, while they are drained
+	public void setBackUpPlanWriter(BackUpPlanWriter backUpPlanWriter) {
+		this.backUpPlanWriter = backUpPlanWriter;
+	}
+	
+	// Drain the back up items streamed by the scanner threads, export them in the back up plan if any, 
+	// and add them to the back up item list if it is not null (only the export is done in that case)
+	// Returns the number of back up items drained
+	public int addStreamedBackUpItems(BackUpItemList backUpItemList) {
+		return drainStreamedBackUpItems((backUpItemList == null) ? null : backUpItemList::addAll);
+	}
+	
+	// Drain the back up items streamed by the scanner threads, export them in the back up plan if any,
+	// and pass each drained batch to the backUpItemsConsumer if it is not null (only the export is done in that case)
+	// Returns the number of back up items drained. The drains may be done by different threads, but not by the event dispatch thread
+	// because of the export. When the moves are detected, the candidates for a move are drained only after the detection
+	public synchronized int drainStreamedBackUpItems(Consumer<List<AbstractBackUpItem>> backUpItemsConsumer) {
+		
+		int nbItemsDrained = 0;
+		if (! detectedBackUpItems.isEmpty()) {
+			// The back up items resulting from the move detection are drained in batches, like the streamed ones
+			for (int batchStart = 0; batchStart < detectedBackUpItems.size(); batchStart += BackUpScannerThread.STREAM_BATCH_SIZE) {
+				int batchEnd = Math.min(batchStart + BackUpScannerThread.STREAM_BATCH_SIZE, detectedBackUpItems.size());
+				nbItemsDrained += drainBackUpItems(new ArrayList<>(detectedBackUpItems.subList(batchStart, batchEnd)), backUpItemsConsumer);
+			}
+			detectedBackUpItems.clear();
+		}
+		for (BackUpScannerTask scannerTask : scannerTasks) {
+			BackUpScannerThread backUpScannerThread = scannerTask.getBackUpScannerThread();
+			List<AbstractBackUpItem> backUpItems;
+			while ((backUpItems = backUpScannerThread.pollStreamedBackUpItems()) != null) {
+				if (moveDetector != null) {
+					backUpItems = moveDetector.holdCandidates(backUpItems);
+				}
+				nbItemsDrained += drainBackUpItems(backUpItems, backUpItemsConsumer);
+			}
+		}
+		return nbItemsDrained;
+	}
+	
+	private int drainBackUpItems(List<AbstractBackUpItem> backUpItems, Consumer<List<AbstractBackUpItem>> backUpItemsConsumer) {
+		
+		recordDeferredSizeDifferences(backUpItems);
+		exportBackUpItems(backUpItems);
+		if ((backUpItemsConsumer != null) && ! backUpItems.isEmpty()) {
+			backUpItemsConsumer.accept(backUpItems);
+		}
+		return backUpItems.size();
+	}
+	
+	// To be called once the scan has ended, if the moves are detected (otherwise it does nothing)
+	// The back up items resulting from the detection are added by the next drain
+	public void detectMoves() {
+		
+		if (moveDetector != null) {
+			synchronized (this) {
+				for (BackUpScannerTask scannerTask : scannerTasks) {
+					BackUpScannerThread backUpScannerThread = scannerTask.getBackUpScannerThread();
+					List<AbstractBackUpItem> backUpItems;
+					while ((backUpItems = backUpScannerThread.pollStreamedBackUpItems()) != null) {
+						detectedBackUpItems.addAll(moveDetector.holdCandidates(backUpItems));
+					}
+				}
+			}
+			// The detection reads the files and walks the trees, so it is done without holding the engine monitor, to not block the drains.
+			// The scan has ended and all the candidates are held, so the drains do not give any more candidates to the move detector
+			List<AbstractBackUpItem> backUpItems = moveDetector.detectMoves(backUpCounters);
+			synchronized (this) {
+				detectedBackUpItems.addAll(backUpItems);
+			}
+		}
+	}
+	
+	// Each move replaces a new source and a target to delete
+	public int getNbMovesDetected() {
+		return (moveDetector == null) ? 0 : moveDetector.getNbMovesDetected();
+	}
+	
+	private void recordDeferredSizeDifferences(List<AbstractBackUpItem> backUpItems) {
+		
+		for (AbstractBackUpItem backUpItem : backUpItems) {
+			if ((backUpItem instanceof BackUpItem item) && item.hasDeferredSizeDifference()) {
+				nbPendingSizeDifferences.incrementAndGet();
+				deferredSizeDifferences.add(item.whenSizeDifferenceKnown(() -> {
+					item.recordSizeDifference(backUpCounters);
+					nbPendingSizeDifferences.decrementAndGet();
+					Runnable listener = sizeDifferenceListener;
+					if (listener != null) {
+						listener.run();
+					}
+				}));
+			}
+		}
+	}
+	
+	// The listener is called (by the folder size stage threads) each time a deferred size difference is recorded in the counters
+	public void setSizeDifferenceListener(Runnable sizeDifferenceListener) {
+		this.sizeDifferenceListener = sizeDifferenceListener;
+	}
+	
+	// True if some size differences of the drained back up items are still being computed
+	public boolean hasPendingSizeDifferences() {
+		return nbPendingSizeDifferences.get() > 0;
+	}
+	
+	// Wait until the size differences of the drained back up items are recorded in the counters
+	public void waitSizeDifferences() {
+		
+		List<CompletableFuture<Void>> pendingSizeDifferences;
+		synchronized (this) {
+			pendingSizeDifferences = new ArrayList<>(deferredSizeDifferences);
+		}
+		pendingSizeDifferences.forEach(CompletableFuture::join);
+	}
+	
+	private void exportBackUpItems(List<AbstractBackUpItem> backUpItems) {
+		
+		if (backUpPlanWriter != null) {
+			try {
+				backUpPlanWriter.write(backUpItems);
+			} catch (IOException e) {
+				sLog.log(Level.SEVERE, "Exception writing the back up plan " + backUpPlanWriter.getPlanFile() + ". The export is abandoned", e);
+				abandonExport();
+			}
+		}
+	}
+	
+	// To be called after the last drain of the back up items. Returns the back up plan file, or null if there is no export or if it has failed
+	public synchronized Path endBackUpPlanExport() {
+		
+		if (backUpPlanWriter == null) {
+			return null;
+		}
+		Path planFile = backUpPlanWriter.getPlanFile();
+		try {
+			backUpPlanWriter.close();
+			sLog.info("Back up plan exported in " + planFile + " (" + backUpPlanWriter.getNbBackUpItemsWritten() + " back up items)");
+			return planFile;
+		} catch (IOException e) {
+			sLog.log(Level.SEVERE, "Exception closing the back up plan " + planFile, e);
+			return null;
+		} finally {
+			backUpPlanWriter = null;
+		}
+	}
+	
+	private void abandonExport() {
+		
+		try {
+			backUpPlanWriter.abort();
+		} catch (IOException e) {
+			sLog.log(Level.FINE, "Exception closing the abandoned back up plan", e);
+		}
+		backUpPlanWriter = null;
+	}
+	
+	public BackUpCounters getBackUpCounters() {
+		return backUpCounters;
+	}
+	
+	public List<Path> getFilesVisitFailed() {
+		return filesVisitFailed;
+	}
+	
+	public void appendScanInfoText(StringBuilder scanInfo, long duration) {
+
+		backUpCounters.appendInfoText(scanInfo);
+		scanInfo.append("\nScan duration (ms)= ").append(duration);
+		if (!filesVisitFailed.isEmpty()) {
+			scanInfo.append("\nFichiers visités en erreur:");
+			for (Path fileOnError : filesVisitFailed) {
+				scanInfo.append("\n").append(fileOnError);
+			}
+		}
+		Config.getIoScheduler().appendMetricsText(scanInfo);
+	}
+}
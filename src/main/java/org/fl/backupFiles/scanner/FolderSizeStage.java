@@ -0,0 +1,70 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+import org.fl.util.file.FilesUtils;
+
+// Sizes of the trees of the COPY_TREE and DELETE_DIR back up items, computed by a separate thread pool,
+// so that the scanner threads go on comparing instead of walking the new or deleted trees a second time.
+// The folder sizes acquire the I/O permits of their file store
+public class FolderSizeStage {
+
+	private static final Logger fLog = Logger.getLogger(FolderSizeStage.class.getName());
+	
+	private final ExecutorService folderSizeExecutor;
+	private final FileStorePermits ioScheduler;
+	
+	public FolderSizeStage(int threadPoolSize, FileStorePermits ioScheduler) {
+		
+		folderSizeExecutor = Executors.newFixedThreadPool(threadPoolSize);
+		this.ioScheduler = ioScheduler;
+	}
+	
+	public ExecutorService getExecutorService() {
+		return folderSizeExecutor;
+	}
+	
+	public CompletableFuture<Long> folderSize(Path folder, FileStore fileStore) {
+		
+		return CompletableFuture.supplyAsync(() -> {
+				try (Permits ioPermits = ioScheduler.acquireUninterruptibly(fileStore, null)) {
+					return FilesUtils.folderSize(folder, fLog);
+				}
+			}, folderSizeExecutor)
+			.exceptionally(e -> {
+				fLog.log(Level.SEVERE, "Exception when computing the size of " + folder, e);
+				return 0L;
+			});
+	}
+}
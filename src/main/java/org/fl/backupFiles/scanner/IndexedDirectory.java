@@ -0,0 +1,200 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+
+// The entries of a target directory, as listed during a scan.
+// The entries are kept in parallel arrays to have a compact index
+class IndexedDirectory {
+
+	// A directory modified less than this delay before it has been listed may have been modified again
+	// after the listing without any change of its last modified time (file time granularity, 2 seconds on FAT)
+	private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+	
+	private final FileTime directoryLastModifiedTime;
+	private final long indexTime;
+	
+	private final String[] names;
+	private final byte[] types;
+	private final long[] sizes;
+	private final long[] lastModifiedSeconds;
+	private final int[] lastModifiedNanos;
+	
+	private IndexedDirectory(FileTime directoryLastModifiedTime, long indexTime, String[] names, byte[] types, long[] sizes, long[] lastModifiedSeconds, int[] lastModifiedNanos) {
+		this.directoryLastModifiedTime = directoryLastModifiedTime;
+		this.indexTime = indexTime;
+		this.names = names;
+		this.types = types;
+		this.sizes = sizes;
+		this.lastModifiedSeconds = lastModifiedSeconds;
+		this.lastModifiedNanos = lastModifiedNanos;
+	}
+
+	int size() {
+		return names.length;
+	}
+	
+	String getName(int index) {
+		return names[index];
+	}
+	
+	boolean isDirectory(int index) {
+		return types[index] == IndexedFileAttributes.DIRECTORY;
+	}
+	
+	// Returns null for a directory : the attributes of a directory must be read
+	// to check if the index of this directory is still valid
+	BasicFileAttributes getFileAttributes(int index) {
+		
+		if (isDirectory(index)) {
+			return null;
+		} else {
+			return new IndexedFileAttributes(types[index], sizes[index], FileTime.from(Instant.ofEpochSecond(lastModifiedSeconds[index], lastModifiedNanos[index])));
+		}
+	}
+	
+	// True if the directory has not been modified since it has been listed
+	boolean isUnchanged(FileTime currentDirectoryLastModifiedTime) {
+		return directoryLastModifiedTime.equals(currentDirectoryLastModifiedTime) &&
+				(currentDirectoryLastModifiedTime.toMillis() < indexTime - MODIFICATION_TIME_GRANULARITY);
+	}
+	
+	void write(DataOutputStream out) throws IOException {
+		
+		writeFileTime(out, directoryLastModifiedTime);
+		out.writeLong(indexTime);
+		out.writeInt(names.length);
+		for (int i = 0; i < names.length; i++) {
+			out.writeUTF(names[i]);
+			out.writeByte(types[i]);
+			out.writeLong(sizes[i]);
+			out.writeLong(lastModifiedSeconds[i]);
+			out.writeInt(lastModifiedNanos[i]);
+		}
+	}
+	
+	static IndexedDirectory read(DataInputStream in) throws IOException {
+		
+		FileTime directoryLastModifiedTime = readFileTime(in);
+		long indexTime = in.readLong();
+		int nbEntries = in.readInt();
+		String[] names = new String[nbEntries];
+		byte[] types = new byte[nbEntries];
+		long[] sizes = new long[nbEntries];
+		long[] lastModifiedSeconds = new long[nbEntries];
+		int[] lastModifiedNanos = new int[nbEntries];
+		for (int i = 0; i < nbEntries; i++) {
+			names[i] = in.readUTF();
+			types[i] = in.readByte();
+			sizes[i] = in.readLong();
+			lastModifiedSeconds[i] = in.readLong();
+			lastModifiedNanos[i] = in.readInt();
+		}
+		return new IndexedDirectory(directoryLastModifiedTime, indexTime, names, types, sizes, lastModifiedSeconds, lastModifiedNanos);
+	}
+	
+	private static void writeFileTime(DataOutputStream out, FileTime fileTime) throws IOException {
+		Instant instant = fileTime.toInstant();
+		out.writeLong(instant.getEpochSecond());
+		out.writeInt(instant.getNano());
+	}
+	
+	private static FileTime readFileTime(DataInputStream in) throws IOException {
+		long seconds = in.readLong();
+		int nanos = in.readInt();
+		return FileTime.from(Instant.ofEpochSecond(seconds, nanos));
+	}
+	
+	// Collect the entries of a target directory while it is listed
+	static class Builder {
+		
+		private final FileTime directoryLastModifiedTime;
+		private final long indexTime;
+		private int nbEntries;
+		private boolean complete;
+		
+		private String[] names;
+		private byte[] types;
+		private long[] sizes;
+		private long[] lastModifiedSeconds;
+		private int[] lastModifiedNanos;
+		
+		Builder(FileTime directoryLastModifiedTime) {
+			this.directoryLastModifiedTime = directoryLastModifiedTime;
+			indexTime = System.currentTimeMillis();
+			nbEntries = 0;
+			complete = true;
+			names = new String[16];
+			types = new byte[16];
+			sizes = new long[16];
+			lastModifiedSeconds = new long[16];
+			lastModifiedNanos = new int[16];
+		}
+		
+		// If the attributes of an entry could not be read, the directory can not be indexed
+		void add(String name, BasicFileAttributes attributes) {
+			
+			if (attributes == null) {
+				complete = false;
+				return;
+			}
+			if (nbEntries == names.length) {
+				int newLength = nbEntries * 2;
+				names = Arrays.copyOf(names, newLength);
+				types = Arrays.copyOf(types, newLength);
+				sizes = Arrays.copyOf(sizes, newLength);
+				lastModifiedSeconds = Arrays.copyOf(lastModifiedSeconds, newLength);
+				lastModifiedNanos = Arrays.copyOf(lastModifiedNanos, newLength);
+			}
+			Instant lastModified = attributes.lastModifiedTime().toInstant();
+			names[nbEntries] = name;
+			types[nbEntries] = IndexedFileAttributes.typeOf(attributes);
+			sizes[nbEntries] = attributes.size();
+			lastModifiedSeconds[nbEntries] = lastModified.getEpochSecond();
+			lastModifiedNanos[nbEntries] = lastModified.getNano();
+			nbEntries++;
+		}
+		
+		boolean isComplete() {
+			return complete;
+		}
+		
+		IndexedDirectory build() {
+			return new IndexedDirectory(directoryLastModifiedTime, indexTime, 
+					Arrays.copyOf(names, nbEntries), 
+					Arrays.copyOf(types, nbEntries), 
+					Arrays.copyOf(sizes, nbEntries), 
+					Arrays.copyOf(lastModifiedSeconds, nbEntries), 
+					Arrays.copyOf(lastModifiedNanos, nbEntries));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+// Basic file attributes of a target file, as recorded in the scan state index
+class IndexedFileAttributes implements BasicFileAttributes {
+
+	static final byte REGULAR_FILE = 0;
+	static final byte DIRECTORY = 1;
+	static final byte OTHER = 2;
+	
+	private final byte type;
+	private final long size;
+	private final FileTime lastModifiedTime;
+	
+	IndexedFileAttributes(byte type, long size, FileTime lastModifiedTime) {
+		this.type = type;
+		this.size = size;
+		this.lastModifiedTime = lastModifiedTime;
+	}
+
+	static byte typeOf(BasicFileAttributes attributes) {
+		if (attributes.isRegularFile()) {
+			return REGULAR_FILE;
+		} else if (attributes.isDirectory()) {
+			return DIRECTORY;
+		} else {
+			return OTHER;
+		}
+	}
+	
+	@Override
+	public FileTime lastModifiedTime() {
+		return lastModifiedTime;
+	}
+
+	// Not recorded in the index
+	@Override
+	public FileTime lastAccessTime() {
+		return lastModifiedTime;
+	}
+
+	// Not recorded in the index
+	@Override
+	public FileTime creationTime() {
+		return lastModifiedTime;
+	}
+
+	@Override
+	public boolean isRegularFile() {
+		return type == REGULAR_FILE;
+	}
+
+	@Override
+	public boolean isDirectory() {
+		return type == DIRECTORY;
+	}
+
+	// The attributes are read following symbolic links
+	@Override
+	public boolean isSymbolicLink() {
+		return false;
+	}
+
+	@Override
+	public boolean isOther() {
+		return type == OTHER;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public Object fileKey() {
+		return null;
+	}
+}
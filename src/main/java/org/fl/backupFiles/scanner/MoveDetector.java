@@ -0,0 +1,328 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+
+// Detection of the files and directories moved or renamed in the source, once the scan has ended.
+// A target to delete (DELETE or DELETE_DIR) identical to a new source (COPY_NEW or COPY_TREE) of the same back up task 
+// is replaced by a MOVE back up item, which renames the target instead of copying the source and deleting the target.
+// Files are matched with an index on their size and last modified time (and optionally on their content),
+// trees are matched with an index on their size, then with a signature of their entries (relative paths, sizes and last modified times).
+// A target to delete that is replaced by a new source of another type (a file that became a directory or the reverse) is not moved:
+// the MOVE would take the place of the new source, which may come after the copy to the same path
+public class MoveDetector {
+
+	private static final Logger mLog = Logger.getLogger(MoveDetector.class.getName());
+	
+	private final boolean compareContent;
+	private final FileStorePermits ioScheduler;
+	private final ContentHashCache contentHashCache;
+	
+	// Candidates for a move, in the order they have been scanned
+	private final List<BackUpItem> candidates;
+	
+	private int nbMovesDetected;
+	
+	private record FileKey(BackUpTask backUpTask, long size, long lastModifiedTime) {
+	}
+	
+	private record TreeKey(BackUpTask backUpTask, String signature) {
+	}
+	
+	private record TreeSizeKey(BackUpTask backUpTask, long size) {
+	}
+	
+	// The content comparisons use the content hash cache, if it is not null
+	public MoveDetector(boolean compareContent, FileStorePermits ioScheduler, ContentHashCache contentHashCache) {
+		
+		this.compareContent = compareContent;
+		this.ioScheduler = ioScheduler;
+		this.contentHashCache = contentHashCache;
+		candidates = new ArrayList<>();
+		nbMovesDetected = 0;
+	}
+	
+	public static boolean isCandidate(AbstractBackUpItem backUpItem) {
+		
+		if (backUpItem instanceof BackUpItem item) {
+			BackupAction backupAction = item.getBackupAction();
+			return (backupAction == BackupAction.DELETE) || (backupAction == BackupAction.DELETE_DIR) ||
+					(backupAction == BackupAction.COPY_NEW) || (backupAction == BackupAction.COPY_TREE);
+		} else {
+			return false;
+		}
+	}
+	
+	// Keep the candidates for a move and returns the other back up items
+	public List<AbstractBackUpItem> holdCandidates(List<AbstractBackUpItem> backUpItems) {
+		
+		List<AbstractBackUpItem> otherBackUpItems = new ArrayList<>(backUpItems.size());
+		for (AbstractBackUpItem backUpItem : backUpItems) {
+			if (isCandidate(backUpItem)) {
+				candidates.add((BackUpItem)backUpItem);
+			} else {
+				otherBackUpItems.add(backUpItem);
+			}
+		}
+		return otherBackUpItems;
+	}
+	
+	public int getNbMovesDetected() {
+		return nbMovesDetected;
+	}
+	
+	// Returns the candidates, in their original order, where each new source identical to a target to delete is replaced by a MOVE back up item
+	// and the target to delete is removed. The counters of the replaced back up items are cancelled and the counters of the MOVE are added
+	public List<AbstractBackUpItem> detectMoves(BackUpCounters backUpCounters) {
+		
+		Set<Path> copiedTargetPaths = new HashSet<>();
+		for (BackUpItem candidate : candidates) {
+			if ((candidate.getBackupAction() == BackupAction.COPY_NEW) || (candidate.getBackupAction() == BackupAction.COPY_TREE)) {
+				copiedTargetPaths.add(candidate.getTargetPath());
+			}
+		}
+		
+		Map<BackUpItem, BackUpItem> movedTargets = new IdentityHashMap<>();
+		detectFileMoves(movedTargets, copiedTargetPaths);
+		detectTreeMoves(movedTargets, copiedTargetPaths);
+		
+		Set<BackUpItem> deletesMoved = Collections.newSetFromMap(new IdentityHashMap<>());
+		deletesMoved.addAll(movedTargets.values());
+		
+		List<AbstractBackUpItem> backUpItems = new ArrayList<>(candidates.size() - movedTargets.size());
+		for (BackUpItem candidate : candidates) {
+			
+			BackUpItem movedTarget = movedTargets.get(candidate);
+			if (movedTarget != null) {
+				candidate.cancelCounters(backUpCounters);
+				movedTarget.cancelCounters(backUpCounters);
+				backUpItems.add(new BackUpItem(candidate.getPathPairBasicAttributes(), movedTarget.getTargetPath(), backUpCounters, candidate.getBackUpTask()));
+				mLog.fine(() -> "Move detected from " + movedTarget.getTargetPath() + " to " + candidate.getTargetPath());
+			} else if (! deletesMoved.contains(candidate)) {
+				backUpItems.add(candidate);
+			}
+		}
+		nbMovesDetected = movedTargets.size();
+		candidates.clear();
+		return backUpItems;
+	}
+	
+	private void detectFileMoves(Map<BackUpItem, BackUpItem> movedTargets, Set<Path> copiedTargetPaths) {
+		
+		Map<FileKey, List<BackUpItem>> deletedFiles = new HashMap<>();
+		for (BackUpItem candidate : candidates) {
+			if ((candidate.getBackupAction() == BackupAction.DELETE) && ! copiedTargetPaths.contains(candidate.getTargetPath())) {
+				BasicFileAttributes targetAttributes = candidate.getPathPairBasicAttributes().getTargetBasicAttributes();
+				if ((targetAttributes != null) && targetAttributes.isRegularFile() && (targetAttributes.size() > 0)) {
+					deletedFiles.computeIfAbsent(new FileKey(candidate.getBackUpTask(), targetAttributes.size(), targetAttributes.lastModifiedTime().toMillis()), k -> new ArrayList<>())
+						.add(candidate);
+				}
+			}
+		}
+		if (deletedFiles.isEmpty()) {
+			return;
+		}
+		
+		for (BackUpItem candidate : candidates) {
+			if (candidate.getBackupAction() == BackupAction.COPY_NEW) {
+				BasicFileAttributes sourceAttributes = candidate.getPathPairBasicAttributes().getSourceBasicAttributes();
+				if ((sourceAttributes != null) && sourceAttributes.isRegularFile()) {
+					List<BackUpItem> sameFiles = deletedFiles.get(new FileKey(candidate.getBackUpTask(), sourceAttributes.size(), sourceAttributes.lastModifiedTime().toMillis()));
+					if ((sameFiles != null) && ! sameFiles.isEmpty()) {
+						BackUpItem movedTarget = findMovedFile(candidate, sameFiles);
+						if (movedTarget != null) {
+							sameFiles.remove(movedTarget);
+							movedTargets.put(candidate, movedTarget);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	// The deleted files with the same name are tried first (a move to another directory), then the others (a rename)
+	private BackUpItem findMovedFile(BackUpItem newFile, List<BackUpItem> sameFiles) {
+		
+		List<BackUpItem> orderedSameFiles = new ArrayList<>(sameFiles.size());
+		Path fileName = newFile.getTargetPath().getFileName();
+		sameFiles.stream().filter(deletedFile -> fileName.equals(deletedFile.getTargetPath().getFileName())).forEach(orderedSameFiles::add);
+		sameFiles.stream().filter(deletedFile -> ! fileName.equals(deletedFile.getTargetPath().getFileName())).forEach(orderedSameFiles::add);
+		
+		for (BackUpItem deletedFile : orderedSameFiles) {
+			if (! compareContent || haveSameContent(newFile, deletedFile)) {
+				return deletedFile;
+			}
+		}
+		return null;
+	}
+	
+	private boolean haveSameContent(BackUpItem newFile, BackUpItem deletedFile) {
+		
+		BackUpTask backUpTask = newFile.getBackUpTask();
+		try (Permits ioPermits = ioScheduler.acquireUninterruptibly(backUpTask.getSourceFileStore(), backUpTask.getTargetFileStore())) {
+			return ContentComparator.compare(newFile.getSourcePath(), deletedFile.getTargetPath(), contentHashCache) == ContentCompareResult.SAME_CONTENT;
+		}
+	}
+	
+	private void detectTreeMoves(Map<BackUpItem, BackUpItem> movedTargets, Set<Path> copiedTargetPaths) {
+		
+		List<BackUpItem> deletedTrees = candidates.stream()
+				.filter(candidate -> (candidate.getBackupAction() == BackupAction.DELETE_DIR) && ! copiedTargetPaths.contains(candidate.getTargetPath()))
+				.toList();
+		if (deletedTrees.isEmpty()) {
+			return;
+		}
+		Set<BackUpTask> deletedTreeTasks = new HashSet<>();
+		deletedTrees.forEach(deletedTree -> deletedTreeTasks.add(deletedTree.getBackUpTask()));
+		List<BackUpItem> newTrees = candidates.stream()
+				.filter(candidate -> (candidate.getBackupAction() == BackupAction.COPY_TREE) && deletedTreeTasks.contains(candidate.getBackUpTask()))
+				.toList();
+		if (newTrees.isEmpty()) {
+			return;
+		}
+		
+		// Identical trees have the same size: the trees are walked to compute their signature only if a tree of the same size
+		// is on the other side. The sizes are computed anyway for the counters (by the scan threads or by the folder size stage)
+		Set<TreeSizeKey> newTreeSizes = new HashSet<>();
+		newTrees.forEach(newTree -> newTreeSizes.add(treeSizeKey(newTree)));
+		Set<TreeSizeKey> deletedTreeSizes = new HashSet<>();
+		Map<TreeKey, List<BackUpItem>> deletedTreesBySignature = new LinkedHashMap<>();
+		for (BackUpItem deletedTree : deletedTrees) {
+			TreeSizeKey treeSizeKey = treeSizeKey(deletedTree);
+			if (newTreeSizes.contains(treeSizeKey)) {
+				deletedTreeSizes.add(treeSizeKey);
+				String signature = treeSignature(deletedTree.getTargetPath(), deletedTree.getBackUpTask());
+				if (signature != null) {
+					deletedTreesBySignature.computeIfAbsent(new TreeKey(deletedTree.getBackUpTask(), signature), k -> new ArrayList<>()).add(deletedTree);
+				}
+			}
+		}
+		if (deletedTreesBySignature.isEmpty()) {
+			return;
+		}
+		
+		for (BackUpItem candidate : newTrees) {
+			if (deletedTreeSizes.contains(treeSizeKey(candidate))) {
+				String signature = treeSignature(candidate.getSourcePath(), candidate.getBackUpTask());
+				if (signature != null) {
+					List<BackUpItem> sameTrees = deletedTreesBySignature.get(new TreeKey(candidate.getBackUpTask(), signature));
+					if ((sameTrees != null) && ! sameTrees.isEmpty()) {
+						BackUpItem movedTarget = sameTrees.stream()
+								.filter(deletedTree -> ! isNested(deletedTree.getTargetPath(), candidate.getTargetPath()))
+								.findFirst()
+								.orElse(null);
+						if (movedTarget != null) {
+							sameTrees.remove(movedTarget);
+							movedTargets.put(candidate, movedTarget);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	// Waits for the size of the tree if it is computed by the folder size stage
+	private static TreeSizeKey treeSizeKey(BackUpItem tree) {
+		
+		tree.waitSizeDifference();
+		return new TreeSizeKey(tree.getBackUpTask(), Math.abs(tree.getSizeDifference()));
+	}
+	
+	private static boolean isNested(Path path1, Path path2) {
+		return path1.startsWith(path2) || path2.startsWith(path1);
+	}
+	
+	// Digest of the sorted entries of a tree (relative path of the directories, relative path, size and last modified time of the files)
+	// Returns null for an empty tree or if the tree cannot be read
+	private String treeSignature(Path tree, BackUpTask backUpTask) {
+		
+		List<String> entries = new ArrayList<>();
+		try (Permits ioPermits = ioScheduler.acquireUninterruptibly(tree.startsWith(backUpTask.getSource()) ? backUpTask.getSourceFileStore() : backUpTask.getTargetFileStore(), null)) {
+			Files.walkFileTree(tree, new SimpleFileVisitor<Path>() {
+				
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if (! dir.equals(tree)) {
+						entries.add("d " + tree.relativize(dir));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					entries.add("f " + tree.relativize(file) + " " + attrs.size() + " " + attrs.lastModifiedTime().toMillis());
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			mLog.log(Level.FINE, "Exception when computing the signature of the tree " + tree, e);
+			return null;
+		}
+		if (entries.isEmpty()) {
+			return null;
+		}
+		Collections.sort(entries);
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			for (String entry : entries) {
+				messageDigest.update(entry.getBytes(StandardCharsets.UTF_8));
+				messageDigest.update((byte) '\n');
+			}
+			return HexFormat.of().formatHex(messageDigest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			mLog.log(Level.SEVERE, "Exception getting the SHA-256 message digest", e);
+			return null;
+		}
+	}
+}
@@ -54,6 +54,18 @@ public class PathPairBasicAttributes {
 		targetPathAttributesKnown = false;
 	}
 	
+	// Source path with attributes already known (read with the directory entries for instance)
+	// If sourceBasicAttributes is null, the attributes will be read when needed
+	public PathPairBasicAttributes(Path sourcePath, BasicFileAttributes sourceBasicAttributes, Path targetPath) {
+		
+		this(sourcePath, targetPath);
+		if (sourceBasicAttributes != null) {
+			this.sourceBasicAttributes = sourceBasicAttributes;
+			sourceExists = true;
+			sourcePathAttributesKnown = true;
+		}
+	}
+	
 	public Path getSourcePath() {
 		return sourcePath;
 	}
@@ -149,6 +161,19 @@ public class PathPairBasicAttributes {
 		targetPathAttributesKnown = false;
 	}
 	
+	// Set the target path with attributes already known (from the scan state index for instance)
+	// If targetBasicAttributes is null, the attributes will be read when needed
+	public void setTargetPath(Path targetPath, BasicFileAttributes targetBasicAttributes) {
+		this.targetPath = targetPath;
+		if (targetBasicAttributes == null) {
+			targetPathAttributesKnown = false;
+		} else {
+			this.targetBasicAttributes = targetBasicAttributes;
+			targetExists = true;
+			targetPathAttributesKnown = true;
+		}
+	}
+	
 	public static PathPairBasicAttributes getClosestExistingParentBasicAttributes(Path path) {
 		
 		Path parentPath = path.getParent();
@@ -0,0 +1,54 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// The executors available for the scanner tasks
+public enum ScanExecutorType {
+	
+	// Fixed thread pool: the number of scanner tasks in progress is limited by the thread pool size
+	FIXED {
+		@Override
+		public ExecutorService newExecutorService(int threadPoolSize) {
+			return Executors.newFixedThreadPool(threadPoolSize);
+		}
+	},
+	// One virtual thread per scanner task (the scanner tasks are blocked on file system accesses most of the time):
+	// the number of scanner tasks in progress is limited for each file store, by file store permits
+	VIRTUAL {
+		@Override
+		public ExecutorService newExecutorService(int threadPoolSize) {
+			return Executors.newVirtualThreadPerTaskExecutor();
+		}
+	};
+	
+	public abstract ExecutorService newExecutorService(int threadPoolSize);
+	
+	public boolean needFileStorePermits() {
+		return this == VIRTUAL;
+	}
+}
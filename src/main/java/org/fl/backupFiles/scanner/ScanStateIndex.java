@@ -0,0 +1,267 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Persistent index of the target directories listed during the last scan of a back up task.
+// When a target directory has not been modified since it has been listed (same last modified time),
+// its entries and their attributes are taken from the index instead of listing the directory again.
+// Only the target side is indexed : a source file modified in place does not change
+// the last modified time of its directory, so the source tree is always fully walked.
+// The back up invalidates the directories it modifies and the index file is removed during a back up,
+// so that an interrupted back up leads to a full scan.
+// A target file modified in place by another program does not change the last modified time of its directory either :
+// it is not seen until the next full listing of the target, forced every fullScanPeriod scans.
+public class ScanStateIndex {
+
+	private static final Logger sLog = Logger.getLogger(ScanStateIndex.class.getName());
+	
+	private static final int INDEX_MAGIC = 0x42465349;
+	private static final int INDEX_VERSION = 2;
+	private static final String INDEX_EXTENSION = ".idx";
+	
+	private final Path indexFile;
+	private final Path targetRoot;
+	private final String sourceName;
+	private final String targetName;
+	private final int fullScanPeriod;
+	
+	private final AtomicLong nbDirectoriesFromIndex;
+	
+	private boolean loaded;
+	private int nbScansSinceFullScan;
+	private volatile Map<String, IndexedDirectory> knownDirectories;
+	private volatile Map<String, IndexedDirectory> scannedDirectories;
+	
+	public ScanStateIndex(Path indexDirectory, Path sourceRoot, Path targetRoot) {
+		this(indexDirectory, sourceRoot, targetRoot, 0);
+	}
+	
+	public ScanStateIndex(Path indexDirectory, Path sourceRoot, Path targetRoot, int fullScanPeriod) {
+		
+		this.targetRoot = targetRoot;
+		this.fullScanPeriod = fullScanPeriod;
+		sourceName = sourceRoot.toString();
+		targetName = targetRoot.toString();
+		indexFile = indexDirectory.resolve(UUID.nameUUIDFromBytes((sourceName + " ==> " + targetName).getBytes(StandardCharsets.UTF_8)) + INDEX_EXTENSION);
+		
+		nbDirectoriesFromIndex = new AtomicLong(0);
+		loaded = false;
+		nbScansSinceFullScan = 0;
+		knownDirectories = new ConcurrentHashMap<>();
+		scannedDirectories = knownDirectories;
+	}
+
+	public Path getIndexFile() {
+		return indexFile;
+	}
+	
+	public long getNbDirectoriesFromIndex() {
+		return nbDirectoriesFromIndex.get();
+	}
+	
+	public int getNbIndexedDirectories() {
+		return knownDirectories.size();
+	}
+	
+	public int getNbScansSinceFullScan() {
+		return nbScansSinceFullScan;
+	}
+	
+	public synchronized void startScan() {
+		
+		if (! loaded) {
+			knownDirectories = load();
+			loaded = true;
+		}
+		// The target is periodically fully listed, to see the target files modified in place
+		if ((fullScanPeriod > 0) && (nbScansSinceFullScan + 1 >= fullScanPeriod)) {
+			sLog.fine(() -> "Full listing of the target forced for " + targetName);
+			knownDirectories = new ConcurrentHashMap<>();
+			nbScansSinceFullScan = 0;
+		} else {
+			nbScansSinceFullScan++;
+		}
+		// Only the directories seen during this scan are kept in the index
+		scannedDirectories = new ConcurrentHashMap<>();
+		nbDirectoriesFromIndex.set(0);
+	}
+	
+	public synchronized void endScan() {
+		
+		knownDirectories = scannedDirectories;
+		save();
+	}
+	
+	// The index file is removed while the back up modifies the target
+	public synchronized void startBackUp() {
+		
+		try {
+			Files.deleteIfExists(indexFile);
+		} catch (IOException e) {
+			sLog.log(Level.SEVERE, "Exception when deleting scan state index " + indexFile, e);
+		}
+	}
+	
+	public synchronized void endBackUp() {
+		save();
+	}
+	
+	// Returns the indexed entries of the target directory if it has not been modified since it has been indexed,
+	// null otherwise
+	IndexedDirectory getUnchangedDirectory(Path targetDirectory, BasicFileAttributes targetDirectoryAttributes) {
+		
+		String key = getKey(targetDirectory);
+		if ((key == null) || (targetDirectoryAttributes == null)) {
+			return null;
+		}
+		IndexedDirectory indexedDirectory = knownDirectories.get(key);
+		if ((indexedDirectory != null) && indexedDirectory.isUnchanged(targetDirectoryAttributes.lastModifiedTime())) {
+			scannedDirectories.put(key, indexedDirectory);
+			nbDirectoriesFromIndex.incrementAndGet();
+			return indexedDirectory;
+		} else {
+			return null;
+		}
+	}
+	
+	void recordDirectory(Path targetDirectory, IndexedDirectory indexedDirectory) {
+		
+		String key = getKey(targetDirectory);
+		if (key != null) {
+			scannedDirectories.put(key, indexedDirectory);
+		}
+	}
+	
+	// The target path is about to be modified by a back up action :
+	// its parent directory and the target path sub tree (if it is a directory) must be listed again on the next scan
+	public void invalidate(Path targetPath, boolean isDirectory) {
+		
+		if (targetPath == null) {
+			return;
+		}
+		Path parentDirectory = targetPath.getParent();
+		if (parentDirectory != null) {
+			removeKey(getKey(parentDirectory));
+		}
+		String key = getKey(targetPath);
+		if (key != null) {
+			removeKey(key);
+			if (isDirectory) {
+				String subTreePrefix = key.isEmpty() ? key : key + targetPath.getFileSystem().getSeparator();
+				knownDirectories.keySet().removeIf(k -> k.startsWith(subTreePrefix));
+				scannedDirectories.keySet().removeIf(k -> k.startsWith(subTreePrefix));
+			}
+		}
+	}
+	
+	private void removeKey(String key) {
+		if (key != null) {
+			knownDirectories.remove(key);
+			scannedDirectories.remove(key);
+		}
+	}
+	
+	// Key of a target directory : its path relative to the target root of the back up task
+	private String getKey(Path targetDirectory) {
+		
+		if (targetDirectory.startsWith(targetRoot)) {
+			return targetRoot.relativize(targetDirectory).toString();
+		} else {
+			return null;
+		}
+	}
+	
+	private Map<String, IndexedDirectory> load() {
+		
+		Map<String, IndexedDirectory> directories = new ConcurrentHashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			
+			if ((in.readInt() != INDEX_MAGIC) || (in.readInt() != INDEX_VERSION)) {
+				sLog.warning("Invalid or obsolete scan state index ignored: " + indexFile);
+			} else if (! sourceName.equals(in.readUTF()) || ! targetName.equals(in.readUTF())) {
+				sLog.warning("Scan state index for another back up task ignored: " + indexFile);
+			} else {
+				nbScansSinceFullScan = in.readInt();
+				int nbDirectories = in.readInt();
+				for (int i = 0; i < nbDirectories; i++) {
+					String key = in.readUTF();
+					directories.put(key, IndexedDirectory.read(in));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			sLog.fine(() -> "No scan state index " + indexFile);
+		} catch (Exception e) {
+			sLog.log(Level.SEVERE, "Exception when reading scan state index " + indexFile, e);
+			directories.clear();
+			nbScansSinceFullScan = 0;
+		}
+		return directories;
+	}
+	
+	// The index is written in a temporary file, then moved, so that an incomplete index is never read
+	private void save() {
+		
+		Path tmpIndexFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(indexFile.getParent());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpIndexFile)))) {
+				
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+				out.writeUTF(sourceName);
+				out.writeUTF(targetName);
+				out.writeInt(nbScansSinceFullScan);
+				List<Map.Entry<String, IndexedDirectory>> directories = List.copyOf(knownDirectories.entrySet());
+				out.writeInt(directories.size());
+				for (Map.Entry<String, IndexedDirectory> entry : directories) {
+					out.writeUTF(entry.getKey());
+					entry.getValue().write(out);
+				}
+			}
+			Files.move(tmpIndexFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (Exception e) {
+			sLog.log(Level.SEVERE, "Exception when writing scan state index " + indexFile, e);
+		}
+	}
+}
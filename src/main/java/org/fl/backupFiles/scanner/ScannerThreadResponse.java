@@ -36,16 +36,19 @@ public class ScannerThreadResponse {
 	private final BackUpTask backUpTask;
 	private final List<Path> filesVisitFailed;
 
+	// When the back up items are streamed, the back up item list does not contain the streamed back up items
 	private final BackUpItemList backUpItemList;
+	private final int nbBackUpItems;
 	private final BackUpCounters backUpCounters;
 	private final String status;
 
 	private boolean hasNotBeenProcessed;
 
-	public ScannerThreadResponse(BackUpTask but, BackUpItemList bil, BackUpCounters buc, List<Path> fvf, String st) {
+	public ScannerThreadResponse(BackUpTask but, BackUpItemList bil, int nbi, BackUpCounters buc, List<Path> fvf, String st) {
 
 		backUpTask = but;
 		backUpItemList = bil;
+		nbBackUpItems = nbi;
 		backUpCounters = buc;
 		filesVisitFailed = fvf;
 		status = st;
@@ -65,6 +68,11 @@ public class ScannerThreadResponse {
 		return backUpItemList;
 	}
 
+	// Number of back up items found by the scan, streamed or not
+	public int getNbBackUpItems() {
+		return nbBackUpItems;
+	}
+
 	public BackUpCounters getBackUpCounters() {
 		return backUpCounters;
 	}
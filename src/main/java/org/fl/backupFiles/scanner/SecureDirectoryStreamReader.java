@@ -0,0 +1,88 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// List a directory with a secure directory stream (available on Linux and other Unix).
+// The attributes of each entry are read relatively to the opened directory (fstatat),
+// so the full path of the entry is not resolved again by the file system (costly on NFS for instance).
+// If the file system does not provide secure directory streams, the fallback reader is used
+class SecureDirectoryStreamReader implements DirectoryReader {
+
+	private final DirectoryReader fallbackReader;
+	
+	// File system providers which do not provide secure directory streams
+	private final Set<FileSystemProvider> noSecureDirectoryStreamProviders;
+	
+	SecureDirectoryStreamReader(DirectoryReader fallbackReader) {
+		this.fallbackReader = fallbackReader;
+		noSecureDirectoryStreamProviders = ConcurrentHashMap.newKeySet();
+	}
+
+	@Override
+	public void read(Path directory, DirectoryListing directoryListing) throws IOException {
+		
+		FileSystemProvider provider = directory.getFileSystem().provider();
+		if (! noSecureDirectoryStreamProviders.contains(provider)) {
+			try (DirectoryStream<Path> fileStream = Files.newDirectoryStream(directory)) {
+				
+				if (fileStream instanceof SecureDirectoryStream<Path> secureFileStream) {
+					for (Path file : secureFileStream) {
+						directoryListing.add(file, readAttributes(secureFileStream, file));
+					}
+					return;
+				}
+			}
+			noSecureDirectoryStreamProviders.add(provider);
+		}
+		fallbackReader.read(directory, directoryListing);
+	}
+	
+	// Symbolic links are followed, as when the attributes are read by path.
+	// Null if the attributes cannot be read (broken link for instance) : they will be read again when needed
+	private static BasicFileAttributes readAttributes(SecureDirectoryStream<Path> secureFileStream, Path file) {
+		
+		try {
+			return secureFileStream.getFileAttributeView(file.getFileName(), BasicFileAttributeView.class).readAttributes();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean readsAttributes() {
+		return true;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.snapshot;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.fl.util.file.FilesUtils;
+
+// Versioned history of a back up target, in the style of rsnapshot.
+// The target stays a mirror of the source : it is scanned and backed up as usual, so it is always the latest snapshot.
+// After each back up, a new dated snapshot directory is created in the snapshot root directory, 
+// where each file of the target is hard linked. So a snapshot of an unchanged tree costs only metadata operations,
+// and the files that have not changed are shared by all the snapshots.
+// The copies of the back up delete the target file before writing a new one, so they do not modify the previous snapshots.
+// The operations that modify a target file in place (last modified time adjustment) must unshare it first.
+// The snapshot root directory must be on the file store of the target, and must not be inside the target.
+public class SnapshotHistory {
+
+	private static final Logger sLog = Logger.getLogger(SnapshotHistory.class.getName());
+	
+	private static final DateTimeFormatter SNAPSHOT_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+	private static final Pattern SNAPSHOT_NAME_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2}-\\d{3}");
+	private static final String IN_PROGRESS_SUFFIX = ".inProgress";
+	private static final String UNSHARE_SUFFIX = ".unshare";
+	
+	private final Path targetRoot;
+	private final Path snapshotRoot;
+	private final int nbSnapshotsToKeep;
+	
+	// nbSnapshotsToKeep : the oldest snapshots are deleted when there are more snapshots. 0 to keep all the snapshots
+	public SnapshotHistory(Path targetRoot, Path snapshotRoot, int nbSnapshotsToKeep) {
+		
+		if (snapshotRoot.startsWith(targetRoot)) {
+			throw new IllegalArgumentException("The snapshot directory " + snapshotRoot + " must not be inside the target " + targetRoot);
+		}
+		this.targetRoot = targetRoot;
+		this.snapshotRoot = snapshotRoot;
+		this.nbSnapshotsToKeep = nbSnapshotsToKeep;
+	}
+
+	public Path getTargetRoot() {
+		return targetRoot;
+	}
+
+	public Path getSnapshotRoot() {
+		return snapshotRoot;
+	}
+
+	public int getNbSnapshotsToKeep() {
+		return nbSnapshotsToKeep;
+	}
+	
+	// Returns the new snapshot directory, or null if the snapshot has failed
+	public Path createSnapshot() {
+		
+		if (! Files.exists(targetRoot, LinkOption.NOFOLLOW_LINKS)) {
+			sLog.warning("No snapshot created because the target does not exist: " + targetRoot);
+			return null;
+		}
+		
+		long snapshotBegin = System.currentTimeMillis();
+		Path inProgressSnapshot = null;
+		try {
+			Files.createDirectories(snapshotRoot);
+			
+			// The snapshot is created under a temporary name, so that an interrupted snapshot is not taken as a snapshot
+			Path snapshot = newSnapshotPath();
+			inProgressSnapshot = snapshot.resolveSibling(snapshot.getFileName() + IN_PROGRESS_SUFFIX);
+			long nbFilesLinked = linkTree(inProgressSnapshot);
+			Files.move(inProgressSnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE);
+			
+			sLog.info("Snapshot " + snapshot + " created for " + targetRoot + ": " + nbFilesLinked + " files linked in " + (System.currentTimeMillis() - snapshotBegin) + " ms");
+			deleteOldSnapshots();
+			return snapshot;
+		} catch (Exception e) {
+			sLog.log(Level.SEVERE, "Exception when creating a snapshot of " + targetRoot + " in " + snapshotRoot, e);
+			if ((inProgressSnapshot != null) && Files.exists(inProgressSnapshot)) {
+				try {
+					FilesUtils.deleteDirectoryTree(inProgressSnapshot, true, sLog);
+				} catch (Exception e1) {
+					sLog.log(Level.SEVERE, "Exception when deleting the partial snapshot " + inProgressSnapshot, e1);
+				}
+			}
+			return null;
+		}
+	}
+	
+	// The existing snapshots, the oldest first
+	public List<Path> getSnapshots() throws IOException {
+		
+		List<Path> snapshots = new ArrayList<>();
+		if (Files.isDirectory(snapshotRoot)) {
+			try (DirectoryStream<Path> snapshotStream = Files.newDirectoryStream(snapshotRoot, 
+					path -> SNAPSHOT_NAME_PATTERN.matcher(path.getFileName().toString()).matches() && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))) {
+				snapshotStream.forEach(snapshots::add);
+			}
+		}
+		snapshots.sort(null);
+		return snapshots;
+	}
+	
+	// Before a modification in place of a target file, the file is replaced by a copy of itself if it is shared with snapshots
+	public void unshare(Path targetFile) throws IOException {
+		
+		if (isShared(targetFile)) {
+			Path unsharedFile = targetFile.resolveSibling(targetFile.getFileName() + UNSHARE_SUFFIX);
+			Files.copy(targetFile, unsharedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+			Files.move(unsharedFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+	
+	private boolean isShared(Path targetFile) throws IOException {
+		
+		if (! Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS)) {
+			return false;
+		}
+		try {
+			return ((Integer) Files.getAttribute(targetFile, "unix:nlink", LinkOption.NOFOLLOW_LINKS)) > 1;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			// The number of links is not known on this file store : the file is considered as shared
+			return true;
+		}
+	}
+	
+	// Snapshots names are the creation date, with the milliseconds so that they are unique and sorted
+	private Path newSnapshotPath() {
+		
+		LocalDateTime snapshotTime = LocalDateTime.now();
+		Path snapshot = snapshotRoot.resolve(SNAPSHOT_NAME_FORMAT.format(snapshotTime));
+		while (Files.exists(snapshot) || Files.exists(snapshot.resolveSibling(snapshot.getFileName() + IN_PROGRESS_SUFFIX))) {
+			snapshotTime = snapshotTime.plusNanos(1_000_000);
+			snapshot = snapshotRoot.resolve(SNAPSHOT_NAME_FORMAT.format(snapshotTime));
+		}
+		return snapshot;
+	}
+	
+	// The directories are created, the files are hard linked and the symbolic links are copied
+	private long linkTree(Path snapshot) throws IOException {
+		
+		AtomicLong nbFilesLinked = new AtomicLong(0);
+		Files.walkFileTree(targetRoot, new SimpleFileVisitor<Path>() {
+			
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectory(snapshot.resolve(targetRoot.relativize(dir)));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Path snapshotFile = snapshot.resolve(targetRoot.relativize(file));
+				if (attrs.isSymbolicLink()) {
+					Files.copy(file, snapshotFile, LinkOption.NOFOLLOW_LINKS);
+				} else if (attrs.isRegularFile()) {
+					Files.createLink(snapshotFile, file);
+					nbFilesLinked.incrementAndGet();
+				} else {
+					sLog.warning("File ignored for the snapshot (not a regular file): " + file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			// Linking the files modifies the snapshot directories, so their last modified time is set last
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				Files.setLastModifiedTime(snapshot.resolve(targetRoot.relativize(dir)), Files.getLastModifiedTime(dir));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return nbFilesLinked.get();
+	}
+	
+	private void deleteOldSnapshots() throws IOException {
+		
+		if (nbSnapshotsToKeep > 0) {
+			List<Path> snapshots = getSnapshots();
+			for (Path oldSnapshot : snapshots.subList(0, Math.max(0, snapshots.size() - nbSnapshotsToKeep))) {
+				if (FilesUtils.deleteDirectoryTree(oldSnapshot, true, sLog)) {
+					sLog.info("Old snapshot deleted: " + oldSnapshot);
+				} else {
+					sLog.warning("Fail to delete old snapshot: " + oldSnapshot);
+				}
+			}
+		}
+	}
+}
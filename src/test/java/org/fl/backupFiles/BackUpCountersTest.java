@@ -31,7 +31,12 @@ import java.nio.file.FileStore;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.fl.backupFiles.copy.CopyResult;
+import org.fl.backupFiles.copy.CopyStrategyType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -89,6 +94,75 @@ class BackUpCountersTest {
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 
+	@Test
+	void shouldRecordCopyThroughput() {
+
+		BackUpCounters bc1 = new BackUpCounters(newTargetFileStores(), OperationType.BACKUP);
+		BackUpCounters bc2 = bc1.forkCounters();
+		
+		bc1.recordCopy(new CopyResult(CopyStrategyType.TRANSFER_TO, 1000), 1_000_000_000L);
+		bc2.recordCopy(new CopyResult(CopyStrategyType.TRANSFER_TO, 3000), 1_000_000_000L);
+		bc2.recordCopy(new CopyResult(CopyStrategyType.LARGE_BUFFER, 500), 500_000_000L);
+		bc1.add(bc2);
+		
+		assertThat(bc1.getNbBytesCopied(CopyStrategyType.TRANSFER_TO)).isEqualTo(4000);
+		assertThat(bc1.getCopyThroughput(CopyStrategyType.TRANSFER_TO)).isEqualTo(2000);
+		assertThat(bc1.getCopyThroughput(CopyStrategyType.LARGE_BUFFER)).isEqualTo(1000);
+		assertThat(bc1.getCopyThroughput(CopyStrategyType.FILES_COPY)).isZero();
+		
+		bc1.reset();
+		assertThat(bc1.getNbBytesCopied(CopyStrategyType.TRANSFER_TO)).isZero();
+		assertThat(bc1.getCopyThroughput(CopyStrategyType.TRANSFER_TO)).isZero();
+	}
+	
+	@Test
+	void deltaCopiesShouldBeRecordedApart() {
+
+		BackUpCounters bc1 = new BackUpCounters(newTargetFileStores(), OperationType.BACKUP);
+		BackUpCounters bc2 = bc1.forkCounters();
+		
+		bc2.recordCopy(CopyResult.ofDeltaCopy(2000), 500_000_000L);
+		bc1.add(bc2);
+		
+		assertThat(bc1.getNbBytesDeltaCopied()).isEqualTo(2000);
+		assertThat(bc1.getDeltaCopyThroughput()).isEqualTo(4000);
+		for (CopyStrategyType copyStrategyType : CopyStrategyType.values()) {
+			assertThat(bc1.getNbBytesCopied(copyStrategyType)).isZero();
+		}
+		
+		bc1.reset();
+		assertThat(bc1.getNbBytesDeltaCopied()).isZero();
+	}
+	
+	@Test
+	void shouldCountConcurrentIncrements() throws InterruptedException {
+
+		BackUpCounters bc = new BackUpCounters(newTargetFileStores(), OperationType.SCAN);
+		
+		int nbThreads = 8;
+		int nbIncrements = 10000;
+		ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+		for (int i = 0; i < nbThreads; i++) {
+			executorService.execute(() -> {
+				for (int j = 0; j < nbIncrements; j++) {
+					bc.copyNewNb.increment();
+					bc.nbSourceFilesProcessed.add(2);
+					bc.recordPotentialSizeChange(fileStore, 1);
+				}
+			});
+		}
+		executorService.shutdown();
+		assertThat(executorService.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+		
+		assertThat(bc.copyNewNb.sum()).isEqualTo(nbThreads*nbIncrements);
+		assertThat(bc.getTargetFileStores().getPotentialSizeChange(fileStore)).isEqualTo(nbThreads*nbIncrements);
+		
+		BackUpCounters.Snapshot snapshot = bc.snapshot();
+		assertThat(snapshot.copyNewNb()).isEqualTo(nbThreads*nbIncrements);
+		assertThat(snapshot.nbSourceFilesProcessed()).isEqualTo(2L*nbThreads*nbIncrements);
+		assertThat(snapshot.deleteNb()).isZero();
+	}
+	
 	@Test
 	void shouldAddCountersWithIncrement() {
 
@@ -138,17 +212,17 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 		
-		bc1.nbHighPermanencePath++;
+		bc1.nbHighPermanencePath.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
-		bc1.nbMediumPermanencePath++;
+		bc1.nbMediumPermanencePath.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
-		bc1.nbSourceFilesFailed++;
+		bc1.nbSourceFilesFailed.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
-		bc1.nbSourceFilesProcessed++;
+		bc1.nbSourceFilesProcessed.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
-		bc1.nbTargetFilesFailed++;
+		bc1.nbTargetFilesFailed.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
-		bc1.nbTargetFilesProcessed++;
+		bc1.nbTargetFilesProcessed.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 	}
 	
@@ -163,7 +237,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.copyNewNb++;
+		bc1.copyNewNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -178,7 +252,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.copyTreeNb++;
+		bc1.copyTreeNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -193,7 +267,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.copyReplaceNb++;
+		bc1.copyReplaceNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -208,7 +282,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.copyTargetNb++;
+		bc1.copyTargetNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -223,7 +297,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.deleteDirNb++;
+		bc1.deleteDirNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -238,7 +312,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.deleteNb++;
+		bc1.deleteNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -253,7 +327,22 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.adjustTimeNb++;
+		bc1.adjustTimeNb.increment();
+		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
+	}
+	
+	@Test
+	void individualCountersShouldNotBeEquals8() {
+		
+		BackUpCounters bc1 = new BackUpCounters(newTargetFileStores(), OperationType.SCAN);
+		BackUpCounters bc2 = new BackUpCounters(newTargetFileStores(), OperationType.BACKUP);
+
+		setFieldValueWithIncrement(bc1, 12);
+		setFieldValueWithIncrement(bc2, 12);
+		
+		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
+
+		bc1.moveNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -268,7 +357,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.ambiguousNb++;
+		bc1.ambiguousNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -283,7 +372,7 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.backupWithSizeAboveThreshold++;
+		bc1.backupWithSizeAboveThreshold.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
@@ -298,87 +387,87 @@ class BackUpCountersTest {
 		
 		assertThat(bc1.equalsIndividualCounters(bc2)).isTrue();
 
-		bc1.contentDifferentNb++;
+		bc1.contentDifferentNb.increment();
 		assertThat(bc1.equalsIndividualCounters(bc2)).isFalse();
 	}
 	
 	private static void assertFieldValue(BackUpCounters bc, long val) {
 		
-		assertThat(bc.ambiguousNb).isEqualTo(val);
-		assertThat(bc.backupWithSizeAboveThreshold).isEqualTo(val);
-		assertThat(bc.contentDifferentNb).isEqualTo(val);
-		assertThat(bc.copyNewNb).isEqualTo(val);
-		assertThat(bc.copyReplaceNb).isEqualTo(val);
-		assertThat(bc.copyTreeNb).isEqualTo(val);
-		assertThat(bc.deleteDirNb).isEqualTo(val);
-		assertThat(bc.deleteNb).isEqualTo(val);
-		assertThat(bc.nbHighPermanencePath).isEqualTo(val);
-		assertThat(bc.nbMediumPermanencePath).isEqualTo(val);
-		assertThat(bc.nbSourceFilesFailed).isEqualTo(val);
-		assertThat(bc.nbSourceFilesProcessed).isEqualTo(val);
-		assertThat(bc.nbTargetFilesFailed).isEqualTo(val);
-		assertThat(bc.nbTargetFilesProcessed).isEqualTo(val);
-		assertThat(bc.copyTargetNb).isEqualTo(val);
+		assertThat(bc.ambiguousNb.sum()).isEqualTo(val);
+		assertThat(bc.backupWithSizeAboveThreshold.sum()).isEqualTo(val);
+		assertThat(bc.contentDifferentNb.sum()).isEqualTo(val);
+		assertThat(bc.copyNewNb.sum()).isEqualTo(val);
+		assertThat(bc.copyReplaceNb.sum()).isEqualTo(val);
+		assertThat(bc.copyTreeNb.sum()).isEqualTo(val);
+		assertThat(bc.deleteDirNb.sum()).isEqualTo(val);
+		assertThat(bc.deleteNb.sum()).isEqualTo(val);
+		assertThat(bc.nbHighPermanencePath.sum()).isEqualTo(val);
+		assertThat(bc.nbMediumPermanencePath.sum()).isEqualTo(val);
+		assertThat(bc.nbSourceFilesFailed.sum()).isEqualTo(val);
+		assertThat(bc.nbSourceFilesProcessed.sum()).isEqualTo(val);
+		assertThat(bc.nbTargetFilesFailed.sum()).isEqualTo(val);
+		assertThat(bc.nbTargetFilesProcessed.sum()).isEqualTo(val);
+		assertThat(bc.copyTargetNb.sum()).isEqualTo(val);
 		assertThat(bc.getTargetFileStores().getPotentialSizeChange(fileStore)).isNotNull().isEqualTo(val);
 	}
 
 	private static void assertFieldValueWithIncrement(BackUpCounters bc, long val, long m) {
 		
-		assertThat(bc.ambiguousNb).isEqualTo(val);
-		assertThat(bc.backupWithSizeAboveThreshold).isEqualTo(val+1*m);
-		assertThat(bc.contentDifferentNb).isEqualTo(val+2*m);
-		assertThat(bc.copyNewNb).isEqualTo(val+3*m);
-		assertThat(bc.copyReplaceNb).isEqualTo(val+4*m);
-		assertThat(bc.copyTreeNb).isEqualTo(val+5*m);
-		assertThat(bc.deleteDirNb).isEqualTo(val+6*m);
-		assertThat(bc.deleteNb).isEqualTo(val+7*m);
-		assertThat(bc.nbHighPermanencePath).isEqualTo(val+8*m);
-		assertThat(bc.nbMediumPermanencePath).isEqualTo(val+9*m);
-		assertThat(bc.nbSourceFilesFailed).isEqualTo(val+10*m);
-		assertThat(bc.nbSourceFilesProcessed).isEqualTo(val+11*m);
-		assertThat(bc.nbTargetFilesFailed).isEqualTo(val+12*m);
-		assertThat(bc.nbTargetFilesProcessed).isEqualTo(val+13*m);
-		assertThat(bc.copyTargetNb).isEqualTo(val+14*m);
+		assertThat(bc.ambiguousNb.sum()).isEqualTo(val);
+		assertThat(bc.backupWithSizeAboveThreshold.sum()).isEqualTo(val+1*m);
+		assertThat(bc.contentDifferentNb.sum()).isEqualTo(val+2*m);
+		assertThat(bc.copyNewNb.sum()).isEqualTo(val+3*m);
+		assertThat(bc.copyReplaceNb.sum()).isEqualTo(val+4*m);
+		assertThat(bc.copyTreeNb.sum()).isEqualTo(val+5*m);
+		assertThat(bc.deleteDirNb.sum()).isEqualTo(val+6*m);
+		assertThat(bc.deleteNb.sum()).isEqualTo(val+7*m);
+		assertThat(bc.nbHighPermanencePath.sum()).isEqualTo(val+8*m);
+		assertThat(bc.nbMediumPermanencePath.sum()).isEqualTo(val+9*m);
+		assertThat(bc.nbSourceFilesFailed.sum()).isEqualTo(val+10*m);
+		assertThat(bc.nbSourceFilesProcessed.sum()).isEqualTo(val+11*m);
+		assertThat(bc.nbTargetFilesFailed.sum()).isEqualTo(val+12*m);
+		assertThat(bc.nbTargetFilesProcessed.sum()).isEqualTo(val+13*m);
+		assertThat(bc.copyTargetNb.sum()).isEqualTo(val+14*m);
 		assertThat(bc.getTargetFileStores().getPotentialSizeChange(fileStore)).isNotNull().isEqualTo(val + 15*m);
 	}
 	
 	private static void setFieldValue(BackUpCounters bc, long val) {
 
-		bc.ambiguousNb = val;
-		bc.backupWithSizeAboveThreshold = val;
-		bc.contentDifferentNb = val;
-		bc.copyNewNb = val;
-		bc.copyReplaceNb = val;
-		bc.copyTreeNb = val;
-		bc.deleteDirNb = val;
-		bc.deleteNb = val;
-		bc.nbHighPermanencePath = val;
-		bc.nbMediumPermanencePath = val;
-		bc.nbSourceFilesFailed = val;
-		bc.nbSourceFilesProcessed = val;
-		bc.nbTargetFilesFailed = val;
-		bc.nbTargetFilesProcessed = val;
-		bc.copyTargetNb = val;
+		bc.ambiguousNb.add(val);
+		bc.backupWithSizeAboveThreshold.add(val);
+		bc.contentDifferentNb.add(val);
+		bc.copyNewNb.add(val);
+		bc.copyReplaceNb.add(val);
+		bc.copyTreeNb.add(val);
+		bc.deleteDirNb.add(val);
+		bc.deleteNb.add(val);
+		bc.nbHighPermanencePath.add(val);
+		bc.nbMediumPermanencePath.add(val);
+		bc.nbSourceFilesFailed.add(val);
+		bc.nbSourceFilesProcessed.add(val);
+		bc.nbTargetFilesFailed.add(val);
+		bc.nbTargetFilesProcessed.add(val);
+		bc.copyTargetNb.add(val);
 		bc.recordPotentialSizeChange(fileStore, val);
 	}
 
 	private static void setFieldValueWithIncrement(BackUpCounters bc, long val) {
 
-		bc.ambiguousNb = val;
-		bc.backupWithSizeAboveThreshold = val + 1;
-		bc.contentDifferentNb = val + 2;
-		bc.copyNewNb = val + 3;
-		bc.copyReplaceNb = val + 4;
-		bc.copyTreeNb = val + 5;
-		bc.deleteDirNb = val + 6;
-		bc.deleteNb = val + 7;
-		bc.nbHighPermanencePath = val + 8;
-		bc.nbMediumPermanencePath = val + 9;
-		bc.nbSourceFilesFailed = val + 10;
-		bc.nbSourceFilesProcessed = val + 11;
-		bc.nbTargetFilesFailed = val + 12;
-		bc.nbTargetFilesProcessed = val + 13;
-		bc.copyTargetNb = val + 14;
+		bc.ambiguousNb.add(val);
+		bc.backupWithSizeAboveThreshold.add(val + 1);
+		bc.contentDifferentNb.add(val + 2);
+		bc.copyNewNb.add(val + 3);
+		bc.copyReplaceNb.add(val + 4);
+		bc.copyTreeNb.add(val + 5);
+		bc.deleteDirNb.add(val + 6);
+		bc.deleteNb.add(val + 7);
+		bc.nbHighPermanencePath.add(val + 8);
+		bc.nbMediumPermanencePath.add(val + 9);
+		bc.nbSourceFilesFailed.add(val + 10);
+		bc.nbSourceFilesProcessed.add(val + 11);
+		bc.nbTargetFilesFailed.add(val + 12);
+		bc.nbTargetFilesProcessed.add(val + 13);
+		bc.copyTargetNb.add(val + 14);
 		bc.recordPotentialSizeChange(fileStore, val + 15);
 	}
 }
@@ -125,18 +125,18 @@ public class BackUpItemTest {
 
 		assertThat(fileComparator.haveSameContent(EXISTANT_SOURCE, UNEXISTANT_TARGET)).isTrue();
 
-		assertThat(counters.nbSourceFilesProcessed).isEqualTo(1);
-		assertThat(counters.copyNewNb).isEqualTo(1);
+		assertThat(counters.nbSourceFilesProcessed.sum()).isEqualTo(1);
+		assertThat(counters.copyNewNb.sum()).isEqualTo(1);
 		assertThat(getTotalCounters(counters)).isEqualTo(2);
 
 		counters.reset();
 		pathPairBasicAttributes = new PathPairBasicAttributes(EXISTANT_SOURCE, UNEXISTANT_TARGET);
 		backUpItem = new BackUpItem(pathPairBasicAttributes, BackupAction.DELETE, pathPairBasicAttributes, counters, backUpTask);
 
-		assertThat(counters.copyNewNb).isZero();
-		assertThat(counters.nbSourceFilesProcessed).isZero();
-		assertThat(counters.nbTargetFilesProcessed).isZero();
-		assertThat(counters.deleteNb).isEqualTo(1);
+		assertThat(counters.copyNewNb.sum()).isZero();
+		assertThat(counters.nbSourceFilesProcessed.sum()).isZero();
+		assertThat(counters.nbTargetFilesProcessed.sum()).isZero();
+		assertThat(counters.deleteNb.sum()).isEqualTo(1);
 		assertThat(getTotalCounters(counters)).isEqualTo(1);
 
 		counters.reset();
@@ -145,9 +145,9 @@ public class BackUpItemTest {
 		assertThat(backUpItem.getBackupStatus()).isEqualTo(BackupStatus.DONE);
 
 		assertThat(Files.exists(UNEXISTANT_TARGET)).isFalse();
-		assertThat(counters.nbSourceFilesProcessed).isZero();
-		assertThat(counters.deleteNb).isEqualTo(1);
-		assertThat(counters.nbTargetFilesProcessed).isEqualTo(1);
+		assertThat(counters.nbSourceFilesProcessed.sum()).isZero();
+		assertThat(counters.deleteNb.sum()).isEqualTo(1);
+		assertThat(counters.nbTargetFilesProcessed.sum()).isEqualTo(1);
 		assertThat(getTotalCounters(counters)).isEqualTo(2);
 	}
 
@@ -417,13 +417,13 @@ public class BackUpItemTest {
 
 		BackUpItem backUpItem = new BackUpItem(pathPairBasicAttributes, BackupAction.COPY_TARGET, BackupStatus.SAME_CONTENT, counters, backUpTask);
 
-		assertThat(counters.copyTargetNb).isEqualTo(1);
+		assertThat(counters.copyTargetNb.sum()).isEqualTo(1);
 
 		counters.reset();
 		boolean result = backUpItem.execute(counters);
 		assertThat(result).isTrue();
 
-		assertThat(counters.copyTargetNb).isEqualTo(1);
+		assertThat(counters.copyTargetNb.sum()).isEqualTo(1);
 		assertThat(getTotalCounters(counters)).isEqualTo(2);
 	}
 
@@ -478,7 +478,7 @@ public class BackUpItemTest {
 
 		BackUpItem backUpItem = new BackUpItem(pathPairBasicAttributes, BackupAction.ADJUST_TIME, BackupStatus.SAME_CONTENT, counters, backUpTask);
 
-		assertThat(counters.adjustTimeNb).isEqualTo(1);
+		assertThat(counters.adjustTimeNb.sum()).isEqualTo(1);
 
 		counters.reset();
 		boolean result = backUpItem.execute(counters);
@@ -501,7 +501,7 @@ public class BackUpItemTest {
 		assertThat(pathPairBasicAttributes2.getTargetBasicAttributes().lastModifiedTime().toMillis())
 			.isEqualTo(pathPairBasicAttributes2.getSourceBasicAttributes().lastModifiedTime().toMillis());
 		
-		assertThat(counters.adjustTimeNb).isEqualTo(1);
+		assertThat(counters.adjustTimeNb.sum()).isEqualTo(1);
 		assertThat(getTotalCounters(counters)).isEqualTo(2);
 	}
 	
@@ -515,9 +515,9 @@ public class BackUpItemTest {
 
 	private long getTotalCounters(BackUpCounters counters) {
 
-		return counters.ambiguousNb + counters.contentDifferentNb + counters.copyNewNb + counters.copyReplaceNb
-				+ counters.copyTreeNb + counters.deleteDirNb + counters.deleteNb + counters.copyTargetNb + counters.adjustTimeNb
-				+ counters.nbSourceFilesFailed + counters.nbSourceFilesProcessed + counters.nbTargetFilesFailed
-				+ counters.nbTargetFilesProcessed;
+		return counters.ambiguousNb.sum() + counters.contentDifferentNb.sum() + counters.copyNewNb.sum() + counters.copyReplaceNb.sum()
+				+ counters.copyTreeNb.sum() + counters.deleteDirNb.sum() + counters.deleteNb.sum() + counters.copyTargetNb.sum() + counters.adjustTimeNb.sum()
+				+ counters.nbSourceFilesFailed.sum() + counters.nbSourceFilesProcessed.sum() + counters.nbTargetFilesFailed.sum()
+				+ counters.nbTargetFilesProcessed.sum();
 	}
 }
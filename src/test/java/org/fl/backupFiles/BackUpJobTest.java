@@ -323,6 +323,43 @@ public class BackUpJobTest {
 		assertThat(bTt3).hasSize((int) 5);
 	}
 	
+	@Test
+	void testForkJoinJson() {
+		
+		String json ="""		
+				{ 
+						"titre" : "Fork join json",
+						"items" : [
+							{
+								"source" : "file:///FredericPersonnel/",
+								"target" : "file:///ForTests/",
+								"buffer" : "file:///FP_BackUpBuffer/FredericPersonnel/",
+								"forkJoinScan" : true
+							}, 
+							{ 
+								"source" : "file:///ForTests/", 
+								"target" : "file:///tmp/",
+								"buffer" : "file:///FP_BackUpBuffer/ForTests/"
+							}
+						]
+					}
+	""" ;
+		
+		BackUpJob bupj = new BackUpJob(json, directoryGroupConfiguration);
+		
+		List<BackUpTask> bTt1 = bupj.getTasks(JobTaskType.SOURCE_TO_BUFFER);
+		assertThat(bTt1).isNotNull().hasSize(2)
+			.satisfiesExactly(
+				backUpTask -> assertThat(backUpTask.forkJoinScan()).isTrue(),
+				backUpTask -> assertThat(backUpTask.forkJoinScan()).isFalse());
+		
+		List<BackUpTask> bTt2 = bupj.getTasks(JobTaskType.BUFFER_TO_TARGET);
+		assertThat(bTt2).isNotNull().hasSize(2)
+			.satisfiesExactly(
+				backUpTask -> assertThat(backUpTask.forkJoinScan()).isTrue(),
+				backUpTask -> assertThat(backUpTask.forkJoinScan()).isFalse());
+	}
+	
 	@Test
 	void testUnmodifiableList() {
 		
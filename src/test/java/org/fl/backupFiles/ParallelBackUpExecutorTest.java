@@ -0,0 +1,151 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.scanner.PathPairBasicAttributes;
+import org.fl.util.RunningContext;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelBackUpExecutorTest {
+
+	private static final String DEFAULT_PROP_FILE = "file:///ForTests/BackUpFiles/backupFiles.properties";
+	
+	private static final int NB_FILES = 50;
+	
+	private static DirectoryGroupConfiguration directoryGroupConfiguration;
+	
+	@TempDir
+	Path tempDir;
+	
+	@BeforeAll
+	static void initConfig() throws IOException, URISyntaxException {
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", DEFAULT_PROP_FILE));
+		directoryGroupConfiguration = new DirectoryGroupConfiguration(Config.getBackupGroupConfiguration());
+	}
+	
+	@Test
+	void shouldExecuteAllBackUpItemsInOrderOnSamePath() throws IOException, InterruptedException {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, directoryGroupConfiguration), Long.MAX_VALUE);
+		
+		TargetFileStores targetFileStores = new TargetFileStores();
+		targetFileStores.addTargetFileStore(targetDir, 0);
+		targetFileStores.setMaxConcurrentBackUpActions(2);
+		BackUpCounters scanCounters = new BackUpCounters(targetFileStores, OperationType.SCAN);
+		
+		List<AbstractBackUpItem> backUpItems = new ArrayList<>();
+		
+		// The source is a file and the target a directory : the target directory must be deleted before the file is copied
+		Path sourceFile = Files.writeString(sourceDir.resolve("fileOrDir"), "source file");
+		Path targetFile = targetDir.resolve("fileOrDir");
+		PathPairBasicAttributes copyPair = new PathPairBasicAttributes(sourceFile, targetFile);
+		BackUpItem copyItem = new BackUpItem(copyPair, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask);
+		
+		Files.createDirectories(targetFile.resolve("subDir"));
+		Files.writeString(targetFile.resolve("subDir").resolve("file.txt"), "target file");
+		PathPairBasicAttributes deletePair = new PathPairBasicAttributes(null, targetFile);
+		backUpItems.add(new BackUpItem(deletePair, BackupAction.DELETE_DIR, new PathPairBasicAttributes(sourceDir, targetDir), scanCounters, backUpTask));
+		backUpItems.add(copyItem);
+		
+		for (int i = 0; i < NB_FILES; i++) {
+			Path source = Files.writeString(sourceDir.resolve("file" + i + ".txt"), "content " + i);
+			backUpItems.add(new BackUpItem(new PathPairBasicAttributes(source, targetDir.resolve(source.getFileName())), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask));
+		}
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			BackUpCounters backUpCounters = new BackUpCounters(targetFileStores, OperationType.BACKUP);
+			ParallelBackUpExecutor parallelBackUpExecutor = new ParallelBackUpExecutor(executorService, 8, targetFileStores);
+			
+			boolean success = parallelBackUpExecutor.execute(backUpItems, backUpCounters, () -> false, nbActionDone -> {});
+			
+			assertThat(success).isTrue();
+			assertThat(parallelBackUpExecutor.getNbActionsDone()).isEqualTo(NB_FILES + 2);
+			assertThat(backUpItems).allMatch(backUpItem -> backUpItem.getBackupStatus() == BackupStatus.DONE);
+			
+			assertThat(targetFile).isRegularFile().hasContent("source file");
+			for (int i = 0; i < NB_FILES; i++) {
+				assertThat(targetDir.resolve("file" + i + ".txt")).hasContent("content " + i);
+			}
+			
+			assertThat(backUpCounters.copyNewNb.sum()).isEqualTo(NB_FILES + 1);
+			assertThat(backUpCounters.deleteDirNb.sum()).isEqualTo(1);
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(NB_FILES + 1);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isEqualTo(1);
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+		} finally {
+			executorService.shutdown();
+			executorService.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+	
+	@Test
+	void shouldNotExecuteBackUpItemsWhenStopAsked() throws IOException, InterruptedException {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, directoryGroupConfiguration), Long.MAX_VALUE);
+		
+		TargetFileStores targetFileStores = new TargetFileStores();
+		targetFileStores.addTargetFileStore(targetDir, 0);
+		BackUpCounters scanCounters = new BackUpCounters(targetFileStores, OperationType.SCAN);
+		
+		Path source = Files.writeString(sourceDir.resolve("file.txt"), "content");
+		List<AbstractBackUpItem> backUpItems = List.of(
+				new BackUpItem(new PathPairBasicAttributes(source, targetDir.resolve("file.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask));
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			BackUpCounters backUpCounters = new BackUpCounters(targetFileStores, OperationType.BACKUP);
+			ParallelBackUpExecutor parallelBackUpExecutor = new ParallelBackUpExecutor(executorService, 4, targetFileStores);
+			
+			assertThat(parallelBackUpExecutor.execute(backUpItems, backUpCounters, () -> true, nbActionDone -> {})).isTrue();
+			assertThat(parallelBackUpExecutor.getNbActionsDone()).isZero();
+			assertThat(targetDir.resolve("file.txt")).doesNotExist();
+		} finally {
+			executorService.shutdown();
+			executorService.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -63,6 +63,38 @@ public class TargetFileStoreTest {
 	}
 
 	
+	@Test
+	void targetFileStoreCopyProgressTest() throws IOException {
+		
+		TargetFileStores targetFileStores = new TargetFileStores();
+		TargetFileStore targetFileStore = targetFileStores.addTargetFileStore(pathForTargetFileStore, 5);
+		
+		targetFileStore.addNbBytesToCopy(10000);
+		targetFileStore.sampleThroughput(1000);
+		assertThat(targetFileStore.getThroughput()).isZero();
+		assertThat(targetFileStore.getEstimatedRemainingTime()).isEqualTo(-1);
+		
+		// 1000 bytes per second
+		targetFileStore.recordBytesCopied(1000);
+		targetFileStore.sampleThroughput(2000);
+		assertThat(targetFileStore.getNbBytesCopied()).isEqualTo(1000);
+		assertThat(targetFileStore.getThroughput()).isEqualTo(1000);
+		assertThat(targetFileStore.getEstimatedRemainingTime()).isEqualTo(9000);
+		
+		// 2000 bytes per second, the throughput is a moving average
+		targetFileStore.recordBytesCopied(2000);
+		targetFileStore.sampleThroughput(3000);
+		assertThat(targetFileStore.getThroughput()).isBetween(1000L, 2000L);
+		
+		targetFileStore.recordBytesCopied(7000);
+		assertThat(targetFileStore.getEstimatedRemainingTime()).isZero();
+		
+		targetFileStore.reset();
+		assertThat(targetFileStore.getNbBytesToCopy()).isZero();
+		assertThat(targetFileStore.getNbBytesCopied()).isZero();
+		assertThat(targetFileStore.getThroughput()).isZero();
+	}
+	
 	@Test
 	void targetFileStoreResetTest() throws IOException {
 		
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+	@Test
+	void hashesPutShouldBeFound() {
+		
+		BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+		List<byte[]> hashes = randomHashes(10_000, 1);
+		hashes.forEach(bloomFilter::put);
+		
+		assertThat(bloomFilter.getNbElements()).isEqualTo(10_000);
+		assertThat(hashes).allMatch(bloomFilter::mightContain);
+	}
+	
+	@Test
+	void falsePositivesShouldBeRare() {
+		
+		BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+		randomHashes(10_000, 2).forEach(bloomFilter::put);
+		
+		long nbFalsePositives = randomHashes(10_000, 3).stream().filter(bloomFilter::mightContain).count();
+		assertThat(nbFalsePositives).isLessThan(300);
+	}
+	
+	private static List<byte[]> randomHashes(int nbHashes, long seed) {
+		
+		Random random = new Random(seed);
+		List<byte[]> hashes = new ArrayList<>();
+		for (int i = 0; i < nbHashes; i++) {
+			byte[] hash = new byte[ChunkStore.HASH_LENGTH];
+			random.nextBytes(hash);
+			hashes.add(hash);
+		}
+		return hashes;
+	}
+}
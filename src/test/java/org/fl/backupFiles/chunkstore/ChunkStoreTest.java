@@ -0,0 +1,175 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChunkStoreTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void identicalFilesShouldBeStoredOnce() throws IOException {
+		
+		byte[] content = randomContent(500_000, 1);
+		Path source1 = Files.createDirectories(tempDir.resolve("source1"));
+		Path source2 = Files.createDirectories(tempDir.resolve("source2"));
+		Files.write(source1.resolve("file.bin"), content);
+		Files.write(source2.resolve("copy.bin"), content);
+		
+		ChunkStore chunkStore = newChunkStore();
+		ChunkStoreBackUpResult result1 = chunkStore.backUp(source1, () -> false);
+		ChunkStoreBackUpResult result2 = chunkStore.backUp(source2, () -> false);
+		
+		assertThat(result1.isSuccessful()).isTrue();
+		assertThat(result1.nbBytesStored()).isEqualTo(content.length);
+		assertThat(result2.isSuccessful()).isTrue();
+		assertThat(result2.nbNewChunks()).isZero();
+		assertThat(result2.nbBytesStored()).isZero();
+		assertThat(chunkStore.getSnapshots()).containsExactlyInAnyOrder(result1.snapshot(), result2.snapshot());
+	}
+	
+	@Test
+	void unchangedFilesShouldNotBeReadAgain() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		Files.write(source.resolve("file1.bin"), randomContent(200_000, 2));
+		Path file2 = Files.write(source.resolve("file2.bin"), randomContent(200_000, 3));
+		
+		ChunkStore chunkStore = newChunkStore();
+		chunkStore.backUp(source, () -> false);
+		Files.write(file2, randomContent(200_000, 4));
+		Files.setLastModifiedTime(file2, FileTime.from(Instant.parse("2030-01-01T00:00:00Z")));
+		ChunkStoreBackUpResult result = chunkStore.backUp(source, () -> false);
+		
+		assertThat(result.nbFiles()).isEqualTo(2);
+		assertThat(result.nbFilesUnchanged()).isEqualTo(1);
+		assertThat(result.nbBytesRead()).isEqualTo(200_000);
+	}
+	
+	@Test
+	void snapshotShouldBeRestored() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		Path subDir = Files.createDirectories(source.resolve("sub"));
+		Files.createDirectories(source.resolve("empty"));
+		byte[] content1 = randomContent(300_000, 5);
+		Path file1 = Files.write(subDir.resolve("file1.bin"), content1);
+		Files.writeString(source.resolve("file2.txt"), "content 2");
+		FileTime lastModifiedTime = FileTime.from(Instant.parse("2020-01-01T10:15:30Z"));
+		Files.setLastModifiedTime(file1, lastModifiedTime);
+		Files.setLastModifiedTime(subDir, lastModifiedTime);
+		
+		ChunkStore chunkStore = newChunkStore();
+		String snapshot = chunkStore.backUp(source, () -> false).snapshot();
+		
+		// The source is modified after the back up
+		Files.writeString(source.resolve("file2.txt"), "new content");
+		
+		Path restoreDir = tempDir.resolve("restore");
+		chunkStore.restore(snapshot, restoreDir);
+		
+		assertThat(Files.readAllBytes(restoreDir.resolve("sub").resolve("file1.bin"))).isEqualTo(content1);
+		assertThat(Files.readString(restoreDir.resolve("file2.txt"))).isEqualTo("content 2");
+		assertThat(restoreDir.resolve("empty")).isEmptyDirectory();
+		assertThat(Files.getLastModifiedTime(restoreDir.resolve("sub").resolve("file1.bin"))).isEqualTo(lastModifiedTime);
+		assertThat(Files.getLastModifiedTime(restoreDir.resolve("sub"))).isEqualTo(lastModifiedTime);
+	}
+	
+	@Test
+	void corruptedChunkShouldFailTheRestore() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		Files.write(source.resolve("file.bin"), randomContent(10_000, 6));
+		
+		ChunkStore chunkStore = newChunkStore();
+		String snapshot = chunkStore.backUp(source, () -> false).snapshot();
+		byte[] hash = Arrays.copyOf(chunkStore.readManifest(snapshot).getEntriesByPath().get("file.bin").chunkHashes(), ChunkStore.HASH_LENGTH);
+		Files.writeString(chunkStore.chunkPath(hash), "corrupted");
+		
+		assertThatIOException().isThrownBy(() -> chunkStore.restore(snapshot, tempDir.resolve("restore")));
+	}
+	
+	@Test
+	void truncatedChunkShouldBeStoredAgain() throws IOException {
+		
+		byte[] content = randomContent(10_000, 8);
+		Path source1 = Files.createDirectories(tempDir.resolve("source1"));
+		Path source2 = Files.createDirectories(tempDir.resolve("source2"));
+		Files.write(source1.resolve("file.bin"), content);
+		Files.write(source2.resolve("file.bin"), content);
+		
+		ChunkStore chunkStore = newChunkStore();
+		String snapshot1 = chunkStore.backUp(source1, () -> false).snapshot();
+		byte[] hash = Arrays.copyOf(chunkStore.readManifest(snapshot1).getEntriesByPath().get("file.bin").chunkHashes(), ChunkStore.HASH_LENGTH);
+		Path chunkPath = chunkStore.chunkPath(hash);
+		long chunkLength = Files.size(chunkPath);
+		
+		// A chunk truncated by a crash is in the index but does not have the length of the chunk
+		Files.write(chunkPath, new byte[0]);
+		ChunkStoreBackUpResult result2 = chunkStore.backUp(source2, () -> false);
+		
+		assertThat(result2.nbNewChunks()).isEqualTo(1);
+		assertThat(chunkPath).hasSize(chunkLength);
+		chunkStore.restore(snapshot1, tempDir.resolve("restore"));
+		assertThat(Files.readAllBytes(tempDir.resolve("restore").resolve("file.bin"))).isEqualTo(content);
+	}
+	
+	@Test
+	void stoppedBackUpShouldNotCreateSnapshot() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		Files.write(source.resolve("file.bin"), randomContent(10_000, 7));
+		
+		ChunkStore chunkStore = newChunkStore();
+		ChunkStoreBackUpResult result = chunkStore.backUp(source, () -> true);
+		
+		assertThat(result.snapshot()).isNull();
+		assertThat(result.isSuccessful()).isFalse();
+		assertThat(chunkStore.getSnapshots()).isEmpty();
+	}
+	
+	private ChunkStore newChunkStore() {
+		return new ChunkStore(tempDir.resolve("store"), new ContentDefinedChunker(2*1024, 8*1024, 32*1024));
+	}
+	
+	private static byte[] randomContent(int length, long seed) {
+		byte[] content = new byte[length];
+		new Random(seed).nextBytes(content);
+		return content;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.chunkstore;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ContentDefinedChunkerTest {
+
+	private final ContentDefinedChunker chunker = new ContentDefinedChunker(2*1024, 8*1024, 32*1024);
+	
+	@Test
+	void chunksShouldRebuildTheContent() throws IOException {
+		
+		byte[] content = randomContent(1_000_000, 1);
+		List<byte[]> chunks = chunk(content);
+		
+		assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length).isBetween(1, chunker.getMaxSize()));
+		assertThat(chunks.subList(0, chunks.size() - 1)).allSatisfy(chunk -> assertThat(chunk.length).isGreaterThanOrEqualTo(chunker.getMinSize()));
+		assertThat(concat(chunks)).isEqualTo(content);
+	}
+	
+	@Test
+	void insertionShouldOnlyChangeTheChunksAroundIt() throws IOException {
+		
+		byte[] content = randomContent(1_000_000, 2);
+		byte[] insertion = randomContent(100, 3);
+		byte[] modifiedContent = new byte[content.length + insertion.length];
+		System.arraycopy(content, 0, modifiedContent, 0, 500_000);
+		System.arraycopy(insertion, 0, modifiedContent, 500_000, insertion.length);
+		System.arraycopy(content, 500_000, modifiedContent, 500_000 + insertion.length, content.length - 500_000);
+		
+		List<byte[]> chunks = chunk(content);
+		List<byte[]> modifiedChunks = chunk(modifiedContent);
+		
+		long nbNewChunks = modifiedChunks.stream()
+				.filter(modifiedChunk -> chunks.stream().noneMatch(chunk -> Arrays.equals(chunk, modifiedChunk)))
+				.count();
+		assertThat(nbNewChunks).isBetween(1L, 3L);
+	}
+	
+	@Test
+	void emptyContentShouldHaveNoChunk() throws IOException {
+		assertThat(chunk(new byte[0])).isEmpty();
+	}
+	
+	@Test
+	void invalidSizesShouldBeRejected() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new ContentDefinedChunker(2*1024, 6*1024, 32*1024));
+		assertThatIllegalArgumentException().isThrownBy(() -> new ContentDefinedChunker(16*1024, 8*1024, 32*1024));
+	}
+	
+	private List<byte[]> chunk(byte[] content) throws IOException {
+		
+		List<byte[]> chunks = new ArrayList<>();
+		chunker.chunk(new ByteArrayInputStream(content), (buffer, offset, length) -> chunks.add(Arrays.copyOfRange(buffer, offset, offset + length)));
+		return chunks;
+	}
+	
+	private static byte[] concat(List<byte[]> chunks) {
+		
+		byte[] content = new byte[chunks.stream().mapToInt(chunk -> chunk.length).sum()];
+		int offset = 0;
+		for (byte[] chunk : chunks) {
+			System.arraycopy(chunk, 0, content, offset, chunk.length);
+			offset += chunk.length;
+		}
+		return content;
+	}
+	
+	private static byte[] randomContent(int length, long seed) {
+		byte[] content = new byte[length];
+		new Random(seed).nextBytes(content);
+		return content;
+	}
+}
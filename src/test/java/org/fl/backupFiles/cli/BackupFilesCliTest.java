@@ -0,0 +1,52 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.cli;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class BackupFilesCliTest {
+
+	private static final String DEFAULT_PROP_FILE = "-props=file:///ForTests/BackUpFiles/backupFiles3.properties";
+	
+	@Test
+	void missingTaskShouldBeRejected() {
+		
+		assertThat(BackupFilesCli.run(new String[] { DEFAULT_PROP_FILE })).isEqualTo(BackupFilesCli.EXIT_BAD_ARGUMENTS);
+	}
+	
+	@Test
+	void unknownTaskShouldBeRejected() {
+		
+		assertThat(BackupFilesCli.run(new String[] { DEFAULT_PROP_FILE, "-task=UNKNOWN" })).isEqualTo(BackupFilesCli.EXIT_BAD_ARGUMENTS);
+	}
+	
+	@Test
+	void unknownArgumentShouldBeRejected() {
+		
+		assertThat(BackupFilesCli.run(new String[] { DEFAULT_PROP_FILE, "-task=SOURCE_TO_BUFFER", "-unknown" })).isEqualTo(BackupFilesCli.EXIT_BAD_ARGUMENTS);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class CopyStrategyTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@ParameterizedTest
+	@EnumSource(CopyStrategyType.class)
+	void copyShouldReplaceTargetAndKeepLastModifiedTime(CopyStrategyType copyStrategyType) throws IOException {
+		
+		// larger than the buffer of the LARGE_BUFFER copy strategy
+		byte[] content = new byte[20*1024*1024 + 17];
+		new Random(1).nextBytes(content);
+		Path source = Files.write(tempDir.resolve("source.bin"), content);
+		FileTime lastModifiedTime = FileTime.from(Instant.parse("2020-01-01T10:15:30Z"));
+		Files.setLastModifiedTime(source, lastModifiedTime);
+		Path target = Files.writeString(tempDir.resolve("target.bin"), "old content");
+		
+		for (boolean sameFileStore : new boolean[] { true, false }) {
+			
+			AtomicLong nbBytesProgress = new AtomicLong(0);
+			CopyResult copyResult = copyStrategyType.getCopyStrategy().copy(source, target, sameFileStore, nbBytesProgress::addAndGet);
+			
+			assertThat(copyResult.nbBytesCopied()).isEqualTo(content.length);
+			assertThat(nbBytesProgress.get()).isEqualTo(content.length);
+			assertThat(copyResult.copyStrategyType()).isNotEqualTo(CopyStrategyType.AUTO);
+			assertThat(Files.readAllBytes(target)).isEqualTo(content);
+			assertThat(Files.getLastModifiedTime(target)).isEqualTo(lastModifiedTime);
+		}
+	}
+	
+	@ParameterizedTest
+	@EnumSource(CopyStrategyType.class)
+	void userDefinedAttributesShouldBeCopied(CopyStrategyType copyStrategyType) throws IOException {
+		
+		assumeTrue(Files.getFileStore(tempDir).supportsFileAttributeView(UserDefinedFileAttributeView.class));
+		
+		Path source = Files.writeString(tempDir.resolve("source.txt"), "content");
+		UserDefinedFileAttributeView sourceUserView = Files.getFileAttributeView(source, UserDefinedFileAttributeView.class);
+		sourceUserView.write("backupFilesTest", StandardCharsets.UTF_8.encode("attribute value"));
+		FileTime lastModifiedTime = FileTime.from(Instant.parse("2020-01-01T10:15:30Z"));
+		Files.setLastModifiedTime(source, lastModifiedTime);
+		Path target = tempDir.resolve("target.txt");
+		
+		copyStrategyType.getCopyStrategy().copy(source, target, true, nbBytes -> {});
+		
+		UserDefinedFileAttributeView targetUserView = Files.getFileAttributeView(target, UserDefinedFileAttributeView.class);
+		assertThat(targetUserView.list()).containsExactly("backupFilesTest");
+		ByteBuffer attributeValue = ByteBuffer.allocate(targetUserView.size("backupFilesTest"));
+		targetUserView.read("backupFilesTest", attributeValue);
+		assertThat(StandardCharsets.UTF_8.decode(attributeValue.flip()).toString()).isEqualTo("attribute value");
+		assertThat(Files.getLastModifiedTime(target)).isEqualTo(lastModifiedTime);
+	}
+	
+	@ParameterizedTest
+	@EnumSource(CopyStrategyType.class)
+	void copyOfEmptyFile(CopyStrategyType copyStrategyType) throws IOException {
+		
+		Path source = Files.createFile(tempDir.resolve("empty.txt"));
+		Path target = tempDir.resolve("copy.txt");
+		
+		CopyResult copyResult = copyStrategyType.getCopyStrategy().copy(source, target, true, nbBytes -> {});
+		
+		assertThat(copyResult.nbBytesCopied()).isZero();
+		assertThat(target).exists().isEmptyFile();
+	}
+	
+	@ParameterizedTest
+	@EnumSource(CopyStrategyType.class)
+	void missingSourceShouldThrowAnException(CopyStrategyType copyStrategyType) {
+		
+		Path target = tempDir.resolve("copy.txt");
+		assertThatExceptionOfType(NoSuchFileException.class)
+			.isThrownBy(() -> copyStrategyType.getCopyStrategy().copy(tempDir.resolve("missing.txt"), target, false, nbBytes -> {}));
+		assertThat(target).doesNotExist();
+	}
+	
+	@Test
+	void autoCopyStrategyShouldDependOnFileStore() throws IOException {
+		
+		Path source = Files.writeString(tempDir.resolve("source.txt"), "content");
+		
+		CopyStrategy autoCopyStrategy = CopyStrategyType.AUTO.getCopyStrategy();
+		assertThat(autoCopyStrategy.copy(source, tempDir.resolve("copy1.txt"), true, nbBytes -> {}).copyStrategyType())
+			.isEqualTo(CopyStrategyType.TRANSFER_TO);
+		assertThat(autoCopyStrategy.copy(source, tempDir.resolve("copy2.txt"), false, nbBytes -> {}).copyStrategyType())
+			.isEqualTo(CopyStrategyType.LARGE_BUFFER);
+	}
+}
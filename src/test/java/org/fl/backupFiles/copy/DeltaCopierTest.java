@@ -0,0 +1,119 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeltaCopierTest {
+
+	private static final int BLOCK_SIZE = 64*1024;
+	
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void onlyChangedBlocksShouldBeWritten() throws IOException {
+		
+		byte[] content = new byte[10*BLOCK_SIZE + 17];
+		new Random(1).nextBytes(content);
+		Path source = Files.write(tempDir.resolve("source.bin"), content);
+		FileTime lastModifiedTime = FileTime.from(Instant.parse("2020-01-01T10:15:30Z"));
+		Files.setLastModifiedTime(source, lastModifiedTime);
+		
+		// one changed byte in the 4th block
+		byte[] oldContent = content.clone();
+		oldContent[3*BLOCK_SIZE + 5] ^= 1;
+		Path target = Files.write(tempDir.resolve("target.bin"), oldContent);
+		
+		DeltaCopier deltaCopier = new DeltaCopier(1, BLOCK_SIZE, null);
+		AtomicLong nbBytesProgress = new AtomicLong(0);
+		CopyResult copyResult = deltaCopier.copy(source, target, nbBytesProgress::addAndGet);
+		
+		assertThat(copyResult.deltaCopy()).isTrue();
+		assertThat(copyResult.nbBytesCopied()).isEqualTo(BLOCK_SIZE);
+		assertThat(nbBytesProgress.get()).isEqualTo(content.length);
+		assertThat(Files.readAllBytes(target)).isEqualTo(content);
+		assertThat(Files.getLastModifiedTime(target)).isEqualTo(lastModifiedTime);
+	}
+	
+	@Test
+	void targetShouldBeTruncatedOrExtended() throws IOException {
+		
+		byte[] content = new byte[4*BLOCK_SIZE + 100];
+		new Random(2).nextBytes(content);
+		Path source = Files.write(tempDir.resolve("source.bin"), content);
+		DeltaCopier deltaCopier = new DeltaCopier(1, BLOCK_SIZE, null);
+		
+		Path longerTarget = Files.write(tempDir.resolve("longer.bin"), Arrays.copyOf(content, content.length + 3*BLOCK_SIZE));
+		assertThat(deltaCopier.copy(source, longerTarget, nbBytes -> {}).nbBytesCopied()).isZero();
+		assertThat(Files.readAllBytes(longerTarget)).isEqualTo(content);
+		
+		Path shorterTarget = Files.write(tempDir.resolve("shorter.bin"), Arrays.copyOf(content, 2*BLOCK_SIZE));
+		assertThat(deltaCopier.copy(source, shorterTarget, nbBytes -> {}).nbBytesCopied()).isEqualTo(2*BLOCK_SIZE + 100);
+		assertThat(Files.readAllBytes(shorterTarget)).isEqualTo(content);
+	}
+	
+	@Test
+	void blockChecksumsShouldBeKept() throws IOException {
+		
+		byte[] content = new byte[5*BLOCK_SIZE];
+		new Random(3).nextBytes(content);
+		Path source = Files.write(tempDir.resolve("source.bin"), content);
+		Path target = Files.write(tempDir.resolve("target.bin"), new byte[5*BLOCK_SIZE]);
+		Path cacheFile = tempDir.resolve("cache").resolve("blockChecksumCache.bin");
+		
+		BlockChecksumCache blockChecksumCache = new BlockChecksumCache(cacheFile, 10);
+		DeltaCopier deltaCopier = new DeltaCopier(1, BLOCK_SIZE, blockChecksumCache);
+		assertThat(deltaCopier.copy(source, target, nbBytes -> {}).nbBytesCopied()).isEqualTo(content.length);
+		assertThat(blockChecksumCache.getNbCachedFiles()).isEqualTo(1);
+		blockChecksumCache.save();
+		assertThat(cacheFile).exists();
+		
+		// The source has changed, the target is compared with the checksums of the reloaded cache
+		content[BLOCK_SIZE] ^= 1;
+		Files.write(source, content);
+		BlockChecksumCache reloadedBlockChecksumCache = new BlockChecksumCache(cacheFile, 10);
+		assertThat(reloadedBlockChecksumCache.getNbCachedFiles()).isEqualTo(1);
+		DeltaCopier newDeltaCopier = new DeltaCopier(1, BLOCK_SIZE, reloadedBlockChecksumCache);
+		assertThat(newDeltaCopier.copy(source, target, nbBytes -> {}).nbBytesCopied()).isEqualTo(BLOCK_SIZE);
+		assertThat(Files.readAllBytes(target)).isEqualTo(content);
+		
+		// An invalidated target has no checksums anymore
+		reloadedBlockChecksumCache.invalidate(target, false);
+		assertThat(reloadedBlockChecksumCache.getNbCachedFiles()).isZero();
+	}
+}
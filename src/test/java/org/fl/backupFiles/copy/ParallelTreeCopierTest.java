@@ -0,0 +1,163 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.copy;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.scanner.FileStorePermits;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelTreeCopierTest {
+
+	private static final long LARGE_FILE_THRESHOLD = 100000;
+	
+	private static ExecutorService executorService;
+	
+	@TempDir
+	Path tempDir;
+	
+	@BeforeAll
+	static void init() {
+		executorService = Executors.newFixedThreadPool(3);
+	}
+	
+	@AfterAll
+	static void terminate() {
+		executorService.shutdownNow();
+	}
+	
+	@Test
+	void shouldCopyTree() throws IOException {
+		
+		Path source = tempDir.resolve("source");
+		Path target = tempDir.resolve("target");
+		long nbBytes = 0;
+		for (int i = 0; i < 10; i++) {
+			Path directory = Files.createDirectories(source.resolve("dir" + i).resolve("sub" + i));
+			for (int j = 0; j < 10; j++) {
+				// some large files and many small files
+				byte[] content = new byte[(j == 0) ? (int)LARGE_FILE_THRESHOLD + i : i*j];
+				Arrays.fill(content, (byte)j);
+				Files.write(directory.resolve("file" + j), content);
+				nbBytes += content.length;
+			}
+		}
+		Files.createDirectory(source.resolve("emptyDir"));
+		FileTime lastModifiedTime = FileTime.from(Instant.parse("2021-06-01T12:00:00Z"));
+		Files.setLastModifiedTime(source.resolve("dir3"), lastModifiedTime);
+		
+		ParallelTreeCopier parallelTreeCopier = new ParallelTreeCopier(executorService, 4, 1, LARGE_FILE_THRESHOLD, new FileStorePermits(2));
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.BACKUP);
+		
+		assertThat(parallelTreeCopier.copyTree(source, target, CopyStrategyType.LARGE_BUFFER.getCopyStrategy(), null, null, backUpCounters, backUpCounters.getCopyProgress(null))).isTrue();
+		
+		assertThat(backUpCounters.getNbBytesProcessed()).isEqualTo(nbBytes);
+		assertThat(backUpCounters.getNbBytesCopied(CopyStrategyType.LARGE_BUFFER)).isEqualTo(nbBytes);
+		assertThat(target.resolve("emptyDir")).isEmptyDirectory();
+		assertThat(Files.getLastModifiedTime(target.resolve("dir3"))).isEqualTo(lastModifiedTime);
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				Path relativePath = Path.of("dir" + i, "sub" + i, "file" + j);
+				assertThat(target.resolve(relativePath)).hasSameBinaryContentAs(source.resolve(relativePath));
+			}
+		}
+	}
+	
+	@Test
+	void oneIoPermitShouldBeEnough() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		for (int i = 0; i < 20; i++) {
+			Files.writeString(source.resolve("file" + i), "content" + i);
+		}
+		Path target = tempDir.resolve("target");
+		
+		// a single I/O permit: the calling thread copies all the files
+		ThreadPoolExecutor treeCopyExecutor = (ThreadPoolExecutor)Executors.newFixedThreadPool(3);
+		FileStorePermits ioScheduler = new FileStorePermits(1);
+		ParallelTreeCopier parallelTreeCopier = new ParallelTreeCopier(treeCopyExecutor, 4, 1, LARGE_FILE_THRESHOLD, ioScheduler);
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.BACKUP);
+		
+		assertThat(parallelTreeCopier.copyTree(source, target, CopyStrategyType.FILES_COPY.getCopyStrategy(), Files.getFileStore(source), Files.getFileStore(tempDir), 
+				backUpCounters, backUpCounters.getCopyProgress(null))).isTrue();
+		for (int i = 0; i < 20; i++) {
+			assertThat(target.resolve("file" + i)).hasContent("content" + i);
+		}
+		assertThat(ioScheduler.getMetrics()).singleElement()
+			.satisfies(metrics -> assertThat(metrics.nbAcquisitions()).isEqualTo(22))
+			.satisfies(metrics -> assertThat(metrics.nbInProgress()).isZero());
+		assertThat(treeCopyExecutor.getTaskCount()).isZero();
+		treeCopyExecutor.shutdown();
+	}
+	
+	@Test
+	void existingTargetDirectoryShouldBeCompleted() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source").resolve("dir"));
+		Files.writeString(source.resolve("file1"), "content1");
+		Files.writeString(source.resolve("file2"), "content2");
+		
+		// Partial copy of the tree
+		Path target = Files.createDirectories(tempDir.resolve("target").resolve("dir"));
+		Files.writeString(target.resolve("file1"), "cont");
+		
+		ParallelTreeCopier parallelTreeCopier = new ParallelTreeCopier(executorService, 4, 1, LARGE_FILE_THRESHOLD, new FileStorePermits(2));
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.BACKUP);
+		
+		assertThat(parallelTreeCopier.copyTree(tempDir.resolve("source"), tempDir.resolve("target"), CopyStrategyType.FILES_COPY.getCopyStrategy(), null, null, backUpCounters, backUpCounters.getCopyProgress(null))).isTrue();
+		assertThat(target.resolve("file1")).hasContent("content1");
+		assertThat(target.resolve("file2")).hasContent("content2");
+	}
+	
+	@Test
+	void existingTargetFileShouldFail() throws IOException {
+		
+		Path source = Files.createDirectories(tempDir.resolve("source"));
+		Files.writeString(source.resolve("file"), "content");
+		Path target = Files.writeString(tempDir.resolve("target"), "not a directory");
+		
+		ParallelTreeCopier parallelTreeCopier = new ParallelTreeCopier(executorService, 4, 1, LARGE_FILE_THRESHOLD, new FileStorePermits(2));
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.BACKUP);
+		
+		assertThat(parallelTreeCopier.copyTree(source, target, CopyStrategyType.FILES_COPY.getCopyStrategy(), null, null, backUpCounters, backUpCounters.getCopyProgress(null))).isFalse();
+		assertThat(target).hasContent("not a directory");
+	}
+}
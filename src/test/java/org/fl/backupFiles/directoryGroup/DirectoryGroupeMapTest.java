@@ -28,6 +28,7 @@ import static org.assertj.core.api.Assertions.*;
 
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.List;
 
 import org.fl.backupFiles.directoryGroup.core.DirectoryGroup;
 import org.fl.backupFiles.directoryGroup.core.DirectoryGroupAll;
@@ -186,4 +187,38 @@ class DirectoryGroupeMapTest {
 		assertThat(group.getGroupPolicy()).isEqualTo(GroupPolicy.DO_NOT_GROUP);
 		assertThat(group).isInstanceOf(DirectoryGroup.class);
 	}
+	
+	@Test
+	void testGroupPathComponentPrefix() throws URISyntaxException {
+		
+		// A directory name beginning with a directory group name is not inside the directory group
+		DirectoryGroup group = directoryGroupmMap.getDirectoryGroup(FilesUtils.uriStringToAbsolutePath("file:///FredericPersonnel/tmpOther/bidon"));
+		assertThat(group.getPath()).isEqualTo(Path.of("/"));
+	}
+	
+	@Test
+	void testSameGroupAsLinearScan() throws URISyntaxException {
+		
+		List<String> pathUris = List.of(
+				"file:///FredericPersonnel/", 
+				"file:///FredericPersonnel/photos", 
+				"file:///FredericPersonnel/photos/tmp/bidon", 
+				"file:///FredericPersonnel/tmp", 
+				"file:///FredericPersonnel/tmp/low", 
+				"file:///FredericPersonnel/tmp/low/insideMedium", 
+				"file:///FredericPersonnel/tmp/low/insideMedium/bidon/bidon", 
+				"file:///FredericPersonnel/tmpOther/low/insideMedium", 
+				"file:///any/path");
+		
+		for (String pathUri : pathUris) {
+			Path path = FilesUtils.uriStringToAbsolutePath(pathUri);
+			assertThat(directoryGroupmMap.getDirectoryGroup(path)).isSameAs(directoryGroupmMap.getDirectoryGroupByLinearScan(path));
+		}
+	}
+	
+	@Test
+	void nullPathShouldRaiseError() {
+		
+		assertThatNullPointerException().isThrownBy(() -> directoryGroupmMap.getDirectoryGroup(null));
+	}
 }
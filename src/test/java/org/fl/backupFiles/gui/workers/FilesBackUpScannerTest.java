@@ -124,21 +124,21 @@ class FilesBackUpScannerTest {
 			backUpCounters = filesBackUpScanner.getBackUpCounters() ;
 			
 			// buffer is supposed to be the same as source
-			assertThat(backUpCounters.ambiguousNb).isZero();
-			assertThat(backUpCounters.copyNewNb).isZero();
-			assertThat(backUpCounters.copyReplaceNb).isZero();
-			assertThat(backUpCounters.copyTreeNb).isZero();
-			assertThat(backUpCounters.deleteDirNb).isZero();
-			assertThat(backUpCounters.deleteNb).isZero();
-			assertThat(backUpCounters.backupWithSizeAboveThreshold).isZero();
-			assertThat(backUpCounters.contentDifferentNb).isZero();
-			assertThat(backUpCounters.nbHighPermanencePath).isZero();
-			assertThat(backUpCounters.nbMediumPermanencePath).isZero();
-			assertThat(backUpCounters.nbSourceFilesFailed).isZero();
-			assertThat(backUpCounters.nbSourceFilesProcessed).isEqualTo(9900);
-			assertThat(backUpCounters.nbTargetFilesProcessed).isEqualTo(9850);
-			assertThat(backUpCounters.nbTargetFilesFailed).isZero();
-			assertThat(backUpCounters.copyTargetNb).isZero();
+			assertThat(backUpCounters.ambiguousNb.sum()).isZero();
+			assertThat(backUpCounters.copyNewNb.sum()).isZero();
+			assertThat(backUpCounters.copyReplaceNb.sum()).isZero();
+			assertThat(backUpCounters.copyTreeNb.sum()).isZero();
+			assertThat(backUpCounters.deleteDirNb.sum()).isZero();
+			assertThat(backUpCounters.deleteNb.sum()).isZero();
+			assertThat(backUpCounters.backupWithSizeAboveThreshold.sum()).isZero();
+			assertThat(backUpCounters.contentDifferentNb.sum()).isZero();
+			assertThat(backUpCounters.nbHighPermanencePath.sum()).isZero();
+			assertThat(backUpCounters.nbMediumPermanencePath.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(9900);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isEqualTo(9850);
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.copyTargetNb.sum()).isZero();
 			assertThat(backUpCounters.getTargetFileStores()).isNotNull();
 			assertThat(backUpCounters.getTargetFileStores().getTotalPotentialSizeChange()).isZero();
 
@@ -156,21 +156,21 @@ class FilesBackUpScannerTest {
 			backUpCounters = filesBackUpScanner.getBackUpCounters();
 
 			// target is supposed to be empty
-			assertThat(backUpCounters.ambiguousNb).isZero();
-			assertThat(backUpCounters.copyNewNb).isZero();
-			assertThat(backUpCounters.copyReplaceNb).isZero();
-			assertThat(backUpCounters.copyTreeNb).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION*NB_SUB_DIR_UNDER_CONCERT);
-			assertThat(backUpCounters.deleteDirNb).isZero();
-			assertThat(backUpCounters.deleteNb).isZero();
-			assertThat(backUpCounters.backupWithSizeAboveThreshold).isZero();
-			assertThat(backUpCounters.contentDifferentNb).isZero();
-			assertThat(backUpCounters.nbHighPermanencePath).isEqualTo(NB_SUB_DIR_UNDER_CONCERT*testDataManager.getNbHighPermanenceGenerated());
-			assertThat(backUpCounters.nbMediumPermanencePath).isEqualTo(NB_SUB_DIR_UNDER_CONCERT*testDataManager.getNbMediumPermanenceGenerated());
-			assertThat(backUpCounters.nbSourceFilesFailed).isZero();
-			assertThat(backUpCounters.nbSourceFilesProcessed).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION*NB_SUB_DIR_UNDER_CONCERT + 100);
-			assertThat(backUpCounters.nbTargetFilesProcessed).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION);	
-			assertThat(backUpCounters.nbTargetFilesFailed).isZero();
-			assertThat(backUpCounters.copyTargetNb).isZero();
+			assertThat(backUpCounters.ambiguousNb.sum()).isZero();
+			assertThat(backUpCounters.copyNewNb.sum()).isZero();
+			assertThat(backUpCounters.copyReplaceNb.sum()).isZero();
+			assertThat(backUpCounters.copyTreeNb.sum()).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION*NB_SUB_DIR_UNDER_CONCERT);
+			assertThat(backUpCounters.deleteDirNb.sum()).isZero();
+			assertThat(backUpCounters.deleteNb.sum()).isZero();
+			assertThat(backUpCounters.backupWithSizeAboveThreshold.sum()).isZero();
+			assertThat(backUpCounters.contentDifferentNb.sum()).isZero();
+			assertThat(backUpCounters.nbHighPermanencePath.sum()).isEqualTo(NB_SUB_DIR_UNDER_CONCERT*testDataManager.getNbHighPermanenceGenerated());
+			assertThat(backUpCounters.nbMediumPermanencePath.sum()).isEqualTo(NB_SUB_DIR_UNDER_CONCERT*testDataManager.getNbMediumPermanenceGenerated());
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION*NB_SUB_DIR_UNDER_CONCERT + 100);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isEqualTo(threadPoolSize*THREAD_TO_NB_DIR_CORRELATION);	
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.copyTargetNb.sum()).isZero();
 			assertThat(backUpCounters.getTargetFileStores()).isNotNull();
 			assertThat(backUpCounters.getTargetFileStores().getTotalPotentialSizeChange()).isEqualTo(2498700L);
 		
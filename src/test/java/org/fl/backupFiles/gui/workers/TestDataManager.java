@@ -63,7 +63,7 @@ public class TestDataManager {
 	private static final String GROUP_POLICY = "groupPolicy";
 		
 	private static final String SOURCE_BASE_DIR = "/ForTests/BackUpFiles/FP_Test_Source2/";
-	private static final String SUB_DIRECTORY_FOR_GROUP = "/Concert/";
+	protected static final String SUB_DIRECTORY_FOR_GROUP = "/Concert/";
 	
 	private static final String SOURCE_BASE_URI = "file:///ForTests/BackUpFiles/FP_Test_Source2/";
 	private static final String TARGET_BASE_URI = "file:///ForTests/BackUpFiles/FP_Test_Target2/";
@@ -139,9 +139,7 @@ public class TestDataManager {
 				// Copy test data to source and buffer
 				Path srcPath = FilesUtils.uriStringToAbsolutePath(srcUri);
 				Path bufPath = FilesUtils.uriStringToAbsolutePath(bufUri);
-				boolean b1 = FilesUtils.copyDirectoryTree(testDataDir, srcPath, bLog);
-				boolean b2 = FilesUtils.copyDirectoryTree(testDataDir, bufPath, bLog);
-				if (!(b1 && b2)) {
+				if (! generateSourceAndBufferData(testDataDir, srcPath, bufPath)) {
 					return false;
 				}
 				Path tgtPath = FilesUtils.uriStringToAbsolutePath(tgtUri + SUB_DIRECTORY_FOR_GROUP);
@@ -170,6 +168,14 @@ public class TestDataManager {
 	}
 	
 	
+	// May be overridden to generate other test data (synthetic trees for benchmarks for instance)
+	protected boolean generateSourceAndBufferData(Path testDataDir, Path srcPath, Path bufPath) throws IOException {
+		
+		boolean b1 = FilesUtils.copyDirectoryTree(testDataDir, srcPath, bLog);
+		boolean b2 = FilesUtils.copyDirectoryTree(testDataDir, bufPath, bLog);
+		return b1 && b2;
+	}
+	
 	public boolean deleteTestData() {
 
 		try {
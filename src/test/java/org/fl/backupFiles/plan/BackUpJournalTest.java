@@ -0,0 +1,238 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+import org.fl.backupFiles.Config;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.plan.BackUpJournal.ResumableBackUp;
+import org.fl.backupFiles.scanner.PathPairBasicAttributes;
+import org.fl.util.RunningContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BackUpJournalTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void interruptedBackUpShouldBeResumed() throws IOException {
+		
+		Path journalDir = tempDir.resolve("journal");
+		Path propertyFile = Files.writeString(tempDir.resolve("journal.properties"), "backupFiles.backUp.journalDir=" + journalDir.toUri() + "\n");
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", propertyFile.toUri().toString()));
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		Path file1 = Files.writeString(sourceDir.resolve("file1.txt"), "content 1");
+		Path file2 = Files.writeString(sourceDir.resolve("file2.txt"), "content 2");
+		
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null)), Long.MAX_VALUE);
+		List<BackUpTask> backUpTasks = List.of(backUpTask);
+		
+		BackUpCounters scanCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		BackUpItem backUpItem1 = new BackUpItem(new PathPairBasicAttributes(file1, targetDir.resolve("file1.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask);
+		BackUpItem backUpItem2 = new BackUpItem(new PathPairBasicAttributes(file2, targetDir.resolve("file2.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask);
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		backUpItemList.add(backUpItem1);
+		backUpItemList.add(backUpItem2);
+		
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks)).isNull();
+		
+		// Back up interrupted after the first back up item
+		BackUpJournal backUpJournal = BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, backUpItemList);
+		assertThat(backUpJournal).isNotNull();
+		Files.copy(file1, targetDir.resolve("file1.txt"));
+		backUpJournal.record(backUpItem1, true);
+		backUpJournal.end(false);
+		
+		ResumableBackUp resumableBackUp = BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks);
+		assertThat(resumableBackUp).isNotNull();
+		assertThat(resumableBackUp.doneBackUpItems()).hasSize(1);
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.BUFFER_TO_TARGET, backUpTasks)).isNull();
+		
+		// Another selection of back up tasks does not resume this back up
+		BackUpTask otherBackUpTask = new BackUpTask(sourceDir, Files.createDirectories(tempDir.resolve("otherTarget")), new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null)), Long.MAX_VALUE);
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, List.of(otherBackUpTask))).isNull();
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, List.of(backUpTask, otherBackUpTask))).isNull();
+		
+		BackUpItemList remainingBackUpItemList = BackUpItemList.build();
+		BackUpPlanReader backUpPlanReader = new BackUpPlanReader(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, new BackUpCounters(new TargetFileStores(), OperationType.SCAN));
+		backUpPlanReader.read(resumableBackUp, remainingBackUpItemList);
+		
+		assertThat(backUpPlanReader.getNbAlreadyDoneBackUpItems()).isEqualTo(1);
+		assertThat(remainingBackUpItemList).singleElement()
+			.satisfies(item -> assertThat(item.getSourcePath()).isEqualTo(file2));
+		
+		// Back up completed
+		BackUpJournal backUpJournal2 = BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, remainingBackUpItemList);
+		backUpJournal2.record(remainingBackUpItemList.get(0), true);
+		backUpJournal2.end(true);
+		
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks)).isNull();
+		assertThat(journalDir).isEmptyDirectory();
+	}
+	
+	@Test
+	void resumeWithNothingLeftShouldDeleteTheJournal() throws IOException {
+		
+		Path journalDir = tempDir.resolve("journal");
+		Path propertyFile = Files.writeString(tempDir.resolve("journal.properties"), "backupFiles.backUp.journalDir=" + journalDir.toUri() + "\n");
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", propertyFile.toUri().toString()));
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		Path file1 = Files.writeString(sourceDir.resolve("file1.txt"), "content 1");
+		
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null)), Long.MAX_VALUE);
+		List<BackUpTask> backUpTasks = List.of(backUpTask);
+		
+		BackUpCounters scanCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		BackUpItem backUpItem1 = new BackUpItem(new PathPairBasicAttributes(file1, targetDir.resolve("file1.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask);
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		backUpItemList.add(backUpItem1);
+		
+		// Back up interrupted after its last back up item, before the end of the journal
+		BackUpJournal backUpJournal = BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, backUpItemList);
+		Files.copy(file1, targetDir.resolve("file1.txt"));
+		backUpJournal.record(backUpItem1, true);
+		backUpJournal.end(false);
+		
+		ResumableBackUp resumableBackUp = BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks);
+		BackUpItemList remainingBackUpItemList = BackUpItemList.build();
+		new BackUpPlanReader(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, new BackUpCounters(new TargetFileStores(), OperationType.SCAN))
+			.read(resumableBackUp, remainingBackUpItemList);
+		assertThat(remainingBackUpItemList).isEmpty();
+		
+		// The next run must scan again instead of resuming the same back up
+		assertThat(BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, remainingBackUpItemList)).isNull();
+		assertThat(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks)).isNull();
+		assertThat(journalDir).isEmptyDirectory();
+	}
+	
+	@Test
+	void interruptedTreeCopyShouldBeCopiedAgain() throws IOException {
+		
+		Path journalDir = tempDir.resolve("journal");
+		Path propertyFile = Files.writeString(tempDir.resolve("journal.properties"), "backupFiles.backUp.journalDir=" + journalDir.toUri() + "\n");
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", propertyFile.toUri().toString()));
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		Path sourceTree = Files.createDirectories(sourceDir.resolve("tree"));
+		Files.writeString(sourceTree.resolve("file1.txt"), "content 1");
+		Files.writeString(sourceTree.resolve("file2.txt"), "content 2");
+		
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null)), Long.MAX_VALUE);
+		List<BackUpTask> backUpTasks = List.of(backUpTask);
+		
+		Path targetTree = targetDir.resolve("tree");
+		BackUpItem backUpItem = new BackUpItem(new PathPairBasicAttributes(sourceTree, targetTree), BackupAction.COPY_TREE, BackupStatus.DIFFERENT, 
+				new BackUpCounters(new TargetFileStores(), OperationType.SCAN), backUpTask);
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		backUpItemList.add(backUpItem);
+		
+		// Back up interrupted during the tree copy
+		BackUpJournal backUpJournal = BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, backUpItemList);
+		Files.createDirectories(targetTree);
+		Files.writeString(targetTree.resolve("file1.txt"), "content 1");
+		backUpJournal.end(false);
+		
+		BackUpItemList remainingBackUpItemList = BackUpItemList.build();
+		BackUpPlanReader backUpPlanReader = new BackUpPlanReader(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, new BackUpCounters(new TargetFileStores(), OperationType.SCAN));
+		backUpPlanReader.read(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks), remainingBackUpItemList);
+		
+		assertThat(backUpPlanReader.getNbStaleBackUpItems()).isZero();
+		assertThat(remainingBackUpItemList).singleElement()
+			.satisfies(item -> assertThat(item.getBackupAction()).isEqualTo(BackupAction.COPY_TREE));
+		assertThat(targetTree).doesNotExist();
+	}
+	
+	@Test
+	void interruptedTreeCopyShouldBeCompletedByTheParallelTreeCopier() throws IOException {
+		
+		Path journalDir = tempDir.resolve("journal");
+		Path propertyFile = Files.writeString(tempDir.resolve("journal.properties"), 
+				"backupFiles.backUp.journalDir=" + journalDir.toUri() + "\n" + "backupFiles.backUp.copyTree.threadPoolSize=2\n");
+		Config.setRunningContextSupplier(() -> new RunningContext("org.fl.backupFiles", propertyFile.toUri().toString()));
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		Path sourceTree = Files.createDirectories(sourceDir.resolve("tree"));
+		Path sourceFile1 = Files.writeString(sourceTree.resolve("file1.txt"), "content 1");
+		Files.writeString(sourceTree.resolve("file2.txt"), "content 2");
+		
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null)), Long.MAX_VALUE);
+		List<BackUpTask> backUpTasks = List.of(backUpTask);
+		
+		Path targetTree = targetDir.resolve("tree");
+		BackUpItem backUpItem = new BackUpItem(new PathPairBasicAttributes(sourceTree, targetTree), BackupAction.COPY_TREE, BackupStatus.DIFFERENT, 
+				new BackUpCounters(new TargetFileStores(), OperationType.SCAN), backUpTask);
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		backUpItemList.add(backUpItem);
+		
+		// Back up interrupted during the tree copy, after the copy of the first file
+		BackUpJournal backUpJournal = BackUpJournal.start(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, backUpItemList);
+		Files.createDirectories(targetTree);
+		Path targetFile1 = Files.copy(sourceFile1, targetTree.resolve("file1.txt"), StandardCopyOption.COPY_ATTRIBUTES);
+		backUpJournal.end(false);
+		
+		BackUpItemList remainingBackUpItemList = BackUpItemList.build();
+		BackUpPlanReader backUpPlanReader = new BackUpPlanReader(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, new BackUpCounters(new TargetFileStores(), OperationType.SCAN));
+		backUpPlanReader.read(BackUpJournal.getResumableBackUp(JobTaskType.SOURCE_TO_BUFFER, backUpTasks), remainingBackUpItemList);
+		
+		// The partial copy is kept and completed
+		assertThat(backUpPlanReader.getNbStaleBackUpItems()).isZero();
+		assertThat(remainingBackUpItemList).singleElement()
+			.satisfies(item -> assertThat(item.getBackupAction()).isEqualTo(BackupAction.COPY_TREE));
+		assertThat(targetFile1).exists();
+		Object targetFile1Key = Files.readAttributes(targetFile1, BasicFileAttributes.class).fileKey();
+		
+		assertThat(remainingBackUpItemList.get(0).execute(new BackUpCounters(new TargetFileStores(), OperationType.BACKUP))).isTrue();
+		assertThat(targetTree.resolve("file1.txt")).hasContent("content 1");
+		assertThat(targetTree.resolve("file2.txt")).hasContent("content 2");
+		// The file already copied has not been copied again
+		assertThat(Files.readAttributes(targetFile1, BasicFileAttributes.class).fileKey()).isEqualTo(targetFile1Key);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.plan;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpItemList;
+import org.fl.backupFiles.BackUpJob.JobTaskType;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.fl.backupFiles.scanner.PathPairBasicAttributes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BackUpPlanTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void shouldReadWrittenEntries() throws IOException {
+		
+		for (BackUpPlanFormat backUpPlanFormat : BackUpPlanFormat.values()) {
+			shouldReadWrittenEntries(backUpPlanFormat);
+		}
+	}
+	
+	private void shouldReadWrittenEntries(BackUpPlanFormat backUpPlanFormat) throws IOException {
+		
+		BackUpPlanHeader header = new BackUpPlanHeader("SOURCE_TO_BUFFER", List.of("/src1", "/src2"), List.of("/tgt1", "/tgt2"));
+		BackUpPlanEntry entry1 = new BackUpPlanEntry(0, BackupAction.COPY_NEW, BackupStatus.DIFFERENT, "dir/file été.txt", "dir/file été.txt", "dir/file été.txt", 1234, null);
+		BackUpPlanEntry entry2 = new BackUpPlanEntry(1, BackupAction.DELETE, BackupStatus.DIFFERENT, null, "old.txt", "", -56, null);
+		BackUpPlanEntry entry3 = new BackUpPlanEntry(1, BackupAction.MOVE, BackupStatus.DIFFERENT, "new/moved.txt", "new/moved.txt", "new/moved.txt", 0, "old/moved.txt");
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BackUpPlanOutput backUpPlanOutput = backUpPlanFormat.newOutput(out)) {
+			backUpPlanOutput.writeHeader(header);
+			backUpPlanOutput.writeEntry(entry1);
+			backUpPlanOutput.writeEntry(entry2);
+			backUpPlanOutput.writeEntry(entry3);
+		}
+		
+		try (BackUpPlanInput backUpPlanInput = backUpPlanFormat.newInput(new ByteArrayInputStream(out.toByteArray()))) {
+			assertThat(backUpPlanInput.readHeader()).isEqualTo(header);
+			assertThat(backUpPlanInput.readEntry()).isEqualTo(entry1);
+			assertThat(backUpPlanInput.readEntry()).isEqualTo(entry2);
+			assertThat(backUpPlanInput.readEntry()).isEqualTo(entry3);
+			assertThat(backUpPlanInput.readEntry()).isNull();
+		}
+	}
+	
+	@Test
+	void formatShouldBeGivenByExtension() {
+		
+		assertThat(BackUpPlanFormat.getBackUpPlanFormat(Path.of("plan.bkplan"))).isEqualTo(BackUpPlanFormat.BINARY);
+		assertThat(BackUpPlanFormat.getBackUpPlanFormat(Path.of("plan.jsonl"))).isEqualTo(BackUpPlanFormat.JSON_LINES);
+		assertThat(BackUpPlanFormat.getBackUpPlanFormat(Path.of("plan.txt"))).isEqualTo(BackUpPlanFormat.JSON_LINES);
+	}
+	
+	@Test
+	void shouldRebuildBackUpItemsAndIgnoreStaleOnes() throws IOException {
+		
+		for (BackUpPlanFormat backUpPlanFormat : BackUpPlanFormat.values()) {
+			shouldRebuildBackUpItemsAndIgnoreStaleOnes(backUpPlanFormat);
+		}
+	}
+	
+	private void shouldRebuildBackUpItemsAndIgnoreStaleOnes(BackUpPlanFormat backUpPlanFormat) throws IOException {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve(backUpPlanFormat.name()).resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve(backUpPlanFormat.name()).resolve("target"));
+		Path newFile = Files.writeString(sourceDir.resolve("new.txt"), "new content");
+		Path removedFile = Files.writeString(sourceDir.resolve("removed.txt"), "removed content");
+		Path oldFile = Files.writeString(targetDir.resolve("old.txt"), "old content");
+		
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, directoryGroupMap, Long.MAX_VALUE);
+		List<BackUpTask> backUpTasks = List.of(backUpTask);
+		
+		BackUpCounters scanCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		Path planFile = tempDir.resolve("plan" + backUpPlanFormat.getExtension());
+		try (BackUpPlanWriter backUpPlanWriter = BackUpPlanWriter.open(planFile, JobTaskType.SOURCE_TO_BUFFER, backUpTasks)) {
+			backUpPlanWriter.write(new BackUpItem(new PathPairBasicAttributes(newFile, targetDir.resolve("new.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask));
+			backUpPlanWriter.write(new BackUpItem(new PathPairBasicAttributes(removedFile, targetDir.resolve("removed.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, scanCounters, backUpTask));
+			backUpPlanWriter.write(new BackUpItem(new PathPairBasicAttributes(null, oldFile), BackupAction.DELETE, new PathPairBasicAttributes(sourceDir, null), scanCounters, backUpTask));
+			assertThat(backUpPlanWriter.getNbBackUpItemsWritten()).isEqualTo(3);
+		}
+		assertThat(planFile).exists();
+		
+		// The file system has changed since the export
+		Files.delete(removedFile);
+		
+		BackUpItemList backUpItemList = BackUpItemList.build();
+		BackUpPlanReader backUpPlanReader = new BackUpPlanReader(JobTaskType.SOURCE_TO_BUFFER, backUpTasks, new BackUpCounters(new TargetFileStores(), OperationType.SCAN));
+		backUpPlanReader.read(planFile, backUpItemList);
+		
+		assertThat(backUpPlanReader.getNbBackUpItemsRead()).isEqualTo(3);
+		assertThat(backUpPlanReader.getNbStaleBackUpItems()).isEqualTo(1);
+		assertThat(backUpItemList).hasSize(2)
+			.satisfiesExactly(
+				item -> {
+					assertThat(item.getBackupAction()).isEqualTo(BackupAction.COPY_NEW);
+					assertThat(item.getSourcePath()).isEqualTo(newFile);
+					assertThat(item.getTargetPath()).isEqualTo(targetDir.resolve("new.txt"));
+				},
+				item -> {
+					assertThat(item.getBackupAction()).isEqualTo(BackupAction.DELETE);
+					assertThat(item.getSourcePath()).isNull();
+					assertThat(item.getTargetPath()).isEqualTo(oldFile);
+					assertThat(item.getSourceClosestExistingPath()).isEqualTo(sourceDir);
+				});
+	}
+}
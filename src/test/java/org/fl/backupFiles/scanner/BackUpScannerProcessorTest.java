@@ -32,6 +32,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
@@ -120,21 +121,21 @@ class BackUpScannerProcessorTest {
 			
 			ScannerThreadResponse scannerResp = backUpRes.get();
 			BackUpCounters backUpCounters = scannerResp.getBackUpCounters();
-			assertThat(backUpCounters.ambiguousNb).isZero();
-			assertThat(backUpCounters.copyNewNb).isZero();
-			assertThat(backUpCounters.copyReplaceNb).isZero();
-			assertThat(backUpCounters.copyTreeNb).isEqualTo(2);
-			assertThat(backUpCounters.deleteDirNb).isZero();
-			assertThat(backUpCounters.deleteNb).isZero();
-			assertThat(backUpCounters.backupWithSizeAboveThreshold).isEqualTo(2);
-			assertThat(backUpCounters.contentDifferentNb).isZero();
-			assertThat(backUpCounters.nbHighPermanencePath).isZero();
-			assertThat(backUpCounters.nbMediumPermanencePath).isEqualTo(2);
-			assertThat(backUpCounters.nbSourceFilesFailed).isZero();
-			assertThat(backUpCounters.nbSourceFilesProcessed).isEqualTo(3);
-			assertThat(backUpCounters.nbTargetFilesProcessed).isZero();
-			assertThat(backUpCounters.nbTargetFilesFailed).isZero();
-			assertThat(backUpCounters.copyTargetNb).isZero();
+			assertThat(backUpCounters.ambiguousNb.sum()).isZero();
+			assertThat(backUpCounters.copyNewNb.sum()).isZero();
+			assertThat(backUpCounters.copyReplaceNb.sum()).isZero();
+			assertThat(backUpCounters.copyTreeNb.sum()).isEqualTo(2);
+			assertThat(backUpCounters.deleteDirNb.sum()).isZero();
+			assertThat(backUpCounters.deleteNb.sum()).isZero();
+			assertThat(backUpCounters.backupWithSizeAboveThreshold.sum()).isEqualTo(2);
+			assertThat(backUpCounters.contentDifferentNb.sum()).isZero();
+			assertThat(backUpCounters.nbHighPermanencePath.sum()).isZero();
+			assertThat(backUpCounters.nbMediumPermanencePath.sum()).isEqualTo(2);
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(3);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isZero();
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.copyTargetNb.sum()).isZero();
 			
 			BackUpItemList backUpItemList = scannerResp.getBackUpItemList() ;
 			assertThat(backUpItemList)
@@ -152,21 +153,21 @@ class BackUpScannerProcessorTest {
 			for (AbstractBackUpItem backUpItem : backUpItemList) {
 				backUpItem.execute(backUpCounters);
 			}
-			assertThat(backUpCounters.ambiguousNb).isZero();
-			assertThat(backUpCounters.copyNewNb).isZero();
-			assertThat(backUpCounters.copyReplaceNb).isZero();
-			assertThat(backUpCounters.copyTreeNb).isEqualTo(2);
-			assertThat(backUpCounters.deleteDirNb).isZero();
-			assertThat(backUpCounters.deleteNb).isZero();
-			assertThat(backUpCounters.backupWithSizeAboveThreshold).isEqualTo(2);
-			assertThat(backUpCounters.contentDifferentNb).isZero();
-			assertThat(backUpCounters.nbHighPermanencePath).isZero();
-			assertThat(backUpCounters.nbMediumPermanencePath).isEqualTo(2);
-			assertThat(backUpCounters.nbSourceFilesFailed).isZero();
-			assertThat(backUpCounters.nbSourceFilesProcessed).isEqualTo(2);
-			assertThat(backUpCounters.nbTargetFilesProcessed).isZero();
-			assertThat(backUpCounters.nbTargetFilesFailed).isZero();
-			assertThat(backUpCounters.copyTargetNb).isZero();
+			assertThat(backUpCounters.ambiguousNb.sum()).isZero();
+			assertThat(backUpCounters.copyNewNb.sum()).isZero();
+			assertThat(backUpCounters.copyReplaceNb.sum()).isZero();
+			assertThat(backUpCounters.copyTreeNb.sum()).isEqualTo(2);
+			assertThat(backUpCounters.deleteDirNb.sum()).isZero();
+			assertThat(backUpCounters.deleteNb.sum()).isZero();
+			assertThat(backUpCounters.backupWithSizeAboveThreshold.sum()).isEqualTo(2);
+			assertThat(backUpCounters.contentDifferentNb.sum()).isZero();
+			assertThat(backUpCounters.nbHighPermanencePath.sum()).isZero();
+			assertThat(backUpCounters.nbMediumPermanencePath.sum()).isEqualTo(2);
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(2);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isZero();
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.copyTargetNb.sum()).isZero();
 			
 			// Recompare directory
 			backUpTask.setCompareContent(true) ;
@@ -190,6 +191,137 @@ class BackUpScannerProcessorTest {
 		}	
 	}
 	
+	@Test
+	void forkJoinScanShouldGiveSameResultAsSequentialScan() {
+		
+		try {
+			
+			ExecutorService scannerExecutor = Config.getScanExecutorService();
+			
+			Path src = FilesUtils.uriStringToAbsolutePath(BUFFER_DATA_DIR);
+			Path tgt = FilesUtils.uriStringToAbsolutePath(TARGET_DATA_DIR);
+			
+			// Create some differences between source and target
+			FilesUtils.copyDirectoryTree(FilesUtils.uriStringToAbsolutePath(BUFFER_DATA_DIR1), tgt.resolve("dir1"), log);
+			Files.write(tgt.resolve("dir1").resolve("onlyInTarget"), new ArrayList<String>(Arrays.asList("une ligne")));
+			Files.createDirectory(tgt.resolve("dir2"));
+			
+			BackUpTask backUpTask = new BackUpTask(src, tgt, directoryGroupMap, 0);
+			
+			BackUpScannerThread backUpScannerThread = new BackUpScannerThread(backUpTask);
+			ScannerThreadResponse sequentialResp = CompletableFuture.supplyAsync(backUpScannerThread::scan, scannerExecutor).get();
+			
+			backUpTask.setForkJoinScan(true);
+			backUpScannerThread = new BackUpScannerThread(backUpTask);
+			ScannerThreadResponse forkJoinResp = CompletableFuture.supplyAsync(backUpScannerThread::scan, scannerExecutor).get();
+			
+			assertThat(forkJoinResp.getBackUpCounters().equalsIndividualCounters(sequentialResp.getBackUpCounters())).isTrue();
+			assertThat(forkJoinResp.getBackUpCounters().nbSourceFilesProcessed.sum()).isEqualTo(sequentialResp.getBackUpCounters().nbSourceFilesProcessed.sum());
+			assertThat(forkJoinResp.getBackUpCounters().nbTargetFilesProcessed.sum()).isEqualTo(sequentialResp.getBackUpCounters().nbTargetFilesProcessed.sum());
+			assertThat(forkJoinResp.getFilesVisitFailed()).hasSameElementsAs(sequentialResp.getFilesVisitFailed());
+			
+			assertThat(forkJoinResp.getBackUpItemList())
+				.extracting(AbstractBackUpItem::getSourcePath, AbstractBackUpItem::getTargetPath, AbstractBackUpItem::getBackupAction, AbstractBackUpItem::getBackUpItemNumber)
+				.hasSameElementsAs(sequentialResp.getBackUpItemList().stream()
+						.map(item -> tuple(item.getSourcePath(), item.getTargetPath(), item.getBackupAction(), item.getBackUpItemNumber()))
+						.toList());
+			
+			// Delete target dir to recover initial state
+			FilesUtils.deleteDirectoryTree(tgt, false, log);
+			Files.createDirectory(tgt);
+			
+		} catch (Exception e) {
+			Logger.getGlobal().log(Level.SEVERE, "Exception in BackUpScannerProcessor test", e);
+			fail("Exception " + e.getMessage());
+		}
+	}
+	
+	@Test
+	void streamedBackUpItemsShouldNotBeHeldByTheResponse() {
+		
+		try {
+			
+			ExecutorService scannerExecutor = Config.getScanExecutorService();
+			
+			Path src = FilesUtils.uriStringToAbsolutePath(BUFFER_DATA_DIR);
+			Path tgt = FilesUtils.uriStringToAbsolutePath(TARGET_DATA_DIR);
+			
+			BackUpTask backUpTask = new BackUpTask(src, tgt, directoryGroupMap, 0);
+			
+			BackUpScannerThread backUpScannerThread = new BackUpScannerThread(backUpTask);
+			backUpScannerThread.streamBackUpItems(true);
+			CompletableFuture<ScannerThreadResponse> futureResponse = CompletableFuture.supplyAsync(backUpScannerThread::scan, scannerExecutor);
+			
+			// The stream is drained while the scan is running, otherwise the scan waits when the stream queue is full.
+			// The number of back up items of each streamed group is kept, to check that the group was complete when streamed
+			List<AbstractBackUpItem> streamedBackUpItems = new ArrayList<>();
+			List<Long> streamedGroupSizes = new ArrayList<>();
+			boolean scanDone;
+			do {
+				scanDone = futureResponse.isDone();
+				List<AbstractBackUpItem> backUpItems;
+				while ((backUpItems = backUpScannerThread.pollStreamedBackUpItems()) != null) {
+					assertThat(backUpItems).isNotEmpty().hasSizeLessThanOrEqualTo(1000);
+					streamedBackUpItems.addAll(backUpItems);
+					backUpItems.stream().filter(BackUpItemGroup.class::isInstance).forEach(group -> streamedGroupSizes.add(group.getBackUpItemNumber()));
+				}
+				if (! scanDone) {
+					Thread.sleep(10);
+				}
+			} while (! scanDone);
+			ScannerThreadResponse scannerResp = futureResponse.get();
+			
+			assertThat(streamedBackUpItems).isNotEmpty().hasSize(scannerResp.getNbBackUpItems());
+			assertThat(scannerResp.getBackUpItemList()).isEmpty();
+			assertThat(streamedBackUpItems.stream().filter(BackUpItemGroup.class::isInstance).map(AbstractBackUpItem::getBackUpItemNumber).toList())
+				.containsExactlyElementsOf(streamedGroupSizes);
+			
+			// The same scan without streaming holds the back up items in the response (the groups are streamed at the end of the scan)
+			ScannerThreadResponse notStreamedResp = CompletableFuture.supplyAsync(new BackUpScannerThread(backUpTask)::scan, scannerExecutor).get();
+			assertThat(notStreamedResp.getBackUpItemList()).hasSize(notStreamedResp.getNbBackUpItems());
+			assertThat(streamedBackUpItems).extracting(AbstractBackUpItem::getSourcePath)
+				.containsExactlyInAnyOrderElementsOf(notStreamedResp.getBackUpItemList().stream().map(AbstractBackUpItem::getSourcePath).toList());
+			
+		} catch (Exception e) {
+			Logger.getGlobal().log(Level.SEVERE, "Exception in BackUpScannerProcessor test", e);
+			fail("Exception " + e.getMessage());
+		}
+	}
+	
+	@Test
+	void streamedBackUpItemsShouldBeDrainedOnDemand() {
+		
+		try {
+			
+			ExecutorService scannerExecutor = Config.getScanExecutorService();
+			
+			Path src = FilesUtils.uriStringToAbsolutePath(BUFFER_DATA_DIR);
+			Path tgt = FilesUtils.uriStringToAbsolutePath(TARGET_DATA_DIR);
+			
+			BackUpTask backUpTask = new BackUpTask(src, tgt, directoryGroupMap, 0);
+			
+			// The stream listener drains the stream queue each time a batch is streamed: the scan never waits for a drain
+			BackUpScannerThread backUpScannerThread = new BackUpScannerThread(backUpTask);
+			backUpScannerThread.streamBackUpItems(true);
+			List<AbstractBackUpItem> streamedBackUpItems = new ArrayList<>();
+			backUpScannerThread.setStreamListener(() -> {
+				List<AbstractBackUpItem> backUpItems;
+				while ((backUpItems = backUpScannerThread.pollStreamedBackUpItems()) != null) {
+					streamedBackUpItems.addAll(backUpItems);
+				}
+			});
+			ScannerThreadResponse scannerResp = CompletableFuture.supplyAsync(backUpScannerThread::scan, scannerExecutor).get();
+			
+			assertThat(backUpScannerThread.pollStreamedBackUpItems()).isNull();
+			assertThat(streamedBackUpItems).isNotEmpty().hasSize(scannerResp.getNbBackUpItems());
+			assertThat(scannerResp.getBackUpItemList()).isEmpty();
+			
+		} catch (Exception e) {
+			Logger.getGlobal().log(Level.SEVERE, "Exception in BackUpScannerProcessor test", e);
+			fail("Exception " + e.getMessage());
+		}
+	}
+	
 	@Test
 	void scanWithUnexistingTargetDir() {
 		
@@ -207,21 +339,21 @@ class BackUpScannerProcessorTest {
 			
 			ScannerThreadResponse scannerResp = backUpRes.get();
 			BackUpCounters backUpCounters = scannerResp.getBackUpCounters();
-			assertThat(backUpCounters.ambiguousNb).isZero();
-			assertThat(backUpCounters.copyNewNb).isZero();
-			assertThat(backUpCounters.copyReplaceNb).isZero();
-			assertThat(backUpCounters.copyTreeNb).isEqualTo(1);
-			assertThat(backUpCounters.deleteDirNb).isZero();
-			assertThat(backUpCounters.deleteNb).isZero();
-			assertThat(backUpCounters.backupWithSizeAboveThreshold).isEqualTo(1);
-			assertThat(backUpCounters.contentDifferentNb).isZero();
-			assertThat(backUpCounters.nbHighPermanencePath).isZero();
-			assertThat(backUpCounters.nbMediumPermanencePath).isEqualTo(1);
-			assertThat(backUpCounters.nbSourceFilesFailed).isZero();
-			assertThat(backUpCounters.nbSourceFilesProcessed).isEqualTo(1);
-			assertThat(backUpCounters.nbTargetFilesProcessed).isZero();
-			assertThat(backUpCounters.nbTargetFilesFailed).isZero();
-			assertThat(backUpCounters.copyTargetNb).isZero();
+			assertThat(backUpCounters.ambiguousNb.sum()).isZero();
+			assertThat(backUpCounters.copyNewNb.sum()).isZero();
+			assertThat(backUpCounters.copyReplaceNb.sum()).isZero();
+			assertThat(backUpCounters.copyTreeNb.sum()).isEqualTo(1);
+			assertThat(backUpCounters.deleteDirNb.sum()).isZero();
+			assertThat(backUpCounters.deleteNb.sum()).isZero();
+			assertThat(backUpCounters.backupWithSizeAboveThreshold.sum()).isEqualTo(1);
+			assertThat(backUpCounters.contentDifferentNb.sum()).isZero();
+			assertThat(backUpCounters.nbHighPermanencePath.sum()).isZero();
+			assertThat(backUpCounters.nbMediumPermanencePath.sum()).isEqualTo(1);
+			assertThat(backUpCounters.nbSourceFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.nbSourceFilesProcessed.sum()).isEqualTo(1);
+			assertThat(backUpCounters.nbTargetFilesProcessed.sum()).isZero();
+			assertThat(backUpCounters.nbTargetFilesFailed.sum()).isZero();
+			assertThat(backUpCounters.copyTargetNb.sum()).isZero();
 
 			BackUpItemList backUpItemList = scannerResp.getBackUpItemList();
 			assertThat(backUpItemList)
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentCompareStageTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void sameContentShouldBeDetected() throws IOException {
+		
+		byte[] content = largeContent();
+		Path file1 = Files.write(tempDir.resolve("file1"), content);
+		Path file2 = Files.write(tempDir.resolve("file2"), content);
+		
+		assertThat(ContentComparator.compare(file1, file2)).isEqualTo(ContentCompareResult.SAME_CONTENT);
+	}
+	
+	@Test
+	void differentContentShouldBeDetected() throws IOException {
+		
+		byte[] content1 = largeContent();
+		byte[] content2 = Arrays.copyOf(content1, content1.length);
+		content2[content2.length - 1]++;
+		Path file1 = Files.write(tempDir.resolve("file1"), content1);
+		Path file2 = Files.write(tempDir.resolve("file2"), content2);
+		Path file3 = Files.write(tempDir.resolve("file3"), Arrays.copyOf(content1, content1.length - 1));
+		
+		assertThat(ContentComparator.compare(file1, file2)).isEqualTo(ContentCompareResult.DIFFERENT_CONTENT);
+		assertThat(ContentComparator.compare(file1, file3)).isEqualTo(ContentCompareResult.DIFFERENT_CONTENT);
+	}
+	
+	@Test
+	void missingFileShouldBeAnError() throws IOException {
+		
+		Path file1 = Files.write(tempDir.resolve("file1"), largeContent());
+		
+		assertThat(ContentComparator.compare(file1, tempDir.resolve("doesNotExist"))).isEqualTo(ContentCompareResult.ERROR);
+	}
+	
+	@Test
+	void contentCompareStageShouldCompareInParallel() throws IOException {
+		
+		byte[] content = largeContent();
+		Path file1 = Files.write(tempDir.resolve("file1"), content);
+		Path file2 = Files.write(tempDir.resolve("file2"), content);
+		
+		ContentCompareStage contentCompareStage = new ContentCompareStage(2, 1, 1, new FileStorePermits(1));
+		try {
+			// the queue is full after the first comparisons, so the others are done by the caller
+			assertThat(
+				IntStream.range(0, 10)
+					.mapToObj(i -> contentCompareStage.compare(file1, null, file2, null, null))
+					.toList())
+				.allSatisfy(futureResult -> assertThat(futureResult.join()).isEqualTo(ContentCompareResult.SAME_CONTENT));
+		} finally {
+			contentCompareStage.getExecutorService().shutdown();
+		}
+	}
+	
+	// More than one chunk
+	private static byte[] largeContent() {
+		
+		byte[] content = new byte[3*1024*1024 + 17];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte)(i % 251);
+		}
+		return content;
+	}
+}
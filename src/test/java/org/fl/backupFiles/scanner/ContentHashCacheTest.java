@@ -0,0 +1,116 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.fl.backupFiles.scanner.ContentComparator.ContentCompareResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentHashCacheTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void unchangedFilesShouldBeComparedWithCachedDigests() throws Exception {
+		
+		Path cacheFile = tempDir.resolve("cache").resolve("contentHashCache.bin");
+		Path file1 = Files.writeString(tempDir.resolve("file1"), "same content");
+		Path file2 = Files.writeString(tempDir.resolve("file2"), "same content");
+		
+		ContentHashCache contentHashCache = new ContentHashCache(cacheFile, "SHA-256", 100);
+		assertThat(contentHashCache.compare(file1, file2)).isEqualTo(ContentCompareResult.SAME_CONTENT);
+		assertThat(contentHashCache.getNbDigestsComputed()).isEqualTo(2);
+		assertThat(contentHashCache.getNbCacheHits()).isZero();
+		
+		contentHashCache.save();
+		assertThat(cacheFile).exists();
+		
+		// Read the cache from its file
+		ContentHashCache contentHashCache2 = new ContentHashCache(cacheFile, "SHA-256", 100);
+		assertThat(contentHashCache2.getNbCachedDigests()).isEqualTo(2);
+		assertThat(contentHashCache2.compare(file1, file2)).isEqualTo(ContentCompareResult.SAME_CONTENT);
+		assertThat(contentHashCache2.getNbDigestsComputed()).isZero();
+		assertThat(contentHashCache2.getNbCacheHits()).isEqualTo(2);
+	}
+	
+	@Test
+	void modifiedFileShouldBeRead() throws Exception {
+		
+		Path file1 = Files.writeString(tempDir.resolve("file1"), "same content");
+		Path file2 = Files.writeString(tempDir.resolve("file2"), "same content");
+		Files.setLastModifiedTime(file2, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+		
+		ContentHashCache contentHashCache = new ContentHashCache(tempDir.resolve("contentHashCache.bin"), "SHA-256", 100);
+		assertThat(contentHashCache.compare(file1, file2)).isEqualTo(ContentCompareResult.SAME_CONTENT);
+		
+		// Same size, different content
+		Files.writeString(file2, "diff content");
+		assertThat(contentHashCache.compare(file1, file2)).isEqualTo(ContentCompareResult.DIFFERENT_CONTENT);
+		assertThat(contentHashCache.getNbDigestsComputed()).isEqualTo(3);
+		assertThat(contentHashCache.getNbCacheHits()).isEqualTo(1);
+	}
+	
+	@Test
+	void differentFilesShouldNotBeCached() throws Exception {
+		
+		Path file1 = Files.writeString(tempDir.resolve("file1"), "same size content 1");
+		Path file2 = Files.writeString(tempDir.resolve("file2"), "same size content 2");
+		
+		// None of the files has a cached digest: they are compared by chunks and not read to the end
+		ContentHashCache contentHashCache = new ContentHashCache(tempDir.resolve("contentHashCache.bin"), "SHA-256", 100);
+		assertThat(contentHashCache.compare(file1, file2)).isEqualTo(ContentCompareResult.DIFFERENT_CONTENT);
+		assertThat(contentHashCache.getNbDigestsComputed()).isZero();
+		assertThat(contentHashCache.getNbCachedDigests()).isZero();
+	}
+	
+	@Test
+	void leastRecentlyUsedDigestsShouldBeEvicted() throws Exception {
+		
+		ContentHashCache contentHashCache = new ContentHashCache(tempDir.resolve("contentHashCache.bin"), "SHA-256", 3);
+		for (int i = 0; i < 3; i++) {
+			Path file1 = Files.writeString(tempDir.resolve("file1_" + i), "content " + i);
+			Path file2 = Files.writeString(tempDir.resolve("file2_" + i), "content " + i);
+			assertThat(contentHashCache.compare(file1, file2)).isEqualTo(ContentCompareResult.SAME_CONTENT);
+		}
+		assertThat(contentHashCache.getNbCachedDigests()).isEqualTo(3);
+	}
+	
+	@Test
+	void unknownAlgorithmShouldBeRejected() {
+		
+		assertThatExceptionOfType(NoSuchAlgorithmException.class)
+			.isThrownBy(() -> new ContentHashCache(tempDir.resolve("contentHashCache.bin"), "NOT-AN-ALGORITHM", 100));
+	}
+}
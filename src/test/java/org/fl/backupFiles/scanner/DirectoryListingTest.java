@@ -0,0 +1,94 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirectoryListingTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void entriesShouldBeSortedByName() throws IOException {
+		
+		List<String> names = List.of("b", "a", "d", "c", "ab", "e0", "e");
+		for (String name : names) {
+			Files.writeString(tempDir.resolve(name), name);
+		}
+		
+		DirectoryListing directoryListing = new DirectoryListing(tempDir);
+		try (DirectoryStream<Path> fileStream = Files.newDirectoryStream(tempDir)) {
+			for (Path file : fileStream) {
+				directoryListing.add(file, null);
+			}
+		}
+		directoryListing.sort(Comparator.naturalOrder());
+		
+		assertThat(directoryListing.size()).isEqualTo(names.size());
+		List<String> sortedNames = names.stream().sorted().toList();
+		for (int i = 0; i < directoryListing.size(); i++) {
+			assertThat(directoryListing.getName(i)).isEqualTo(sortedNames.get(i));
+			assertThat(directoryListing.getPath(i)).isEqualTo(tempDir.resolve(sortedNames.get(i)));
+			assertThat(directoryListing.getAttributes(i)).isNull();
+		}
+	}
+	
+	@Test
+	void pathOfEntryAddedByNameShouldBeResolved() {
+		
+		DirectoryListing directoryListing = new DirectoryListing(tempDir);
+		for (int i = 40; i > 0; i--) {
+			directoryListing.add("file" + i, null);
+		}
+		directoryListing.sort(Comparator.naturalOrder());
+		
+		assertThat(directoryListing.size()).isEqualTo(40);
+		assertThat(directoryListing.getName(0)).isEqualTo("file1");
+		assertThat(directoryListing.getPath(0)).isEqualTo(tempDir.resolve("file1"));
+		assertThat(directoryListing.getName(39)).isEqualTo("file9");
+	}
+	
+	@Test
+	void nameComparatorShouldBeConsistentWithPathEquality() {
+		
+		Comparator<String> nameComparator = DirectoryListing.nameComparator(tempDir.getFileSystem());
+		boolean sameFileName = tempDir.getFileSystem().getPath("File").equals(tempDir.getFileSystem().getPath("file"));
+		
+		assertThat(nameComparator.compare("File", "file") == 0).isEqualTo(sameFileName);
+		assertThat(nameComparator.compare("file", "file")).isZero();
+		assertThat(nameComparator.compare("file1", "file2")).isNegative();
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class DirectoryReaderTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@ParameterizedTest
+	@EnumSource(DirectoryReaderType.class)
+	void directoryReadersShouldListTheSameEntries(DirectoryReaderType directoryReaderType) throws IOException {
+		
+		Files.writeString(tempDir.resolve("file1.txt"), "1");
+		Files.writeString(tempDir.resolve("file2.txt"), "22");
+		Files.createDirectory(tempDir.resolve("subDir"));
+		
+		DirectoryReader directoryReader = directoryReaderType.getDirectoryReader();
+		DirectoryListing directoryListing = new DirectoryListing(tempDir);
+		directoryReader.read(tempDir, directoryListing);
+		directoryListing.sort(Comparator.naturalOrder());
+		
+		assertThat(directoryListing.size()).isEqualTo(3);
+		assertThat(directoryListing.getName(0)).isEqualTo("file1.txt");
+		assertThat(directoryListing.getName(1)).isEqualTo("file2.txt");
+		assertThat(directoryListing.getName(2)).isEqualTo("subDir");
+		
+		if (directoryReader.readsAttributes()) {
+			assertThat(directoryListing.getAttributes(0)).isNotNull().extracting(BasicFileAttributes::size).isEqualTo(1L);
+			assertThat(directoryListing.getAttributes(1)).isNotNull().extracting(BasicFileAttributes::size).isEqualTo(2L);
+			assertThat(directoryListing.getAttributes(2)).isNotNull().extracting(BasicFileAttributes::isDirectory).isEqualTo(true);
+		} else {
+			assertThat(directoryListing.getAttributes(0)).isNull();
+		}
+	}
+	
+	@ParameterizedTest
+	@EnumSource(DirectoryReaderType.class)
+	void missingDirectoryShouldThrowAnException(DirectoryReaderType directoryReaderType) {
+		
+		Path missingDirectory = tempDir.resolve("missing");
+		assertThatExceptionOfType(NoSuchFileException.class)
+			.isThrownBy(() -> directoryReaderType.getDirectoryReader().read(missingDirectory, new DirectoryListing(missingDirectory)));
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.fl.backupFiles.scanner.FileStorePermits.Permits;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileStorePermitsTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void sameFileStoreShouldBeAcquiredOnce() throws IOException, InterruptedException {
+		
+		FileStore fileStore = Files.getFileStore(tempDir);
+		FileStorePermits fileStorePermits = new FileStorePermits(1);
+		
+		// Source and target on the same file store
+		try (Permits permits = fileStorePermits.acquire(fileStore, fileStore)) {
+			assertThat(permits).isNotNull();
+		}
+		try (Permits permits = fileStorePermits.acquireUninterruptibly(fileStore, null)) {
+			assertThat(permits).isNotNull();
+		}
+	}
+	
+	@Test
+	void concurrencyShouldBeLimitedByFileStore() throws Exception {
+		
+		FileStore fileStore = Files.getFileStore(tempDir);
+		FileStorePermits fileStorePermits = new FileStorePermits(1);
+		
+		CompletableFuture<Boolean> waitingOperation;
+		try (Permits permits = fileStorePermits.acquire(fileStore, null)) {
+			waitingOperation = CompletableFuture.supplyAsync(() -> {
+				try (Permits otherPermits = fileStorePermits.acquireUninterruptibly(null, fileStore)) {
+					return true;
+				}
+			}, Executors.newVirtualThreadPerTaskExecutor());
+			
+			Thread.sleep(200);
+			assertThat(waitingOperation).isNotDone();
+		}
+		assertThat(waitingOperation.get(5, TimeUnit.SECONDS)).isTrue();
+	}
+	
+	@Test
+	void metricsShouldBeRecordedByFileStore() throws Exception {
+		
+		FileStore fileStore = Files.getFileStore(tempDir);
+		FileStorePermits fileStorePermits = new FileStorePermits(fs -> 2);
+		
+		assertThat(fileStorePermits.getMetrics()).isEmpty();
+		
+		CompletableFuture<Boolean> waitingOperation;
+		try (Permits permits1 = fileStorePermits.acquire(fileStore, null);
+			 Permits permits2 = fileStorePermits.acquire(null, fileStore)) {
+			waitingOperation = CompletableFuture.supplyAsync(() -> {
+				try (Permits otherPermits = fileStorePermits.acquireUninterruptibly(fileStore, null)) {
+					return true;
+				}
+			}, Executors.newVirtualThreadPerTaskExecutor());
+			
+			Thread.sleep(200);
+			assertThat(fileStorePermits.getMetrics()).singleElement()
+				.satisfies(metrics -> {
+					assertThat(metrics.maxConcurrency()).isEqualTo(2);
+					assertThat(metrics.nbInProgress()).isEqualTo(2);
+					assertThat(metrics.queueDepth()).isEqualTo(1);
+					assertThat(metrics.nbAcquisitions()).isEqualTo(2);
+				});
+		}
+		assertThat(waitingOperation.get(5, TimeUnit.SECONDS)).isTrue();
+		
+		assertThat(fileStorePermits.getMetrics()).singleElement()
+			.satisfies(metrics -> {
+				assertThat(metrics.nbInProgress()).isZero();
+				assertThat(metrics.queueDepth()).isZero();
+				assertThat(metrics.nbAcquisitions()).isEqualTo(3);
+				assertThat(metrics.maxWaitTime()).isGreaterThanOrEqualTo(100);
+				assertThat(metrics.totalWaitTime()).isGreaterThanOrEqualTo(metrics.maxWaitTime());
+			});
+		
+		StringBuilder metricsInfo = new StringBuilder();
+		fileStorePermits.appendMetricsText(metricsInfo);
+		assertThat(metricsInfo).contains(fileStore.toString());
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FolderSizeStageTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void folderSizeShouldBeComputedAsynchronously() throws Exception {
+		
+		Path folder = Files.createDirectories(tempDir.resolve("folder/sub"));
+		Files.write(folder.resolve("file1"), new byte[1000]);
+		Files.write(folder.getParent().resolve("file2"), new byte[234]);
+		FileStore fileStore = Files.getFileStore(tempDir);
+		
+		FileStorePermits ioScheduler = new FileStorePermits(1);
+		FolderSizeStage folderSizeStage = new FolderSizeStage(2, ioScheduler);
+		try {
+			CompletableFuture<Long> folderSize = folderSizeStage.folderSize(folder.getParent(), fileStore);
+			assertThat(folderSize.get(10, TimeUnit.SECONDS)).isEqualTo(1234);
+			
+			// the folder size has acquired the I/O permits of the file store
+			assertThat(ioScheduler.getMetrics()).singleElement()
+				.satisfies(metrics -> assertThat(metrics.nbAcquisitions()).isEqualTo(1));
+		} finally {
+			folderSizeStage.getExecutorService().shutdown();
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.fl.backupFiles.AbstractBackUpItem;
+import org.fl.backupFiles.BackUpCounters;
+import org.fl.backupFiles.BackUpItem;
+import org.fl.backupFiles.BackUpTask;
+import org.fl.backupFiles.BackupAction;
+import org.fl.backupFiles.BackupStatus;
+import org.fl.backupFiles.OperationType;
+import org.fl.backupFiles.TargetFileStores;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupConfiguration;
+import org.fl.backupFiles.directoryGroup.DirectoryGroupMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MoveDetectorTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void movedFileShouldReplaceCopyAndDelete() throws Exception {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		Files.createDirectories(sourceDir.resolve("dir1"));
+		Files.createDirectories(targetDir.resolve("dir1"));
+		FileTime lastModifiedTime = FileTime.fromMillis(1_700_000_000_000L);
+		
+		// a file moved from the root to dir1, and a new file with the same size but another last modified time
+		Path newFile = Files.writeString(sourceDir.resolve("dir1/moved.txt"), "moved content");
+		Files.setLastModifiedTime(newFile, lastModifiedTime);
+		Path oldFile = Files.writeString(targetDir.resolve("moved.txt"), "moved content");
+		Files.setLastModifiedTime(oldFile, lastModifiedTime);
+		Path otherFile = Files.writeString(sourceDir.resolve("other.txt"), "other content");
+		
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, directoryGroupMap, Long.MAX_VALUE);
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		
+		BackUpItem copyItem = new BackUpItem(new PathPairBasicAttributes(newFile, targetDir.resolve("dir1/moved.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		BackUpItem otherCopyItem = new BackUpItem(new PathPairBasicAttributes(otherFile, targetDir.resolve("other.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		BackUpItem deleteItem = new BackUpItem(new PathPairBasicAttributes(null, oldFile), BackupAction.DELETE, new PathPairBasicAttributes(sourceDir, null), backUpCounters, backUpTask);
+		assertThat(backUpCounters.copyNewNb.sum()).isEqualTo(2);
+		assertThat(backUpCounters.deleteNb.sum()).isEqualTo(1);
+		
+		MoveDetector moveDetector = new MoveDetector(true, new FileStorePermits(2), null);
+		assertThat(moveDetector.holdCandidates(List.of(copyItem, otherCopyItem, deleteItem))).isEmpty();
+		List<AbstractBackUpItem> backUpItems = moveDetector.detectMoves(backUpCounters);
+		
+		assertThat(moveDetector.getNbMovesDetected()).isEqualTo(1);
+		assertThat(backUpItems).satisfiesExactly(
+				item -> {
+					assertThat(item.getBackupAction()).isEqualTo(BackupAction.MOVE);
+					assertThat(item.getTargetPath()).isEqualTo(targetDir.resolve("dir1/moved.txt"));
+					assertThat(((BackUpItem)item).getMovedTargetPath()).isEqualTo(oldFile);
+					assertThat(item.getTargetPaths()).containsExactly(targetDir.resolve("dir1/moved.txt"), oldFile);
+					assertThat(item.getNbBytesToCopy()).isZero();
+				},
+				item -> assertThat(item).isSameAs(otherCopyItem));
+		
+		// the counters of the copy and delete replaced by the move are cancelled
+		assertThat(backUpCounters.copyNewNb.sum()).isEqualTo(1);
+		assertThat(backUpCounters.deleteNb.sum()).isZero();
+		assertThat(backUpCounters.moveNb.sum()).isEqualTo(1);
+	}
+	
+	@Test
+	void movedTreeShouldReplaceCopyTreeAndDeleteDir() throws Exception {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		FileTime lastModifiedTime = FileTime.fromMillis(1_700_000_000_000L);
+		
+		// a tree renamed from old to renamed, and a deleted tree of another size
+		Path newTree = Files.createDirectories(sourceDir.resolve("renamed/sub"));
+		Path oldTree = Files.createDirectories(targetDir.resolve("old/sub"));
+		for (Path tree : List.of(newTree, oldTree)) {
+			Files.setLastModifiedTime(Files.writeString(tree.resolve("file1.txt"), "content 1"), lastModifiedTime);
+			Files.setLastModifiedTime(Files.writeString(tree.getParent().resolve("file2.txt"), "content 2"), lastModifiedTime);
+		}
+		Path otherTree = Files.createDirectories(targetDir.resolve("other"));
+		Files.setLastModifiedTime(Files.writeString(otherTree.resolve("file3.txt"), "other content"), lastModifiedTime);
+		
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, directoryGroupMap, Long.MAX_VALUE);
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		
+		BackUpItem copyTreeItem = new BackUpItem(new PathPairBasicAttributes(sourceDir.resolve("renamed"), targetDir.resolve("renamed")), BackupAction.COPY_TREE, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		BackUpItem deleteDirItem = new BackUpItem(new PathPairBasicAttributes(null, targetDir.resolve("old")), BackupAction.DELETE_DIR, new PathPairBasicAttributes(sourceDir, null), backUpCounters, backUpTask);
+		BackUpItem otherDeleteDirItem = new BackUpItem(new PathPairBasicAttributes(null, otherTree), BackupAction.DELETE_DIR, new PathPairBasicAttributes(sourceDir, null), backUpCounters, backUpTask);
+		assertThat(backUpCounters.copyTreeNb.sum()).isEqualTo(1);
+		assertThat(backUpCounters.deleteDirNb.sum()).isEqualTo(2);
+		
+		MoveDetector moveDetector = new MoveDetector(false, new FileStorePermits(2), null);
+		assertThat(moveDetector.holdCandidates(List.of(otherDeleteDirItem, copyTreeItem, deleteDirItem))).isEmpty();
+		List<AbstractBackUpItem> backUpItems = moveDetector.detectMoves(backUpCounters);
+		
+		assertThat(moveDetector.getNbMovesDetected()).isEqualTo(1);
+		assertThat(backUpItems).satisfiesExactly(
+				item -> assertThat(item).isSameAs(otherDeleteDirItem),
+				item -> {
+					assertThat(item.getBackupAction()).isEqualTo(BackupAction.MOVE);
+					assertThat(item.getTargetPath()).isEqualTo(targetDir.resolve("renamed"));
+					assertThat(((BackUpItem)item).getMovedTargetPath()).isEqualTo(targetDir.resolve("old"));
+				});
+		
+		assertThat(backUpCounters.copyTreeNb.sum()).isZero();
+		assertThat(backUpCounters.deleteDirNb.sum()).isEqualTo(1);
+		assertThat(backUpCounters.moveNb.sum()).isEqualTo(1);
+		
+		// the move renames the target tree
+		assertThat(backUpItems.get(1).execute(new BackUpCounters(new TargetFileStores(), OperationType.BACKUP))).isTrue();
+		assertThat(targetDir.resolve("renamed/sub/file1.txt")).hasContent("content 1");
+		assertThat(targetDir.resolve("old")).doesNotExist();
+	}
+	
+	@Test
+	void targetReplacedBySourceOfAnotherTypeShouldNotBeMoved() throws Exception {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		FileTime lastModifiedTime = FileTime.fromMillis(1_700_000_000_000L);
+		
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, directoryGroupMap, Long.MAX_VALUE);
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		
+		// the file data became a directory (the copy of the directory is built before the file is created in the target),
+		// and a new file elsewhere is identical to the old file data
+		Files.writeString(Files.createDirectories(sourceDir.resolve("data")).resolve("file.txt"), "file content");
+		BackUpItem copyTreeItem = new BackUpItem(new PathPairBasicAttributes(sourceDir.resolve("data"), targetDir.resolve("data")), BackupAction.COPY_TREE, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		Path oldFile = Files.writeString(targetDir.resolve("data"), "data content");
+		Files.setLastModifiedTime(oldFile, lastModifiedTime);
+		Path newFile = Files.writeString(sourceDir.resolve("data.txt"), "data content");
+		Files.setLastModifiedTime(newFile, lastModifiedTime);
+		
+		// as scanned: the delete of the file, then the copy of the directory to the same path
+		BackUpItem deleteItem = new BackUpItem(new PathPairBasicAttributes(null, oldFile), BackupAction.DELETE, new PathPairBasicAttributes(sourceDir, null), backUpCounters, backUpTask);
+		BackUpItem copyItem = new BackUpItem(new PathPairBasicAttributes(newFile, targetDir.resolve("data.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		
+		// the move of data to data.txt would be done after the copy of the directory data
+		MoveDetector moveDetector = new MoveDetector(false, new FileStorePermits(2), null);
+		moveDetector.holdCandidates(List.of(deleteItem, copyTreeItem, copyItem));
+		
+		assertThat(moveDetector.detectMoves(backUpCounters)).containsExactly(deleteItem, copyTreeItem, copyItem);
+		assertThat(moveDetector.getNbMovesDetected()).isZero();
+		assertThat(backUpCounters.moveNb.sum()).isZero();
+	}
+	
+	@Test
+	void differentContentShouldNotBeMoved() throws Exception {
+		
+		Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+		Path targetDir = Files.createDirectories(tempDir.resolve("target"));
+		FileTime lastModifiedTime = FileTime.fromMillis(1_700_000_000_000L);
+		
+		Path newFile = Files.writeString(sourceDir.resolve("new.txt"), "new content");
+		Files.setLastModifiedTime(newFile, lastModifiedTime);
+		Path oldFile = Files.writeString(targetDir.resolve("old.txt"), "old content");
+		Files.setLastModifiedTime(oldFile, lastModifiedTime);
+		
+		DirectoryGroupMap directoryGroupMap = new DirectoryGroupMap(sourceDir, sourceDir, new DirectoryGroupConfiguration(null));
+		BackUpTask backUpTask = new BackUpTask(sourceDir, targetDir, directoryGroupMap, Long.MAX_VALUE);
+		BackUpCounters backUpCounters = new BackUpCounters(new TargetFileStores(), OperationType.SCAN);
+		
+		BackUpItem copyItem = new BackUpItem(new PathPairBasicAttributes(newFile, targetDir.resolve("new.txt")), BackupAction.COPY_NEW, BackupStatus.DIFFERENT, backUpCounters, backUpTask);
+		BackUpItem deleteItem = new BackUpItem(new PathPairBasicAttributes(null, oldFile), BackupAction.DELETE, new PathPairBasicAttributes(sourceDir, null), backUpCounters, backUpTask);
+		
+		// same size and last modified time, but the content is compared
+		MoveDetector moveDetector = new MoveDetector(true, new FileStorePermits(2), null);
+		moveDetector.holdCandidates(List.of(copyItem, deleteItem));
+		
+		assertThat(moveDetector.detectMoves(backUpCounters)).containsExactly(copyItem, deleteItem);
+		assertThat(moveDetector.getNbMovesDetected()).isZero();
+		assertThat(backUpCounters.moveNb.sum()).isZero();
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.scanner;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanStateIndexTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void unchangedDirectoryShouldBeReadFromIndex() throws IOException {
+		
+		Path indexDir = tempDir.resolve("index");
+		Path sourceRoot = Files.createDirectories(tempDir.resolve("source"));
+		Path targetRoot = Files.createDirectories(tempDir.resolve("target"));
+		Path targetSubDir = Files.createDirectories(targetRoot.resolve("subDir"));
+		Path targetFile = Files.writeString(targetRoot.resolve("file.txt"), "content");
+		
+		FileTime oldTime = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+		Files.setLastModifiedTime(targetFile, oldTime);
+		Files.setLastModifiedTime(targetSubDir, oldTime);
+		Files.setLastModifiedTime(targetRoot, oldTime);
+		
+		ScanStateIndex scanStateIndex = new ScanStateIndex(indexDir, sourceRoot, targetRoot);
+		scanStateIndex.startScan();
+		
+		BasicFileAttributes targetRootAttributes = Files.readAttributes(targetRoot, BasicFileAttributes.class);
+		assertThat(scanStateIndex.getUnchangedDirectory(targetRoot, targetRootAttributes)).isNull();
+		
+		IndexedDirectory.Builder builder = new IndexedDirectory.Builder(targetRootAttributes.lastModifiedTime());
+		builder.add(targetFile.getFileName().toString(), Files.readAttributes(targetFile, BasicFileAttributes.class));
+		builder.add(targetSubDir.getFileName().toString(), Files.readAttributes(targetSubDir, BasicFileAttributes.class));
+		assertThat(builder.isComplete()).isTrue();
+		scanStateIndex.recordDirectory(targetRoot, builder.build());
+		scanStateIndex.endScan();
+		
+		assertThat(scanStateIndex.getIndexFile()).exists();
+		
+		// Read the index from its file
+		ScanStateIndex scanStateIndex2 = new ScanStateIndex(indexDir, sourceRoot, targetRoot);
+		scanStateIndex2.startScan();
+		assertThat(scanStateIndex2.getNbIndexedDirectories()).isEqualTo(1);
+		
+		IndexedDirectory indexedDirectory = scanStateIndex2.getUnchangedDirectory(targetRoot, Files.readAttributes(targetRoot, BasicFileAttributes.class));
+		assertThat(indexedDirectory).isNotNull();
+		assertThat(indexedDirectory.size()).isEqualTo(2);
+		assertThat(scanStateIndex2.getNbDirectoriesFromIndex()).isEqualTo(1);
+		
+		for (int i = 0; i < indexedDirectory.size(); i++) {
+			if (indexedDirectory.getName(i).equals("file.txt")) {
+				BasicFileAttributes fileAttributes = indexedDirectory.getFileAttributes(i);
+				assertThat(fileAttributes.isRegularFile()).isTrue();
+				assertThat(fileAttributes.size()).isEqualTo(Files.size(targetFile));
+				assertThat(fileAttributes.lastModifiedTime()).isEqualTo(Files.getLastModifiedTime(targetFile));
+			} else {
+				assertThat(indexedDirectory.getName(i)).isEqualTo("subDir");
+				assertThat(indexedDirectory.isDirectory(i)).isTrue();
+				assertThat(indexedDirectory.getFileAttributes(i)).isNull();
+			}
+		}
+		
+		// Modify the directory
+		Files.writeString(targetRoot.resolve("file2.txt"), "content");
+		assertThat(scanStateIndex2.getUnchangedDirectory(targetRoot, Files.readAttributes(targetRoot, BasicFileAttributes.class))).isNull();
+	}
+	
+	@Test
+	void recentlyModifiedDirectoryShouldNotBeReadFromIndex() throws IOException {
+		
+		Path sourceRoot = Files.createDirectories(tempDir.resolve("source"));
+		Path targetRoot = Files.createDirectories(tempDir.resolve("target"));
+		Files.writeString(targetRoot.resolve("file.txt"), "content");
+		
+		ScanStateIndex scanStateIndex = new ScanStateIndex(tempDir.resolve("index"), sourceRoot, targetRoot);
+		scanStateIndex.startScan();
+		
+		BasicFileAttributes targetRootAttributes = Files.readAttributes(targetRoot, BasicFileAttributes.class);
+		IndexedDirectory.Builder builder = new IndexedDirectory.Builder(targetRootAttributes.lastModifiedTime());
+		builder.add("file.txt", Files.readAttributes(targetRoot.resolve("file.txt"), BasicFileAttributes.class));
+		scanStateIndex.recordDirectory(targetRoot, builder.build());
+		scanStateIndex.endScan();
+		
+		scanStateIndex.startScan();
+		assertThat(scanStateIndex.getUnchangedDirectory(targetRoot, targetRootAttributes)).isNull();
+	}
+	
+	@Test
+	void invalidatedDirectoriesShouldBeRemoved() throws IOException {
+		
+		Path sourceRoot = Files.createDirectories(tempDir.resolve("source"));
+		Path targetRoot = Files.createDirectories(tempDir.resolve("target"));
+		Path dir1 = Files.createDirectories(targetRoot.resolve("dir1"));
+		Path dir11 = Files.createDirectories(dir1.resolve("dir11"));
+		Path dir2 = Files.createDirectories(targetRoot.resolve("dir2"));
+		
+		ScanStateIndex scanStateIndex = new ScanStateIndex(tempDir.resolve("index"), sourceRoot, targetRoot);
+		scanStateIndex.startScan();
+		for (Path dir : new Path[] { targetRoot, dir1, dir11, dir2 }) {
+			scanStateIndex.recordDirectory(dir, new IndexedDirectory.Builder(Files.getLastModifiedTime(dir)).build());
+		}
+		scanStateIndex.endScan();
+		assertThat(scanStateIndex.getNbIndexedDirectories()).isEqualTo(4);
+		
+		// A file modified in dir2 invalidates dir2 only
+		scanStateIndex.invalidate(dir2.resolve("file.txt"), false);
+		assertThat(scanStateIndex.getNbIndexedDirectories()).isEqualTo(3);
+		
+		// A deleted directory dir1 invalidates its parent and its sub tree
+		scanStateIndex.invalidate(dir1, true);
+		assertThat(scanStateIndex.getNbIndexedDirectories()).isZero();
+	}
+	
+	@Test
+	void targetShouldBeFullyListedPeriodically() throws IOException {
+		
+		Path indexDir = tempDir.resolve("index");
+		Path sourceRoot = Files.createDirectories(tempDir.resolve("source"));
+		Path targetRoot = Files.createDirectories(tempDir.resolve("target"));
+		FileTime oldTime = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+		Files.setLastModifiedTime(targetRoot, oldTime);
+		BasicFileAttributes targetRootAttributes = Files.readAttributes(targetRoot, BasicFileAttributes.class);
+		
+		ScanStateIndex scanStateIndex = new ScanStateIndex(indexDir, sourceRoot, targetRoot, 3);
+		scanStateIndex.startScan();
+		scanStateIndex.recordDirectory(targetRoot, new IndexedDirectory.Builder(targetRootAttributes.lastModifiedTime()).build());
+		scanStateIndex.endScan();
+		assertThat(scanStateIndex.getNbScansSinceFullScan()).isEqualTo(1);
+		
+		// The number of scans since the last full listing is kept in the index file
+		ScanStateIndex scanStateIndex2 = new ScanStateIndex(indexDir, sourceRoot, targetRoot, 3);
+		scanStateIndex2.startScan();
+		assertThat(scanStateIndex2.getNbScansSinceFullScan()).isEqualTo(2);
+		assertThat(scanStateIndex2.getUnchangedDirectory(targetRoot, targetRootAttributes)).isNotNull();
+		scanStateIndex2.endScan();
+		
+		// Third scan : full listing
+		scanStateIndex2.startScan();
+		assertThat(scanStateIndex2.getNbScansSinceFullScan()).isZero();
+		assertThat(scanStateIndex2.getUnchangedDirectory(targetRoot, targetRootAttributes)).isNull();
+		scanStateIndex2.recordDirectory(targetRoot, new IndexedDirectory.Builder(targetRootAttributes.lastModifiedTime()).build());
+		scanStateIndex2.endScan();
+		
+		scanStateIndex2.startScan();
+		assertThat(scanStateIndex2.getNbScansSinceFullScan()).isEqualTo(1);
+		assertThat(scanStateIndex2.getUnchangedDirectory(targetRoot, targetRootAttributes)).isNotNull();
+	}
+	
+	@Test
+	void indexFileShouldBeRemovedDuringBackUp() throws IOException {
+		
+		Path indexDir = tempDir.resolve("index");
+		Path sourceRoot = Files.createDirectories(tempDir.resolve("source"));
+		Path targetRoot = Files.createDirectories(tempDir.resolve("target"));
+		
+		ScanStateIndex scanStateIndex = new ScanStateIndex(indexDir, sourceRoot, targetRoot);
+		scanStateIndex.startScan();
+		scanStateIndex.recordDirectory(targetRoot, new IndexedDirectory.Builder(Files.getLastModifiedTime(targetRoot)).build());
+		scanStateIndex.endScan();
+		
+		ScanStateIndex otherScanStateIndex = new ScanStateIndex(indexDir, targetRoot, sourceRoot);
+		assertThat(otherScanStateIndex.getIndexFile()).isNotEqualTo(scanStateIndex.getIndexFile());
+		
+		// Interrupted back up
+		scanStateIndex.startBackUp();
+		assertThat(scanStateIndex.getIndexFile()).doesNotExist();
+		
+		ScanStateIndex scanStateIndex2 = new ScanStateIndex(indexDir, sourceRoot, targetRoot);
+		scanStateIndex2.startScan();
+		assertThat(scanStateIndex2.getNbIndexedDirectories()).isZero();
+	}
+}
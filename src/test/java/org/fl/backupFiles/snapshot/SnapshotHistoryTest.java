@@ -0,0 +1,104 @@
+/*
+ * MIT License
+
+Copyright (c) 2017, 2026 Frederic Lefevre
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.fl.backupFiles.snapshot;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotHistoryTest {
+
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void snapshotShouldHardLinkTheTargetFiles() throws IOException {
+		
+		Path target = Files.createDirectories(tempDir.resolve("target"));
+		Path file1 = Files.writeString(target.resolve("file1.txt"), "content 1");
+		Path subDir = Files.createDirectories(target.resolve("sub"));
+		Path file2 = Files.writeString(subDir.resolve("file2.txt"), "content 2");
+		FileTime subDirTime = FileTime.from(Instant.parse("2021-03-04T05:06:07Z"));
+		Files.setLastModifiedTime(subDir, subDirTime);
+		
+		SnapshotHistory snapshotHistory = new SnapshotHistory(target, tempDir.resolve("snapshots"), 0);
+		Path snapshot = snapshotHistory.createSnapshot();
+		
+		assertThat(snapshot).isNotNull().isDirectory();
+		assertThat(snapshotHistory.getSnapshots()).containsExactly(snapshot);
+		assertThat(Files.isSameFile(snapshot.resolve("file1.txt"), file1)).isTrue();
+		assertThat(Files.isSameFile(snapshot.resolve("sub").resolve("file2.txt"), file2)).isTrue();
+		assertThat(Files.getLastModifiedTime(snapshot.resolve("sub"))).isEqualTo(subDirTime);
+	}
+	
+	@Test
+	void unsharedFileShouldNotModifyTheSnapshots() throws IOException {
+		
+		Path target = Files.createDirectories(tempDir.resolve("target"));
+		Path file = Files.writeString(target.resolve("file.txt"), "content");
+		FileTime oldTime = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+		Files.setLastModifiedTime(file, oldTime);
+		
+		SnapshotHistory snapshotHistory = new SnapshotHistory(target, tempDir.resolve("snapshots"), 0);
+		Path snapshotFile = snapshotHistory.createSnapshot().resolve("file.txt");
+		
+		snapshotHistory.unshare(file);
+		Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2022-01-01T00:00:00Z")));
+		
+		assertThat(Files.isSameFile(snapshotFile, file)).isFalse();
+		assertThat(Files.readString(file)).isEqualTo("content");
+		assertThat(Files.getLastModifiedTime(snapshotFile)).isEqualTo(oldTime);
+	}
+	
+	@Test
+	void eachSnapshotShouldHaveItsOwnDirectory() throws IOException {
+		
+		Path target = Files.createDirectories(tempDir.resolve("target"));
+		Files.writeString(target.resolve("file.txt"), "content");
+		
+		SnapshotHistory snapshotHistory = new SnapshotHistory(target, tempDir.resolve("snapshots"), 0);
+		Path snapshot1 = snapshotHistory.createSnapshot();
+		Path snapshot2 = snapshotHistory.createSnapshot();
+		Path snapshot3 = snapshotHistory.createSnapshot();
+		
+		List<Path> snapshots = snapshotHistory.getSnapshots();
+		assertThat(snapshots).containsExactly(snapshot1, snapshot2, snapshot3);
+	}
+	
+	@Test
+	void snapshotInsideTheTargetShouldBeRejected() {
+		
+		Path target = tempDir.resolve("target");
+		assertThatIllegalArgumentException().isThrownBy(() -> new SnapshotHistory(target, target.resolve("snapshots"), 0));
+	}
+}